@@ -37,6 +37,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import lisong_mechlab.model.chassi.ChassisBase;
 import lisong_mechlab.model.chassi.ChassisStandard;
@@ -137,24 +140,120 @@ public class DataCache {
         ParseFailed
     }
 
-    private static transient DataCache   instance;
-    private static transient Boolean     loading   = false;
-    private static transient ParseStatus status    = ParseStatus.NotInitialized;
+    /**
+     * A task in the game file parsing pipeline. Tasks are executed on a {@link ForkJoinPool}, tasks that are given a
+     * name are pipeline stages and record how long they took to execute.
+     * 
+     * @param <T>
+     *            The type of the parse result.
+     */
+    private static abstract class ParseTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+        private final String      name;
+        private volatile long     elapsedNs        = -1;
+
+        ParseTask(String aName) {
+            name = aName;
+        }
+
+        /**
+         * Performs the actual parsing.
+         * 
+         * @return The parse result.
+         * @throws Exception
+         *             If the parsing failed.
+         */
+        protected abstract T parse() throws Exception;
+
+        @Override
+        protected T compute() {
+            long start = System.nanoTime();
+            try {
+                return parse();
+            }
+            catch (RuntimeException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            finally {
+                elapsedNs = System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + (elapsedNs < 0 ? "-" : Long.toString(elapsedNs / 1000000)) + " ms";
+        }
+
+        /**
+         * @param aValue
+         *            The value to return.
+         * @return A task that completes immediately with the given value.
+         */
+        static <U> ParseTask<U> of(final U aValue) {
+            return new ParseTask<U>(null) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected U parse() {
+                    return aValue;
+                }
+            };
+        }
+
+        /**
+         * Registers a named task as a stage so that its timing is reported.
+         * 
+         * @param aStages
+         *            The list of stages to add to.
+         * @param aTask
+         *            The task to register.
+         * @return <code>aTask</code>.
+         */
+        static <U extends ParseTask<?>> U stage(List<ParseTask<?>> aStages, U aTask) {
+            aStages.add(aTask);
+            return aTask;
+        }
+
+        /**
+         * Executes all the given tasks in parallel and waits for them to complete. Must be called from within a
+         * {@link ForkJoinPool}.
+         * 
+         * @param aTasks
+         *            The tasks to execute.
+         * @return A {@link List} with the results of the tasks, in the same order as the tasks.
+         */
+        static <U> List<U> invokeAll(List<ParseTask<U>> aTasks) {
+            ForkJoinTask.invokeAll(aTasks);
+            List<U> ans = new ArrayList<>(aTasks.size());
+            for (ParseTask<U> task : aTasks) {
+                ans.add(task.join());
+            }
+            return ans;
+        }
+    }
+
+    private static transient DataCache     instance;
+    private static transient Boolean       loading   = false;
+    private static transient ParseStatus   status    = ParseStatus.NotInitialized;
 
     @XStreamAsAttribute
-    private String                       lsmlVersion;
-    private Map<String, Long>            checksums = new HashMap<>();           // Filename - CRC
-    private List<Upgrade>                upgrades;
-    private List<Environment>            environments;
-    private List<Item>                   items;
-    private List<ChassisBase>            chassis;
+    private String                         lsmlVersion;
+    private Map<String, Long>              checksums = new HashMap<>();           // Filename - CRC
+    private Map<String, Map<String, Long>> dependencies;                          // Unit - (Filename - CRC)
+    private List<Upgrade>                  upgrades;
+    private List<Environment>              environments;
+    private List<Item>                     items;
+    private List<ChassisBase>              chassis;
 
-    private List<PilotModule>            modules;
+    private List<PilotModule>              modules;
 
-    private List<OmniPod>                omniPods;
+    private List<OmniPod>                  omniPods;
 
-    private List<StockLoadout>           stockLoadouts;
-    private List<ModifierDescription>    modifierDescriptions;
+    private List<StockLoadout>             stockLoadouts;
+    private List<ModifierDescription>      modifierDescriptions;
 
     /**
      * @return An unmodifiable {@link List} of all inner sphere {@link ChassisStandard}s.
@@ -211,21 +310,6 @@ public class DataCache {
         return false;
     }
 
-    private boolean shouldUpdate(Collection<GameFile> aGameFiles) {
-        if (null == aGameFiles) {
-            return false;
-        }
-
-        Map<String, Long> crc = new HashMap<>(checksums);
-        for (GameFile gameFile : aGameFiles) {
-            Long fileCrc = crc.remove(gameFile.path);
-            if (null == fileCrc || fileCrc != gameFile.crc32) {
-                return true;
-            }
-        }
-        return !crc.isEmpty();
-    }
-
     public static Item findItem(int aItemId, List<Item> aItems) {
         for (Item item : aItems) {
             if (item.getMwoId() == aItemId)
@@ -286,14 +370,20 @@ public class DataCache {
             File dataCacheFile = new File(PreferenceStore.getString(PreferenceStore.GAME_DATA_CACHE));
             DataCache dataCache = null;
             if (dataCacheFile.isFile()) {
-                try {
-                    dataCache = (DataCache) stream().fromXML(dataCacheFile);
+                dataCache = readSnapshot(getSnapshotLocation(dataCacheFile), dataCacheFile);
+                if (null != dataCache) {
                     status = ParseStatus.Loaded;
                 }
-                catch (XStreamException exception) {
-                    dataCache = null; // This is expected to happen when format
-                                      // changes and should be handled
-                                      // silently.
+                else {
+                    try {
+                        dataCache = (DataCache) stream().fromXML(dataCacheFile);
+                        status = ParseStatus.Loaded;
+                    }
+                    catch (XStreamException exception) {
+                        dataCache = null; // This is expected to happen when format
+                                          // changes and should be handled
+                                          // silently.
+                    }
                 }
 
                 if (dataCache == null || dataCache.mustUpdate()) {
@@ -303,19 +393,20 @@ public class DataCache {
                         aLog.flush();
                     }
                     dataCacheFile.delete();
+                    getSnapshotLocation(dataCacheFile).delete();
                     dataCache = null;
                 }
             }
 
             File gameDir = new File(PreferenceStore.getString(PreferenceStore.GAMEDIRECTORY_KEY));
             if (gameDir.isDirectory()) {
-                try {
-                    GameVFS gameVfs = new GameVFS(gameDir);
-                    Collection<GameFile> filesToParse = filesToParse(gameVfs);
+                try (GameVFS gameVfs = new GameVFS(gameDir, getArchiveIndexLocation(getNewCacheLocation()), aLog)) {
+                    DataCacheRefresh refresh = null == dataCache ? DataCacheRefresh.full() : DataCacheRefresh
+                            .compute(dataCache.checksums, dataCache.dependencies, gameVfs);
 
-                    if (null == dataCache || dataCache.shouldUpdate(filesToParse)) {
-                        dataCache = updateCache(gameVfs, filesToParse, aLog); // If this throws, the old cache is
-                                                                              // un-touched.
+                    if (refresh.isNeeded()) {
+                        // If this throws, the old cache is un-touched.
+                        dataCache = updateCache(gameVfs, refresh.isFull() ? null : dataCache, refresh, aLog);
                         if (null != aLog) {
                             aLog.append("Cache updated...").append(System.lineSeparator());
                             aLog.flush();
@@ -338,11 +429,22 @@ public class DataCache {
                     aLog.append("Falling back on bundled data cache.").append(System.lineSeparator());
                     aLog.flush();
                 }
-                try (InputStream is = DataCache.class.getResourceAsStream("/resources/bundleDataCache.xml")) {
-                    dataCache = (DataCache) stream().fromXML(is); // Let this throw as this is fatal.
+                try (InputStream is = DataCache.class.getResourceAsStream("/resources/bundleDataCache.bin")) {
+                    if (null != is) {
+                        dataCache = (DataCache) DataCacheSnapshot.read(is);
+                    }
                 }
-                catch (Throwable t) {
-                    throw new RuntimeException("Oops! Li forgot to update the bundled data cache!");
+                catch (IOException | RuntimeException e) {
+                    dataCache = null; // Silently fall back on the XML version.
+                }
+
+                if (dataCache == null) {
+                    try (InputStream is = DataCache.class.getResourceAsStream("/resources/bundleDataCache.xml")) {
+                        dataCache = (DataCache) stream().fromXML(is); // Let this throw as this is fatal.
+                    }
+                    catch (Throwable t) {
+                        throw new RuntimeException("Oops! Li forgot to update the bundled data cache!");
+                    }
                 }
 
                 if (status == ParseStatus.NotInitialized)
@@ -366,20 +468,20 @@ public class DataCache {
         return status;
     }
 
-    private static Collection<GameFile> filesToParse(GameVFS aGameVfs) throws IOException {
-        List<GameFile> ans = new ArrayList<>();
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Weapons/Weapons.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/UpgradeTypes/UpgradeTypes.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Modules/Ammo.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Modules/Engines.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Modules/Equipment.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Modules/JumpJets.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Modules/Internals.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Modules/PilotModules.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Modules/WeaponMods.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Modules/Consumables.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/Mechs/Mechs.xml")));
-        ans.add(aGameVfs.openGameFile(new File("Game/Libs/Items/OmniPods.xml")));
+    private static Collection<File> filesToParse() {
+        List<File> ans = new ArrayList<>();
+        ans.add(new File("Game/Libs/Items/Weapons/Weapons.xml"));
+        ans.add(new File("Game/Libs/Items/UpgradeTypes/UpgradeTypes.xml"));
+        ans.add(new File("Game/Libs/Items/Modules/Ammo.xml"));
+        ans.add(new File("Game/Libs/Items/Modules/Engines.xml"));
+        ans.add(new File("Game/Libs/Items/Modules/Equipment.xml"));
+        ans.add(new File("Game/Libs/Items/Modules/JumpJets.xml"));
+        ans.add(new File("Game/Libs/Items/Modules/Internals.xml"));
+        ans.add(new File("Game/Libs/Items/Modules/PilotModules.xml"));
+        ans.add(new File("Game/Libs/Items/Modules/WeaponMods.xml"));
+        ans.add(new File("Game/Libs/Items/Modules/Consumables.xml"));
+        ans.add(new File("Game/Libs/Items/Mechs/Mechs.xml"));
+        ans.add(new File("Game/Libs/Items/OmniPods.xml"));
         return ans;
     }
 
@@ -408,6 +510,54 @@ public class DataCache {
         return dataCacheFile;
     }
 
+    /**
+     * @param aDataCacheFile
+     *            The location of the XML data cache.
+     * @return The location of the binary snapshot that accompanies the given XML data cache.
+     */
+    static File getSnapshotLocation(File aDataCacheFile) {
+        String path = aDataCacheFile.getPath();
+        if (path.toLowerCase().endsWith(".xml")) {
+            path = path.substring(0, path.length() - 4);
+        }
+        return new File(path + ".bin");
+    }
+
+    /**
+     * @param aDataCacheFile
+     *            The location of the XML data cache.
+     * @return The location of the {@link GameVFS} archive index that accompanies the given XML data cache.
+     */
+    static File getArchiveIndexLocation(File aDataCacheFile) {
+        String path = aDataCacheFile.getPath();
+        if (path.toLowerCase().endsWith(".xml")) {
+            path = path.substring(0, path.length() - 4);
+        }
+        return new File(path + "_archiveindex.bin");
+    }
+
+    /**
+     * Attempts to read a binary snapshot of the data cache.
+     * 
+     * @param aSnapshotFile
+     *            The snapshot file to read.
+     * @param aDataCacheFile
+     *            The XML data cache that the snapshot was written together with. If the snapshot is older than this
+     *            file, it is considered stale and ignored.
+     * @return The {@link DataCache} read from the snapshot or <code>null</code> if the snapshot couldn't be used.
+     */
+    static DataCache readSnapshot(File aSnapshotFile, File aDataCacheFile) {
+        if (!aSnapshotFile.isFile() || aSnapshotFile.lastModified() < aDataCacheFile.lastModified()) {
+            return null;
+        }
+        try {
+            return (DataCache) DataCacheSnapshot.read(aSnapshotFile);
+        }
+        catch (IOException | RuntimeException e) {
+            return null; // Expected when the format changes, the XML is used instead.
+        }
+    }
+
     /**
      * Parses all inner sphere {@link ChassisStandard} from the ItemStats.xml file and related files.
      * 
@@ -417,36 +567,62 @@ public class DataCache {
      *            A {@link GameFile} containing the ItemStats.xml file to parse.
      * @param aDataCache
      *            The {@link DataCache} that is being parsed.
+     * @param aPrevious
+     *            The previous {@link DataCache} to take clean chassis from, or <code>null</code>.
+     * @param aRefresh
+     *            The {@link DataCacheRefresh} that determines which chassis to re-parse.
      * @return A List of all {@link ChassisStandard} found in aItemStatsXml.
      */
-    private static List<ChassisBase> parseChassis(GameVFS aGameVfs, XMLItemStats aItemStatsXml, DataCache aDataCache)
-            throws IOException {
-        XMLMechIdMap mechIdMap = XMLMechIdMap.fromXml(aGameVfs.openGameFile(GameVFS.MECH_ID_MAP_XML).stream);
-        List<ChassisBase> ans = new ArrayList<>();
-
-        for (XMLItemStatsMech mech : aItemStatsXml.MechList) {
-            try {
-                String mdfFile = mech.chassis + "/" + mech.name + ".mdf";
-                MdfMechDefinition mdf = MdfMechDefinition.fromXml(aGameVfs.openGameFile(new File(GameVFS.MDF_ROOT,
-                        mdfFile)).stream);
-
-                if (mdf.isOmniMech()) {
-                    File loadoutXml = new File("Game/Libs/MechLoadout/" + mech.name + ".xml");
-                    XMLLoadout stockXML = XMLLoadout.fromXml(aGameVfs.openGameFile(loadoutXml).stream);
-                    ans.add(mdf.asChassisOmniMech(mech, aDataCache, mechIdMap, stockXML));
-                }
-                else {
-                    String hardPointsXml = mech.chassis + "/" + mech.chassis + "-hardpoints.xml";
-                    XMLHardpoints hardPoints = XMLHardpoints.fromXml(aGameVfs.openGameFile(new File(GameVFS.MDF_ROOT,
-                            hardPointsXml)).stream);
-                    ans.add(mdf.asChassisStandard(mech, aDataCache, mechIdMap, hardPoints));
-                }
+    private static List<ChassisBase> parseChassis(final GameVFS aGameVfs, XMLItemStats aItemStatsXml,
+            final DataCache aDataCache, DataCache aPrevious, final DataCacheRefresh aRefresh) throws IOException {
+        final XMLMechIdMap mechIdMap = XMLMechIdMap.fromXml(aRefresh.track(aGameVfs, DataCacheRefresh.CHASSIS)
+                .openGameFile(GameVFS.MECH_ID_MAP_XML).stream);
+        Map<String, ChassisBase> previousChassis = new HashMap<>();
+        if (null != aPrevious) {
+            for (ChassisBase chassis : aPrevious.chassis) {
+                previousChassis.put(chassis.getMwoName().toLowerCase(), chassis);
             }
-            catch (Exception e) {
-                throw new IOException("Unable to load chassi configuration for [" + mech.name + "]!", e);
+        }
+
+        List<ParseTask<ChassisBase>> tasks = new ArrayList<>();
+        for (final XMLItemStatsMech mech : aItemStatsXml.MechList) {
+            final String unit = DataCacheRefresh.chassisUnit(mech.name);
+            ChassisBase previous = previousChassis.get(mech.name.toLowerCase());
+            if (null != previous && !aRefresh.isDirty(unit)
+                    && !aRefresh.isDirty(DataCacheRefresh.omniPodUnit(mech.chassis))) {
+                aRefresh.keep(unit);
+                tasks.add(ParseTask.of(previous));
+                continue;
             }
+
+            tasks.add(new ParseTask<ChassisBase>(null) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected ChassisBase parse() throws IOException {
+                    GameVFS gameVfs = aRefresh.track(aGameVfs, unit);
+                    try {
+                        String mdfFile = mech.chassis + "/" + mech.name + ".mdf";
+                        MdfMechDefinition mdf = MdfMechDefinition.fromXml(gameVfs.openGameFile(new File(
+                                GameVFS.MDF_ROOT, mdfFile)).stream);
+
+                        if (mdf.isOmniMech()) {
+                            File loadoutXml = new File("Game/Libs/MechLoadout/" + mech.name + ".xml");
+                            XMLLoadout stockXML = XMLLoadout.fromXml(gameVfs.openGameFile(loadoutXml).stream);
+                            return mdf.asChassisOmniMech(mech, aDataCache, mechIdMap, stockXML);
+                        }
+                        String hardPointsXml = mech.chassis + "/" + mech.chassis + "-hardpoints.xml";
+                        XMLHardpoints hardPoints = XMLHardpoints.fromXml(gameVfs.openGameFile(new File(
+                                GameVFS.MDF_ROOT, hardPointsXml)).stream);
+                        return mdf.asChassisStandard(mech, aDataCache, mechIdMap, hardPoints);
+                    }
+                    catch (Exception e) {
+                        throw new IOException("Unable to load chassi configuration for [" + mech.name + "]!", e);
+                    }
+                }
+            });
         }
-        return ans;
+        return ParseTask.invokeAll(tasks);
     }
 
     /**
@@ -489,10 +665,15 @@ public class DataCache {
                 continue;
             }
 
+            File missionFile = new File(file, "mission_mission0.xml");
+            if (!aGameVfs.exists(missionFile)) {
+                continue; // Not a level.
+            }
+
             String uiTag = "ui_" + file.getName();
             String uiName = Localization.key2string(uiTag);
             Mission mission = (Mission) xstream
-                    .fromXML(aGameVfs.openGameFile(new File(file, "mission_mission0.xml")).stream);
+                    .fromXML(aGameVfs.openGameFile(missionFile).stream);
 
             boolean found = false;
             for (Mission.Entity entity : mission.Objects) {
@@ -692,108 +873,168 @@ public class DataCache {
         return ans;
     }
 
-    private static List<? extends OmniPod> parseOmniPods(GameVFS aGameVfs, XMLItemStats aItemStatsXml,
-            DataCache aDataCache) throws IOException {
-        List<OmniPod> ans = new ArrayList<>();
+    private static List<? extends OmniPod> parseOmniPods(final GameVFS aGameVfs, final XMLItemStats aItemStatsXml,
+            final DataCache aDataCache, DataCache aPrevious, final DataCacheRefresh aRefresh) throws IOException {
         Set<String> series = new HashSet<>();
         for (ItemStatsOmniPodType omniPod : aItemStatsXml.OmniPodList) {
             series.add(omniPod.chassis);
         }
-        for (String chassis : series) {
-            try {
-                String omniPodsFile = chassis + "/" + chassis + "-omnipods.xml";
-                XMLOmniPods omniPods = XMLOmniPods.fromXml(aGameVfs.openGameFile(new File(GameVFS.MDF_ROOT,
-                        omniPodsFile)).stream);
-
-                String hardPointsXml = chassis + "/" + chassis + "-hardpoints.xml";
-                XMLHardpoints hardPoints = XMLHardpoints.fromXml(aGameVfs.openGameFile(new File(GameVFS.MDF_ROOT,
-                        hardPointsXml)).stream);
-
-                ans.addAll(omniPods.asOmniPods(aItemStatsXml, hardPoints, aDataCache));
 
+        Map<String, List<OmniPod>> previousOmniPods = new HashMap<>();
+        if (null != aPrevious) {
+            for (OmniPod omniPod : aPrevious.omniPods) {
+                String key = omniPod.getChassisSeries().toLowerCase();
+                List<OmniPod> omniPods = previousOmniPods.get(key);
+                if (null == omniPods) {
+                    omniPods = new ArrayList<>();
+                    previousOmniPods.put(key, omniPods);
+                }
+                omniPods.add(omniPod);
             }
-            catch (Exception e) {
-                throw new IOException("Unable to load chassi configuration! Chassis: " + chassis, e);
+        }
+
+        List<ParseTask<List<OmniPod>>> tasks = new ArrayList<>();
+        for (final String chassis : series) {
+            final String unit = DataCacheRefresh.omniPodUnit(chassis);
+            List<OmniPod> previous = previousOmniPods.get(chassis.toLowerCase());
+            if (null != previous && !aRefresh.isDirty(unit)) {
+                aRefresh.keep(unit);
+                tasks.add(ParseTask.of(previous));
+                continue;
             }
+
+            tasks.add(new ParseTask<List<OmniPod>>(null) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected List<OmniPod> parse() throws IOException {
+                    GameVFS gameVfs = aRefresh.track(aGameVfs, unit);
+                    try {
+                        String omniPodsFile = chassis + "/" + chassis + "-omnipods.xml";
+                        XMLOmniPods omniPods = XMLOmniPods.fromXml(gameVfs.openGameFile(new File(GameVFS.MDF_ROOT,
+                                omniPodsFile)).stream);
+                        String hardPointsXml = chassis + "/" + chassis + "-hardpoints.xml";
+                        XMLHardpoints hardPoints = XMLHardpoints.fromXml(gameVfs.openGameFile(new File(
+                                GameVFS.MDF_ROOT, hardPointsXml)).stream);
+                        return omniPods.asOmniPods(aItemStatsXml, hardPoints, aDataCache);
+                    }
+                    catch (Exception e) {
+                        throw new IOException("Unable to load chassi configuration! Chassis: " + chassis, e);
+                    }
+                }
+            });
         }
 
+        List<OmniPod> ans = new ArrayList<>();
+        for (List<OmniPod> omniPods : ParseTask.invokeAll(tasks)) {
+            ans.addAll(omniPods);
+        }
         return ans;
     }
 
     /**
      * @param aGameVfs
      * @param aChassis
+     * @param aPrevious
+     *            The previous {@link DataCache} to take clean stock loadouts from, or <code>null</code>.
+     * @param aRefresh
+     *            The {@link DataCacheRefresh} that determines which stock loadouts to re-parse.
      * @return
      */
-    private static List<StockLoadout> parseStockLoadouts(GameVFS aGameVfs, List<ChassisBase> aChassis)
-            throws IOException {
-        List<StockLoadout> ans = new ArrayList<>();
+    private static List<StockLoadout> parseStockLoadouts(final GameVFS aGameVfs, List<ChassisBase> aChassis,
+            DataCache aPrevious, final DataCacheRefresh aRefresh) throws IOException {
+        Map<String, StockLoadout> previousLoadouts = new HashMap<>();
+        if (null != aPrevious) {
+            // The stock loadouts are in the same order as the chassis.
+            for (int i = 0; i < aPrevious.chassis.size(); ++i) {
+                previousLoadouts.put(aPrevious.chassis.get(i).getMwoName().toLowerCase(), aPrevious.stockLoadouts
+                        .get(i));
+            }
+        }
 
-        for (ChassisBase chassis : aChassis) {
-            File loadoutXml = new File("Game/Libs/MechLoadout/" + chassis.getMwoName().toLowerCase() + ".xml");
-            XMLLoadout stockXML = XMLLoadout.fromXml(aGameVfs.openGameFile(loadoutXml).stream);
+        List<ParseTask<StockLoadout>> tasks = new ArrayList<>();
+        for (final ChassisBase chassis : aChassis) {
+            final String unit = DataCacheRefresh.stockLoadoutUnit(chassis.getMwoName());
+            StockLoadout previous = previousLoadouts.get(chassis.getMwoName().toLowerCase());
+            if (null != previous && !aRefresh.isDirty(unit)) {
+                aRefresh.keep(unit);
+                tasks.add(ParseTask.of(previous));
+                continue;
+            }
 
-            List<StockLoadout.StockComponent> components = new ArrayList<>();
-            for (XMLLoadout.Component xmlComponent : stockXML.ComponentList) {
-                List<Integer> items = new ArrayList<>();
+            tasks.add(new ParseTask<StockLoadout>(null) {
+                private static final long serialVersionUID = 1L;
 
-                if (xmlComponent.Ammo != null) {
-                    for (XMLLoadout.Component.Item item : xmlComponent.Ammo) {
-                        items.add(item.ItemID);
-                    }
+                @Override
+                protected StockLoadout parse() throws IOException {
+                    return parseStockLoadout(aRefresh.track(aGameVfs, unit), chassis);
                 }
+            });
+        }
+        return ParseTask.invokeAll(tasks);
+    }
 
-                if (xmlComponent.Module != null) {
-                    for (XMLLoadout.Component.Item item : xmlComponent.Module) {
-                        items.add(item.ItemID);
-                    }
+    private static StockLoadout parseStockLoadout(GameVFS aGameVfs, ChassisBase aChassis) throws IOException {
+        File loadoutXml = new File("Game/Libs/MechLoadout/" + aChassis.getMwoName().toLowerCase() + ".xml");
+        XMLLoadout stockXML = XMLLoadout.fromXml(aGameVfs.openGameFile(loadoutXml).stream);
+
+        List<StockLoadout.StockComponent> components = new ArrayList<>();
+        for (XMLLoadout.Component xmlComponent : stockXML.ComponentList) {
+            List<Integer> items = new ArrayList<>();
+
+            if (xmlComponent.Ammo != null) {
+                for (XMLLoadout.Component.Item item : xmlComponent.Ammo) {
+                    items.add(item.ItemID);
                 }
+            }
 
-                if (xmlComponent.Weapon != null) {
-                    for (XMLLoadout.Component.Weapon item : xmlComponent.Weapon) {
-                        items.add(item.ItemID);
-                    }
+            if (xmlComponent.Module != null) {
+                for (XMLLoadout.Component.Item item : xmlComponent.Module) {
+                    items.add(item.ItemID);
                 }
+            }
 
-                Location partType = Location.fromMwoName(xmlComponent.ComponentName);
-                boolean isRear = Location.isRear(xmlComponent.ComponentName);
-                int armorFront = isRear ? 0 : xmlComponent.Armor;
-                int armorBack = isRear ? xmlComponent.Armor : 0;
-
-                // Merge front and back sides
-                Iterator<StockComponent> it = components.iterator();
-                while (it.hasNext()) {
-                    StockComponent stockComponent = it.next();
-                    if (stockComponent.getPart() == partType) {
-                        items.addAll(stockComponent.getItems());
-                        armorFront = isRear ? stockComponent.getArmorFront() : armorFront;
-                        armorBack = isRear ? armorBack : stockComponent.getArmorBack();
-                        it.remove();
-                        break;
-                    }
+            if (xmlComponent.Weapon != null) {
+                for (XMLLoadout.Component.Weapon item : xmlComponent.Weapon) {
+                    items.add(item.ItemID);
                 }
+            }
 
-                StockLoadout.StockComponent stockComponent = new StockLoadout.StockComponent(partType, armorFront,
-                        armorBack, items);
-                components.add(stockComponent);
+            Location partType = Location.fromMwoName(xmlComponent.ComponentName);
+            boolean isRear = Location.isRear(xmlComponent.ComponentName);
+            int armorFront = isRear ? 0 : xmlComponent.Armor;
+            int armorBack = isRear ? xmlComponent.Armor : 0;
+
+            // Merge front and back sides
+            Iterator<StockComponent> it = components.iterator();
+            while (it.hasNext()) {
+                StockComponent stockComponent = it.next();
+                if (stockComponent.getPart() == partType) {
+                    items.addAll(stockComponent.getItems());
+                    armorFront = isRear ? stockComponent.getArmorFront() : armorFront;
+                    armorBack = isRear ? armorBack : stockComponent.getArmorBack();
+                    it.remove();
+                    break;
+                }
             }
 
-            int armorId = 2810; // Standard armor
-            int structureId = 3100; // Standard Structure
-            int heatsinkId = 3003; // Standard heat sinks
-            int guidanceId = 3051; // No Artemis
+            StockLoadout.StockComponent stockComponent = new StockLoadout.StockComponent(partType, armorFront,
+                    armorBack, items);
+            components.add(stockComponent);
+        }
 
-            if (stockXML.upgrades != null) {
-                armorId = stockXML.upgrades.armor.ItemID;
-                structureId = stockXML.upgrades.structure.ItemID;
-                heatsinkId = stockXML.upgrades.heatsinks.ItemID;
-                guidanceId = stockXML.upgrades.artemis.Equipped != 0 ? 3050 : 3051;
-            }
-            StockLoadout loadout = new StockLoadout(chassis.getMwoId(), components, armorId, structureId, heatsinkId,
-                    guidanceId);
-            ans.add(loadout);
+        int armorId = 2810; // Standard armor
+        int structureId = 3100; // Standard Structure
+        int heatsinkId = 3003; // Standard heat sinks
+        int guidanceId = 3051; // No Artemis
+
+        if (stockXML.upgrades != null) {
+            armorId = stockXML.upgrades.armor.ItemID;
+            structureId = stockXML.upgrades.structure.ItemID;
+            heatsinkId = stockXML.upgrades.heatsinks.ItemID;
+            guidanceId = stockXML.upgrades.artemis.Equipped != 0 ? 3050 : 3051;
         }
-        return ans;
+        return new StockLoadout(aChassis.getMwoId(), components, armorId, structureId, heatsinkId, guidanceId);
     }
 
     /**
@@ -826,7 +1067,7 @@ public class DataCache {
         return ans;
     }
 
-    private static XStream stream() {
+    static XStream stream() {
         XStream stream = new XStream();
         stream.autodetectAnnotations(true);
         stream.setMode(XStream.ID_REFERENCES);
@@ -869,37 +1110,201 @@ public class DataCache {
     }
 
     /**
-     * Reads the latest data from the game files and creates a new cache.
+     * Reads the latest data from the game files and creates a new cache. Only the parts of the cache that are dirty
+     * according to <code>aRefresh</code> are parsed, the rest is taken from <code>aPrevious</code>.
      * 
      * @param aGameVfs
+     *            The {@link GameVFS} to read game files from.
+     * @param aPrevious
+     *            The previous {@link DataCache} or <code>null</code> if everything is to be parsed.
+     * @param aRefresh
+     *            The {@link DataCacheRefresh} that determines what to re-parse.
      * @param aLog
-     * @param aItemStatsXmlFile
+     *            A {@link Writer} to write messages to. Can be <code>null</code>.
      * @throws IOException
      */
-    private static DataCache updateCache(GameVFS aGameVfs, Collection<GameFile> aGameFiles, Writer aLog)
-            throws IOException {
+    private static DataCache updateCache(final GameVFS aGameVfs, final DataCache aPrevious,
+            final DataCacheRefresh aRefresh, Writer aLog) throws IOException {
         File cacheLocation = getNewCacheLocation();
+        final DataCache dataCache = new DataCache();
+        dataCache.lsmlVersion = LSML.getVersion();
 
-        Localization.initialize(aGameVfs);
-        DataCache dataCache = new DataCache();
-
-        XMLItemStats itemStatsXml = new XMLItemStats();
-        for (GameFile gameFile : aGameFiles) {
-            itemStatsXml.append(gameFile);
-            dataCache.checksums.put(gameFile.path, gameFile.crc32);
+        if (null != aLog) {
+            aLog.append("Re-parsing game files for: ").append(aRefresh.toString()).append(System.lineSeparator());
+            aLog.flush();
         }
 
-        dataCache.lsmlVersion = LSML.getVersion();
-        dataCache.modifierDescriptions = Collections.unmodifiableList(XMLQuirkDef.fromXml(LoadoutCoderV3.class
-                .getResourceAsStream("/resources/Quirks.def.xml")));
-        dataCache.items = Collections.unmodifiableList(parseItems(itemStatsXml));
-        dataCache.modules = Collections.unmodifiableList(parseModules(aGameVfs, itemStatsXml));
-        dataCache.upgrades = Collections.unmodifiableList(parseUpgrades(itemStatsXml, dataCache));
-        dataCache.omniPods = Collections.unmodifiableList(parseOmniPods(aGameVfs, itemStatsXml, dataCache));
-        dataCache.chassis = Collections.unmodifiableList(parseChassis(aGameVfs, itemStatsXml, dataCache));
+        final StringWriter environmentsLog = new StringWriter();
+        final List<ParseTask<?>> stages = new ArrayList<>();
+        final long startTime = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.invoke(new ParseTask<Void>(null) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected Void parse() throws Exception {
+                    // Stages without dependencies.
+                    ParseTask<Void> localization = stage(stages, new ParseTask<Void>("Localization") {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected Void parse() throws IOException {
+                            Localization.initialize(aRefresh.track(aGameVfs, DataCacheRefresh.LOCALIZATION));
+                            return null;
+                        }
+                    });
+                    ParseTask<List<ModifierDescription>> quirks = stage(stages,
+                            new ParseTask<List<ModifierDescription>>("Quirk definitions") {
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                protected List<ModifierDescription> parse() {
+                                    if (null != aPrevious) {
+                                        // Built in, can only change between LSML versions.
+                                        return new ArrayList<>(aPrevious.modifierDescriptions);
+                                    }
+                                    return XMLQuirkDef.fromXml(LoadoutCoderV3.class
+                                            .getResourceAsStream("/resources/Quirks.def.xml"));
+                                }
+                            });
+                    ParseTask<XMLItemStats> itemStats = stage(stages, new ParseTask<XMLItemStats>("Item stats") {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected XMLItemStats parse() throws IOException {
+                            XMLItemStats itemStatsXml = new XMLItemStats();
+                            for (File file : filesToParse()) {
+                                try (GameFile gameFile = aGameVfs.streamGameFile(file)) {
+                                    itemStatsXml.append(gameFile);
+                                    dataCache.checksums.put(gameFile.path, gameFile.crc32);
+                                }
+                            }
+                            return itemStatsXml;
+                        }
+                    });
+                    localization.fork();
+                    quirks.fork();
+                    itemStats.fork();
+
+                    // Environments only depend on the localization.
+                    localization.join();
+                    ParseTask<List<Environment>> environments = stage(stages, new ParseTask<List<Environment>>(
+                            "Environments") {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected List<Environment> parse() throws IOException {
+                            if (!aRefresh.isDirty(DataCacheRefresh.ENVIRONMENTS)) {
+                                aRefresh.keep(DataCacheRefresh.ENVIRONMENTS);
+                                return new ArrayList<>(aPrevious.environments);
+                            }
+                            return parseEnvironments(aRefresh.track(aGameVfs, DataCacheRefresh.ENVIRONMENTS),
+                                    environmentsLog);
+                        }
+                    });
+                    environments.fork();
+
+                    // Items must be parsed before anything that refers to items.
+                    final XMLItemStats itemStatsXml = itemStats.join();
+                    dataCache.items = Collections.unmodifiableList(stage(stages, new ParseTask<List<Item>>("Items") {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected List<Item> parse() throws IOException {
+                            // Always parse as this removes the items from the module list.
+                            List<Item> items = parseItems(itemStatsXml);
+                            if (!aRefresh.isDirty(DataCacheRefresh.ITEMS)) {
+                                return new ArrayList<>(aPrevious.items);
+                            }
+                            return items;
+                        }
+                    }).invoke());
+
+                    // Modules consume the module list that was left after the items were parsed.
+                    ParseTask<List<PilotModule>> modules = stage(stages, new ParseTask<List<PilotModule>>("Modules") {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected List<PilotModule> parse() throws IOException {
+                            if (!aRefresh.isDirty(DataCacheRefresh.MODULES)) {
+                                aRefresh.keep(DataCacheRefresh.MODULES);
+                                return new ArrayList<>(aPrevious.modules);
+                            }
+                            return parseModules(aRefresh.track(aGameVfs, DataCacheRefresh.MODULES), itemStatsXml);
+                        }
+                    });
+                    ParseTask<List<Upgrade>> upgrades = stage(stages, new ParseTask<List<Upgrade>>("Upgrades") {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected List<Upgrade> parse() {
+                            if (!aRefresh.isDirty(DataCacheRefresh.UPGRADES)) {
+                                return new ArrayList<>(aPrevious.upgrades);
+                            }
+                            return parseUpgrades(itemStatsXml, dataCache);
+                        }
+                    });
+                    modules.fork();
+                    upgrades.fork();
+
+                    // Omnipods need items and quirks.
+                    dataCache.modifierDescriptions = Collections.unmodifiableList(quirks.join());
+                    dataCache.omniPods = Collections.unmodifiableList(stage(stages,
+                            new ParseTask<List<? extends OmniPod>>("OmniPods") {
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                protected List<? extends OmniPod> parse() throws IOException {
+                                    return parseOmniPods(aGameVfs, itemStatsXml, dataCache, aPrevious, aRefresh);
+                                }
+                            }).invoke());
+
+                    // Chassis need items, quirks, upgrades and omnipods.
+                    dataCache.upgrades = Collections.unmodifiableList(upgrades.join());
+                    dataCache.chassis = Collections.unmodifiableList(stage(stages,
+                            new ParseTask<List<ChassisBase>>("Chassis") {
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                protected List<ChassisBase> parse() throws IOException {
+                                    return parseChassis(aGameVfs, itemStatsXml, dataCache, aPrevious, aRefresh);
+                                }
+                            }).invoke());
+
+                    dataCache.stockLoadouts = Collections.unmodifiableList(stage(stages,
+                            new ParseTask<List<StockLoadout>>("Stock loadouts") {
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                protected List<StockLoadout> parse() throws IOException {
+                                    return parseStockLoadouts(aGameVfs, dataCache.chassis, aPrevious, aRefresh);
+                                }
+                            }).invoke());
+
+                    dataCache.modules = Collections.unmodifiableList(modules.join());
+                    dataCache.environments = Collections.unmodifiableList(environments.join());
+                    dataCache.dependencies = aRefresh.getDependencies();
+                    return null;
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            throw new IOException("Parsing of game files failed!", e);
+        }
+        finally {
+            pool.shutdown();
+        }
 
-        dataCache.environments = Collections.unmodifiableList(parseEnvironments(aGameVfs, aLog));
-        dataCache.stockLoadouts = Collections.unmodifiableList(parseStockLoadouts(aGameVfs, dataCache.chassis));
+        if (null != aLog) {
+            aLog.append(environmentsLog.toString());
+            aLog.append("Parsed game files in ").append(Long.toString((System.nanoTime() - startTime) / 1000000))
+                    .append(" ms:").append(System.lineSeparator());
+            for (ParseTask<?> stage : stages) {
+                aLog.append("    ").append(stage.toString()).append(System.lineSeparator());
+            }
+            aLog.flush();
+        }
 
         XStream stream = stream();
         try (OutputStreamWriter ow = new OutputStreamWriter(new FileOutputStream(cacheLocation), "UTF-8");
@@ -911,6 +1316,18 @@ public class DataCache {
             // Write to file
             ow.append(sw.toString());
         }
+
+        try {
+            DataCacheSnapshot.write(dataCache, getSnapshotLocation(cacheLocation));
+        }
+        catch (IOException | RuntimeException e) {
+            // The XML cache is still valid, it'll just be slower to load.
+            getSnapshotLocation(cacheLocation).delete();
+            if (null != aLog) {
+                aLog.append("Unable to write binary data cache: ").append(e.getMessage())
+                        .append(System.lineSeparator());
+            }
+        }
         PreferenceStore.setString(PreferenceStore.GAME_DATA_CACHE, cacheLocation.getPath());
 
         return dataCache;
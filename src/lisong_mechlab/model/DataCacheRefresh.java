@@ -0,0 +1,269 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lisong_mechlab.mwo_data.GameVFS;
+
+/**
+ * Determines which parts of the {@link DataCache} need to be re-parsed after the game files have changed.
+ * <p>
+ * The cache is split into units, for example the items, a single chassis or the omnipods of a chassis series. For each
+ * unit the checksums of all game files that were read while parsing the unit are stored in the cache. A unit is dirty
+ * if any of its files have changed, or if a unit that it depends on is dirty.
+ * <p>
+ * This class also collects the file dependencies of the units while a new cache is being parsed.
+ *
+ * @author Emily Björk
+ */
+class DataCacheRefresh {
+    static final String                                    LOCALIZATION   = "localization";
+    static final String                                    ITEMS          = "items";
+    static final String                                    MODULES        = "modules";
+    static final String                                    UPGRADES       = "upgrades";
+    static final String                                    ENVIRONMENTS   = "environments";
+    /** Files that are shared by all chassis, for example the MechIDMap.xml. */
+    static final String                                    CHASSIS        = "chassis";
+
+    private static final String                            CHASSIS_PREFIX = "chassis/";
+    private static final String                            OMNIPOD_PREFIX = "omnipods/";
+    private static final String                            STOCK_PREFIX   = "stock/";
+
+    private final Map<String, Map<String, Long>>           previousDependencies;
+    private final ConcurrentMap<String, Map<String, Long>> dependencies   = new ConcurrentHashMap<>();
+    private final Set<String>                              dirty          = new TreeSet<>();
+    private boolean                                        full;
+    private boolean                                        allChassis;
+    private boolean                                        allOmniPods;
+
+    private DataCacheRefresh(Map<String, Map<String, Long>> aPreviousDependencies) {
+        previousDependencies = aPreviousDependencies;
+        full = null == aPreviousDependencies;
+    }
+
+    /**
+     * @return A {@link DataCacheRefresh} that re-parses everything.
+     */
+    static DataCacheRefresh full() {
+        return new DataCacheRefresh(null);
+    }
+
+    /**
+     * Compares the recorded checksums of a {@link DataCache} to the current game files and determines which units need
+     * to be re-parsed.
+     *
+     * @param aItemStatsChecksums
+     *            The checksums of the item stats files of the previous cache.
+     * @param aDependencies
+     *            The file dependencies of each unit of the previous cache, may be <code>null</code> for caches that
+     *            didn't track dependencies.
+     * @param aGameVfs
+     *            The {@link GameVFS} to check the current checksums with.
+     * @return A new {@link DataCacheRefresh}.
+     * @throws IOException
+     *             If the game files couldn't be accessed.
+     */
+    static DataCacheRefresh compute(Map<String, Long> aItemStatsChecksums,
+            Map<String, Map<String, Long>> aDependencies, GameVFS aGameVfs) throws IOException {
+        if (null == aItemStatsChecksums || null == aDependencies) {
+            return full();
+        }
+
+        DataCacheRefresh refresh = new DataCacheRefresh(aDependencies);
+        for (Entry<String, Long> file : aItemStatsChecksums.entrySet()) {
+            if (aGameVfs.getChecksum(file.getKey()) != file.getValue().longValue()) {
+                refresh.markItemStats(file.getKey());
+            }
+        }
+
+        for (Entry<String, Map<String, Long>> unit : aDependencies.entrySet()) {
+            for (Entry<String, Long> file : unit.getValue().entrySet()) {
+                if (aGameVfs.getChecksum(file.getKey()) != file.getValue().longValue()) {
+                    refresh.markUnit(unit.getKey());
+                    break;
+                }
+            }
+        }
+
+        // Propagate to dependent units
+        if (refresh.dirty.contains(ITEMS)) {
+            refresh.dirty.add(UPGRADES);
+            refresh.allOmniPods = true;
+            refresh.allChassis = true;
+        }
+        if (refresh.dirty.contains(UPGRADES) || refresh.allOmniPods) {
+            refresh.allChassis = true;
+        }
+        return refresh;
+    }
+
+    static String chassisUnit(String aMechName) {
+        return CHASSIS_PREFIX + aMechName.toLowerCase();
+    }
+
+    static String omniPodUnit(String aSeries) {
+        return OMNIPOD_PREFIX + aSeries.toLowerCase();
+    }
+
+    static String stockLoadoutUnit(String aMechName) {
+        return STOCK_PREFIX + aMechName.toLowerCase();
+    }
+
+    /**
+     * @return <code>true</code> if anything needs to be re-parsed.
+     */
+    boolean isNeeded() {
+        return full || allChassis || allOmniPods || !dirty.isEmpty();
+    }
+
+    /**
+     * @return <code>true</code> if the entire cache needs to be re-parsed.
+     */
+    boolean isFull() {
+        return full;
+    }
+
+    /**
+     * @param aUnit
+     *            The unit to check.
+     * @return <code>true</code> if the given unit must be re-parsed.
+     */
+    boolean isDirty(String aUnit) {
+        if (full || dirty.contains(aUnit)) {
+            return true;
+        }
+        if (aUnit.startsWith(CHASSIS_PREFIX) || aUnit.startsWith(STOCK_PREFIX)) {
+            return allChassis;
+        }
+        if (aUnit.startsWith(OMNIPOD_PREFIX)) {
+            return allOmniPods;
+        }
+        return false;
+    }
+
+    /**
+     * Prepares to re-parse a unit. Any dependencies recorded earlier for the unit are discarded.
+     *
+     * @param aGameVfs
+     *            The {@link GameVFS} to parse the unit from.
+     * @param aUnit
+     *            The unit that is being parsed.
+     * @return A {@link GameVFS} that records the files read for the unit.
+     */
+    GameVFS track(GameVFS aGameVfs, String aUnit) {
+        Map<String, Long> files = new ConcurrentHashMap<>();
+        dependencies.put(aUnit, files);
+        return aGameVfs.recordReads(files);
+    }
+
+    /**
+     * Marks a clean unit as being kept from the previous cache and keeps its dependencies.
+     *
+     * @param aUnit
+     *            The unit that is kept.
+     */
+    void keep(String aUnit) {
+        Map<String, Long> files = previousDependencies.get(aUnit);
+        if (null != files) {
+            dependencies.put(aUnit, files);
+        }
+    }
+
+    /**
+     * @return The file dependencies of all units of the new cache.
+     */
+    Map<String, Map<String, Long>> getDependencies() {
+        Map<String, Map<String, Long>> ans = new TreeMap<>();
+        for (Entry<String, Map<String, Long>> unit : dependencies.entrySet()) {
+            ans.put(unit.getKey(), new TreeMap<>(unit.getValue()));
+        }
+        return ans;
+    }
+
+    @Override
+    public String toString() {
+        if (full) {
+            return "everything";
+        }
+        StringBuilder sb = new StringBuilder();
+        if (allChassis) {
+            sb.append("all chassis, ");
+        }
+        if (allOmniPods) {
+            sb.append("all omnipods, ");
+        }
+        for (String unit : dirty) {
+            sb.append(unit).append(", ");
+        }
+        if (sb.length() > 0) {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.toString();
+    }
+
+    private void markUnit(String aUnit) {
+        switch (aUnit) {
+            case LOCALIZATION:
+                full = true; // Localized names are everywhere
+                break;
+            case CHASSIS:
+                allChassis = true;
+                break;
+            default:
+                dirty.add(aUnit);
+                break;
+        }
+    }
+
+    private void markItemStats(String aPath) {
+        String path = aPath.replace('\\', '/').toLowerCase();
+        if (path.endsWith("/weapons/weapons.xml")) {
+            dirty.add(ITEMS);
+        }
+        else if (path.endsWith("/modules/pilotmodules.xml")) {
+            dirty.add(MODULES);
+        }
+        else if (path.contains("/modules/")) {
+            // Module files contain both items and pilot modules.
+            dirty.add(ITEMS);
+            dirty.add(MODULES);
+        }
+        else if (path.endsWith("/upgradetypes/upgradetypes.xml")) {
+            dirty.add(UPGRADES);
+        }
+        else if (path.endsWith("/mechs/mechs.xml")) {
+            allChassis = true;
+        }
+        else if (path.endsWith("/omnipods.xml")) {
+            allOmniPods = true;
+        }
+        else {
+            full = true;
+        }
+    }
+}
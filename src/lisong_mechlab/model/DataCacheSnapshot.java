@@ -0,0 +1,901 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.core.JVM;
+
+/**
+ * This class implements a compact, versioned binary snapshot format for the object graph of a {@link DataCache}.
+ * <p>
+ * The snapshot contains the same fields as the XML data cache (all non-static, non-transient fields) but strings and
+ * classes are stored once in tables and objects are stored as records indexed by their id, references between objects
+ * are stored as ids. The payload is protected by a CRC32 in the header and a snapshot is only accepted if the format
+ * version matches. A snapshot file is read into memory in one go through a {@link FileChannel}.
+ * <p>
+ * Only classes from the LSML code base, enumerations, arrays and a fixed set of collections may appear in the graph,
+ * anything else causes an {@link IOException} when writing the snapshot.
+ * 
+ * @author Emily Björk
+ */
+public class DataCacheSnapshot {
+    /** Magic number, "LSML" in ASCII. */
+    private static final int                   MAGIC           = 0x4C534D4C;
+    /** Increase every time the binary layout changes. */
+    private static final int                   FORMAT_VERSION  = 2;
+    private static final String                ALLOWED_PREFIX  = "lisong_mechlab.";
+    private static final Charset               UTF8            = Charset.forName("UTF-8");
+    private static final Map<String, Class<?>> PRIMITIVES      = new HashMap<>();
+    /** The array behind {@link Arrays#asList(Object...)}, <code>null</code> if it isn't accessible. */
+    private static final Field                 ARRAYS_LIST_ARRAY;
+
+    private static final byte                  TAG_NULL        = 0;
+    private static final byte                  TAG_REF         = 1;
+    private static final byte                  TAG_STRING      = 2;
+    private static final byte                  TAG_ENUM        = 3;
+    private static final byte                  TAG_BOOLEAN     = 4;
+    private static final byte                  TAG_BYTE        = 5;
+    private static final byte                  TAG_SHORT       = 6;
+    private static final byte                  TAG_CHAR        = 7;
+    private static final byte                  TAG_INT         = 8;
+    private static final byte                  TAG_LONG        = 9;
+    private static final byte                  TAG_FLOAT       = 10;
+    private static final byte                  TAG_DOUBLE      = 11;
+
+    private static final byte                  KIND_OBJECT     = 0;
+    private static final byte                  KIND_ARRAY      = 1;
+    private static final byte                  KIND_COLLECTION = 2;
+    private static final byte                  KIND_MAP        = 3;
+
+    static {
+        for (Class<?> clazz : new Class<?>[] { boolean.class, byte.class, short.class, char.class, int.class,
+                long.class, float.class, double.class }) {
+            PRIMITIVES.put(clazz.getName(), clazz);
+        }
+
+        Field arrayField;
+        try {
+            arrayField = Arrays.asList().getClass().getDeclaredField("a");
+            arrayField.setAccessible(true);
+        }
+        catch (NoSuchFieldException | RuntimeException e) {
+            arrayField = null;
+        }
+        ARRAYS_LIST_ARRAY = arrayField;
+    }
+
+    /**
+     * The collection types that are supported in a snapshot. Each type knows how to create a mutable backing
+     * collection to fill and how to publish it as the correct type.
+     */
+    private static enum CollectionType {
+        ARRAY_LIST(ArrayList.class), LINKED_LIST(LinkedList.class) {
+            @Override
+            Collection<Object> create(int aSize, Class<?> aComponentType) {
+                return new LinkedList<>();
+            }
+        },
+        HASH_SET(HashSet.class) {
+            @Override
+            Collection<Object> create(int aSize, Class<?> aComponentType) {
+                return new HashSet<>();
+            }
+        },
+        LINKED_HASH_SET(LinkedHashSet.class) {
+            @Override
+            Collection<Object> create(int aSize, Class<?> aComponentType) {
+                return new LinkedHashSet<>();
+            }
+        },
+        TREE_SET(TreeSet.class) {
+            @Override
+            Collection<Object> create(int aSize, Class<?> aComponentType) {
+                return new TreeSet<>();
+            }
+        },
+        FIXED_SIZE_LIST(Arrays.asList().getClass()) {
+            @Override
+            Collection<Object> create(int aSize, Class<?> aComponentType) {
+                return Arrays.asList((Object[]) Array.newInstance(aComponentType, aSize));
+            }
+
+            @Override
+            Class<?> componentType(Collection<?> aCollection) throws IOException {
+                if (null != ARRAYS_LIST_ARRAY) {
+                    try {
+                        return ARRAYS_LIST_ARRAY.get(aCollection).getClass().getComponentType();
+                    }
+                    catch (IllegalAccessException e) {
+                        throw new IOException("Unable to read the array of a fixed size list!", e);
+                    }
+                }
+                // Before Java 9 toArray() returns a copy of the backing array, keeping its type.
+                return aCollection.toArray().getClass().getComponentType();
+            }
+
+            @Override
+            void add(Collection<Object> aBacking, int aIndex, Object aValue) {
+                ((List<Object>) aBacking).set(aIndex, aValue);
+            }
+        },
+        UNMODIFIABLE_LIST(Collections.unmodifiableList(new ArrayList<>()).getClass()) {
+            @Override
+            Collection<Object> publish(Collection<Object> aBacking) {
+                return Collections.unmodifiableList((List<Object>) aBacking);
+            }
+        },
+        UNMODIFIABLE_SEQUENTIAL_LIST(Collections.unmodifiableList(new LinkedList<>()).getClass()) {
+            @Override
+            Collection<Object> create(int aSize, Class<?> aComponentType) {
+                return new LinkedList<>();
+            }
+
+            @Override
+            Collection<Object> publish(Collection<Object> aBacking) {
+                return Collections.unmodifiableList((List<Object>) aBacking);
+            }
+        },
+        UNMODIFIABLE_COLLECTION(Collections.unmodifiableCollection(new ArrayList<>()).getClass()) {
+            @Override
+            Collection<Object> publish(Collection<Object> aBacking) {
+                return Collections.unmodifiableCollection(aBacking);
+            }
+        },
+        UNMODIFIABLE_SET(Collections.unmodifiableSet(new HashSet<>()).getClass()) {
+            @Override
+            Collection<Object> create(int aSize, Class<?> aComponentType) {
+                return new LinkedHashSet<>();
+            }
+
+            @Override
+            Collection<Object> publish(Collection<Object> aBacking) {
+                return Collections.unmodifiableSet((Set<Object>) aBacking);
+            }
+        },
+        EMPTY_LIST(Collections.emptyList().getClass()) {
+            @Override
+            Collection<Object> publish(Collection<Object> aBacking) {
+                return Collections.emptyList();
+            }
+        },
+        EMPTY_SET(Collections.emptySet().getClass()) {
+            @Override
+            Collection<Object> publish(Collection<Object> aBacking) {
+                return Collections.emptySet();
+            }
+        };
+
+        private final Class<?> type;
+
+        private CollectionType(Class<?> aType) {
+            type = aType;
+        }
+
+        /**
+         * @param aSize
+         *            The number of elements that will be added.
+         * @param aComponentType
+         *            The type returned by {@link #componentType(Collection)} when the collection was written.
+         * @return A new, empty, mutable collection that the elements will be added to.
+         */
+        Collection<Object> create(int aSize, Class<?> aComponentType) {
+            return new ArrayList<>(aSize);
+        }
+
+        /**
+         * @param aBacking
+         *            A collection created by {@link #create(int, Class)}.
+         * @return The collection that shall be visible in the object graph.
+         */
+        Collection<Object> publish(Collection<Object> aBacking) {
+            return aBacking;
+        }
+
+        void add(Collection<Object> aBacking, int aIndex, Object aValue) {
+            aBacking.add(aValue);
+        }
+
+        /**
+         * @param aCollection
+         *            A collection of this type.
+         * @return The type of array that backs the collection, {@link Object} for collections that aren't backed by an
+         *         array of a specific type.
+         * @throws IOException
+         *             If the type couldn't be determined.
+         */
+        Class<?> componentType(Collection<?> aCollection) throws IOException {
+            return Object.class;
+        }
+
+        static CollectionType of(Collection<?> aCollection) {
+            for (CollectionType collectionType : values()) {
+                if (collectionType.type == aCollection.getClass()) {
+                    if (aCollection instanceof TreeSet && ((TreeSet<?>) aCollection).comparator() != null)
+                        return null;
+                    return collectionType;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The map types that are supported in a snapshot.
+     */
+    private static enum MapType {
+        HASH_MAP(HashMap.class), LINKED_HASH_MAP(LinkedHashMap.class), TREE_MAP(TreeMap.class), UNMODIFIABLE_MAP(
+                Collections.unmodifiableMap(new HashMap<>()).getClass()), EMPTY_MAP(Collections.emptyMap().getClass());
+
+        private final Class<?> type;
+
+        private MapType(Class<?> aType) {
+            type = aType;
+        }
+
+        Map<Object, Object> create() {
+            switch (this) {
+                case HASH_MAP:
+                    return new HashMap<>();
+                case TREE_MAP:
+                    return new TreeMap<>();
+                default:
+                    return new LinkedHashMap<>();
+            }
+        }
+
+        Map<Object, Object> publish(Map<Object, Object> aBacking) {
+            switch (this) {
+                case UNMODIFIABLE_MAP:
+                    return Collections.unmodifiableMap(aBacking);
+                case EMPTY_MAP:
+                    return Collections.emptyMap();
+                default:
+                    return aBacking;
+            }
+        }
+
+        static MapType of(Map<?, ?> aMap) {
+            for (MapType mapType : values()) {
+                if (mapType.type == aMap.getClass()) {
+                    if (aMap instanceof TreeMap && ((TreeMap<?, ?>) aMap).comparator() != null)
+                        return null;
+                    return mapType;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Describes the serialized fields of a class.
+     */
+    private static class ClassLayout {
+        final Class<?>       type;
+        final List<String>   names     = new ArrayList<>();
+        final List<Class<?>> definedIn = new ArrayList<>();
+
+        ClassLayout(Class<?> aType) {
+            type = aType;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given object graph to a file. The snapshot is first written to a temporary file which
+     * is then renamed to the target file, this prevents leaving a partial snapshot behind if writing fails.
+     * 
+     * @param aRoot
+     *            The root of the object graph to write.
+     * @param aFile
+     *            The {@link File} to write to.
+     * @throws IOException
+     *             Thrown if the graph contains unsupported types or if writing fails.
+     */
+    public static void write(Object aRoot, File aFile) throws IOException {
+        byte[] snapshot = encode(aRoot);
+        File tmpFile = new File(aFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+            fos.write(snapshot);
+        }
+        if (aFile.exists() && !aFile.delete()) {
+            tmpFile.delete();
+            throw new IOException("Unable to replace old snapshot: " + aFile);
+        }
+        if (!tmpFile.renameTo(aFile)) {
+            tmpFile.delete();
+            throw new IOException("Unable to write snapshot: " + aFile);
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file. The file is read into a heap buffer rather than memory mapped, as a mapping keeps
+     * the file locked on some platforms until it is garbage collected, which prevents replacing a stale snapshot.
+     * 
+     * @param aFile
+     *            The {@link File} to read.
+     * @return The root of the object graph.
+     * @throws IOException
+     *             Thrown if the file couldn't be read or if it isn't a valid snapshot of the current format version.
+     */
+    public static Object read(File aFile) throws IOException {
+        ByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(aFile, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Snapshot too large: " + aFile);
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0)
+                    throw new IOException("Unexpected end of snapshot: " + aFile);
+            }
+        }
+        buffer.flip();
+        return decode(buffer);
+    }
+
+    /**
+     * Reads a snapshot from an {@link InputStream}, this is used for snapshots that aren't files, such as bundled
+     * resources.
+     * 
+     * @param aInputStream
+     *            The {@link InputStream} to read.
+     * @return The root of the object graph.
+     * @throws IOException
+     *             Thrown if the stream couldn't be read or if it isn't a valid snapshot of the current format version.
+     */
+    public static Object read(InputStream aInputStream) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = aInputStream.read(buffer)) > 0) {
+            baos.write(buffer, 0, read);
+        }
+        return decode(ByteBuffer.wrap(baos.toByteArray()));
+    }
+
+    /**
+     * Encodes the given object graph into a snapshot.
+     * 
+     * @param aRoot
+     *            The root of the object graph.
+     * @return A byte array with the complete snapshot, including the header.
+     * @throws IOException
+     *             Thrown if the graph contains unsupported types.
+     */
+    public static byte[] encode(Object aRoot) throws IOException {
+        byte[] payload = new Encoder().encode(aRoot);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(payload.length + 20);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(crc.getValue());
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Decodes a snapshot.
+     * 
+     * @param aBuffer
+     *            A {@link ByteBuffer} positioned at the start of the snapshot.
+     * @return The root of the object graph.
+     * @throws IOException
+     *             Thrown if the data isn't a valid snapshot of the current format version.
+     */
+    public static Object decode(ByteBuffer aBuffer) throws IOException {
+        try {
+            if (aBuffer.getInt() != MAGIC)
+                throw new IOException("Not a data cache snapshot!");
+            if (aBuffer.getInt() != FORMAT_VERSION)
+                throw new IOException("Unsupported data cache snapshot version!");
+            long expectedCrc = aBuffer.getLong();
+            int length = aBuffer.getInt();
+            if (length != aBuffer.remaining())
+                throw new IOException("Truncated data cache snapshot!");
+
+            ByteBuffer payload = aBuffer.slice();
+            if (crc(payload.duplicate()) != expectedCrc)
+                throw new IOException("Data cache snapshot is corrupt!");
+            return new Decoder(payload).decode();
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+            throw new IOException("Malformed data cache snapshot!", e);
+        }
+    }
+
+    private static long crc(ByteBuffer aBuffer) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        while (aBuffer.hasRemaining()) {
+            int length = Math.min(chunk.length, aBuffer.remaining());
+            aBuffer.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return crc.getValue();
+    }
+
+    private static class Encoder {
+        private final ReflectionProvider     reflection  = JVM.newReflectionProvider();
+        private final Map<String, Integer>   stringIds   = new HashMap<>();
+        private final List<String>           strings     = new ArrayList<>();
+        private final Map<Class<?>, Integer> classIds    = new HashMap<>();
+        private final List<ClassLayout>      classes     = new ArrayList<>();
+        private final Map<Object, Integer>   objectIds   = new IdentityHashMap<>();
+        private final ArrayDeque<Object>     pending     = new ArrayDeque<>();
+        private final ByteArrayOutputStream  recordBytes = new ByteArrayOutputStream();
+        private final DataOutputStream       records     = new DataOutputStream(recordBytes);
+
+        byte[] encode(Object aRoot) throws IOException {
+            ByteArrayOutputStream rootBytes = new ByteArrayOutputStream();
+            DataOutputStream root = new DataOutputStream(rootBytes);
+            writeValue(aRoot, root);
+            while (!pending.isEmpty()) {
+                writeRecord(pending.poll());
+            }
+            root.flush();
+            records.flush();
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(recordBytes.size() + rootBytes.size() + 64 * 1024);
+            try (DataOutputStream out = new DataOutputStream(baos)) {
+                // Class layouts may add strings so they must be resolved before the string table is written.
+                ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+                DataOutputStream classOut = new DataOutputStream(classBytes);
+                classOut.writeInt(classes.size());
+                for (ClassLayout layout : classes) {
+                    classOut.writeInt(stringId(layout.type.getName()));
+                    classOut.writeInt(layout.names.size());
+                    for (int i = 0; i < layout.names.size(); ++i) {
+                        classOut.writeInt(stringId(layout.definedIn.get(i).getName()));
+                        classOut.writeInt(stringId(layout.names.get(i)));
+                    }
+                }
+                classOut.flush();
+
+                out.writeInt(strings.size());
+                for (String string : strings) {
+                    byte[] utf8 = string.getBytes(UTF8);
+                    out.writeInt(utf8.length);
+                    out.write(utf8);
+                }
+                classBytes.writeTo(out);
+                out.writeInt(objectIds.size());
+                recordBytes.writeTo(out);
+                rootBytes.writeTo(out);
+            }
+            return baos.toByteArray();
+        }
+
+        private int stringId(String aString) {
+            Integer id = stringIds.get(aString);
+            if (id == null) {
+                id = strings.size();
+                strings.add(aString);
+                stringIds.put(aString, id);
+            }
+            return id;
+        }
+
+        private ClassLayout classLayout(Class<?> aClass) {
+            Integer id = classIds.get(aClass);
+            if (id == null) {
+                id = classes.size();
+                classes.add(new ClassLayout(aClass));
+                classIds.put(aClass, id);
+            }
+            return classes.get(id);
+        }
+
+        private int classId(Class<?> aClass) {
+            classLayout(aClass);
+            return classIds.get(aClass);
+        }
+
+        private void writeValue(Object aValue, DataOutputStream aOut) throws IOException {
+            if (aValue == null) {
+                aOut.writeByte(TAG_NULL);
+            }
+            else if (aValue instanceof String) {
+                aOut.writeByte(TAG_STRING);
+                aOut.writeInt(stringId((String) aValue));
+            }
+            else if (aValue instanceof Enum) {
+                aOut.writeByte(TAG_ENUM);
+                aOut.writeInt(classId(((Enum<?>) aValue).getDeclaringClass()));
+                aOut.writeInt(stringId(((Enum<?>) aValue).name()));
+            }
+            else if (aValue instanceof Boolean) {
+                aOut.writeByte(TAG_BOOLEAN);
+                aOut.writeBoolean((Boolean) aValue);
+            }
+            else if (aValue instanceof Byte) {
+                aOut.writeByte(TAG_BYTE);
+                aOut.writeByte((Byte) aValue);
+            }
+            else if (aValue instanceof Short) {
+                aOut.writeByte(TAG_SHORT);
+                aOut.writeShort((Short) aValue);
+            }
+            else if (aValue instanceof Character) {
+                aOut.writeByte(TAG_CHAR);
+                aOut.writeChar((Character) aValue);
+            }
+            else if (aValue instanceof Integer) {
+                aOut.writeByte(TAG_INT);
+                aOut.writeInt((Integer) aValue);
+            }
+            else if (aValue instanceof Long) {
+                aOut.writeByte(TAG_LONG);
+                aOut.writeLong((Long) aValue);
+            }
+            else if (aValue instanceof Float) {
+                aOut.writeByte(TAG_FLOAT);
+                aOut.writeFloat((Float) aValue);
+            }
+            else if (aValue instanceof Double) {
+                aOut.writeByte(TAG_DOUBLE);
+                aOut.writeDouble((Double) aValue);
+            }
+            else {
+                Integer id = objectIds.get(aValue);
+                if (id == null) {
+                    id = objectIds.size();
+                    objectIds.put(aValue, id);
+                    pending.add(aValue);
+                }
+                aOut.writeByte(TAG_REF);
+                aOut.writeInt(id);
+            }
+        }
+
+        private void writeRecord(Object aObject) throws IOException {
+            Class<?> clazz = aObject.getClass();
+            if (clazz.isArray()) {
+                int length = Array.getLength(aObject);
+                records.writeByte(KIND_ARRAY);
+                records.writeInt(classId(clazz.getComponentType()));
+                records.writeInt(length);
+                for (int i = 0; i < length; ++i) {
+                    writeValue(Array.get(aObject, i), records);
+                }
+            }
+            else if (aObject instanceof Collection) {
+                Collection<?> collection = (Collection<?>) aObject;
+                CollectionType type = CollectionType.of(collection);
+                if (type == null)
+                    throw new IOException("Unsupported collection type: " + clazz.getName());
+                records.writeByte(KIND_COLLECTION);
+                records.writeInt(stringId(type.name()));
+                records.writeInt(classId(type.componentType(collection)));
+                records.writeInt(collection.size());
+                for (Object element : collection) {
+                    writeValue(element, records);
+                }
+            }
+            else if (aObject instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) aObject;
+                MapType type = MapType.of(map);
+                if (type == null)
+                    throw new IOException("Unsupported map type: " + clazz.getName());
+                records.writeByte(KIND_MAP);
+                records.writeInt(stringId(type.name()));
+                records.writeInt(map.size());
+                for (Entry<?, ?> entry : map.entrySet()) {
+                    writeValue(entry.getKey(), records);
+                    writeValue(entry.getValue(), records);
+                }
+            }
+            else {
+                if (!clazz.getName().startsWith(ALLOWED_PREFIX))
+                    throw new IOException("Unsupported type: " + clazz.getName());
+
+                final ClassLayout layout = classLayout(clazz);
+                final boolean newLayout = layout.names.isEmpty();
+                final List<String> names = new ArrayList<>();
+                final List<Object> values = new ArrayList<>();
+                reflection.visitSerializableFields(aObject, new ReflectionProvider.Visitor() {
+                    @SuppressWarnings("rawtypes")
+                    @Override
+                    public void visit(String aFieldName, Class aFieldType, Class aDefinedIn, Object aValue) {
+                        if (newLayout) {
+                            layout.names.add(aFieldName);
+                            layout.definedIn.add(aDefinedIn);
+                        }
+                        names.add(aFieldName);
+                        values.add(aValue);
+                    }
+                });
+                if (!names.equals(layout.names))
+                    throw new IOException("Inconsistent field layout for: " + clazz.getName());
+
+                records.writeByte(KIND_OBJECT);
+                records.writeInt(classIds.get(clazz));
+                for (Object value : values) {
+                    writeValue(value, records);
+                }
+            }
+        }
+    }
+
+    private static class Decoder {
+        private final ReflectionProvider reflection = JVM.newReflectionProvider();
+        private final ByteBuffer         buffer;
+        private String[]                 strings;
+        private ClassLayout[]            classes;
+        private Object[]                 objects;
+        private Object[]                 backings;
+        private byte[]                   kinds;
+        private int[]                    offsets;
+
+        Decoder(ByteBuffer aBuffer) {
+            buffer = aBuffer;
+        }
+
+        Object decode() throws IOException {
+            strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; ++i) {
+                byte[] utf8 = new byte[buffer.getInt()];
+                buffer.get(utf8);
+                strings[i] = new String(utf8, UTF8);
+            }
+
+            classes = new ClassLayout[buffer.getInt()];
+            for (int i = 0; i < classes.length; ++i) {
+                ClassLayout layout = new ClassLayout(loadClass(strings[buffer.getInt()]));
+                int fields = buffer.getInt();
+                for (int j = 0; j < fields; ++j) {
+                    layout.definedIn.add(loadClass(strings[buffer.getInt()]));
+                    layout.names.add(strings[buffer.getInt()]);
+                }
+                classes[i] = layout;
+            }
+
+            // First pass, allocate all objects so that references can be resolved.
+            int numObjects = buffer.getInt();
+            objects = new Object[numObjects];
+            backings = new Object[numObjects];
+            kinds = new byte[numObjects];
+            offsets = new int[numObjects];
+            for (int i = 0; i < numObjects; ++i) {
+                allocate(i);
+            }
+            int rootOffset = buffer.position();
+
+            // Second pass, fill in all objects and arrays.
+            for (int i = 0; i < numObjects; ++i) {
+                if (kinds[i] == KIND_OBJECT || kinds[i] == KIND_ARRAY) {
+                    fill(i);
+                }
+            }
+
+            // Third pass, fill in collections last as hashing requires the elements to be complete. Nested
+            // collections are discovered after their parents so fill in reverse order.
+            for (int i = numObjects - 1; i >= 0; --i) {
+                if (kinds[i] == KIND_COLLECTION || kinds[i] == KIND_MAP) {
+                    fill(i);
+                }
+            }
+
+            buffer.position(rootOffset);
+            return readValue();
+        }
+
+        private Class<?> loadClass(String aName) throws IOException {
+            Class<?> primitive = PRIMITIVES.get(aName);
+            if (primitive != null)
+                return primitive;
+            try {
+                return Class.forName(aName, false, DataCacheSnapshot.class.getClassLoader());
+            }
+            catch (ClassNotFoundException e) {
+                throw new IOException("Unknown class in snapshot: " + aName, e);
+            }
+        }
+
+        private void allocate(int aId) throws IOException {
+            offsets[aId] = buffer.position();
+            kinds[aId] = buffer.get();
+            switch (kinds[aId]) {
+                case KIND_OBJECT: {
+                    ClassLayout layout = classes[buffer.getInt()];
+                    if (!layout.type.getName().startsWith(ALLOWED_PREFIX) || layout.type.isEnum())
+                        throw new IOException("Unsupported type in snapshot: " + layout.type.getName());
+                    objects[aId] = reflection.newInstance(layout.type);
+                    skipValues(layout.names.size());
+                    break;
+                }
+                case KIND_ARRAY: {
+                    Class<?> componentType = classes[buffer.getInt()].type;
+                    int length = buffer.getInt();
+                    objects[aId] = Array.newInstance(componentType, length);
+                    skipValues(length);
+                    break;
+                }
+                case KIND_COLLECTION: {
+                    CollectionType type = CollectionType.valueOf(strings[buffer.getInt()]);
+                    Class<?> componentType = classes[buffer.getInt()].type;
+                    int size = buffer.getInt();
+                    Collection<Object> backing = type.create(size, componentType);
+                    backings[aId] = backing;
+                    objects[aId] = type.publish(backing);
+                    skipValues(size);
+                    break;
+                }
+                case KIND_MAP: {
+                    MapType type = MapType.valueOf(strings[buffer.getInt()]);
+                    int size = buffer.getInt();
+                    Map<Object, Object> backing = type.create();
+                    backings[aId] = backing;
+                    objects[aId] = type.publish(backing);
+                    skipValues(2 * size);
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown record kind: " + kinds[aId]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void fill(int aId) throws IOException {
+            buffer.position(offsets[aId] + 1);
+            switch (kinds[aId]) {
+                case KIND_OBJECT: {
+                    ClassLayout layout = classes[buffer.getInt()];
+                    for (int i = 0; i < layout.names.size(); ++i) {
+                        reflection.writeField(objects[aId], layout.names.get(i), readValue(), layout.definedIn.get(i));
+                    }
+                    break;
+                }
+                case KIND_ARRAY: {
+                    buffer.getInt(); // Component type, already handled
+                    int length = buffer.getInt();
+                    for (int i = 0; i < length; ++i) {
+                        Array.set(objects[aId], i, readValue());
+                    }
+                    break;
+                }
+                case KIND_COLLECTION: {
+                    CollectionType type = CollectionType.valueOf(strings[buffer.getInt()]);
+                    buffer.getInt(); // Component type, already handled
+                    int size = buffer.getInt();
+                    Collection<Object> backing = (Collection<Object>) backings[aId];
+                    for (int i = 0; i < size; ++i) {
+                        type.add(backing, i, readValue());
+                    }
+                    break;
+                }
+                case KIND_MAP: {
+                    buffer.getInt(); // Map type, already handled
+                    int size = buffer.getInt();
+                    Map<Object, Object> backing = (Map<Object, Object>) backings[aId];
+                    for (int i = 0; i < size; ++i) {
+                        Object key = readValue();
+                        backing.put(key, readValue());
+                    }
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown record kind: " + kinds[aId]);
+            }
+        }
+
+        private void skipValues(int aCount) throws IOException {
+            for (int i = 0; i < aCount; ++i) {
+                byte tag = buffer.get();
+                switch (tag) {
+                    case TAG_NULL:
+                        break;
+                    case TAG_BOOLEAN:
+                    case TAG_BYTE:
+                        buffer.position(buffer.position() + 1);
+                        break;
+                    case TAG_SHORT:
+                    case TAG_CHAR:
+                        buffer.position(buffer.position() + 2);
+                        break;
+                    case TAG_REF:
+                    case TAG_STRING:
+                    case TAG_INT:
+                    case TAG_FLOAT:
+                        buffer.position(buffer.position() + 4);
+                        break;
+                    case TAG_ENUM:
+                    case TAG_LONG:
+                    case TAG_DOUBLE:
+                        buffer.position(buffer.position() + 8);
+                        break;
+                    default:
+                        throw new IOException("Unknown value tag: " + tag);
+                }
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Object readValue() throws IOException {
+            byte tag = buffer.get();
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_REF:
+                    return objects[buffer.getInt()];
+                case TAG_STRING:
+                    return strings[buffer.getInt()];
+                case TAG_ENUM: {
+                    Class type = classes[buffer.getInt()].type;
+                    if (!type.isEnum())
+                        throw new IOException("Not an enum: " + type.getName());
+                    return Enum.valueOf(type, strings[buffer.getInt()]);
+                }
+                case TAG_BOOLEAN:
+                    return buffer.get() != 0;
+                case TAG_BYTE:
+                    return buffer.get();
+                case TAG_SHORT:
+                    return buffer.getShort();
+                case TAG_CHAR:
+                    return buffer.getChar();
+                case TAG_INT:
+                    return buffer.getInt();
+                case TAG_LONG:
+                    return buffer.getLong();
+                case TAG_FLOAT:
+                    return buffer.getFloat();
+                case TAG_DOUBLE:
+                    return buffer.getDouble();
+                default:
+                    throw new IOException("Unknown value tag: " + tag);
+            }
+        }
+    }
+}
@@ -41,9 +41,11 @@ import lisong_mechlab.util.ListArrayUtils;
  */
 public class ChassisOmniMech extends ChassisBase {
 
-    private final ArmorUpgrade     armorType;
-    private final HeatSinkUpgrade  heatSinkType;
-    private final StructureUpgrade structureType;
+    private final ArmorUpgrade        armorType;
+    private final HeatSinkUpgrade     heatSinkType;
+    private final StructureUpgrade    structureType;
+    private transient MovementProfile movementProfileMax;
+    private transient MovementProfile movementProfileMin;
 
     /**
      * @param aMwoID
@@ -192,7 +194,10 @@ public class ChassisOmniMech extends ChassisBase {
      *         {@link OmniPod}.
      */
     public MovementProfile getMovementProfileMax() {
-        return new MaxMovementProfile(getMovementProfileBase(), getQuirkGroups());
+        if (movementProfileMax == null) {
+            movementProfileMax = new MaxMovementProfile(getMovementProfileBase(), getQuirkGroups());
+        }
+        return movementProfileMax;
     }
 
     /**
@@ -202,7 +207,10 @@ public class ChassisOmniMech extends ChassisBase {
      *         {@link OmniPod}.
      */
     public MovementProfile getMovementProfileMin() {
-        return new MinMovementProfile(getMovementProfileBase(), getQuirkGroups());
+        if (movementProfileMin == null) {
+            movementProfileMin = new MinMovementProfile(getMovementProfileBase(), getQuirkGroups());
+        }
+        return movementProfileMin;
     }
 
     /**
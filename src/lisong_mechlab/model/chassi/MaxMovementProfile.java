@@ -19,8 +19,6 @@
 //@formatter:on
 package lisong_mechlab.model.chassi;
 
-import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -38,42 +36,17 @@ import lisong_mechlab.model.modifiers.Modifier;
  */
 public class MaxMovementProfile extends ModifiedProfileBase {
 
-    private MovementProfile                  base;
-    private List<List<Collection<Modifier>>> groups;
-
     public MaxMovementProfile(MovementProfile aBase, List<List<Collection<Modifier>>> aGroups) {
-        base = aBase;
-        groups = aGroups;
+        super(aBase, aGroups);
     }
 
     @Override
-    protected double calc(String aMethodName, Collection<Modifier> aExtraModifiers) {
-        try {
-            double baseValue = (double) base.getClass().getMethod(aMethodName, Collection.class).invoke(base,  aExtraModifiers);
-            double ans = baseValue;
-            for (List<Collection<Modifier>> group : groups) {
-                double max = Double.NEGATIVE_INFINITY;
-                for (Collection<Modifier> quirks : group) {
-                    List<Modifier> fullQuirks = new ArrayList<>(quirks);
-                    if (aExtraModifiers != null) {
-                        fullQuirks.addAll(aExtraModifiers);
-                    }
-                    double value = (double) base.getClass().getMethod(aMethodName, Collection.class).invoke(base, fullQuirks);
-                    max = Math.max(max, value - baseValue);
-                }
-                if (max != Double.NEGATIVE_INFINITY)
-                    ans += max;
-            }
-            return ans;
-        }
-        catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException
-                | SecurityException e) {
-            throw new IllegalArgumentException();
-        }
+    protected double select(double aCurrent, double aCandidate) {
+        return Math.max(aCurrent, aCandidate);
     }
 
     @Override
-    public MovementArchetype getMovementArchetype() {
-        return base.getMovementArchetype();
+    protected double selectIdentity() {
+        return Double.NEGATIVE_INFINITY;
     }
 }
@@ -19,8 +19,6 @@
 //@formatter:on
 package lisong_mechlab.model.chassi;
 
-import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -38,44 +36,17 @@ import lisong_mechlab.model.modifiers.Modifier;
  */
 public class MinMovementProfile extends ModifiedProfileBase {
 
-    private MovementProfile                  base;
-    private List<List<Collection<Modifier>>> groups;
-
     public MinMovementProfile(MovementProfile aBase, List<List<Collection<Modifier>>> aGroups) {
-        base = aBase;
-        groups = aGroups;
+        super(aBase, aGroups);
     }
 
     @Override
-    protected double calc(String aMethodName, Collection<Modifier> aExtraModifiers) {
-        try {
-            double baseValue = (double) base.getClass().getMethod(aMethodName, Collection.class)
-                    .invoke(base, aExtraModifiers);
-            double ans = baseValue;
-            for (List<Collection<Modifier>> group : groups) {
-                double min = Double.POSITIVE_INFINITY;
-                for (Collection<Modifier> quirks : group) {
-                    List<Modifier> fullQuirks = new ArrayList<>(quirks);
-                    if (aExtraModifiers != null) {
-                        fullQuirks.addAll(aExtraModifiers);
-                    }
-                    double value = (double) base.getClass().getMethod(aMethodName, Collection.class)
-                            .invoke(base, fullQuirks);
-                    min = Math.min(value - baseValue, min);
-                }
-                if (min != Double.POSITIVE_INFINITY)
-                    ans += min;
-            }
-            return ans;
-        }
-        catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException
-                | SecurityException e) {
-            throw new IllegalArgumentException();
-        }
+    protected double select(double aCurrent, double aCandidate) {
+        return Math.min(aCandidate, aCurrent);
     }
 
     @Override
-    public MovementArchetype getMovementArchetype() {
-        return base.getMovementArchetype();
+    protected double selectIdentity() {
+        return Double.POSITIVE_INFINITY;
     }
 }
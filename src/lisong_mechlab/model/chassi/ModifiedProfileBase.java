@@ -19,107 +19,213 @@
 //@formatter:on
 package lisong_mechlab.model.chassi;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import lisong_mechlab.model.modifiers.Modifier;
+import lisong_mechlab.model.modifiers.ModifierSet;
 
 /**
  * This {@link MovementProfile} provides an abstract base for a composite {@link MovementProfile} where the value of
  * each attribute is the result a function applied to a set of {@link MovementProfile}s.
+ * <p>
+ * A base profile is defined (typically chassis standard values) and a number of alternatives are given in groups. For
+ * each group one of the alternatives is selected by {@link #select(double, double)} and its difference to the base
+ * value is added to the base value.
+ * <p>
+ * The calculated values are memoized for the last few immutable {@link ModifierSet}s (and <code>null</code>) that were
+ * queried, by the identity of the set, so that repeated queries with the modifiers of the same loadout are a lookup.
  * 
  * @author Emily Björk
  */
 public abstract class ModifiedProfileBase implements MovementProfile {
+    /**
+     * The values of all attributes for one set of modifiers.
+     */
+    private class Entry {
+        final Collection<Modifier> modifiers;
+        final double[]             values = new double[MovementStat.values().length];
+
+        Entry(Collection<Modifier> aModifiers) {
+            modifiers = aModifiers;
+            for (MovementStat stat : MovementStat.values()) {
+                values[stat.ordinal()] = compute(stat, aModifiers);
+            }
+        }
+    }
+
+    private final static int                       MAX_MEMOIZED = 8;
+
+    private final MovementProfile                  base;
+    private final List<List<Collection<Modifier>>> groups;
+    private final AtomicReferenceArray<Entry>      memo         = new AtomicReferenceArray<>(MAX_MEMOIZED);
+    private final AtomicInteger                    nextEntry    = new AtomicInteger();
+
+    /**
+     * Creates a new {@link ModifiedProfileBase}.
+     * 
+     * @param aBase
+     *            The base {@link MovementProfile} that the quirks are applied to.
+     * @param aGroups
+     *            A {@link List} of groups of alternative quirks. One alternative is selected from each group.
+     */
+    public ModifiedProfileBase(MovementProfile aBase, List<List<Collection<Modifier>>> aGroups) {
+        base = aBase;
+        groups = aGroups;
+    }
+
+    /**
+     * Selects which of two differences from the base value to keep.
+     * 
+     * @param aCurrent
+     *            The currently selected difference from the base value.
+     * @param aCandidate
+     *            A candidate difference from the base value.
+     * @return The difference to keep.
+     */
+    protected abstract double select(double aCurrent, double aCandidate);
 
     /**
-     * Uses reflection to calculate the sought for value.
+     * @return The value to start the selection from, must be the identity of {@link #select(double, double)}.
+     */
+    protected abstract double selectIdentity();
+
+    /**
+     * Calculates the value of the given attribute.
      * 
-     * @param aMethodName
-     *            The name of the function to call to get the value.
+     * @param aStat
+     *            The {@link MovementStat} to calculate.
      * @param aExtraModifiers
      *            Modifiers that shall be applied in addition to the base ones.
      * @return The calculated value.
      */
-    protected abstract double calc(String aMethodName, Collection<Modifier> aExtraModifiers);
+    protected double calc(MovementStat aStat, Collection<Modifier> aExtraModifiers) {
+        if (aExtraModifiers != null && !(aExtraModifiers instanceof ModifierSet)) {
+            // Other collections may change between calls, they can't be memoized by identity.
+            return compute(aStat, aExtraModifiers);
+        }
+
+        for (int i = 0; i < MAX_MEMOIZED; ++i) {
+            Entry entry = memo.get(i);
+            if (entry != null && entry.modifiers == aExtraModifiers) {
+                return entry.values[aStat.ordinal()];
+            }
+        }
+
+        Entry entry = new Entry(aExtraModifiers);
+        memo.set((nextEntry.getAndIncrement() & Integer.MAX_VALUE) % MAX_MEMOIZED, entry);
+        return entry.values[aStat.ordinal()];
+    }
+
+    private double compute(MovementStat aStat, Collection<Modifier> aExtraModifiers) {
+        double baseValue = aStat.value(base, aExtraModifiers);
+        double ans = baseValue;
+        for (List<Collection<Modifier>> group : groups) {
+            double selected = selectIdentity();
+            for (Collection<Modifier> quirks : group) {
+                final double value;
+                if (aExtraModifiers == null) {
+                    value = aStat.value(base, quirks);
+                }
+                else {
+                    List<Modifier> fullQuirks = new ArrayList<>(quirks);
+                    fullQuirks.addAll(aExtraModifiers);
+                    value = aStat.value(base, fullQuirks);
+                }
+                selected = select(selected, value - baseValue);
+            }
+            if (selected != selectIdentity())
+                ans += selected;
+        }
+        return ans;
+    }
+
+    @Override
+    public MovementArchetype getMovementArchetype() {
+        return base.getMovementArchetype();
+    }
 
     @Override
     public double getMaxMovementSpeed(Collection<Modifier> aModifiers) {
-        return calc("getMaxMovementSpeed", aModifiers);
+        return calc(MovementStat.MAX_MOVEMENT_SPEED, aModifiers);
     }
 
     @Override
     public double getReverseSpeedMultiplier(Collection<Modifier> aModifiers) {
-        return calc("getReverseSpeedMultiplier", aModifiers);
+        return calc(MovementStat.REVERSE_SPEED_MULTIPLIER, aModifiers);
     }
-    
+
     @Override
     public double getTorsoYawMax(Collection<Modifier> aModifiers) {
-        return calc("getTorsoYawMax", aModifiers);
+        return calc(MovementStat.TORSO_YAW_MAX, aModifiers);
     }
 
     @Override
     public double getTorsoYawSpeed(Collection<Modifier> aModifiers) {
-        return calc("getTorsoYawSpeed", aModifiers);
+        return calc(MovementStat.TORSO_YAW_SPEED, aModifiers);
     }
 
     @Override
     public double getTorsoPitchMax(Collection<Modifier> aModifiers) {
-        return calc("getTorsoPitchMax", aModifiers);
+        return calc(MovementStat.TORSO_PITCH_MAX, aModifiers);
     }
 
     @Override
     public double getTorsoPitchSpeed(Collection<Modifier> aModifiers) {
-        return calc("getTorsoPitchSpeed", aModifiers);
+        return calc(MovementStat.TORSO_PITCH_SPEED, aModifiers);
     }
 
     @Override
     public double getArmYawMax(Collection<Modifier> aModifiers) {
-        return calc("getArmYawMax", aModifiers);
+        return calc(MovementStat.ARM_YAW_MAX, aModifiers);
     }
 
     @Override
     public double getArmYawSpeed(Collection<Modifier> aModifiers) {
-        return calc("getArmYawSpeed", aModifiers);
+        return calc(MovementStat.ARM_YAW_SPEED, aModifiers);
     }
 
     @Override
     public double getArmPitchMax(Collection<Modifier> aModifiers) {
-        return calc("getArmPitchMax", aModifiers);
+        return calc(MovementStat.ARM_PITCH_MAX, aModifiers);
     }
 
     @Override
     public double getArmPitchSpeed(Collection<Modifier> aModifiers) {
-        return calc("getArmPitchSpeed", aModifiers);
+        return calc(MovementStat.ARM_PITCH_SPEED, aModifiers);
     }
 
     @Override
     public double getTurnLerpLowSpeed(Collection<Modifier> aModifiers) {
-        return calc("getTurnLerpLowSpeed", aModifiers);
+        return calc(MovementStat.TURN_LERP_LOW_SPEED, aModifiers);
     }
 
     @Override
     public double getTurnLerpMidSpeed(Collection<Modifier> aModifiers) {
-        return calc("getTurnLerpMidSpeed", aModifiers);
+        return calc(MovementStat.TURN_LERP_MID_SPEED, aModifiers);
     }
 
     @Override
     public double getTurnLerpHighSpeed(Collection<Modifier> aModifiers) {
-        return calc("getTurnLerpHighSpeed", aModifiers);
+        return calc(MovementStat.TURN_LERP_HIGH_SPEED, aModifiers);
     }
 
     @Override
     public double getTurnLerpLowRate(Collection<Modifier> aModifiers) {
-        return calc("getTurnLerpLowRate", aModifiers);
+        return calc(MovementStat.TURN_LERP_LOW_RATE, aModifiers);
     }
 
     @Override
     public double getTurnLerpMidRate(Collection<Modifier> aModifiers) {
-        return calc("getTurnLerpMidRate", aModifiers);
+        return calc(MovementStat.TURN_LERP_MID_RATE, aModifiers);
     }
 
     @Override
     public double getTurnLerpHighRate(Collection<Modifier> aModifiers) {
-        return calc("getTurnLerpHighRate", aModifiers);
+        return calc(MovementStat.TURN_LERP_HIGH_RATE, aModifiers);
     }
 
 }
@@ -0,0 +1,140 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.chassi;
+
+import java.util.Collection;
+
+import lisong_mechlab.model.modifiers.Modifier;
+
+/**
+ * This enumeration provides typed access to each of the attributes of a {@link MovementProfile}, this allows code that
+ * treats all attributes in the same way to do so without reflection.
+ * 
+ * @author Emily Björk
+ */
+public enum MovementStat {
+    MAX_MOVEMENT_SPEED {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getMaxMovementSpeed(aModifiers);
+        }
+    },
+    REVERSE_SPEED_MULTIPLIER {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getReverseSpeedMultiplier(aModifiers);
+        }
+    },
+    TORSO_YAW_MAX {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTorsoYawMax(aModifiers);
+        }
+    },
+    TORSO_YAW_SPEED {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTorsoYawSpeed(aModifiers);
+        }
+    },
+    TORSO_PITCH_MAX {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTorsoPitchMax(aModifiers);
+        }
+    },
+    TORSO_PITCH_SPEED {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTorsoPitchSpeed(aModifiers);
+        }
+    },
+    ARM_YAW_MAX {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getArmYawMax(aModifiers);
+        }
+    },
+    ARM_YAW_SPEED {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getArmYawSpeed(aModifiers);
+        }
+    },
+    ARM_PITCH_MAX {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getArmPitchMax(aModifiers);
+        }
+    },
+    ARM_PITCH_SPEED {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getArmPitchSpeed(aModifiers);
+        }
+    },
+    TURN_LERP_LOW_SPEED {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTurnLerpLowSpeed(aModifiers);
+        }
+    },
+    TURN_LERP_MID_SPEED {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTurnLerpMidSpeed(aModifiers);
+        }
+    },
+    TURN_LERP_HIGH_SPEED {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTurnLerpHighSpeed(aModifiers);
+        }
+    },
+    TURN_LERP_LOW_RATE {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTurnLerpLowRate(aModifiers);
+        }
+    },
+    TURN_LERP_MID_RATE {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTurnLerpMidRate(aModifiers);
+        }
+    },
+    TURN_LERP_HIGH_RATE {
+        @Override
+        public double value(MovementProfile aProfile, Collection<Modifier> aModifiers) {
+            return aProfile.getTurnLerpHighRate(aModifiers);
+        }
+    };
+
+    /**
+     * Gets the value of this attribute from the given {@link MovementProfile}.
+     * 
+     * @param aProfile
+     *            The {@link MovementProfile} to get the value from.
+     * @param aModifiers
+     *            The {@link Modifier}s to apply, may be <code>null</code>.
+     * @return The value of the attribute.
+     */
+    public abstract double value(MovementProfile aProfile, Collection<Modifier> aModifiers);
+}
@@ -163,7 +163,8 @@ public class Weapon extends HeatSource {
     /**
      * Calculates an arbitrary statistic for the weapon based on the string. The string format is (regexp):
      * "[dsthc]+(/[dsthc]+)?" where d=damage, s=seconds, t=tons, h=heat, c=criticalslots. For example "d/hhs" is damage
-     * per heat^2 second.
+     * per heat^2 second. The string is compiled to a {@link WeaponStat}, which should be used directly where the same
+     * statistic is calculated repeatedly.
      * 
      * @param aWeaponStat
      *            A string specifying the statistic to be calculated. Must match the regexp pattern
@@ -173,60 +174,7 @@ public class Weapon extends HeatSource {
      * @return The calculated statistic.
      */
     public double getStat(String aWeaponStat, Collection<Modifier> aModifiers) {
-        double nominator = 1;
-        int index = 0;
-        while (index < aWeaponStat.length() && aWeaponStat.charAt(index) != '/') {
-            switch (aWeaponStat.charAt(index)) {
-                case 'd':
-                    nominator *= getDamagePerShot();
-                    break;
-                case 's':
-                    nominator *= getSecondsPerShot(aModifiers);
-                    break;
-                case 't':
-                    nominator *= getMass();
-                    break;
-                case 'h':
-                    nominator *= getHeat(aModifiers);
-                    break;
-                case 'c':
-                    nominator *= getNumCriticalSlots();
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown identifier: " + aWeaponStat.charAt(index));
-            }
-            index++;
-        }
-
-        index++; // Skip past the '/' if we encountered it, otherwise we'll be at the end of the string anyway.
-        double denominator = 1;
-        while (index < aWeaponStat.length()) {
-            switch (aWeaponStat.charAt(index)) {
-                case 'd':
-                    denominator *= getDamagePerShot();
-                    break;
-                case 's':
-                    denominator *= getSecondsPerShot(aModifiers);
-                    break;
-                case 't':
-                    denominator *= getMass();
-                    break;
-                case 'h':
-                    denominator *= getHeat(aModifiers);
-                    break;
-                case 'c':
-                    denominator *= getNumCriticalSlots();
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown identifier: " + aWeaponStat.charAt(index));
-            }
-            index++;
-        }
-        if (nominator == 0.0 && denominator == 0.0) {
-            // We take the Brahmaguptan interpretation of 0/0 to be 0 (year 628).
-            return 0;
-        }
-        return nominator / denominator;
+        return WeaponStat.parse(aWeaponStat).evaluate(this, aModifiers);
     }
 
     public boolean hasSpread() {
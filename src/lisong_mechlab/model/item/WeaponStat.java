@@ -0,0 +1,285 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.item;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lisong_mechlab.model.modifiers.Modifier;
+
+/**
+ * A compiled weapon statistic such as damage per second or damage per heat. A statistic is a product of weapon
+ * quantities divided by another product of weapon quantities.
+ * <p>
+ * Statistics are immutable and can be combined with {@link #times(WeaponStat)} and {@link #per(WeaponStat)}. They are
+ * evaluated either directly against a weapon or against {@link Values} that have been computed once for a weapon and a
+ * set of modifiers, which avoids re-applying the modifiers for every statistic.
+ *
+ * @author Emily Björk
+ */
+public final class WeaponStat {
+    /**
+     * The quantities that a statistic can be made of.
+     */
+    public static enum Quantity {
+        DAMAGE('d'), SECONDS('s'), TONS('t'), HEAT('h'), SLOTS('c');
+
+        public final char symbol;
+
+        private Quantity(char aSymbol) {
+            symbol = aSymbol;
+        }
+
+        static Quantity fromSymbol(char aSymbol) {
+            for (Quantity quantity : values()) {
+                if (quantity.symbol == aSymbol)
+                    return quantity;
+            }
+            throw new IllegalArgumentException("Unknown identifier: " + aSymbol);
+        }
+    }
+
+    /**
+     * The quantities of one weapon with a given set of modifiers applied.
+     */
+    public static final class Values {
+        private final double[] values = new double[Quantity.values().length];
+
+        /**
+         * Computes all quantities of a weapon.
+         *
+         * @param aWeapon
+         *            The weapon to compute the quantities for.
+         * @param aModifiers
+         *            A list of {@link Modifier}s to take into account.
+         */
+        public Values(Weapon aWeapon, Collection<Modifier> aModifiers) {
+            for (Quantity quantity : Quantity.values()) {
+                values[quantity.ordinal()] = value(aWeapon, quantity, aModifiers);
+            }
+        }
+
+        /**
+         * @param aQuantity
+         *            The quantity to get.
+         * @return The value of the given quantity.
+         */
+        public double get(Quantity aQuantity) {
+            return values[aQuantity.ordinal()];
+        }
+    }
+
+    public static final WeaponStat                         DAMAGE            = of(Quantity.DAMAGE);
+    public static final WeaponStat                         SECONDS           = of(Quantity.SECONDS);
+    public static final WeaponStat                         TONS              = of(Quantity.TONS);
+    public static final WeaponStat                         HEAT              = of(Quantity.HEAT);
+    public static final WeaponStat                         SLOTS             = of(Quantity.SLOTS);
+    public static final WeaponStat                         DAMAGE_PER_SECOND = DAMAGE.per(SECONDS);
+    public static final WeaponStat                         HEAT_PER_SECOND   = HEAT.per(SECONDS);
+    public static final WeaponStat                         DAMAGE_PER_HEAT   = DAMAGE.per(HEAT);
+
+    private static final ConcurrentMap<String, WeaponStat> PARSED            = new ConcurrentHashMap<>();
+
+    private final int[]                                    numerator;
+    private final int[]                                    denominator;
+
+    private WeaponStat(int[] aNumerator, int[] aDenominator) {
+        numerator = aNumerator;
+        denominator = aDenominator;
+    }
+
+    /**
+     * @param aQuantity
+     *            The quantity to create a statistic for.
+     * @return A {@link WeaponStat} that is just the given quantity.
+     */
+    public static WeaponStat of(Quantity aQuantity) {
+        int[] numerator = new int[Quantity.values().length];
+        numerator[aQuantity.ordinal()] = 1;
+        return new WeaponStat(numerator, new int[numerator.length]);
+    }
+
+    /**
+     * Compiles a statistic from a string. The string format is (regexp): "[dsthc]+(/[dsthc]+)?" where d=damage,
+     * s=seconds, t=tons, h=heat, c=criticalslots. For example "d/hhs" is damage per heat^2 second. Compiled statistics
+     * are cached.
+     *
+     * @param aWeaponStat
+     *            A string specifying the statistic. Must match the regexp pattern "[dsthc]+(/[dsthc]+)?".
+     * @return The compiled {@link WeaponStat}.
+     */
+    public static WeaponStat parse(String aWeaponStat) {
+        WeaponStat ans = PARSED.get(aWeaponStat);
+        if (ans == null) {
+            int[] numerator = new int[Quantity.values().length];
+            int[] denominator = new int[numerator.length];
+            int[] current = numerator;
+            for (int i = 0; i < aWeaponStat.length(); ++i) {
+                char c = aWeaponStat.charAt(i);
+                if (c == '/' && current == numerator) {
+                    current = denominator;
+                }
+                else {
+                    current[Quantity.fromSymbol(c).ordinal()]++;
+                }
+            }
+            ans = new WeaponStat(numerator, denominator);
+            PARSED.putIfAbsent(aWeaponStat, ans);
+        }
+        return ans;
+    }
+
+    /**
+     * @param aThat
+     *            The statistic to multiply with.
+     * @return A new {@link WeaponStat} that is this statistic times the given one.
+     */
+    public WeaponStat times(WeaponStat aThat) {
+        return new WeaponStat(add(numerator, aThat.numerator), add(denominator, aThat.denominator));
+    }
+
+    /**
+     * @param aThat
+     *            The statistic to divide by.
+     * @return A new {@link WeaponStat} that is this statistic divided by the given one.
+     */
+    public WeaponStat per(WeaponStat aThat) {
+        return new WeaponStat(add(numerator, aThat.denominator), add(denominator, aThat.numerator));
+    }
+
+    /**
+     * Evaluates this statistic from precomputed quantities.
+     *
+     * @param aValues
+     *            The {@link Values} of the weapon to evaluate for.
+     * @return The value of the statistic.
+     */
+    public double evaluate(Values aValues) {
+        return divide(product(numerator, aValues.values), product(denominator, aValues.values));
+    }
+
+    /**
+     * Evaluates this statistic for a weapon. Only the quantities that are part of the statistic are computed.
+     *
+     * @param aWeapon
+     *            The weapon to evaluate for.
+     * @param aModifiers
+     *            A list of {@link Modifier}s to take into account.
+     * @return The value of the statistic.
+     */
+    public double evaluate(Weapon aWeapon, Collection<Modifier> aModifiers) {
+        double[] values = new double[numerator.length];
+        for (Quantity quantity : Quantity.values()) {
+            if (numerator[quantity.ordinal()] != 0 || denominator[quantity.ordinal()] != 0) {
+                values[quantity.ordinal()] = value(aWeapon, quantity, aModifiers);
+            }
+        }
+        return divide(product(numerator, values), product(denominator, values));
+    }
+
+    @Override
+    public boolean equals(Object aObject) {
+        if (!(aObject instanceof WeaponStat))
+            return false;
+        WeaponStat that = (WeaponStat) aObject;
+        return Arrays.equals(numerator, that.numerator) && Arrays.equals(denominator, that.denominator);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(numerator) + Arrays.hashCode(denominator);
+    }
+
+    /**
+     * @return The statistic in the format accepted by {@link #parse(String)}. The symbols are written in the canonical
+     *         order of {@link Quantity}: d, s, t, h, c. For example "d/hsh" is written as "d/shh".
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        append(sb, numerator);
+        if (!isEmpty(denominator)) {
+            sb.append('/');
+            append(sb, denominator);
+        }
+        return sb.toString();
+    }
+
+    private static double value(Weapon aWeapon, Quantity aQuantity, Collection<Modifier> aModifiers) {
+        switch (aQuantity) {
+            case DAMAGE:
+                return aWeapon.getDamagePerShot();
+            case SECONDS:
+                return aWeapon.getSecondsPerShot(aModifiers);
+            case TONS:
+                return aWeapon.getMass();
+            case HEAT:
+                return aWeapon.getHeat(aModifiers);
+            case SLOTS:
+                return aWeapon.getNumCriticalSlots();
+            default:
+                throw new IllegalArgumentException("Unknown quantity: " + aQuantity);
+        }
+    }
+
+    private static double product(int[] aExponents, double[] aValues) {
+        double ans = 1;
+        for (int i = 0; i < aExponents.length; ++i) {
+            for (int j = 0; j < aExponents[i]; ++j) {
+                ans *= aValues[i];
+            }
+        }
+        return ans;
+    }
+
+    private static double divide(double aNumerator, double aDenominator) {
+        if (aNumerator == 0.0 && aDenominator == 0.0) {
+            // We take the Brahmaguptan interpretation of 0/0 to be 0 (year 628).
+            return 0;
+        }
+        return aNumerator / aDenominator;
+    }
+
+    private static int[] add(int[] aLhs, int[] aRhs) {
+        int[] ans = new int[aLhs.length];
+        for (int i = 0; i < ans.length; ++i) {
+            ans[i] = aLhs[i] + aRhs[i];
+        }
+        return ans;
+    }
+
+    private static boolean isEmpty(int[] aExponents) {
+        for (int exponent : aExponents) {
+            if (exponent != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static void append(StringBuilder aBuilder, int[] aExponents) {
+        for (Quantity quantity : Quantity.values()) {
+            for (int i = 0; i < aExponents[quantity.ordinal()]; ++i) {
+                aBuilder.append(quantity.symbol);
+            }
+        }
+    }
+}
@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 import lisong_mechlab.model.chassi.ChassisBase;
@@ -52,6 +51,7 @@ import lisong_mechlab.model.loadout.converters.UpgradeConverter;
 import lisong_mechlab.model.loadout.converters.UpgradesConverter;
 import lisong_mechlab.model.modifiers.Efficiencies;
 import lisong_mechlab.model.modifiers.Modifier;
+import lisong_mechlab.model.modifiers.ModifierSet;
 import lisong_mechlab.model.upgrades.Upgrades;
 import lisong_mechlab.util.ListArrayUtils;
 
@@ -66,12 +66,28 @@ import com.thoughtworks.xstream.io.xml.StaxDriver;
  *            The type of the {@link ConfiguredComponentBase} in this loadout.
  */
 public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
-    private String                  name;
-    private final ChassisBase       chassisBase;
-    private final T[]               components;
-    private final Efficiencies      efficiencies;
-    private final List<PilotModule> modules;     // TODO: Modules should be handled as separate categories.
-    private final WeaponGroups      weaponGroups;
+    /**
+     * The modifiers of the loadout together with the version of the loadout they were collected at.
+     */
+    private static class ModifierSnapshot {
+        final long        version;
+        final ModifierSet modifiers;
+
+        ModifierSnapshot(long aVersion, ModifierSet aModifiers) {
+            version = aVersion;
+            modifiers = aModifiers;
+        }
+    }
+
+    private String                              name;
+    private final ChassisBase                   chassisBase;
+    private final T[]                           components;
+    private final Efficiencies                  efficiencies;
+    private final List<PilotModule>             modules;     // TODO: Modules should be handled as separate categories.
+    private final WeaponGroups                  weaponGroups;
+    private final LoadoutItemIndex              itemIndex;
+    private transient int                       version;
+    private transient volatile ModifierSnapshot modifierSnapshot;
 
     protected LoadoutBase(ComponentBuilder.Factory<T> aFactory, ChassisBase aChassisBase) {
         name = aChassisBase.getNameShort();
@@ -80,6 +96,7 @@ public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
         modules = new ArrayList<>();
         components = aFactory.defaultComponents(chassisBase);
         weaponGroups = new WeaponGroups(this);
+        itemIndex = new LoadoutItemIndex(this);
     }
 
     protected LoadoutBase(ComponentBuilder.Factory<T> aFactory, LoadoutBase<T> aLoadoutBase) {
@@ -89,6 +106,7 @@ public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
         modules = new ArrayList<>(aLoadoutBase.modules);
         components = aFactory.cloneComponents(aLoadoutBase);
         weaponGroups = new WeaponGroups(aLoadoutBase.getWeaponGroups(), this);
+        itemIndex = new LoadoutItemIndex(this);
     }
 
     public static XStream loadoutXstream() {
@@ -152,10 +170,11 @@ public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
     /**
      * @param aClass
      *            The type to iterate over.
-     * @return An {@link Iterable} over all {@link Item}s that implements <code>aClass</code>.
+     * @return An {@link Iterable} over all {@link Item}s that implements <code>aClass</code>. The result is a cached
+     *         snapshot that will not reflect later changes to the loadout.
      */
     public <X> Iterable<X> items(Class<X> aClass) {
-        return new LoadoutIterable<X>(this, aClass);
+        return itemIndex.items(aClass);
     }
 
     /**
@@ -278,6 +297,7 @@ public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
      */
     public void addModule(PilotModule aModule) {
         modules.add(aModule);
+        version++;
     }
 
     /**
@@ -286,6 +306,7 @@ public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
      */
     public void removeModule(PilotModule aModule) {
         modules.remove(aModule);
+        version++;
     }
 
     /**
@@ -363,13 +384,7 @@ public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
     }
 
     private int countItemsOfType(Class<?> aClass) {
-        int ans = 0;
-        Iterator<?> it = items(aClass).iterator();
-        while (it.hasNext()) {
-            ans++;
-            it.next();
-        }
-        return ans;
+        return itemIndex.items(aClass).size();
     }
 
     /**
@@ -431,6 +446,24 @@ public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
      */
     void rename(String aNewName) {
         name = aNewName;
+        version++;
+    }
+
+    /**
+     * The version of the loadout changes every time anything on the loadout is changed: items, armor, omnipods,
+     * upgrades, efficiencies, modules or the name. It never changes otherwise, so anything that is derived from the
+     * loadout can be kept for as long as the version stays the same.
+     * <p>
+     * The version is the sum of the modification counters of the loadout and all its parts, which only ever increase.
+     * 
+     * @return The current version of this loadout.
+     */
+    public long getVersion() {
+        long ans = version + efficiencies.getVersion() + getUpgrades().getVersion();
+        for (T component : components) {
+            ans += component.getVersion();
+        }
+        return ans;
     }
 
     /**
@@ -543,21 +576,41 @@ public abstract class LoadoutBase<T extends ConfiguredComponentBase> {
 
     /**
      * Returns a {@link Collection} of all equipment or modules or omnipods or quirks that are modifiers.
+     * <p>
+     * The result is immutable and is shared between all callers until the {@link #getVersion()} of the loadout
+     * changes.
      * 
-     * @return The {@link Collection} of modifiers.
+     * @return The {@link ModifierSet} of modifiers.
      */
     public Collection<Modifier> getModifiers() {
-        List<Modifier> modifiers = new ArrayList<>();
+        long currentVersion = getVersion();
+        ModifierSnapshot snapshot = modifierSnapshot;
+        if (null == snapshot || snapshot.version != currentVersion) {
+            List<Modifier> modifiers = new ArrayList<>();
+            collectModifiers(modifiers);
+            snapshot = new ModifierSnapshot(currentVersion, new ModifierSet(modifiers));
+            modifierSnapshot = snapshot;
+        }
+        return snapshot.modifiers;
+    }
+
+    /**
+     * Adds all the modifiers that affect this loadout to the given {@link Collection}. Sub-classes that add their own
+     * modifiers must call this method on the super class first.
+     * 
+     * @param aOutput
+     *            The {@link Collection} to add the modifiers to.
+     */
+    protected void collectModifiers(Collection<Modifier> aOutput) {
         for (ModifierEquipment t : items(ModifierEquipment.class)) {
-            modifiers.addAll(t.getModifiers());
+            aOutput.addAll(t.getModifiers());
         }
         for (PilotModule module : getModules()) {
             if (module instanceof ModifierEquipment) {
-                modifiers.addAll(((ModifierEquipment) module).getModifiers());
+                aOutput.addAll(((ModifierEquipment) module).getModifiers());
             }
         }
-        modifiers.addAll(getEfficiencies().getModifiers());
-        return modifiers;
+        aOutput.addAll(getEfficiencies().getModifiers());
     }
 
     /**
@@ -0,0 +1,298 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.loadout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lisong_mechlab.model.chassi.ChassisBase;
+import lisong_mechlab.model.chassi.ComponentBase;
+import lisong_mechlab.model.chassi.HardPointType;
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.item.AmmoWeapon;
+import lisong_mechlab.model.item.Ammunition;
+import lisong_mechlab.model.item.Engine;
+import lisong_mechlab.model.item.EngineType;
+import lisong_mechlab.model.item.HeatSink;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.item.JumpJet;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.EquipResult.Type;
+import lisong_mechlab.model.loadout.component.ConfiguredComponentBase;
+import lisong_mechlab.model.loadout.component.ConfiguredComponentOmniMech;
+import lisong_mechlab.model.upgrades.Upgrades;
+
+/**
+ * A summary of the free capacity of a {@link LoadoutBase}: free mass, slots, hard points and jump jets, globally and
+ * per component.
+ * <p>
+ * The summary is computed once and can then answer {@link #canEquip(Item)} and {@link #hasCandidateLocations(Item)}
+ * for many items without scanning the items of the loadout again. The answers are the same as those of
+ * {@link LoadoutBase#canEquip(Item)} and {@link LoadoutBase#getCandidateLocationsForItem(Item)} as long as the loadout
+ * isn't changed.
+ * 
+ * @author Emily Björk
+ */
+public class LoadoutCapacity {
+    private static final HardPointType[] HARD_POINT_TYPES = HardPointType.values();
+
+    private static class ComponentCapacity {
+        final ComponentBase internal;
+        final Location      location;
+        final int           slotsFree;
+        final int           largeBoreSlotsFree;
+        final boolean       engineHeatSinksFree;
+        final boolean       hasCase;
+        final int[]         hardPoints     = new int[HARD_POINT_TYPES.length];
+        final int[]         hardPointsUsed = new int[HARD_POINT_TYPES.length];
+
+        ComponentCapacity(ConfiguredComponentBase aComponent) {
+            internal = aComponent.getInternalComponent();
+            location = internal.getLocation();
+            slotsFree = aComponent.getSlotsFree();
+            engineHeatSinksFree = aComponent.getEngineHeatsinks() < aComponent.getEngineHeatsinksMax();
+            hasCase = aComponent.getItemsEquipped().contains(ItemDB.CASE);
+
+            if (aComponent instanceof ConfiguredComponentOmniMech) {
+                ConfiguredComponentOmniMech omniComponent = (ConfiguredComponentOmniMech) aComponent;
+                int slotComp = 0;
+                if (omniComponent.getToggleState(ItemDB.HA))
+                    slotComp++;
+                if (omniComponent.getToggleState(ItemDB.LAA))
+                    slotComp++;
+                largeBoreSlotsFree = slotsFree + slotComp;
+            }
+            else {
+                largeBoreSlotsFree = slotsFree;
+            }
+
+            for (HardPointType hardPointType : HARD_POINT_TYPES) {
+                if (hardPointType != HardPointType.NONE) {
+                    hardPoints[hardPointType.ordinal()] = aComponent.getHardPointCount(hardPointType);
+                }
+            }
+            countHardPoints(aComponent.getItemsEquipped());
+            countHardPoints(internal.getFixedItems());
+        }
+
+        private void countHardPoints(List<Item> aItems) {
+            for (Item item : aItems) {
+                hardPointsUsed[item.getHardpointType().ordinal()]++;
+            }
+        }
+
+        /**
+         * @see ConfiguredComponentBase#canEquip(Item)
+         */
+        EquipResult canEquip(Item aItem, boolean aOmniMech) {
+            if (!internal.isAllowed(aItem))
+                return EquipResult.make(location, Type.NotSupported);
+
+            HardPointType hardPointType = aItem.getHardpointType();
+            if (hardPointType != HardPointType.NONE
+                    && hardPointsUsed[hardPointType.ordinal()] >= hardPoints[hardPointType.ordinal()]) {
+                return EquipResult.make(location, Type.NoFreeHardPoints);
+            }
+
+            if (aOmniMech) {
+                int free = aItem instanceof Weapon && ((Weapon) aItem).isLargeBore() ? largeBoreSlotsFree : slotsFree;
+                if (free < aItem.getNumCriticalSlots())
+                    return EquipResult.make(location, Type.NotEnoughSlots);
+                return EquipResult.SUCCESS;
+            }
+
+            if (aItem instanceof HeatSink && engineHeatSinksFree)
+                return EquipResult.SUCCESS;
+            if (aItem == ItemDB.CASE && hasCase)
+                return EquipResult.make(location, Type.ComponentAlreadyHasCase);
+            if (slotsFree < aItem.getNumCriticalSlots())
+                return EquipResult.make(location, Type.NotEnoughSlots);
+            return EquipResult.SUCCESS;
+        }
+    }
+
+    private final ChassisBase         chassis;
+    private final Upgrades            upgrades;
+    private final Engine              engine;
+    private final boolean             omniMech;
+    private final double              freeMass;
+    private final int                 slotsFree;
+    private final int                 jumpJetsFree;
+    private final ComponentCapacity[] components;
+    private final ComponentCapacity   centerTorso;
+    private final int[]               hardPoints = new int[HARD_POINT_TYPES.length];
+    private final List<AmmoWeapon>    ammoWeapons = new ArrayList<>();
+
+    /**
+     * Computes the capacity summary of the given loadout.
+     * 
+     * @param aLoadout
+     *            The {@link LoadoutBase} to summarise.
+     */
+    public LoadoutCapacity(LoadoutBase<?> aLoadout) {
+        chassis = aLoadout.getChassis();
+        upgrades = aLoadout.getUpgrades();
+        engine = aLoadout.getEngine();
+        omniMech = aLoadout instanceof LoadoutOmniMech;
+        freeMass = aLoadout.getFreeMass();
+        slotsFree = aLoadout.getNumCriticalSlotsFree();
+        jumpJetsFree = aLoadout.getJumpJetsMax() - aLoadout.getJumpJetCount();
+
+        Location[] locations = Location.values();
+        components = new ComponentCapacity[locations.length];
+        for (Location location : locations) {
+            ComponentCapacity capacity = new ComponentCapacity(aLoadout.getComponent(location));
+            components[location.ordinal()] = capacity;
+            for (int i = 0; i < hardPoints.length; ++i) {
+                hardPoints[i] += capacity.hardPoints[i];
+            }
+        }
+        centerTorso = components[Location.CenterTorso.ordinal()];
+
+        for (AmmoWeapon weapon : aLoadout.items(AmmoWeapon.class)) {
+            if (!ammoWeapons.contains(weapon)) {
+                ammoWeapons.add(weapon);
+            }
+        }
+    }
+
+    /**
+     * @see LoadoutBase#canEquip(Item)
+     * @param aItem
+     *            The {@link Item} to check.
+     * @return The same result as {@link LoadoutBase#canEquip(Item)} on the summarised loadout.
+     */
+    public EquipResult canEquip(Item aItem) {
+        EquipResult globalResult = canEquipGlobal(aItem);
+        if (globalResult != EquipResult.SUCCESS)
+            return globalResult;
+
+        if (aItem instanceof Engine) {
+            Engine newEngine = (Engine) aItem;
+            if (newEngine.getType() == EngineType.XL) {
+                final int sideSlots = newEngine.getSide().getNumCriticalSlots();
+                if (components[Location.LeftTorso.ordinal()].slotsFree < sideSlots)
+                    return EquipResult.make(Location.LeftTorso, Type.NotEnoughSlotsForXLSide);
+                if (components[Location.RightTorso.ordinal()].slotsFree < sideSlots)
+                    return EquipResult.make(Location.RightTorso, Type.NotEnoughSlotsForXLSide);
+            }
+            return centerTorso.canEquip(newEngine, omniMech);
+        }
+
+        EquipResult reason = EquipResult.SUCCESS;
+        for (ComponentCapacity component : components) {
+            EquipResult componentResult = component.canEquip(aItem, omniMech);
+            if (componentResult == EquipResult.SUCCESS)
+                return componentResult;
+            if (componentResult.isMoreSpecificThan(reason))
+                reason = componentResult;
+        }
+        return reason;
+    }
+
+    /**
+     * @see LoadoutBase#getCandidateLocationsForItem(Item)
+     * @param aItem
+     *            The {@link Item} to check.
+     * @return <code>true</code> if {@link LoadoutBase#getCandidateLocationsForItem(Item)} would return a non-empty
+     *         list.
+     */
+    public boolean hasCandidateLocations(Item aItem) {
+        if (EquipResult.SUCCESS != canEquipGlobal(aItem))
+            return false;
+
+        HardPointType hardPointType = aItem.getHardpointType();
+        if (hardPointType == HardPointType.NONE) {
+            for (ComponentCapacity component : components) {
+                if (component.internal.isAllowed(aItem, engine))
+                    return true;
+            }
+            return false;
+        }
+
+        int index = hardPointType.ordinal();
+        int globalFreeHardPoints = 0;
+        boolean candidate = false;
+        for (ComponentCapacity component : components) {
+            if (component.hardPoints[index] >= 1 && component.internal.isAllowed(aItem, engine))
+                candidate = true;
+            globalFreeHardPoints += component.hardPoints[index] - component.hardPointsUsed[index];
+        }
+        return candidate && globalFreeHardPoints > 0;
+    }
+
+    /**
+     * @see LoadoutBase#getHardpointsCount(HardPointType)
+     * @param aHardPointType
+     *            The type of hard points to count.
+     * @return The number of hard points of the given type on the loadout.
+     */
+    public int getHardpointsCount(HardPointType aHardPointType) {
+        return hardPoints[aHardPointType.ordinal()];
+    }
+
+    /**
+     * @param aAmmunition
+     *            The {@link Ammunition} to check.
+     * @return <code>true</code> if there is a weapon equipped that can use the ammunition.
+     */
+    public boolean hasWeaponFor(Ammunition aAmmunition) {
+        for (AmmoWeapon weapon : ammoWeapons) {
+            if (weapon.isCompatibleAmmo(aAmmunition))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @see LoadoutBase#canEquipGlobal(Item)
+     */
+    private EquipResult canEquipGlobal(Item aItem) {
+        if (!chassis.isAllowed(aItem))
+            return EquipResult.make(Type.NotSupported);
+        if (aItem.getMass() > freeMass)
+            return EquipResult.make(Type.TooHeavy);
+        if (!aItem.isCompatible(upgrades))
+            return EquipResult.make(Type.IncompatibleUpgrades);
+
+        if (aItem instanceof JumpJet && jumpJetsFree < 1)
+            return EquipResult.make(Type.JumpJetCapacityReached);
+
+        // Allow engine slot heat sinks as long as there is enough free mass.
+        if (aItem instanceof HeatSink && centerTorso.engineHeatSinksFree)
+            return EquipResult.SUCCESS;
+
+        int requiredSlots = aItem.getNumCriticalSlots();
+        if (aItem instanceof Engine) {
+            if (engine != null)
+                return EquipResult.make(Type.EngineAlreadyEquipped);
+
+            Engine newEngine = (Engine) aItem;
+            if (newEngine.getType() == EngineType.XL) {
+                requiredSlots += 2 * newEngine.getSide().getNumCriticalSlots();
+            }
+        }
+
+        if (requiredSlots > slotsFree)
+            return EquipResult.make(Type.NotEnoughSlots);
+        return EquipResult.SUCCESS;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.loadout;
+
+import lisong_mechlab.model.loadout.component.ConfiguredComponentBase.ComponentMessage;
+import lisong_mechlab.model.modifiers.Efficiencies.EfficienciesMessage;
+import lisong_mechlab.model.upgrades.Upgrades.UpgradesMessage;
+import lisong_mechlab.util.message.Message;
+import lisong_mechlab.util.message.MessageReception;
+
+/**
+ * This message summarises all messages that were posted for one {@link LoadoutBase} during one event. It is delivered
+ * to recipients that were attached with {@link MessageReception#attachCoalesced(Message.Recipient, LoadoutBase)}.
+ * <p>
+ * The dirty mask tells which parts of the loadout were affected, see {@link #isDirty(int)}.
+ * 
+ * @author Emily Björk
+ */
+public class LoadoutChangedMessage implements Message {
+    public final static int      ARMOR        = 1 << 0;
+    public final static int      ITEMS        = 1 << 1;
+    public final static int      UPGRADES     = 1 << 2;
+    public final static int      EFFICIENCIES = 1 << 3;
+    public final static int      MODULES      = 1 << 4;
+    public final static int      OMNIPODS     = 1 << 5;
+    /**
+     * Set for all other messages, for example {@link LoadoutMessage.Type#UPDATE} which is sent when settings outside
+     * of the loadout change.
+     */
+    public final static int      OTHER        = 1 << 6;
+    /**
+     * All of the above.
+     */
+    public final static int      ALL          = ARMOR | ITEMS | UPGRADES | EFFICIENCIES | MODULES | OMNIPODS | OTHER;
+
+    private final LoadoutBase<?> loadout;
+    private final int            dirty;
+    private final boolean        affectsHeatOrDamage;
+    private final boolean        affectsRange;
+    private final int            count;
+
+    /**
+     * Creates a new message for a single message.
+     * 
+     * @param aLoadout
+     *            The loadout that the message is for.
+     * @param aMessage
+     *            The message to summarise.
+     */
+    public LoadoutChangedMessage(LoadoutBase<?> aLoadout, Message aMessage) {
+        this(aLoadout, dirtyMask(aMessage), aMessage.affectsHeatOrDamage(), affectsRange(aMessage), 1);
+    }
+
+    private LoadoutChangedMessage(LoadoutBase<?> aLoadout, int aDirty, boolean aAffectsHeatOrDamage,
+            boolean aAffectsRange, int aCount) {
+        loadout = aLoadout;
+        dirty = aDirty;
+        affectsHeatOrDamage = aAffectsHeatOrDamage;
+        affectsRange = aAffectsRange;
+        count = aCount;
+    }
+
+    /**
+     * @param aMessage
+     *            Another message for the same loadout.
+     * @return A new {@link LoadoutChangedMessage} that summarises this message and the argument.
+     */
+    public LoadoutChangedMessage merge(Message aMessage) {
+        return new LoadoutChangedMessage(loadout, dirty | dirtyMask(aMessage), affectsHeatOrDamage
+                || aMessage.affectsHeatOrDamage(), affectsRange || affectsRange(aMessage), count + 1);
+    }
+
+    /**
+     * @param aMask
+     *            A bitwise or of {@link #ARMOR}, {@link #ITEMS}, {@link #UPGRADES}, {@link #EFFICIENCIES},
+     *            {@link #MODULES}, {@link #OMNIPODS} and {@link #OTHER}.
+     * @return <code>true</code> if any of the given parts was affected.
+     */
+    public boolean isDirty(int aMask) {
+        return (dirty & aMask) != 0;
+    }
+
+    /**
+     * @return The dirty mask of this message.
+     */
+    public int getDirty() {
+        return dirty;
+    }
+
+    /**
+     * @return The number of messages that were summarised into this message.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return <code>true</code> if any of the summarised messages affects weapon ranges.
+     */
+    public boolean affectsRange() {
+        return affectsRange;
+    }
+
+    @Override
+    public boolean isForMe(LoadoutBase<?> aLoadout) {
+        return loadout == aLoadout;
+    }
+
+    @Override
+    public boolean affectsHeatOrDamage() {
+        return affectsHeatOrDamage;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadoutChangedMessage [dirty=" + Integer.toBinaryString(dirty) + ", count=" + count + "]";
+    }
+
+    /**
+     * Determines which parts of a loadout that a message affects.
+     * 
+     * @param aMessage
+     *            The message to classify.
+     * @return A dirty mask as used by {@link #isDirty(int)}.
+     */
+    public static int dirtyMask(Message aMessage) {
+        if (aMessage instanceof LoadoutChangedMessage) {
+            return ((LoadoutChangedMessage) aMessage).dirty;
+        }
+        if (aMessage instanceof ComponentMessage) {
+            switch (((ComponentMessage) aMessage).type) {
+                case ArmorChanged:
+                case ArmorDistributionUpdateRequest:
+                    return ARMOR;
+                case ItemAdded:
+                case ItemRemoved:
+                case ItemsChanged:
+                    return ITEMS;
+                case OmniPodChanged:
+                    return OMNIPODS;
+                default:
+                    return OTHER;
+            }
+        }
+        if (aMessage instanceof UpgradesMessage) {
+            return UPGRADES;
+        }
+        if (aMessage instanceof EfficienciesMessage) {
+            return EFFICIENCIES;
+        }
+        if (aMessage instanceof LoadoutMessage
+                && ((LoadoutMessage) aMessage).type == LoadoutMessage.Type.MODULES_CHANGED) {
+            return MODULES;
+        }
+        return OTHER;
+    }
+
+    private static boolean affectsRange(Message aMessage) {
+        if (aMessage instanceof LoadoutMessage)
+            return ((LoadoutMessage) aMessage).affectsRange();
+        if (aMessage instanceof LoadoutChangedMessage)
+            return ((LoadoutChangedMessage) aMessage).affectsRange;
+        return false;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.loadout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.loadout.component.ConfiguredComponentBase;
+
+/**
+ * Caches read-only lists of the items of each type that are equipped on a loadout.
+ * <p>
+ * The lists are created on the first request for each type and are kept until the items on any of the components of
+ * the loadout change, as indicated by {@link ConfiguredComponentBase#getItemsVersion()}. This makes repeated typed
+ * iteration and counting, as done by the metrics, cheap.
+ * 
+ * @author Emily Björk
+ */
+class LoadoutItemIndex {
+    private static class Snapshot {
+        final long                             version;
+        final ConcurrentMap<Class<?>, List<?>> views = new ConcurrentHashMap<>();
+
+        Snapshot(long aVersion) {
+            version = aVersion;
+        }
+    }
+
+    private final static Location[] LOCATIONS = Location.values();
+    private final LoadoutBase<?>    loadout;
+    private volatile Snapshot       snapshot;
+
+    LoadoutItemIndex(LoadoutBase<?> aLoadout) {
+        loadout = aLoadout;
+    }
+
+    /**
+     * @param aClass
+     *            The type of items to get, <code>null</code> for all items.
+     * @return An unmodifiable {@link List} of all items on the loadout that are of the given type, in location order
+     *         with fixed items before equipped items.
+     */
+    @SuppressWarnings("unchecked")
+    <X> List<X> items(Class<X> aClass) {
+        Class<?> key = null == aClass ? Item.class : aClass;
+        long version = currentVersion();
+        Snapshot current = snapshot;
+        if (null == current || current.version != version) {
+            current = new Snapshot(version);
+            snapshot = current;
+        }
+
+        List<?> ans = current.views.get(key);
+        if (null == ans) {
+            List<X> view = new ArrayList<>();
+            Iterator<X> it = new LoadoutIterator<X>(loadout, aClass);
+            while (it.hasNext()) {
+                view.add(it.next());
+            }
+            ans = Collections.unmodifiableList(view);
+            List<?> previous = current.views.putIfAbsent(key, ans);
+            if (null != previous) {
+                ans = previous;
+            }
+        }
+        return (List<X>) ans; // This cast is checked by the key
+    }
+
+    private long currentVersion() {
+        // The item versions of the components only ever increase so the sum changes on any change.
+        long ans = 0;
+        for (Location location : LOCATIONS) {
+            ans += loadout.getComponent(location).getItemsVersion();
+        }
+        return ans;
+    }
+}
@@ -174,12 +174,11 @@ public class LoadoutOmniMech extends LoadoutBase<ConfiguredComponentOmniMech> {
     }
 
     @Override
-    public Collection<Modifier> getModifiers() {
-        Collection<Modifier> ans = super.getModifiers();
+    protected void collectModifiers(Collection<Modifier> aOutput) {
+        super.collectModifiers(aOutput);
         for (ConfiguredComponentOmniMech component : getComponents()) {
-            ans.addAll(component.getOmniPod().getQuirks());
+            aOutput.addAll(component.getOmniPod().getQuirks());
         }
-        return ans;
     }
 
     @Override
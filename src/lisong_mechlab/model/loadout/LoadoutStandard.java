@@ -200,10 +200,9 @@ public class LoadoutStandard extends LoadoutBase<ConfiguredComponentStandard> {
     }
 
     @Override
-    public Collection<Modifier> getModifiers() {
-        Collection<Modifier> ans = super.getModifiers();
-        ans.addAll(getChassis().getQuirks());
-        return ans;
+    protected void collectModifiers(Collection<Modifier> aOutput) {
+        super.collectModifiers(aOutput);
+        aOutput.addAll(getChassis().getQuirks());
     }
 
     @Override
@@ -20,9 +20,18 @@
 package lisong_mechlab.model.loadout;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 import lisong_mechlab.model.chassi.HardPointType;
 import lisong_mechlab.model.chassi.Location;
@@ -40,17 +49,102 @@ import lisong_mechlab.util.message.MessageDelivery;
 
 /**
  * This operation automatically places an item at a suitable location on the {@link LoadoutStandard}.
+ * <p>
+ * If there is no room for the item, an A* search is made for the fewest number of item moves (or swaps) that make
+ * room for it. Arrangements that only differ in the order of items on the components are only visited once. If the
+ * item can't be placed, or if no solution is found within {@value #MAX_EXPANSIONS} expanded arrangements, an
+ * {@link IllegalArgumentException} is thrown.
  * 
  * @author Emily Björk
  */
 public class OpAutoAddItem extends OpLoadoutBase {
+    /**
+     * The maximal number of arrangements to expand before giving up.
+     */
+    static final int            MAX_EXPANSIONS = 5000;
+    private static final int    IMPOSSIBLE     = Integer.MAX_VALUE / 2;
+
+    /**
+     * A canonical encoding of an arrangement of items: the number of each item that is equipped on each location. The
+     * 64-bit hash is the sum of a random key for every item on every location so that it can be updated in constant
+     * time when an item is moved.
+     */
+    private static class State {
+        private final Map<Item, Integer> index;
+        private final long[]             keys;
+        private final int[]              counts;
+        private final long               hash;
+
+        State(LoadoutBase<?> aLoadout) {
+            index = new HashMap<>();
+            for (ConfiguredComponentBase component : aLoadout.getComponents()) {
+                for (Item item : component.getItemsEquipped()) {
+                    if (!index.containsKey(item))
+                        index.put(item, index.size());
+                }
+            }
+
+            final int size = Location.values().length * index.size();
+            Random random = new Random(size);
+            keys = new long[size];
+            for (int i = 0; i < size; ++i) {
+                keys[i] = random.nextLong();
+            }
+
+            counts = new int[size];
+            long ans = 0;
+            for (ConfiguredComponentBase component : aLoadout.getComponents()) {
+                for (Item item : component.getItemsEquipped()) {
+                    int i = slot(component.getInternalComponent().getLocation(), item);
+                    counts[i]++;
+                    ans += keys[i];
+                }
+            }
+            hash = ans;
+        }
+
+        private State(State aState, int aRemoved, int aAdded) {
+            index = aState.index;
+            keys = aState.keys;
+            counts = aState.counts.clone();
+            counts[aRemoved]--;
+            counts[aAdded]++;
+            hash = aState.hash - keys[aRemoved] + keys[aAdded];
+        }
+
+        State moved(Location aSource, Location aTarget, Item aItem) {
+            return new State(this, slot(aSource, aItem), slot(aTarget, aItem));
+        }
+
+        private int slot(Location aLocation, Item aItem) {
+            return aLocation.ordinal() * index.size() + index.get(aItem);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object aObject) {
+            if (!(aObject instanceof State))
+                return false;
+            State that = (State) aObject;
+            return hash == that.hash && Arrays.equals(counts, that.counts);
+        }
+    }
+
     private class Node implements Comparable<Node> {
         final LoadoutBase<?> data;
+        final State          state;
         final Location       source;
         final Location       target;
         final Item           item;
         final Node           parent;
+        final int            depth;
+        final int            estimate;
         final int            score;
+        final int            order;
 
         final Item           targetItem;
 
@@ -61,11 +155,16 @@ public class OpAutoAddItem extends OpLoadoutBase {
             target = null;
             targetItem = null;
             data = aRoot;
+            state = new State(aRoot);
+            depth = 0;
+            estimate = estimate();
             score = score();
+            order = nodes++;
         }
 
-        Node(Node aParent, Location aSource, Location aTarget, Item aItem) {
+        Node(Node aParent, State aState, Location aSource, Location aTarget, Item aItem) {
             data = aParent.data.copy();
+            state = aState;
             parent = aParent;
             source = aSource;
             target = aTarget;
@@ -73,18 +172,24 @@ public class OpAutoAddItem extends OpLoadoutBase {
             item = aItem;
             stack.pushAndApply(new OpRemoveItem(null, data, data.getComponent(source), item));
             stack.pushAndApply(new OpAddItem(null, data, data.getComponent(target), item));
+            depth = aParent.depth + 1;
+            estimate = estimate();
             score = score();
+            order = nodes++;
         }
 
         /**
          * @param aParent
+         * @param aState
          * @param aSourcePart
          * @param aTargetPart
          * @param aSourceItem
          * @param aTargetItem
          */
-        Node(Node aParent, Location aSourcePart, Location aTargetPart, Item aSourceItem, Item aTargetItem) {
+        Node(Node aParent, State aState, Location aSourcePart, Location aTargetPart, Item aSourceItem,
+                Item aTargetItem) {
             data = aParent.data.copy();
+            state = aState;
             parent = aParent;
             source = aSourcePart;
             target = aTargetPart;
@@ -95,19 +200,88 @@ public class OpAutoAddItem extends OpLoadoutBase {
             stack.pushAndApply(new OpRemoveItem(null, data, data.getComponent(source), aSourceItem));
             stack.pushAndApply(new OpAddItem(null, data, data.getComponent(target), aSourceItem));
             stack.pushAndApply(new OpAddItem(null, data, data.getComponent(source), aTargetItem));
+            depth = aParent.depth + 1;
+            estimate = estimate();
             score = score();
+            order = nodes++;
         }
 
+        /**
+         * Fewest moves first, then most free slots, then the order the nodes were found in.
+         */
         @Override
-        public boolean equals(Object aObject) {
-            if (aObject == null || !(aObject instanceof Node))
-                return false;
-            return data.equals(((Node) aObject).data);
+        public int compareTo(Node aRhs) {
+            int cost = Integer.compare(depth + estimate, aRhs.depth + aRhs.estimate);
+            if (cost != 0)
+                return cost;
+            int greedy = -Integer.compare(score, aRhs.score);
+            if (greedy != 0)
+                return greedy;
+            return Integer.compare(order, aRhs.order);
         }
 
-        @Override
-        public int compareTo(Node aRhs) {
-            return -Integer.compare(score, aRhs.score);
+        /**
+         * A lower bound on the number of moves needed before the item can be equipped. Every move takes at most one
+         * item out of any one component, a swap takes one item out of each of two components, so at least as many moves
+         * are needed as items have to be taken out of the component where the item goes. An XL engine goes into three
+         * components, so the component that needs the most removals bounds the number of moves.
+         * 
+         * @return The estimate or {@link OpAutoAddItem#IMPOSSIBLE} if the item can never be equipped.
+         */
+        private int estimate() {
+            if (itemToPlace instanceof Engine) {
+                Engine engine = (Engine) itemToPlace;
+                int ans = removals(data.getComponent(Location.CenterTorso), engine.getNumCriticalSlots(),
+                        HardPointType.NONE);
+                if (engine.getType() == EngineType.XL) {
+                    final int sideSlots = engine.getSide().getNumCriticalSlots();
+                    final ConfiguredComponentBase lt = data.getComponent(Location.LeftTorso);
+                    final ConfiguredComponentBase rt = data.getComponent(Location.RightTorso);
+                    ans = Math.max(ans, removals(lt, sideSlots, HardPointType.NONE));
+                    ans = Math.max(ans, removals(rt, sideSlots, HardPointType.NONE));
+                }
+                return ans;
+            }
+
+            int ans = IMPOSSIBLE;
+            for (Location location : validLocations) {
+                ConfiguredComponentBase component = data.getComponent(location);
+                if (component.getInternalComponent().isAllowed(itemToPlace, data.getEngine())) {
+                    ans = Math.min(ans, removals(component, itemToPlace.getNumCriticalSlots(),
+                            itemToPlace.getHardpointType()));
+                }
+            }
+            return ans;
+        }
+
+        private int removals(ConfiguredComponentBase aComponent, int aSlots, HardPointType aHardPointType) {
+            int deficit = aSlots - aComponent.getSlotsFree();
+            boolean needHardPoint = aHardPointType != HardPointType.NONE
+                    && aComponent.getItemsOfHardpointType(aHardPointType) >= aComponent
+                            .getHardPointCount(aHardPointType);
+            if (deficit <= 0 && !needHardPoint)
+                return 0;
+
+            // Assume that the largest items are moved out first and that every item frees its slots.
+            List<Integer> sizes = new ArrayList<>();
+            boolean canFreeHardPoint = false;
+            for (Item equipped : aComponent.getItemsEquipped()) {
+                if (equipped instanceof Internal)
+                    continue;
+                sizes.add(equipped.getNumCriticalSlots());
+                canFreeHardPoint |= needHardPoint && equipped.getHardpointType() == aHardPointType;
+            }
+            if (needHardPoint && !canFreeHardPoint)
+                return IMPOSSIBLE;
+
+            Collections.sort(sizes, Collections.reverseOrder());
+            int removed = 0;
+            while (deficit > 0) {
+                if (removed == sizes.size())
+                    return IMPOSSIBLE;
+                deficit -= sizes.get(removed++);
+            }
+            return Math.max(removed, needHardPoint ? 1 : 0);
         }
 
         private int score() {
@@ -135,6 +309,8 @@ public class OpAutoAddItem extends OpLoadoutBase {
     private final List<Location> validLocations = new ArrayList<>();
     private final List<Location> partTraversalOrder;
     private final OperationStack stack          = new OperationStack(0);
+    private int                  nodes          = 0;
+    private volatile boolean     cancelled      = false;
 
     public OpAutoAddItem(LoadoutBase<?> aLoadout, MessageDelivery aMessageDelivery, Item anItem) {
         super(aLoadout, aMessageDelivery, "auto place item");
@@ -145,6 +321,14 @@ public class OpAutoAddItem extends OpLoadoutBase {
         partTraversalOrder = getPartTraversalOrder();
     }
 
+    /**
+     * Aborts a search for a solution that is in progress on another thread. The search will throw a
+     * {@link CancellationException}. The search is also aborted if the thread it runs on is interrupted.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
     @Override
     protected void buildOperation() {
         // If it can go into the engine, put it there.
@@ -155,14 +339,25 @@ public class OpAutoAddItem extends OpLoadoutBase {
             return;
         }
 
-        List<Node> closed = new ArrayList<>();
-        List<Node> open = new ArrayList<>();
+        // Moving items around can't help with mass, total slots etc.
+        if (EquipResult.SUCCESS != loadout.canEquipGlobal(itemToPlace))
+            throw new IllegalArgumentException("Not possible");
+
+        Node root = new Node(loadout, itemToPlace);
+        if (root.estimate >= IMPOSSIBLE)
+            throw new IllegalArgumentException("Not possible");
 
-        // Initial node
-        open.add(new Node(loadout, itemToPlace));
-        while (!open.isEmpty()) {
-            Node node = open.remove(0);
-            closed.add(node);
+        PriorityQueue<Node> open = new PriorityQueue<>();
+        Set<State> seen = new HashSet<>();
+        open.add(root);
+        seen.add(root.state);
+
+        int expansions = 0;
+        while (!open.isEmpty() && expansions++ < MAX_EXPANSIONS) {
+            if (cancelled || Thread.currentThread().isInterrupted())
+                throw new CancellationException("Auto place was cancelled");
+
+            Node node = open.remove();
 
             // Are we there yet?
             if (EquipResult.SUCCESS == node.data.canEquip(itemToPlace)) {
@@ -173,17 +368,16 @@ public class OpAutoAddItem extends OpLoadoutBase {
             // Not yet sweetie
             for (Location part : partTraversalOrder) {
                 ConfiguredComponentBase loadoutPart = node.data.getComponent(part);
-                for (Item i : loadoutPart.getItemsEquipped()) {
+                // Moving either of two identical items gives the same arrangement.
+                for (Item i : new LinkedHashSet<>(loadoutPart.getItemsEquipped())) {
                     if (i instanceof Internal)
                         continue;
-                    List<Node> branches = getBranches(node, part, i);
-                    for (Node branch : branches) {
-                        if (!closed.contains(branch) && !open.contains(branch))
+                    for (Node branch : getBranches(node, part, i, seen)) {
+                        if (branch.estimate < IMPOSSIBLE)
                             open.add(branch);
                     }
                 }
             }
-            Collections.sort(open); // Greedy search, I need *a* solution, not the best one.
         }
 
         throw new IllegalArgumentException("Not possible");
@@ -227,9 +421,11 @@ public class OpAutoAddItem extends OpLoadoutBase {
      *            The source part that we shall remove the {@link Item} from.
      * @param aItem
      *            The {@link Item} to be removed.
+     * @param aSeen
+     *            The arrangements that have already been found, no {@link Node}s are created for these.
      * @return A {@link List} of {@link Node}s with all possible ways to move the item out of the given node.
      */
-    private List<Node> getBranches(Node aParent, Location aSourcePart, Item aItem) {
+    private List<Node> getBranches(Node aParent, Location aSourcePart, Item aItem, Set<State> aSeen) {
         List<Node> ans = new ArrayList<>();
 
         // Create a temporary loadout where the item has been removed and find all
@@ -246,7 +442,9 @@ public class OpAutoAddItem extends OpLoadoutBase {
             if (EquipResult.SUCCESS == dstPart.canEquip(aItem)) {
                 // Don't consider swaps if the item can be directly moved. A swap will be generated in another point
                 // of the search tree anyway when we move an item from that component back to this.
-                ans.add(new Node(aParent, aSourcePart, targetPart, aItem));
+                State moved = aParent.state.moved(aSourcePart, targetPart, aItem);
+                if (aSeen.add(moved))
+                    ans.add(new Node(aParent, moved, aSourcePart, targetPart, aItem));
             }
             else if (dstPart.getInternalComponent().isAllowed(aItem, tempLoadout.getEngine())) {
                 // The part couldn't take the item directly, see if we can swap with some item in the part.
@@ -277,8 +475,12 @@ public class OpAutoAddItem extends OpLoadoutBase {
                             || item == ConfiguredComponentBase.ENGINE_INTERNAL_CLAN)
                         continue;
 
-                    if (EquipResult.SUCCESS == srcPart.canEquip(item))
-                        ans.add(new Node(aParent, aSourcePart, targetPart, aItem, item));
+                    if (EquipResult.SUCCESS == srcPart.canEquip(item)) {
+                        State swapped = aParent.state.moved(aSourcePart, targetPart, aItem).moved(targetPart,
+                                aSourcePart, item);
+                        if (aSeen.add(swapped))
+                            ans.add(new Node(aParent, swapped, aSourcePart, targetPart, aItem, item));
+                    }
                 }
             }
         }
@@ -70,13 +70,9 @@ public class WeaponGroups {
     }
 
     public void assign(WeaponGroups aThat){
-        for (int i = 0; i < MAX_GROUPS; ++i) {
-            setFiringMode(i, aThat.getFiringMode(i));
-
-            for (int j = 0; j < MAX_WEAPONS; ++j) {
-                setGroup(i, j, aThat.isInGroup(i, j));
-            }
-        }
+        System.arraycopy(aThat.firingMode, 0, firingMode, 0, MAX_GROUPS);
+        bs.clear();
+        bs.or(aThat.bs);
     }
     
     /**
@@ -20,16 +20,16 @@
 package lisong_mechlab.model.loadout.component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import lisong_mechlab.model.chassi.ArmorSide;
 import lisong_mechlab.model.chassi.ComponentBase;
 import lisong_mechlab.model.chassi.HardPoint;
 import lisong_mechlab.model.chassi.HardPointType;
+import lisong_mechlab.model.chassi.Location;
 import lisong_mechlab.model.item.Engine;
 import lisong_mechlab.model.item.HeatSink;
 import lisong_mechlab.model.item.Internal;
@@ -38,7 +38,6 @@ import lisong_mechlab.model.item.ItemDB;
 import lisong_mechlab.model.loadout.EquipResult;
 import lisong_mechlab.model.loadout.EquipResult.Type;
 import lisong_mechlab.model.loadout.LoadoutBase;
-import lisong_mechlab.model.loadout.LoadoutStandard;
 import lisong_mechlab.util.ListArrayUtils;
 import lisong_mechlab.util.OperationStack;
 import lisong_mechlab.util.OperationStack.Operation;
@@ -91,7 +90,11 @@ public abstract class ConfiguredComponentBase {
 
         @Override
         public boolean isForMe(LoadoutBase<?> aLoadout) {
-            return aLoadout.getComponents().contains(component);
+            for (Location location : Location.values()) {
+                if (aLoadout.getComponent(location) == component)
+                    return true;
+            }
+            return false;
         }
 
         public boolean isItemsChanged() {
@@ -104,17 +107,118 @@ public abstract class ConfiguredComponentBase {
         }
     }
 
+    /**
+     * Sums over a list of items that would otherwise have to be recounted every time they are queried.
+     */
+    private static class ItemSummary {
+        final int[] hardPoints = new int[HardPointType.values().length];
+        int         slots;
+        int         crittableSlots;
+        int         heatSinks;
+        int         heatSinkSlots;
+        Engine      engine;
+        double      mass;
+
+        ItemSummary() {
+            // Empty summary
+        }
+
+        ItemSummary(ItemSummary aSummary) {
+            System.arraycopy(aSummary.hardPoints, 0, hardPoints, 0, hardPoints.length);
+            slots = aSummary.slots;
+            crittableSlots = aSummary.crittableSlots;
+            heatSinks = aSummary.heatSinks;
+            heatSinkSlots = aSummary.heatSinkSlots;
+            engine = aSummary.engine;
+            mass = aSummary.mass;
+        }
+
+        static ItemSummary of(List<Item> aItems) {
+            ItemSummary ans = new ItemSummary();
+            for (Item item : aItems) {
+                ans.add(item);
+            }
+            return ans;
+        }
+
+        void add(Item aItem) {
+            update(aItem, 1);
+            if (aItem instanceof HeatSink) {
+                heatSinkSlots = aItem.getNumCriticalSlots();
+            }
+            else if (aItem instanceof Engine) {
+                engine = (Engine) aItem;
+            }
+            mass += aItem.getMass();
+        }
+
+        /**
+         * Floating point sums can't be reverted exactly so the mass is recounted from the remaining items, in the same
+         * order as {@link #of(List)} would sum them.
+         */
+        void remove(Item aItem, List<Item> aRemaining) {
+            update(aItem, -1);
+            if (heatSinks == 0) {
+                heatSinkSlots = 0;
+            }
+            if (aItem == engine) {
+                engine = null;
+            }
+            mass = 0;
+            for (Item item : aRemaining) {
+                mass += item.getMass();
+            }
+        }
+
+        boolean matches(ItemSummary aSummary) {
+            return Arrays.equals(hardPoints, aSummary.hardPoints) && slots == aSummary.slots
+                    && crittableSlots == aSummary.crittableSlots && heatSinks == aSummary.heatSinks
+                    && heatSinkSlots == aSummary.heatSinkSlots && engine == aSummary.engine && mass == aSummary.mass;
+        }
+
+        private void update(Item aItem, int aSign) {
+            final int itemSlots = aItem.getNumCriticalSlots();
+            slots += aSign * itemSlots;
+            if (aItem.isCrittable()) {
+                crittableSlots += aSign * itemSlots;
+            }
+            if (aItem instanceof HeatSink) {
+                heatSinks += aSign;
+            }
+            if (aItem.getHardpointType() != null) {
+                hardPoints[aItem.getHardpointType().ordinal()] += aSign;
+            }
+        }
+    }
+
     public final static Internal              ENGINE_INTERNAL      = (Internal) ItemDB
                                                                            .lookup(ItemDB.ENGINE_INTERNAL_ID);
     public final static Internal              ENGINE_INTERNAL_CLAN = (Internal) ItemDB
                                                                            .lookup(ItemDB.ENGINE_INTERNAL_CLAN_ID);
-    private final TreeMap<ArmorSide, Integer> armor                = new TreeMap<ArmorSide, Integer>();
+    /**
+     * When set, the cached item and armor sums are verified against a full recount after every change. This is
+     * intended for tests, it can also be enabled with the system property <code>lsml.checkComponentSums</code>.
+     */
+    static boolean                            checkSums            = Boolean.getBoolean("lsml.checkComponentSums");
+    private final int[]                       armor                = new int[ArmorSide.values().length];
+    private int                               armorTotal           = 0;
     private final ComponentBase               internalComponent;
-    private final List<Item>                  items                = new ArrayList<Item>();
+    private List<Item>                        items;
+    private ItemSummary                       itemsSummary;
+    /**
+     * <code>true</code> if {@link #items} and {@link #itemsSummary} may be shared with a copy of this component and
+     * must be cloned before they are changed.
+     */
+    private boolean                           itemsShared          = false;
+    private ItemSummary                       fixedSummary         = null;
+    private ItemSummary                       internalFixedSummary = null;
     private boolean                           autoArmor            = false;
+    private int                               itemsVersion         = 0;
+    private int                               version              = 0;
 
     /**
-     * Copy constructor. Performs a deep copy of the argument with a new {@link LoadoutStandard} value.
+     * Copy constructor. The copy behaves as a deep copy of the argument but the equipped items are shared between the
+     * two components until either of them changes its items. This makes copying loadouts for searches cheap.
      * 
      * @param aLoadoutPart
      *            The {@link ConfiguredComponentBase} to copy.
@@ -123,25 +227,21 @@ public abstract class ConfiguredComponentBase {
         internalComponent = aLoadoutPart.internalComponent;
         autoArmor = aLoadoutPart.autoArmor;
 
-        for (Map.Entry<ArmorSide, Integer> e : aLoadoutPart.armor.entrySet()) {
-            armor.put(e.getKey(), new Integer(e.getValue()));
-        }
+        System.arraycopy(aLoadoutPart.armor, 0, armor, 0, armor.length);
+        armorTotal = aLoadoutPart.armorTotal;
 
-        for (Item item : aLoadoutPart.items) {
-            items.add(item);
-        }
+        items = aLoadoutPart.items;
+        itemsSummary = aLoadoutPart.itemsSummary;
+        itemsShared = true;
+        aLoadoutPart.itemsShared = true;
+        internalFixedSummary = aLoadoutPart.internalFixedSummary;
     }
 
     public ConfiguredComponentBase(ComponentBase aInternalPart, boolean aAutoArmor) {
         internalComponent = aInternalPart;
         autoArmor = aAutoArmor;
-        if (internalComponent.getLocation().isTwoSided()) {
-            armor.put(ArmorSide.FRONT, 0);
-            armor.put(ArmorSide.BACK, 0);
-        }
-        else {
-            armor.put(ArmorSide.ONLY, 0);
-        }
+        items = new ArrayList<Item>();
+        itemsSummary = new ItemSummary();
     }
 
     /**
@@ -156,7 +256,12 @@ public abstract class ConfiguredComponentBase {
      *            The item to add.
      */
     public void addItem(Item aItem) {
+        unshareItems();
         items.add(aItem);
+        itemsSummary.add(aItem);
+        itemsVersion++;
+        version++;
+        verifySums();
     }
 
     /**
@@ -209,7 +314,42 @@ public abstract class ConfiguredComponentBase {
      *            The item to remove.
      */
     public void removeItem(Item aItem) {
-        items.remove(aItem);
+        unshareItems();
+        if (items.remove(aItem)) {
+            itemsSummary.remove(aItem, items);
+        }
+        itemsVersion++;
+        version++;
+        verifySums();
+    }
+
+    /**
+     * The items version is increased every time the fixed or equipped items of this component change. It allows
+     * caches of the items on a loadout to be validated without iterating over the items.
+     * 
+     * @return The current items version of this component.
+     */
+    public int getItemsVersion() {
+        return itemsVersion;
+    }
+
+    /**
+     * The version is increased every time anything on this component changes, items as well as armor.
+     * 
+     * @return The current version of this component.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Must be called by sub classes when they change the result of {@link #getItemsFixed()}.
+     */
+    protected void itemsChanged() {
+        fixedSummary = null;
+        itemsVersion++;
+        version++;
+        verifySums();
     }
 
     /**
@@ -231,7 +371,7 @@ public abstract class ConfiguredComponentBase {
             return false;
         if (!ListArrayUtils.equalsUnordered(items, that.items))
             return false;
-        if (!armor.equals(that.armor))
+        if (!Arrays.equals(armor, that.armor))
             return false;
         if (autoArmor != that.autoArmor)
             return false;
@@ -244,9 +384,8 @@ public abstract class ConfiguredComponentBase {
      * @return The current amount of armor on the given side of this component.
      */
     public int getArmor(ArmorSide aArmorSide) {
-        if (!armor.containsKey(aArmorSide))
-            throw new IllegalArgumentException("No such armor side!");
-        return armor.get(aArmorSide);
+        checkArmorSide(aArmorSide);
+        return armor[aArmorSide.ordinal()];
     }
 
     /**
@@ -267,8 +406,7 @@ public abstract class ConfiguredComponentBase {
                 return getInternalComponent().getArmorMax() - getArmor(ArmorSide.BACK);
             default:
             case ONLY:
-                if (!armor.containsKey(aArmorSide))
-                    throw new IllegalArgumentException("No such armor side!");
+                checkArmorSide(aArmorSide);
                 return getInternalComponent().getArmorMax();
         }
     }
@@ -277,11 +415,14 @@ public abstract class ConfiguredComponentBase {
      * @return The total number of armor points on this component.
      */
     public int getArmorTotal() {
-        int sum = 0;
-        for (Integer i : armor.values()) {
-            sum += i;
-        }
-        return sum;
+        return armorTotal;
+    }
+
+    /**
+     * @return The sum of the critical slots of all items on this component that can be critically hit.
+     */
+    public int getCrittableSlots() {
+        return itemsSummary.crittableSlots + getFixedSummary().crittableSlots;
     }
 
     /**
@@ -289,8 +430,7 @@ public abstract class ConfiguredComponentBase {
      *         to) 10 included in the engine itself, rather it only counts the external heat sink slots.
      */
     public int getEngineHeatsinks() {
-        int ans = ListArrayUtils.countByType(items, HeatSink.class)
-                + ListArrayUtils.countByType(getInternalComponent().getFixedItems(), HeatSink.class);
+        int ans = itemsSummary.heatSinks + getInternalFixedSummary().heatSinks;
         return Math.min(ans, getEngineHeatsinksMax());
     }
 
@@ -298,17 +438,11 @@ public abstract class ConfiguredComponentBase {
      * @return The maximal number of heat sinks that the engine (if any) equipped on this component can sustain.
      */
     public int getEngineHeatsinksMax() {
-        for (Item item : items) {
-            if (item instanceof Engine) {
-                return ((Engine) item).getNumHeatsinkSlots();
-            }
+        if (itemsSummary.engine != null) {
+            return itemsSummary.engine.getNumHeatsinkSlots();
         }
-        for (Item item : getInternalComponent().getFixedItems()) {
-            if (item instanceof Engine) {
-                return ((Engine) item).getNumHeatsinkSlots();
-            }
-        }
-        return 0;
+        Engine engine = getInternalFixedSummary().engine;
+        return engine != null ? engine.getNumHeatsinkSlots() : 0;
     }
 
     /**
@@ -322,14 +456,7 @@ public abstract class ConfiguredComponentBase {
      * @return The sum of the mass of all items on this component.
      */
     public double getItemMass() {
-        double ans = 0;
-        for (Item item : items) {
-            ans += item.getMass();
-        }
-        for (Item item : getItemsFixed()) {
-            ans += item.getMass();
-        }
-        return ans;
+        return itemsSummary.mass + getFixedSummary().mass;
     }
 
     /**
@@ -350,18 +477,8 @@ public abstract class ConfiguredComponentBase {
      * @return The number of items of the given hard point of type that are equipped.
      */
     public int getItemsOfHardpointType(HardPointType aHardpointType) {
-        int hardpoints = 0;
-        for (Item it : getItemsEquipped()) {
-            if (it.getHardpointType() == aHardpointType) {
-                hardpoints++;
-            }
-        }
-        for (Item it : getInternalComponent().getFixedItems()) {
-            if (it.getHardpointType() == aHardpointType) {
-                hardpoints++;
-            }
-        }
-        return hardpoints;
+        final int index = aHardpointType.ordinal();
+        return itemsSummary.hardPoints[index] + getInternalFixedSummary().hardPoints[index];
     }
 
     /**
@@ -378,33 +495,93 @@ public abstract class ConfiguredComponentBase {
      *         armor or structure.
      */
     public int getSlotsUsed() {
-        int crits = getInternalComponent().getFixedItemSlots();
-        int engineHsLeft = getEngineHeatsinksMax();
-        for (Item item : items) {
-            if (item instanceof HeatSink && engineHsLeft > 0) {
-                engineHsLeft--;
-                continue;
-            }
-            crits += item.getNumCriticalSlots();
-        }
-        return crits;
+        int engineHs = Math.min(itemsSummary.heatSinks, getEngineHeatsinksMax());
+        return getInternalComponent().getFixedItemSlots() + itemsSummary.slots - engineHs * itemsSummary.heatSinkSlots;
+    }
+
+    /**
+     * Counts the slots of both fixed and equipped items. Heat sinks, fixed or equipped, that fit in an engine, fixed or
+     * equipped, do not use any slots.
+     * 
+     * @return The number of critical slots used by the fixed and equipped items.
+     */
+    protected int getItemSlotsUsed() {
+        ItemSummary fixed = getFixedSummary();
+        Engine engine = itemsSummary.engine != null ? itemsSummary.engine : fixed.engine;
+        int engineHsSlots = engine != null ? engine.getNumHeatsinkSlots() : 0;
+        int numHs = itemsSummary.heatSinks + fixed.heatSinks;
+        int hsSize = itemsSummary.heatSinks > 0 ? itemsSummary.heatSinkSlots : fixed.heatSinkSlots;
+        return itemsSummary.slots + fixed.slots - Math.min(engineHsSlots, numHs) * hsSize;
     }
 
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((armor == null) ? 0 : armor.hashCode());
+        result = prime * result + Arrays.hashCode(armor);
         result = prime * result + ((internalComponent == null) ? 0 : internalComponent.hashCode());
         result = prime * result + ((items == null) ? 0 : items.hashCode());
         return result;
     }
 
     void setArmor(ArmorSide aArmorSide, int aAmount, boolean aAllowAutomaticArmor) {
-        if (!armor.containsKey(aArmorSide))
-            throw new IllegalArgumentException("No such armor side!");
-        armor.put(aArmorSide, aAmount);
+        checkArmorSide(aArmorSide);
+        armorTotal += aAmount - armor[aArmorSide.ordinal()];
+        armor[aArmorSide.ordinal()] = aAmount;
         autoArmor = aAllowAutomaticArmor;
+        version++;
+        verifySums();
+    }
+
+    private void unshareItems() {
+        if (itemsShared) {
+            items = new ArrayList<Item>(items);
+            itemsSummary = new ItemSummary(itemsSummary);
+            itemsShared = false;
+        }
+    }
+
+    private void checkArmorSide(ArmorSide aArmorSide) {
+        if (getInternalComponent().getLocation().isTwoSided() == (aArmorSide == ArmorSide.ONLY))
+            throw new IllegalArgumentException("No such armor side!");
+    }
+
+    private ItemSummary getFixedSummary() {
+        if (null == fixedSummary) {
+            fixedSummary = ItemSummary.of(getItemsFixed());
+        }
+        return fixedSummary;
+    }
+
+    private ItemSummary getInternalFixedSummary() {
+        if (null == internalFixedSummary) {
+            internalFixedSummary = ItemSummary.of(getInternalComponent().getFixedItems());
+        }
+        return internalFixedSummary;
+    }
+
+    /**
+     * Verifies the cached sums against a full recount if {@link #checkSums} is set.
+     * 
+     * @throws IllegalStateException
+     *             if any of the cached sums is wrong.
+     */
+    private void verifySums() {
+        if (!checkSums)
+            return;
+        if (!itemsSummary.matches(ItemSummary.of(items)))
+            throw new IllegalStateException("Equipped item sums out of date on " + this);
+        if (null != fixedSummary && !fixedSummary.matches(ItemSummary.of(getItemsFixed())))
+            throw new IllegalStateException("Fixed item sums out of date on " + this);
+        if (null != internalFixedSummary
+                && !internalFixedSummary.matches(ItemSummary.of(getInternalComponent().getFixedItems())))
+            throw new IllegalStateException("Internal item sums out of date on " + this);
+        int armorSum = 0;
+        for (int side : armor) {
+            armorSum += side;
+        }
+        if (armorSum != armorTotal)
+            throw new IllegalStateException("Armor total out of date on " + this);
     }
 
     @Override
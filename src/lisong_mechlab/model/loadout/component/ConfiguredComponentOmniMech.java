@@ -29,8 +29,6 @@ import lisong_mechlab.model.chassi.ComponentOmniMech;
 import lisong_mechlab.model.chassi.HardPoint;
 import lisong_mechlab.model.chassi.HardPointType;
 import lisong_mechlab.model.chassi.OmniPod;
-import lisong_mechlab.model.item.Engine;
-import lisong_mechlab.model.item.HeatSink;
 import lisong_mechlab.model.item.Item;
 import lisong_mechlab.model.item.ItemDB;
 import lisong_mechlab.model.item.Weapon;
@@ -142,32 +140,8 @@ public class ConfiguredComponentOmniMech extends ConfiguredComponentBase {
 
     @Override
     public int getSlotsUsed() {
-        int slots = 0;
-        int engineHsSlots = 0;
-        int numHs = 0;
-        int hsSize = 0;
-        for (Item item : getItemsFixed()) {
-            slots += item.getNumCriticalSlots();
-            if (item instanceof Engine) {
-                engineHsSlots = ((Engine) item).getNumHeatsinkSlots();
-            }
-            else if (item instanceof HeatSink) {
-                hsSize = item.getNumCriticalSlots();
-                numHs++;
-            }
-        }
-        for (Item item : getItemsEquipped()) {
-            slots += item.getNumCriticalSlots();
-            if (item instanceof Engine) {
-                engineHsSlots = ((Engine) item).getNumHeatsinkSlots();
-            }
-            else if (item instanceof HeatSink) {
-                hsSize = item.getNumCriticalSlots();
-                numHs++;
-            }
-        }
-        return slots + getInternalComponent().getDynamicArmorSlots()
-                + getInternalComponent().getDynamicStructureSlots() - Math.min(engineHsSlots, numHs) * hsSize;
+        return getItemSlotsUsed() + getInternalComponent().getDynamicArmorSlots()
+                + getInternalComponent().getDynamicStructureSlots();
     }
 
     /**
@@ -241,6 +215,7 @@ public class ConfiguredComponentOmniMech extends ConfiguredComponentBase {
         if (!toggleStates.containsKey(aItem))
             throw new IllegalArgumentException("Not a toggleable item: " + aItem);
         toggleStates.put(aItem, aNewState);
+        itemsChanged();
     }
 
     /**
@@ -259,6 +234,7 @@ public class ConfiguredComponentOmniMech extends ConfiguredComponentBase {
         for (Item item : omniPod.getToggleableItems()) {
             toggleStates.put(item, true); // Default enabled
         }
+        itemsChanged();
     }
 
     @Override
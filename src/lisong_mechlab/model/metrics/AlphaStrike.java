@@ -24,6 +24,7 @@ import java.util.Collection;
 import lisong_mechlab.model.item.Weapon;
 import lisong_mechlab.model.loadout.LoadoutBase;
 import lisong_mechlab.model.loadout.LoadoutStandard;
+import lisong_mechlab.model.metrics.helpers.RangeProfile;
 import lisong_mechlab.model.modifiers.Modifier;
 
 /**
@@ -47,4 +48,14 @@ public class AlphaStrike extends RangeMetric {
         }
         return ans;
     }
+
+    @Override
+    protected RangeProfile getRangeProfile() {
+        RangeProfile profile = new RangeProfile(loadout.getModifiers());
+        for (Weapon weapon : loadout.items(Weapon.class)) {
+            if (weapon.isOffensive())
+                profile.add(weapon, weapon.getDamagePerShot());
+        }
+        return profile;
+    }
 }
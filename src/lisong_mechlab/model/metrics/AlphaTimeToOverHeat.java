@@ -19,31 +19,37 @@
 //@formatter:on
 package lisong_mechlab.model.metrics;
 
+import java.util.List;
+
 import lisong_mechlab.model.loadout.LoadoutStandard;
+import lisong_mechlab.model.metrics.helpers.IntegratedPeriodicSignal;
 
 /**
  * This class calculates the time a mech can keep firing all weapons before it over heats.
+ * <p>
+ * The heat is stepped exactly from event to event of the heat signals of {@link HeatOverTime}, i.e. weapons firing and
+ * the start and end of pulses. Between two events the heat changes linearly so the time of over heat can be solved for
+ * directly.
  * 
  * @author Emily Björk
  */
 public class AlphaTimeToOverHeat implements Metric {
-    private final HeatDissipation heatDissipation;
-    private final HeatOverTime    heatOverTime;
-    private final HeatCapacity    heatCapacity;
-    static private final double   MAX_TIME  = 15 * 60;
-    static private final double   TIME_STEP = 0.1;    // 9k iterations at worst
+    private final Metric        heatDissipation;
+    private final HeatOverTime  heatOverTime;
+    private final Metric        heatCapacity;
+    static private final double MAX_TIME = 15 * 60;
 
     /**
      * Creates a new {@link Metric}.
      * 
      * @param aHeatCapacity
-     *            The {@link HeatCapacity} for the {@link LoadoutStandard}.
+     *            The {@link HeatCapacity} for the {@link LoadoutStandard}, or a {@link MetricGraph.Node} of it.
      * @param aHeatOverTime
      *            The {@link HeatOverTime} for the {@link LoadoutStandard}.
      * @param aHeatDissipation
-     *            The {@link HeatDissipation} for the {@link LoadoutStandard}.
+     *            The {@link HeatDissipation} for the {@link LoadoutStandard}, or a {@link MetricGraph.Node} of it.
      */
-    public AlphaTimeToOverHeat(HeatCapacity aHeatCapacity, HeatOverTime aHeatOverTime, HeatDissipation aHeatDissipation) {
+    public AlphaTimeToOverHeat(Metric aHeatCapacity, HeatOverTime aHeatOverTime, Metric aHeatDissipation) {
         heatOverTime = aHeatOverTime;
         heatCapacity = aHeatCapacity;
         heatDissipation = aHeatDissipation;
@@ -51,24 +57,109 @@ public class AlphaTimeToOverHeat implements Metric {
 
     @Override
     public double calculate() {
+        return calculate(heatOverTime.getHeatSignals(), heatDissipation.calculate(), heatCapacity.calculate());
+    }
+
+    /**
+     * Calculates the time to over heat for the given heat signals.
+     * 
+     * @param aSignals
+     *            The heat generated over time by each heat source.
+     * @param aDissipation
+     *            The heat dissipated per second.
+     * @param aCapacity
+     *            The heat capacity.
+     * @return The time in seconds until the heat reaches the capacity, or {@link Double#POSITIVE_INFINITY} if it
+     *         doesn't happen within a match.
+     */
+    static double calculate(List<IntegratedPeriodicSignal> aSignals, double aDissipation, double aCapacity) {
+        final int n = aSignals.size();
+        final double[] period = new double[n];
+        final double[] impulse = new double[n];
+        final double[] width = new double[n];
+        final double[] amplitude = new double[n];
+
+        // The heat can never exceed the most heat that any window of time can generate above the average. If that is
+        // below the capacity and the average is dissipated, there will be no over heat.
+        double averageRate = 0;
+        double maxExcess = 0;
+        for (int i = 0; i < n; ++i) {
+            IntegratedPeriodicSignal signal = aSignals.get(i);
+            period[i] = signal.getPeriod();
+            impulse[i] = signal.getImpulse();
+            width[i] = signal.getPulseWidth();
+            amplitude[i] = width[i] > 0 ? signal.getPulseAmplitude() : 0;
+
+            double perPeriod = impulse[i] + width[i] * amplitude[i];
+            if (perPeriod == 0) {
+                period[i] = Double.POSITIVE_INFINITY; // Never generates heat, only the first event happens.
+            }
+            else if (!(period[i] > 0)) {
+                return 0; // Infinite heat
+            }
+            averageRate += perPeriod / period[i];
+            maxExcess += impulse[i] + width[i] * amplitude[i] * (1 + width[i] / period[i]);
+        }
+        if (averageRate < aDissipation && maxExcess < aCapacity) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // The number of periods and pulses each signal has started and ended, the next event times follow from these.
+        final long[] started = new long[n];
+        final long[] ended = new long[n];
+        final double[] nextStart = new double[n];
+        final double[] nextEnd = new double[n];
+        for (int i = 0; i < n; ++i) {
+            nextEnd[i] = Double.POSITIVE_INFINITY;
+        }
+
         double heat = 0;
         double time = 0;
-        double lastHeat = 0;
-        final double dissipated = heatDissipation.calculate() * TIME_STEP;
-
-        final double capacity = heatCapacity.calculate();
-        // First order linear ODE, using Euler's method.
-        while (time < MAX_TIME) {
-            final double currentHeat = heatOverTime.calculate(time);
-            final double generated = currentHeat - lastHeat;
-            heat += generated - dissipated;
-            heat = Math.max(0, heat);
-            time += TIME_STEP;
-            lastHeat = currentHeat;
-            if (heat >= capacity) {
+        double rate = 0;
+        while (true) {
+            // Apply all events that happen now
+            boolean changed = false;
+            for (int i = 0; i < n; ++i) {
+                if (nextEnd[i] == time) {
+                    ended[i]++;
+                    nextEnd[i] = ended[i] < started[i] ? ended[i] * period[i] + width[i] : Double.POSITIVE_INFINITY;
+                    changed = true;
+                }
+                if (nextStart[i] == time) {
+                    heat += impulse[i];
+                    if (width[i] > 0 && ended[i] == started[i]) {
+                        nextEnd[i] = time + width[i];
+                    }
+                    started[i]++;
+                    nextStart[i] = started[i] * period[i];
+                    changed = true;
+                }
+            }
+            if (heat >= aCapacity) {
                 return time;
             }
+            if (changed) {
+                rate = 0;
+                for (int i = 0; i < n; ++i) {
+                    rate += (started[i] - ended[i]) * amplitude[i];
+                }
+            }
+
+            double nextTime = MAX_TIME;
+            for (int i = 0; i < n; ++i) {
+                nextTime = Math.min(nextTime, Math.min(nextStart[i], nextEnd[i]));
+            }
+
+            // The heat changes linearly until the next event
+            final double slope = rate - aDissipation;
+            if (slope > 0 && heat + slope * (nextTime - time) >= aCapacity) {
+                return time + (aCapacity - heat) / slope;
+            }
+            heat = Math.max(0, heat + slope * (nextTime - time));
+            time = nextTime;
+            if (time >= MAX_TIME) {
+                return Double.POSITIVE_INFINITY;
+            }
         }
-        return Double.POSITIVE_INFINITY;
     }
 }
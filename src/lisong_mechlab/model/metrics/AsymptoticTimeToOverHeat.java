@@ -26,12 +26,19 @@ package lisong_mechlab.model.metrics;
  * @author Emily Björk
  */
 public class AsymptoticTimeToOverHeat implements Metric {
-    private final HeatCapacity    capacity;
-    private final HeatDissipation dissipation;
-    private final HeatGeneration  generation;
+    private final Metric capacity;
+    private final Metric dissipation;
+    private final Metric generation;
 
-    public AsymptoticTimeToOverHeat(final HeatCapacity aCapacity, final HeatDissipation aDissipation,
-            final HeatGeneration aHeatGeneration) {
+    /**
+     * @param aCapacity
+     *            The {@link HeatCapacity}, or a {@link MetricGraph.Node} of it.
+     * @param aDissipation
+     *            The {@link HeatDissipation}, or a {@link MetricGraph.Node} of it.
+     * @param aHeatGeneration
+     *            The {@link HeatGeneration}, or a {@link MetricGraph.Node} of it.
+     */
+    public AsymptoticTimeToOverHeat(final Metric aCapacity, final Metric aDissipation, final Metric aHeatGeneration) {
         capacity = aCapacity;
         dissipation = aDissipation;
         generation = aHeatGeneration;
@@ -20,8 +20,12 @@
 package lisong_mechlab.model.metrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import lisong_mechlab.model.item.BallisticWeapon;
 import lisong_mechlab.model.item.EnergyWeapon;
@@ -32,6 +36,7 @@ import lisong_mechlab.model.metrics.helpers.DoubleFireBurstSignal;
 import lisong_mechlab.model.metrics.helpers.IntegratedImpulseTrain;
 import lisong_mechlab.model.metrics.helpers.IntegratedPulseTrain;
 import lisong_mechlab.model.metrics.helpers.IntegratedSignal;
+import lisong_mechlab.model.metrics.helpers.RangeProfile;
 import lisong_mechlab.model.modifiers.Modifier;
 import lisong_mechlab.util.message.Message;
 import lisong_mechlab.util.message.MessageXBar;
@@ -42,8 +47,8 @@ import lisong_mechlab.util.message.MessageXBar;
  * @author Emily Björk
  */
 public class BurstDamageOverTime extends RangeTimeMetric implements Message.Recipient {
-    private final List<IntegratedSignal> damageIntegrals = new ArrayList<>();
-    private double                       cachedRange     = -1;
+    private static final int                          CACHED_RANGES = 32;
+    private final Map<Double, List<IntegratedSignal>> signalCache   = new LinkedHashMap<>(16, 0.75f, true);
 
     /**
      * Creates a new calculator object
@@ -55,58 +60,103 @@ public class BurstDamageOverTime extends RangeTimeMetric implements Message.Reci
      */
     public BurstDamageOverTime(LoadoutBase<?> aLoadout, MessageXBar aXBar) {
         super(aLoadout);
-        updateEvents(getRange());
         aXBar.attach(this);
     }
 
     @Override
     public void receive(Message aMsg) {
         if (aMsg.isForMe(loadout) && aMsg.affectsHeatOrDamage()) {
-            updateEvents(getRange());
+            signalCache.clear();
         }
     }
 
-    private void updateEvents(double aRange) {
-        damageIntegrals.clear();
-        Collection<Modifier> modifiers = loadout.getModifiers();
-        for (Weapon weapon : loadout.items(Weapon.class)) {
-            if (!weapon.isOffensive())
-                continue;
-
-            double factor = (aRange < 0) ? 1.0 : weapon.getRangeEffectivity(aRange, modifiers);
-            double period = weapon.getSecondsPerShot(modifiers);
-            double damage = factor * weapon.getDamagePerShot();
-
-            if (weapon instanceof EnergyWeapon) {
-                EnergyWeapon energyWeapon = (EnergyWeapon) weapon;
-                if (energyWeapon.getDuration(modifiers) > 0) {
-                    damageIntegrals.add(new IntegratedPulseTrain(period, energyWeapon.getDuration(modifiers), damage
-                            / energyWeapon.getDuration(modifiers)));
-                    continue;
+    /**
+     * The signals of a range are kept for the most recently used ranges so that sweeping over ranges and times only
+     * creates the signals once per range.
+     */
+    private List<IntegratedSignal> getSignals(double aRange) {
+        List<IntegratedSignal> signals = signalCache.get(aRange);
+        if (null == signals) {
+            signals = new ArrayList<>();
+            Collection<Modifier> modifiers = loadout.getModifiers();
+            for (Weapon weapon : loadout.items(Weapon.class)) {
+                if (weapon.isOffensive()) {
+                    signals.add(createSignal(weapon, aRange, modifiers));
                 }
             }
-            else if (weapon instanceof BallisticWeapon) {
-                BallisticWeapon ballisticWeapon = (BallisticWeapon) weapon;
-                if (ballisticWeapon.canDoubleFire()) {
-                    damageIntegrals.add(new DoubleFireBurstSignal(ballisticWeapon, modifiers, aRange));
-                    continue;
-                }
+            signalCache.put(aRange, signals);
+
+            Iterator<List<IntegratedSignal>> it = signalCache.values().iterator();
+            while (signalCache.size() > CACHED_RANGES && it.hasNext()) {
+                it.next();
+                it.remove();
             }
-            damageIntegrals.add(new IntegratedImpulseTrain(period, damage));
+        }
+        return signals;
+    }
 
+    private static IntegratedSignal createSignal(Weapon aWeapon, double aRange, Collection<Modifier> aModifiers) {
+        double factor = (aRange < 0) ? 1.0 : aWeapon.getRangeEffectivity(aRange, aModifiers);
+        double period = aWeapon.getSecondsPerShot(aModifiers);
+        double damage = factor * aWeapon.getDamagePerShot();
+
+        if (aWeapon instanceof EnergyWeapon) {
+            EnergyWeapon energyWeapon = (EnergyWeapon) aWeapon;
+            if (energyWeapon.getDuration(aModifiers) > 0) {
+                return new IntegratedPulseTrain(period, energyWeapon.getDuration(aModifiers), damage
+                        / energyWeapon.getDuration(aModifiers));
+            }
         }
-        cachedRange = getRange();
+        else if (aWeapon instanceof BallisticWeapon) {
+            BallisticWeapon ballisticWeapon = (BallisticWeapon) aWeapon;
+            if (ballisticWeapon.canDoubleFire()) {
+                return new DoubleFireBurstSignal(ballisticWeapon, aModifiers, aRange);
+            }
+        }
+        return new IntegratedImpulseTrain(period, damage);
     }
 
     @Override
     public double calculate(double aRange, double aTime) {
-        if (aRange != cachedRange) {
-            updateEvents(aRange);
-        }
         double ans = 0;
-        for (IntegratedSignal event : damageIntegrals) {
+        for (IntegratedSignal event : getSignals(aRange)) {
             ans += event.integrateFromZeroTo(aTime);
         }
         return ans;
     }
+
+    /**
+     * Calculates the burst damage at the given range up to each of the given times, same as
+     * {@link #calculate(double, double)} for each time.
+     * 
+     * @param aRange
+     *            The range to calculate the damage at, or negative to ignore range.
+     * @param aTimes
+     *            The times to calculate the damage for, must be sorted in ascending order.
+     * @param aOut
+     *            An array of at least the same length as <code>aTimes</code> where the damage to
+     *            <code>aTimes[i]</code> is written to <code>aOut[i]</code>.
+     */
+    public void evaluate(double aRange, double[] aTimes, double[] aOut) {
+        Arrays.fill(aOut, 0, aTimes.length, 0.0);
+        double[] signal = new double[aTimes.length];
+        for (IntegratedSignal event : getSignals(aRange)) {
+            event.evaluate(aTimes, signal);
+            for (int i = 0; i < aTimes.length; ++i) {
+                aOut[i] += signal[i];
+            }
+        }
+    }
+
+    @Override
+    protected RangeProfile getRangeProfile(double aTime) {
+        Collection<Modifier> modifiers = loadout.getModifiers();
+        RangeProfile profile = new RangeProfile(modifiers);
+        for (Weapon weapon : loadout.items(Weapon.class)) {
+            if (weapon.isOffensive()) {
+                profile.add(weapon, createSignal(weapon, -1, modifiers).integrateFromZeroTo(aTime));
+            }
+        }
+        return profile;
+    }
 }
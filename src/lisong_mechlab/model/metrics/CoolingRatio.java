@@ -29,10 +29,16 @@ import lisong_mechlab.model.loadout.LoadoutStandard;
  * @author Emily Björk
  */
 public class CoolingRatio implements Metric {
-    private final HeatDissipation dissipation;
-    private final HeatGeneration  generation;
+    private final Metric dissipation;
+    private final Metric generation;
 
-    public CoolingRatio(final HeatDissipation aDissipation, final HeatGeneration aHeatGeneration) {
+    /**
+     * @param aDissipation
+     *            The {@link HeatDissipation}, or a {@link MetricGraph.Node} of it.
+     * @param aHeatGeneration
+     *            The {@link HeatGeneration}, or a {@link MetricGraph.Node} of it.
+     */
+    public CoolingRatio(final Metric aDissipation, final Metric aHeatGeneration) {
         dissipation = aDissipation;
         generation = aHeatGeneration;
     }
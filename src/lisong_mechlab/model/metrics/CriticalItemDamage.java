@@ -45,16 +45,7 @@ public class CriticalItemDamage implements ItemMetric {
     }
 
     public static double calculate(Item anItem, ConfiguredComponentBase aLoadoutPart) {
-        int slots = 0;
-        for (Item it : aLoadoutPart.getItemsEquipped()) {
-            if (it.isCrittable())
-                slots += it.getNumCriticalSlots();
-        }
-        for (Item it : aLoadoutPart.getItemsFixed()) {
-            if (it.isCrittable())
-                slots += it.getNumCriticalSlots();
-        }
-        return calculate(anItem.getNumCriticalSlots(), slots);
+        return calculate(anItem.getNumCriticalSlots(), aLoadoutPart.getCrittableSlots());
     }
 
     public static double calculate(int aItemCrits, int aTotalCrits) {
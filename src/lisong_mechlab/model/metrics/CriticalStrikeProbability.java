@@ -45,18 +45,8 @@ public class CriticalStrikeProbability implements ItemMetric {
 
     @Override
     public double calculate(Item aItem) {
-        int slots = 0;
-        for (Item it : loadoutPart.getItemsEquipped()) {
-            if (it.isCrittable())
-                slots += it.getNumCriticalSlots();
-        }
-        for (Item it : loadoutPart.getItemsFixed()) {
-            if (it.isCrittable())
-                slots += it.getNumCriticalSlots();
-        }
-
         // The probability that this item will be hit at any one event
-        double p_hit = (double) aItem.getNumCriticalSlots() / slots;
+        double p_hit = (double) aItem.getNumCriticalSlots() / loadoutPart.getCrittableSlots();
         return calculate(p_hit);
     }
 
@@ -95,13 +95,23 @@ public class GhostHeat implements Metric {
         return penalty;
     }
 
+    /**
+     * Gets the heat scale that applies to the n:th weapon of a ghost heat group fired together.
+     * 
+     * @param aCount
+     *            The number of weapons in the group that have been fired together, including the current one.
+     * @return A factor that is multiplied with the ghost heat multiplier and heat of the weapon to get the penalty.
+     */
+    public static double getHeatScale(int aCount) {
+        return HEAT_SCALE[Math.min(aCount, HEAT_SCALE.length - 1)];
+    }
+
     private double calculatePenalty(Weapon aWeapon, int aCount) {
         double penalty = 0;
         int count = aCount;
         Collection<Modifier> modifiers = loadout.getModifiers();
         while (count > aWeapon.getGhostHeatMaxFreeAlpha()) {
-            penalty += HEAT_SCALE[Math.min(count, HEAT_SCALE.length - 1)] * aWeapon.getGhostHeatMultiplier()
-                    * aWeapon.getHeat(modifiers);
+            penalty += getHeatScale(count) * aWeapon.getGhostHeatMultiplier() * aWeapon.getHeat(modifiers);
             count--;
         }
         return penalty;
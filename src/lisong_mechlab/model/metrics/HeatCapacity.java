@@ -20,6 +20,7 @@
 package lisong_mechlab.model.metrics;
 
 import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
 import lisong_mechlab.model.loadout.LoadoutStandard;
 import lisong_mechlab.model.modifiers.Attribute;
 import lisong_mechlab.model.modifiers.ModifiersDB;
@@ -30,6 +31,13 @@ import lisong_mechlab.model.modifiers.ModifiersDB;
  * @author Emily Björk
  */
 public class HeatCapacity implements Metric {
+    /**
+     * The {@link LoadoutChangedMessage} dirty flags of the parts of a loadout that the heat capacity depends on.
+     */
+    public static final int      INPUTS                  = LoadoutChangedMessage.ITEMS | LoadoutChangedMessage.UPGRADES
+                                                                 | LoadoutChangedMessage.EFFICIENCIES
+                                                                 | LoadoutChangedMessage.MODULES
+                                                                 | LoadoutChangedMessage.OMNIPODS;
     private final LoadoutBase<?> loadout;
     private static final double  MECH_BASE_HEAT_CAPACITY = 30;
 
@@ -23,6 +23,7 @@ import java.util.Collection;
 
 import lisong_mechlab.model.environment.Environment;
 import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
 import lisong_mechlab.model.loadout.LoadoutStandard;
 import lisong_mechlab.model.modifiers.Attribute;
 import lisong_mechlab.model.modifiers.Modifier;
@@ -34,6 +35,10 @@ import lisong_mechlab.model.modifiers.ModifiersDB;
  * @author Emily Björk
  */
 public class HeatDissipation implements Metric {
+    /**
+     * Heat sinks, upgrades and modifiers, as well as the environment which is set outside of the loadout.
+     */
+    public static final int      INPUTS = HeatCapacity.INPUTS | LoadoutChangedMessage.OTHER;
     private final LoadoutBase<?> loadout;
     private Environment          environment;
 
@@ -24,6 +24,7 @@ import java.util.Collection;
 import lisong_mechlab.model.item.Engine;
 import lisong_mechlab.model.item.HeatSource;
 import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.item.WeaponStat;
 import lisong_mechlab.model.loadout.LoadoutBase;
 import lisong_mechlab.model.loadout.LoadoutStandard;
 import lisong_mechlab.model.modifiers.Modifier;
@@ -36,6 +37,10 @@ import lisong_mechlab.model.modifiers.Modifier;
  * @author Emily Björk
  */
 public class HeatGeneration implements Metric {
+    /**
+     * The weapons and engine together with everything that modifies their heat, see {@link HeatCapacity#INPUTS}.
+     */
+    public static final int      INPUTS = HeatCapacity.INPUTS;
     private final LoadoutBase<?> loadout;
 
     public HeatGeneration(final LoadoutBase<?> aLoadout) {
@@ -48,7 +53,7 @@ public class HeatGeneration implements Metric {
         Collection<Modifier> modifiers = loadout.getModifiers();
         for (HeatSource item : loadout.items(HeatSource.class)) {
             if (item instanceof Weapon) {
-                heat += ((Weapon) item).getStat("h/s", modifiers);
+                heat += WeaponStat.HEAT_PER_SECOND.evaluate((Weapon) item, modifiers);
             }
             else if (item instanceof Engine) {
                 heat += ((Engine) item).getHeat(modifiers);
@@ -20,7 +20,9 @@
 package lisong_mechlab.model.metrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import lisong_mechlab.model.item.EnergyWeapon;
@@ -30,8 +32,8 @@ import lisong_mechlab.model.item.Weapon;
 import lisong_mechlab.model.loadout.LoadoutBase;
 import lisong_mechlab.model.loadout.LoadoutStandard;
 import lisong_mechlab.model.metrics.helpers.IntegratedImpulseTrain;
+import lisong_mechlab.model.metrics.helpers.IntegratedPeriodicSignal;
 import lisong_mechlab.model.metrics.helpers.IntegratedPulseTrain;
-import lisong_mechlab.model.metrics.helpers.IntegratedSignal;
 import lisong_mechlab.model.modifiers.Modifier;
 import lisong_mechlab.util.message.Message;
 import lisong_mechlab.util.message.MessageXBar;
@@ -44,8 +46,12 @@ import lisong_mechlab.util.message.MessageXBar;
  */
 public class HeatOverTime implements TimeMetric, Message.Recipient {
 
-    private final LoadoutBase<?>         loadout;
-    private final List<IntegratedSignal> heatIntegrals = new ArrayList<>();
+    /**
+     * Same heat sources as {@link HeatGeneration#INPUTS}.
+     */
+    public static final int                      INPUTS        = HeatGeneration.INPUTS;
+    private final LoadoutBase<?>                 loadout;
+    private final List<IntegratedPeriodicSignal> heatIntegrals = new ArrayList<>();
 
     /**
      * Creates a new calculator object
@@ -62,12 +68,40 @@ public class HeatOverTime implements TimeMetric, Message.Recipient {
     @Override
     public double calculate(double aTime) {
         double ans = 0;
-        for (IntegratedSignal event : heatIntegrals) {
+        for (IntegratedPeriodicSignal event : heatIntegrals) {
             ans += event.integrateFromZeroTo(aTime);
         }
         return ans;
     }
 
+    /**
+     * Calculates the heat generated up to each of the given times, same as {@link #calculate(double)} for each time.
+     * 
+     * @param aTimes
+     *            The times to calculate the heat for, must be sorted in ascending order.
+     * @param aOut
+     *            An array of at least the same length as <code>aTimes</code> where the heat to <code>aTimes[i]</code>
+     *            is written to <code>aOut[i]</code>.
+     */
+    public void evaluate(double[] aTimes, double[] aOut) {
+        Arrays.fill(aOut, 0, aTimes.length, 0.0);
+        double[] signal = new double[aTimes.length];
+        for (IntegratedPeriodicSignal event : heatIntegrals) {
+            event.evaluate(aTimes, signal);
+            for (int i = 0; i < aTimes.length; ++i) {
+                aOut[i] += signal[i];
+            }
+        }
+    }
+
+    /**
+     * @return The heat generated by each heat source over time, this can be used to step the heat generation from
+     *         event to event.
+     */
+    public List<IntegratedPeriodicSignal> getHeatSignals() {
+        return Collections.unmodifiableList(heatIntegrals);
+    }
+
     @Override
     public void receive(Message aMsg) {
         if (aMsg.isForMe(loadout) && aMsg.affectsHeatOrDamage()) {
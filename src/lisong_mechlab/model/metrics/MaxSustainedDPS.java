@@ -22,12 +22,12 @@ package lisong_mechlab.model.metrics;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.item.WeaponStat;
 import lisong_mechlab.model.loadout.LoadoutBase;
 import lisong_mechlab.model.loadout.LoadoutStandard;
 import lisong_mechlab.model.modifiers.Modifier;
@@ -38,13 +38,51 @@ import lisong_mechlab.model.modifiers.Modifier;
  * @author Emily Björk
  */
 public class MaxSustainedDPS extends RangeMetric {
-    private final HeatDissipation dissipation;
+    private final Metric dissipation;
 
-    public MaxSustainedDPS(final LoadoutBase<?> aLoadout, final HeatDissipation aHeatDissipation) {
+    /**
+     * @param aLoadout
+     *            The loadout to calculate for.
+     * @param aHeatDissipation
+     *            The {@link HeatDissipation} of the loadout, or a {@link MetricGraph.Node} of it.
+     */
+    public MaxSustainedDPS(final LoadoutBase<?> aLoadout, final Metric aHeatDissipation) {
         super(aLoadout);
         dissipation = aHeatDissipation;
     }
 
+    /**
+     * The ratios with which each weapon should be fired over a set of ranges, see
+     * {@link MaxSustainedDPS#getWeaponRatios(double[])}.
+     */
+    public static class WeaponRatios {
+        private final List<Weapon> weapons;
+        private final double[][]   ratios;
+
+        WeaponRatios(List<Weapon> aWeapons, int aRanges) {
+            weapons = aWeapons;
+            ratios = new double[aWeapons.size()][aRanges];
+        }
+
+        /**
+         * @return The distinct offensive weapons of the loadout. The index of a weapon in this list is the weapon index
+         *         used by {@link #getRatios(int)}.
+         */
+        public List<Weapon> getWeapons() {
+            return Collections.unmodifiableList(weapons);
+        }
+
+        /**
+         * @param aWeapon
+         *            The index of the weapon in {@link #getWeapons()}.
+         * @return The ratio for the weapon at each range, summed over all copies of the weapon. The returned array is
+         *         not copied and must not be modified.
+         */
+        public double[] getRatios(int aWeapon) {
+            return ratios[aWeapon];
+        }
+    }
+
     @Override
     public double calculate(double aRange) {
         double ans = 0.0;
@@ -54,7 +92,7 @@ public class MaxSustainedDPS extends RangeMetric {
             Weapon weapon = entry.getKey();
             double ratio = entry.getValue();
             double rangeEffectivity = weapon.getRangeEffectivity(aRange, modifiers);
-            ans += rangeEffectivity * weapon.getStat("d/s", modifiers) * ratio;
+            ans += rangeEffectivity * WeaponStat.DAMAGE_PER_SECOND.evaluate(weapon, modifiers) * ratio;
         }
         return ans;
     }
@@ -70,62 +108,110 @@ public class MaxSustainedDPS extends RangeMetric {
      *         weapon is used.
      */
     public Map<Weapon, Double> getWeaponRatios(final double aRange) {
+        WeaponRatios weaponRatios = getWeaponRatios(new double[] { aRange });
+        Map<Weapon, Double> ans = new HashMap<>();
+        for (int i = 0; i < weaponRatios.weapons.size(); ++i) {
+            ans.put(weaponRatios.weapons.get(i), Double.valueOf(weaponRatios.ratios[i][0]));
+        }
+        return ans;
+    }
+
+    /**
+     * Calculates the same ratios as {@link #getWeaponRatios(double)} for many ranges at once.
+     * <p>
+     * The weapons are kept in order of decreasing damage per heat at the current range. Between adjacent ranges the
+     * order seldom changes much so it is repaired with an insertion sort, which makes the cost close to linear in the
+     * number of ranges times the number of weapons.
+     * 
+     * @param aRanges
+     *            The ranges to calculate for.
+     * @return A {@link WeaponRatios} with the ratio of each weapon at each of the given ranges.
+     */
+    public WeaponRatios getWeaponRatios(double[] aRanges) {
         final Collection<Modifier> modifiers = loadout.getModifiers();
+        final double heatBudget = dissipation.calculate();
 
-        double heatleft = dissipation.calculate();
-        List<Weapon> weapons = new ArrayList<>(15);
+        // Every copy of a weapon is an entry that refers to the distinct weapon.
+        List<Weapon> distinct = new ArrayList<>();
+        Map<Weapon, Integer> indices = new HashMap<>();
+        List<Integer> entryList = new ArrayList<>(15);
         for (Weapon weapon : loadout.items(Weapon.class)) {
             if (weapon.isOffensive()) {
-                weapons.add(weapon);
-            }
-        }
-        if (aRange >= 0) {
-            Collections.sort(weapons, new Comparator<Weapon>() {
-                @Override
-                public int compare(Weapon aO1, Weapon aO2) {
-                    // Note: D/H == DPS / HPS so we're ordering by highest dps per hps.
-                    double dps2 = aO2.getRangeEffectivity(aRange, modifiers) * aO2.getStat("d/h", modifiers);
-                    double dps1 = aO1.getRangeEffectivity(aRange, modifiers) * aO1.getStat("d/h", modifiers);
-                    if (aO1.getRangeMax(modifiers) < aRange)
-                        dps1 = 0;
-                    if (aO2.getRangeMax(modifiers) < aRange)
-                        dps2 = 0;
-                    return Double.compare(dps2, dps1);
+                Integer index = indices.get(weapon);
+                if (index == null) {
+                    index = distinct.size();
+                    indices.put(weapon, index);
+                    distinct.add(weapon);
                 }
-            });
+                entryList.add(index);
+            }
         }
-        else {
-            Collections.sort(weapons, new Comparator<Weapon>() {
-                @Override
-                public int compare(Weapon aO1, Weapon aO2) {
-                    return Double.compare(aO2.getStat("d/h", modifiers), aO1.getStat("d/h", modifiers));
-                }
-            });
+
+        final int numWeapons = distinct.size();
+        final int numEntries = entryList.size();
+        int[] entries = new int[numEntries];
+        int[] order = new int[numEntries];
+        for (int i = 0; i < numEntries; ++i) {
+            entries[i] = entryList.get(i);
+            order[i] = i;
         }
 
-        Map<Weapon, Double> ans = new HashMap<>();
-        while (!weapons.isEmpty()) {
-            Weapon weapon = weapons.remove(0);
-            final double heat = weapon.getStat("h/s", modifiers);
-            final double ratio;
+        double[] damagePerHeat = new double[numWeapons];
+        double[] heatPerSecond = new double[numWeapons];
+        double[] rangeMax = new double[numWeapons];
+        for (int i = 0; i < numWeapons; ++i) {
+            WeaponStat.Values values = new WeaponStat.Values(distinct.get(i), modifiers);
+            damagePerHeat[i] = WeaponStat.DAMAGE_PER_HEAT.evaluate(values);
+            heatPerSecond[i] = WeaponStat.HEAT_PER_SECOND.evaluate(values);
+            rangeMax[i] = distinct.get(i).getRangeMax(modifiers);
+        }
 
-            if (heatleft == 0) {
-                ratio = 0;
+        WeaponRatios ans = new WeaponRatios(distinct, aRanges.length);
+        double[] key = new double[numWeapons];
+        for (int r = 0; r < aRanges.length; ++r) {
+            final double range = aRanges[r];
+            for (int i = 0; i < numWeapons; ++i) {
+                // Note: D/H == DPS / HPS so we're ordering by highest dps per hps.
+                if (range < 0)
+                    key[i] = damagePerHeat[i];
+                else if (rangeMax[i] < range)
+                    key[i] = 0;
+                else
+                    key[i] = distinct.get(i).getRangeEffectivity(range, modifiers) * damagePerHeat[i];
             }
-            else if (heat < heatleft) {
-                ratio = 1.0;
-                heatleft -= heat;
-            }
-            else {
-                ratio = heatleft / heat;
-                heatleft = 0;
+
+            // Insertion sort by decreasing key with ties in loadout order, same as a stable sort of the entries.
+            for (int i = 1; i < numEntries; ++i) {
+                int entry = order[i];
+                int j = i - 1;
+                while (j >= 0 && isBefore(entry, order[j], entries, key)) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = entry;
             }
 
-            if (ans.containsKey(weapon))
-                ans.put(weapon, Double.valueOf(ans.get(weapon).doubleValue() + ratio));
-            else
-                ans.put(weapon, Double.valueOf(ratio));
+            double heatleft = heatBudget;
+            for (int i = 0; i < numEntries && heatleft != 0; ++i) {
+                int weapon = entries[order[i]];
+                final double heat = heatPerSecond[weapon];
+                if (heat < heatleft) {
+                    ans.ratios[weapon][r] += 1.0;
+                    heatleft -= heat;
+                }
+                else {
+                    ans.ratios[weapon][r] += heatleft / heat;
+                    heatleft = 0;
+                }
+            }
         }
         return ans;
     }
+
+    private static boolean isBefore(int aLhs, int aRhs, int[] aEntries, double[] aKey) {
+        int comp = Double.compare(aKey[aEntries[aRhs]], aKey[aEntries[aLhs]]);
+        if (comp == 0)
+            return aLhs < aRhs;
+        return comp < 0;
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
+
+/**
+ * This class memoizes a set of {@link Metric}s that depend on each other so that every metric is calculated at most
+ * once per change of the loadout, no matter how many other metrics read it.
+ * <p>
+ * Every metric is added as a {@link Node} that declares which parts of the loadout it depends on, as a dirty mask of
+ * {@link LoadoutChangedMessage}, and which other nodes it reads. Metrics that read another metric shall be given the
+ * {@link Node} of that metric instead of the metric itself. When the graph is told that some parts of the loadout have
+ * changed, only the nodes that depend on those parts, directly or through another node, are recalculated. If the
+ * version of the loadout has changed without the graph being told what changed, all nodes are recalculated.
+ * <p>
+ * This class is not thread safe, just like the metrics it holds.
+ *
+ * @author Emily Björk
+ */
+public class MetricGraph {
+    /**
+     * A memoized {@link Metric} in a {@link MetricGraph}.
+     *
+     * @author Emily Björk
+     */
+    public final class Node implements Metric {
+        private final Metric metric;
+        private final int    inputs;
+        private boolean      valid = false;
+        private double       value;
+
+        Node(Metric aMetric, int aInputs) {
+            metric = aMetric;
+            inputs = aInputs;
+        }
+
+        @Override
+        public double calculate() {
+            synchronize();
+            if (!valid) {
+                value = metric.calculate();
+                valid = true;
+            }
+            return value;
+        }
+
+        /**
+         * @return The metric that this node memoizes.
+         */
+        public Metric getMetric() {
+            return metric;
+        }
+
+        /**
+         * @return The dirty mask of all parts of the loadout that this node depends on, including those of the nodes
+         *         it reads.
+         */
+        public int getInputs() {
+            return inputs;
+        }
+    }
+
+    private final LoadoutBase<?> loadout;
+    private final List<Node>     nodes = new ArrayList<>();
+    private long                 version;
+
+    /**
+     * Creates a new, empty graph that is invalidated by {@link #invalidate(int)} or when the version of the loadout
+     * changes. A graph for a snapshot of a loadout, which never changes, thus only shares the metrics between readers.
+     *
+     * @param aLoadout
+     *            The loadout that the metrics are calculated for.
+     */
+    public MetricGraph(LoadoutBase<?> aLoadout) {
+        loadout = aLoadout;
+        version = aLoadout.getVersion();
+    }
+
+    /**
+     * Adds a metric to the graph.
+     *
+     * @param aMetric
+     *            The metric to add.
+     * @param aInputs
+     *            A bitwise or of the {@link LoadoutChangedMessage} dirty flags that the metric depends on directly.
+     * @param aReads
+     *            The nodes that the metric reads.
+     * @return A {@link Node} that calculates the metric at most once per change of its inputs.
+     */
+    public Node add(Metric aMetric, int aInputs, Node... aReads) {
+        int inputs = aInputs;
+        for (Node read : aReads) {
+            inputs |= read.inputs;
+        }
+        Node node = new Node(aMetric, inputs);
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Marks all nodes that depend on any of the given parts of the loadout as needing to be recalculated.
+     *
+     * @param aDirty
+     *            A bitwise or of {@link LoadoutChangedMessage} dirty flags of the parts that changed.
+     */
+    public void invalidate(int aDirty) {
+        for (Node node : nodes) {
+            if ((node.inputs & aDirty) != 0) {
+                node.valid = false;
+            }
+        }
+        version = loadout.getVersion();
+    }
+
+    private void synchronize() {
+        if (loadout.getVersion() != version) {
+            invalidate(LoadoutChangedMessage.ALL);
+        }
+    }
+}
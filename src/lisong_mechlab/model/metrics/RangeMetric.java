@@ -19,8 +19,9 @@
 //@formatter:on
 package lisong_mechlab.model.metrics;
 
+import lisong_mechlab.model.item.Weapon;
 import lisong_mechlab.model.loadout.LoadoutBase;
-import lisong_mechlab.util.WeaponRanges;
+import lisong_mechlab.model.metrics.helpers.RangeProfile;
 
 /**
  * This class is a refinement of {@link Metric} to include a notion that the metric has a dependency on range to target.
@@ -55,20 +56,48 @@ public abstract class RangeMetric implements Metric {
         return range;
     }
 
+    /**
+     * If no range has been set, the range with the maximal value is found with the help of {@link #getRangeProfile()}
+     * (with ties breaking to larger ranges) and the value at that range is returned.
+     * 
+     * @see lisong_mechlab.model.metrics.Metric#calculate()
+     */
     @Override
     public double calculate() {
         if (fixedRange)
             return calculate(range);
 
-        double max = Double.NEGATIVE_INFINITY;
-        for (Double r : WeaponRanges.getRanges(loadout)) {
-            double value = calculate(r);
-            if (value >= max) {
-                max = value;
-                range = r;
+        RangeProfile profile = getRangeProfile();
+        if (profile != null) {
+            range = profile.argmax();
+        }
+        else {
+            profile = new RangeProfile(loadout.getModifiers());
+            for (Weapon weapon : loadout.items(Weapon.class)) {
+                if (weapon.isOffensive()) {
+                    profile.add(weapon, 1.0);
+                }
             }
+            range = profile.argmax(new RangeProfile.RangeFunction() {
+                @Override
+                public double calculate(double aRange) {
+                    return RangeMetric.this.calculate(aRange);
+                }
+            });
         }
-        return max;
+        return calculate(range);
+    }
+
+    /**
+     * Metrics that are a weighted sum of the range effectivities of the weapons can return a {@link RangeProfile} with
+     * those weights. The optimal range is then found from the profile alone instead of by calling
+     * {@link #calculate(double)} for every candidate range.
+     * 
+     * @return A {@link RangeProfile} that is maximal at the same range as this metric, or <code>null</code> if this
+     *         metric isn't a weighted sum.
+     */
+    protected RangeProfile getRangeProfile() {
+        return null;
     }
 
     public abstract double calculate(double aRange);
@@ -19,8 +19,9 @@
 //@formatter:on
 package lisong_mechlab.model.metrics;
 
+import lisong_mechlab.model.item.Weapon;
 import lisong_mechlab.model.loadout.LoadoutBase;
-import lisong_mechlab.util.WeaponRanges;
+import lisong_mechlab.model.metrics.helpers.RangeProfile;
 
 /**
  * This class is a refinement of {@link Metric} to include a notion that the metric has a dependency on range to target
@@ -76,8 +77,8 @@ public abstract class RangeTimeMetric implements Metric {
 
     /**
      * Will handle calculation of the metric with the current values for range and time. If range is set to below 0, the
-     * metric will be evaluated in all range points returned by {@link WeaponRanges#getRanges(LoadoutBase)} and the
-     * maximum value (with ties breaking to larger ranges) be returned.
+     * range with the maximum value (with ties breaking to larger ranges) is found with the help of
+     * {@link #getRangeProfile(double)} and the value at that range is returned.
      * 
      * @see lisong_mechlab.model.metrics.Metric#calculate()
      */
@@ -86,15 +87,40 @@ public abstract class RangeTimeMetric implements Metric {
         if (fixedRange)
             return calculate(range, time);
 
-        double max = Double.NEGATIVE_INFINITY;
-        for (Double r : WeaponRanges.getRanges(loadout)) {
-            double value = calculate(r, time);
-            if (value >= max) {
-                max = value;
-                range = r;
+        RangeProfile profile = getRangeProfile(time);
+        if (profile != null) {
+            range = profile.argmax();
+        }
+        else {
+            profile = new RangeProfile(loadout.getModifiers());
+            for (Weapon weapon : loadout.items(Weapon.class)) {
+                if (weapon.isOffensive()) {
+                    profile.add(weapon, 1.0);
+                }
             }
+            final double t = time;
+            range = profile.argmax(new RangeProfile.RangeFunction() {
+                @Override
+                public double calculate(double aRange) {
+                    return RangeTimeMetric.this.calculate(aRange, t);
+                }
+            });
         }
-        return max;
+        return calculate(range, time);
+    }
+
+    /**
+     * Metrics that are a weighted sum of the range effectivities of the weapons can return a {@link RangeProfile} with
+     * those weights. The optimal range is then found from the profile alone instead of by calling
+     * {@link #calculate(double, double)} for every candidate range.
+     * 
+     * @param aTime
+     *            The time to create the profile for.
+     * @return A {@link RangeProfile} that is maximal at the same range as this metric, or <code>null</code> if this
+     *         metric isn't a weighted sum.
+     */
+    protected RangeProfile getRangeProfile(double aTime) {
+        return null;
     }
 
     /**
@@ -29,14 +29,16 @@ import lisong_mechlab.model.item.Engine;
  */
 public class TimeToCool implements Metric {
 
-    private final HeatCapacity    capacity;
-    private final HeatDissipation dissipation;
+    private final Metric capacity;
+    private final Metric dissipation;
 
     /**
      * @param aHeatCapacity
+     *            The {@link HeatCapacity}, or a {@link MetricGraph.Node} of it.
      * @param aHeatDissipation
+     *            The {@link HeatDissipation}, or a {@link MetricGraph.Node} of it.
      */
-    public TimeToCool(HeatCapacity aHeatCapacity, HeatDissipation aHeatDissipation) {
+    public TimeToCool(Metric aHeatCapacity, Metric aHeatDissipation) {
         capacity = aHeatCapacity;
         dissipation = aHeatDissipation;
     }
@@ -19,9 +19,14 @@
 //@formatter:on
 package lisong_mechlab.model.metrics.helpers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import lisong_mechlab.model.item.Engine;
 import lisong_mechlab.model.item.Item;
@@ -45,171 +50,398 @@ import lisong_mechlab.util.message.MessageXBar;
  * <li>Heat sinks in the engine act as a crit buffer with their original slot counts for probability.</li>
  * <li>15% of critical damage is always transferred to the component IS. FIXME: NYI</li>
  * </ul>
+ * <p>
+ * The simulation is exact. The probability distribution over the states of the component is propagated one shot at a
+ * time, where a state is how many of each item remain and how much damage they have taken. Different sequences of
+ * critical hits that lead to the same state are merged so the cost grows with the number of distinct states and not
+ * with the number of sequences.
+ * <p>
+ * If an {@link Executor} is given, the simulation is run on it whenever the component changes and the results are
+ * published when done.
  * 
  * @author Emily Björk
  */
 public class ComponentDestructionSimulator implements Message.Recipient {
+    private final static double           P_MISS;
     private final ConfiguredComponentBase loadoutPart;
-    private final double                  P_miss;
     private final double                  weaponAlpha;
     private final int                     numShots;
     private final double                  partHp;
+    private final Executor                executor;
+    private final Runnable                onUpdate;
+    private final AtomicInteger           generation = new AtomicInteger();
+    private volatile Map<Item, Double>    result     = Collections.emptyMap();
+
+    static {
+        double p_miss = 1.0;
+        for (int i = 0; i < CriticalStrikeProbability.CRIT_CHANCE.length; ++i) {
+            p_miss -= CriticalStrikeProbability.CRIT_CHANCE[i];
+        }
+        P_MISS = p_miss;
+    }
 
-    class ItemState {
-        int    multiplicity;
-        double hpLeft;
-        double P_destroyed;
+    /**
+     * Numbers states densely in the order they are first seen, using open addressing on primitive arrays. States are
+     * never negative.
+     */
+    private static class StateIndex {
+        private static final long EMPTY   = -1;
+        private long[]            table   = newTable(16);
+        private int[]             indices = new int[16];
+        private long[]            states  = new long[16];
+        private int               size;
 
-        ItemState(int aMulti, Item aItem) {
-            multiplicity = aMulti;
-            hpLeft = aItem instanceof Engine ? Double.POSITIVE_INFINITY : aItem.getHealth() * multiplicity;
-            P_destroyed = 0.0;
+        private static long[] newTable(int aCapacity) {
+            long[] ans = new long[aCapacity];
+            Arrays.fill(ans, EMPTY);
+            return ans;
         }
 
-        ItemState(ItemState aState) {
-            multiplicity = aState.multiplicity;
-            hpLeft = aState.hpLeft;
-            P_destroyed = aState.P_destroyed;
+        int indexOf(long aState) {
+            int mask = table.length - 1;
+            int i = (int) (aState ^ (aState >>> 32)) * 0x9E3779B9 & mask;
+            while (table[i] != EMPTY) {
+                if (table[i] == aState)
+                    return indices[i];
+                i = (i + 1) & mask;
+            }
+
+            if ((size + 1) * 2 > table.length) {
+                table = newTable(table.length * 2);
+                indices = new int[table.length];
+                states = Arrays.copyOf(states, table.length);
+                for (int j = 0; j < size; ++j) {
+                    insert(states[j], j);
+                }
+            }
+            states[size] = aState;
+            insert(aState, size);
+            return size++;
         }
-    }
 
-    // Key: Item - Value: <multiplicity, total probability>
-    private Map<Item, ItemState> state;
+        private void insert(long aState, int aIndex) {
+            int mask = table.length - 1;
+            int i = (int) (aState ^ (aState >>> 32)) * 0x9E3779B9 & mask;
+            while (table[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            table[i] = aState;
+            indices[i] = aIndex;
+        }
 
-    private Map<Item, ItemState> cloneState(Map<Item, ItemState> aMap) {
-        Map<Item, ItemState> ans = new HashMap<>(aMap.size());
-        for (Entry<Item, ItemState> entry : aMap.entrySet()) {
-            ans.put(entry.getKey(), new ItemState(entry.getValue()));
+        long get(int aIndex) {
+            return states[aIndex];
+        }
+
+        int size() {
+            return size;
         }
-        return ans;
     }
 
     /**
-     * @param aLoadoutPart
-     * @param aXBar
+     * The crittable items of a component, grouped by item. The state of a group is the number of items that remain
+     * and the number of critical hits the group has absorbed without losing an item. The states of all groups are
+     * packed into a single <code>long</code>.
      */
-    public ComponentDestructionSimulator(ConfiguredComponentBase aLoadoutPart, MessageXBar aXBar) {
-        loadoutPart = aLoadoutPart;
-        aXBar.attach(this);
+    private static class Simulation {
+        final Item[]     items;
+        final int[]      slots;
+        final int[]      multiplicity;
+        final double[][] hpLeft;
+        final int[]      maxHits;
+        final long[]     stride;
+        final double     threshold;
+        final double[]   destroyed;
+        final int[]      m;
+        final int[]      h;
 
-        double p_miss = 1.0;
-        for (int i = 0; i < CriticalStrikeProbability.CRIT_CHANCE.length; ++i) {
-            p_miss -= CriticalStrikeProbability.CRIT_CHANCE[i];
-        }
-        P_miss = p_miss;
+        Simulation(List<Item> aItems, double aWeaponAlpha) {
+            List<Item> distinct = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            for (Item item : aItems) {
+                int index = distinct.indexOf(item);
+                if (index < 0) {
+                    distinct.add(item);
+                    counts.add(1);
+                }
+                else {
+                    counts.set(index, counts.get(index) + 1);
+                }
+            }
 
-        partHp = loadoutPart.getInternalComponent().getHitPoints();
-        weaponAlpha = ItemDB.lookup("AC/20 AMMO").getHealth();
-        numShots = (int) Math.ceil(partHp / weaponAlpha);
-    }
+            final int n = distinct.size();
+            items = distinct.toArray(new Item[n]);
+            slots = new int[n];
+            multiplicity = new int[n];
+            hpLeft = new double[n][];
+            maxHits = new int[n];
+            stride = new long[n];
+            destroyed = new double[n];
+            m = new int[n];
+            h = new int[n];
+            threshold = aWeaponAlpha + Math.ulp(aWeaponAlpha) * 10;
 
-    public double getProbabilityOfDestruction(Item aItem) {
-        ItemState itemState = state.get(aItem);
-        if (itemState == null)
-            return 0.0;
+            long radix = 1;
+            for (int g = 0; g < n; ++g) {
+                slots[g] = items[g].getNumCriticalSlots();
+                multiplicity[g] = counts.get(g);
 
-        return itemState.P_destroyed / itemState.multiplicity;
-    }
+                // Items of the same kind share their health, hits are absorbed until it drops below one alpha.
+                List<Double> hp = new ArrayList<>();
+                double health = items[g] instanceof Engine ? Double.POSITIVE_INFINITY : (double) items[g].getHealth()
+                        * multiplicity[g];
+                hp.add(health);
+                while (!Double.isInfinite(health) && health > threshold) {
+                    health -= aWeaponAlpha;
+                    hp.add(health);
+                }
+                hpLeft[g] = new double[hp.size()];
+                for (int i = 0; i < hp.size(); ++i) {
+                    hpLeft[g][i] = hp.get(i);
+                }
+                maxHits[g] = hp.size() - 1;
 
-    public void simulate() {
-        state = new HashMap<>();
-        int slots = 0;
-        for (Item item : loadoutPart.getItemsEquipped()) {
-            if (!item.isCrittable())
-                continue;
+                stride[g] = radix;
+                radix *= (multiplicity[g] + 1) * (maxHits[g] + 1);
+            }
+        }
 
-            slots += item.getNumCriticalSlots();
+        void run(int aShots) {
+            StateIndex index = new StateIndex();
+            List<Transition> transitions = new ArrayList<>();
+            double[] states = new double[] { 1.0 };
+            index.indexOf(encode(multiplicity, new int[items.length]));
+
+            // The same state is typically reached on several shots, its outcomes are only enumerated once.
+            for (int shot = 0; shot < aShots; ++shot) {
+                for (int s = transitions.size(); s < states.length; ++s) {
+                    transitions.add(new Transition(index.get(s), index));
+                }
 
-            ItemState pair = state.get(item);
-            if (pair == null)
-                state.put(item, new ItemState(1, item));
-            else {
-                pair.multiplicity++;
-                pair.hpLeft += item.getHealth();
+                double[] next = new double[index.size()];
+                for (int s = 0; s < states.length; ++s) {
+                    final double p = states[s];
+                    if (p == 0.0)
+                        continue;
+
+                    Transition transition = transitions.get(s);
+                    for (int i = 0; i < transition.states.length; ++i) {
+                        next[transition.states[i]] += p * transition.probabilities[i];
+                    }
+                    for (int g = 0; g < items.length; ++g) {
+                        destroyed[g] += p * transition.destroyed[g];
+                    }
+                }
+                states = next;
             }
         }
 
-        for (Item item : loadoutPart.getItemsFixed()) {
-            if (!item.isCrittable())
-                continue;
+        /**
+         * The outcomes of one shot on a given state.
+         */
+        private class Transition {
+            final int[]        states;
+            final double[]     probabilities;
+            final double[]     destroyed = new double[items.length];
+            private StateIndex outcomes  = new StateIndex();
+            private double[]   outcomeP  = new double[16];
+
+            Transition(long aState, StateIndex aIndex) {
+                decode(aState);
+                int totalSlots = 0;
+                for (int g = 0; g < items.length; ++g) {
+                    totalSlots += slots[g] * m[g];
+                }
+
+                add(aState, P_MISS); // No critical hits
+                for (int i = 0; i < CriticalStrikeProbability.CRIT_CHANCE.length; ++i) {
+                    roll(aState, CriticalStrikeProbability.CRIT_CHANCE[i], totalSlots, i + 1);
+                }
+
+                states = new int[outcomes.size()];
+                probabilities = Arrays.copyOf(outcomeP, outcomes.size());
+                for (int i = 0; i < states.length; ++i) {
+                    states[i] = aIndex.indexOf(outcomes.get(i));
+                }
+                outcomes = null;
+                outcomeP = null;
+            }
+
+            private void add(long aState, double aP) {
+                int i = outcomes.indexOf(aState);
+                if (i >= outcomeP.length) {
+                    outcomeP = Arrays.copyOf(outcomeP, outcomeP.length * 2);
+                }
+                outcomeP[i] += aP;
+            }
 
-            slots += item.getNumCriticalSlots();
+            /**
+             * Performs the remaining critical hit rolls of a shot. {@link #m} and {@link #h} must hold the decoded
+             * state.
+             */
+            private void roll(long aState, double aP, int aTotalSlots, int aRollsLeft) {
+                if (aRollsLeft == 0 || aTotalSlots == 0) {
+                    add(aState, aP);
+                    return;
+                }
+
+                for (int g = 0; g < items.length; ++g) {
+                    if (m[g] == 0)
+                        continue;
 
-            ItemState pair = state.get(item);
-            if (pair == null)
-                state.put(item, new ItemState(1, item));
-            else {
-                pair.multiplicity++;
-                pair.hpLeft += item.getHealth();
+                    double p = aP * ((double) slots[g] / aTotalSlots * m[g]);
+                    if (hpLeft[g][h[g]] <= threshold) {
+                        destroyed[g] += p;
+                        m[g]--;
+                        roll(aState - (maxHits[g] + 1) * stride[g], p, aTotalSlots - slots[g], aRollsLeft - 1);
+                        m[g]++;
+                    }
+                    else if (h[g] < maxHits[g]) {
+                        h[g]++;
+                        roll(aState + stride[g], p, aTotalSlots, aRollsLeft - 1);
+                        h[g]--;
+                    }
+                    else {
+                        roll(aState, p, aTotalSlots, aRollsLeft - 1); // Can't be destroyed
+                    }
+                }
             }
         }
 
-        simulateShot(state, slots, 1.0, numShots);
-    }
+        private long encode(int[] aMultiplicity, int[] aHits) {
+            long ans = 0;
+            for (int g = 0; g < items.length; ++g) {
+                ans += (aMultiplicity[g] * (maxHits[g] + 1) + aHits[g]) * stride[g];
+            }
+            return ans;
+        }
 
-    private void simulateShot(Map<Item, ItemState> aState, int aTotalSlots, double aP_this, int aShotsLeft) {
-        simulateRound(aState, P_miss * aP_this, aTotalSlots, 0, aShotsLeft); // No critical hits
-        for (int i = 0; i < CriticalStrikeProbability.CRIT_CHANCE.length; ++i) {
-            simulateRound(aState, CriticalStrikeProbability.CRIT_CHANCE[i] * aP_this, aTotalSlots, i + 1, aShotsLeft);
+        private void decode(long aKey) {
+            for (int g = items.length - 1; g >= 0; --g) {
+                int value = (int) (aKey / stride[g]);
+                aKey -= value * stride[g];
+                m[g] = value / (maxHits[g] + 1);
+                h[g] = value % (maxHits[g] + 1);
+            }
+        }
+
+        Map<Item, Double> getResult() {
+            Map<Item, Double> ans = new HashMap<>();
+            for (int g = 0; g < items.length; ++g) {
+                ans.put(items[g], destroyed[g] / multiplicity[g]);
+            }
+            return ans;
         }
     }
 
     /**
-     * HERE BE DRAGONS! DO NOT TOUCH!
+     * Creates a new simulator that simulates on the calling thread.
      * 
-     * @param aState
-     * @param aP_this
-     * @param aTotalSlots
-     * @param aShotsLeft
-     * @param aCritRollsLeft
+     * @param aLoadoutPart
+     *            The component to simulate.
+     * @param aXBar
+     *            The {@link MessageXBar} to listen for changes to the component on.
+     */
+    public ComponentDestructionSimulator(ConfiguredComponentBase aLoadoutPart, MessageXBar aXBar) {
+        this(aLoadoutPart, aXBar, null, null);
+    }
+
+    /**
+     * Creates a new simulator that simulates in the background.
+     * 
+     * @param aLoadoutPart
+     *            The component to simulate.
+     * @param aXBar
+     *            The {@link MessageXBar} to listen for changes to the component on.
+     * @param aExecutor
+     *            The {@link Executor} to run the simulations on, <code>null</code> to simulate on the calling thread.
+     * @param aOnUpdate
+     *            Run on the executor's thread every time new results have been published, may be <code>null</code>.
+     */
+    public ComponentDestructionSimulator(ConfiguredComponentBase aLoadoutPart, MessageXBar aXBar, Executor aExecutor,
+            Runnable aOnUpdate) {
+        loadoutPart = aLoadoutPart;
+        executor = aExecutor;
+        onUpdate = aOnUpdate;
+        aXBar.attach(this, ConfiguredComponentBase.ComponentMessage.class, null);
+
+        partHp = loadoutPart.getInternalComponent().getHitPoints();
+        weaponAlpha = ItemDB.lookup("AC/20 AMMO").getHealth();
+        numShots = (int) Math.ceil(partHp / weaponAlpha);
+    }
+
+    public double getProbabilityOfDestruction(Item aItem) {
+        Double ans = result.get(aItem);
+        if (ans == null)
+            return 0.0;
+        return ans;
+    }
+
+    /**
+     * Simulates the current state of the component on the calling thread and publishes the results.
      */
-    private void simulateRound(Map<Item, ItemState> aState, double aP_this, int aTotalSlots, int aCritRollsLeft,
-            int aShotsLeft) {
-        if (aShotsLeft <= 0)
+    public void simulate() {
+        generation.incrementAndGet();
+        result = simulate(crittableItems(), weaponAlpha, numShots);
+    }
+
+    /**
+     * Simulates the current state of the component on the executor, or on the calling thread if there is no executor.
+     * The state of the component is read on the calling thread. Results of older simulations that finish late are
+     * discarded.
+     */
+    public void update() {
+        if (null == executor) {
+            simulate();
             return;
-        if (aP_this < 0.0005) {
-            return; // Too small to have significant effect on results
-        }
-
-        // If there are critical hit rolls left for this shot, perform them
-        if (aCritRollsLeft > 0) {
-            // For every item that can be hit...
-            for (Entry<Item, ItemState> entry : aState.entrySet()) {
-                Item item = entry.getKey();
-                int itemSlots = item.getNumCriticalSlots();
-                int multi = entry.getValue().multiplicity;
-
-                // Determine the probability that it'll be hit
-                double P_hit = ((double) itemSlots) / aTotalSlots;
-                P_hit *= multi;
-
-                // Generate a new state where the item has been destroyed
-                Map<Item, ItemState> newState = cloneState(aState);
-                ItemState pair = newState.get(item);
-                if (pair.hpLeft <= weaponAlpha + Math.ulp(weaponAlpha) * 10) {
-                    if (pair.multiplicity == 1) {
-                        newState.remove(item);
-                    }
-                    else {
-                        pair.multiplicity--;
+        }
+
+        final List<Item> items = crittableItems();
+        final int thisGeneration = generation.incrementAndGet();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (thisGeneration != generation.get())
+                    return; // Already outdated
+                Map<Item, Double> ans = simulate(items, weaponAlpha, numShots);
+                if (thisGeneration == generation.get()) {
+                    result = ans;
+                    if (null != onUpdate) {
+                        onUpdate.run();
                     }
-                    updateResultProbability(item, P_hit * aP_this);
-                }
-                else {
-                    pair.hpLeft -= weaponAlpha;
-                    itemSlots = 0;
                 }
-                simulateRound(newState, aP_this * P_hit, aTotalSlots - itemSlots, aCritRollsLeft - 1, aShotsLeft);
             }
-        }
-        else {
-            simulateShot(aState, aTotalSlots, aP_this, aShotsLeft - 1);
-        }
+        });
     }
 
-    private void updateResultProbability(Item aItem, double aP) {
-        ItemState itemState = state.get(aItem);
-        itemState.P_destroyed += aP;
+    /**
+     * Calculates the probability of destruction for each of the given items.
+     * 
+     * @param aItems
+     *            The crittable items on the component, duplicates for multiple items of the same kind.
+     * @param aWeaponAlpha
+     *            The damage of each shot.
+     * @param aShots
+     *            The number of shots until the component is destroyed.
+     * @return A {@link Map} from each item to the probability that one item of that kind is destroyed.
+     */
+    static Map<Item, Double> simulate(List<Item> aItems, double aWeaponAlpha, int aShots) {
+        Simulation simulation = new Simulation(aItems, aWeaponAlpha);
+        simulation.run(aShots);
+        return Collections.unmodifiableMap(simulation.getResult());
+    }
+
+    private List<Item> crittableItems() {
+        List<Item> ans = new ArrayList<>();
+        for (Item item : loadoutPart.getItemsEquipped()) {
+            if (item.isCrittable())
+                ans.add(item);
+        }
+        for (Item item : loadoutPart.getItemsFixed()) {
+            if (item.isCrittable())
+                ans.add(item);
+        }
+        return ans;
     }
 
     @Override
@@ -217,7 +449,7 @@ public class ComponentDestructionSimulator implements Message.Recipient {
         if (aMsg instanceof ConfiguredComponentBase.ComponentMessage) {
             ConfiguredComponentBase.ComponentMessage message = (ConfiguredComponentBase.ComponentMessage) aMsg;
             if (message.component == loadoutPart && message.affectsHeatOrDamage()) {
-                simulate();
+                update();
             }
         }
     }
@@ -19,7 +19,9 @@
 //@formatter:on
 package lisong_mechlab.model.metrics.helpers;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import lisong_mechlab.model.item.BallisticWeapon;
 import lisong_mechlab.model.modifiers.Modifier;
@@ -41,6 +43,7 @@ public class DoubleFireBurstSignal implements IntegratedSignal {
      * @param aPilotModules
      *            A {@link Collection} of modifiers that could affect the signal.
      * @param aRange
+     *            The range to calculate the damage at, or negative to ignore range.
      */
     public DoubleFireBurstSignal(BallisticWeapon aWeapon, Collection<Modifier> aPilotModules, double aRange) {
         if (!aWeapon.canDoubleFire())
@@ -53,7 +56,62 @@ public class DoubleFireBurstSignal implements IntegratedSignal {
 
     @Override
     public double integrateFromZeroTo(double aTime) {
-        return probableDamage(aTime) * weapon.getDamagePerShot() * weapon.getRangeEffectivity(range, modifiers);
+        double factor = (range < 0) ? 1.0 : weapon.getRangeEffectivity(range, modifiers);
+        return probableDamage(aTime) * weapon.getDamagePerShot() * factor;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The recursion of {@link #integrateFromZeroTo(double)} branches on every shot and is exponential in time. Here it
+     * is unrolled instead: after <code>a</code> jams and <code>b</code> double shots, at time
+     * <code>a*(jamtime + cooldown) + b*cooldown</code>, the weapon fires on average <code>2 - p_jam</code> shots. The
+     * probability of reaching each such point is tabulated once for the largest time and then summed up in a single
+     * forward pass over the times.
+     */
+    @Override
+    public void evaluate(double[] aTimes, double[] aOut) {
+        if (aTimes.length == 0)
+            return;
+
+        final double p_jam = weapon.getJamProbability();
+        final double cd = weapon.getRawSecondsPerShot(modifiers);
+        final double jamCycle = weapon.getJamTime() + cd;
+        final double horizon = aTimes[aTimes.length - 1];
+
+        // reached.get(a)[b] is the probability of reaching the point after 'a' jams and 'b' double shots.
+        List<double[]> reached = new ArrayList<>();
+        double[] previous = new double[0];
+        for (int a = 0; a * jamCycle <= horizon; ++a) {
+            double[] row = new double[(int) ((horizon - a * jamCycle) / cd) + 1];
+            for (int b = 0; b < row.length; ++b) {
+                double p = (a == 0 && b == 0) ? 1.0 : 0.0;
+                if (b < previous.length)
+                    p += p_jam * previous[b];
+                if (b > 0)
+                    p += (1 - p_jam) * row[b - 1];
+                row[b] = p;
+            }
+            reached.add(row);
+            previous = row;
+        }
+
+        final double factor = (range < 0) ? 1.0 : weapon.getRangeEffectivity(range, modifiers);
+        final double shots = p_jam + (1 - p_jam) * 2;
+        int[] next = new int[reached.size()];
+        double sum = 0;
+        for (int i = 0; i < aTimes.length; ++i) {
+            if (i > 0 && aTimes[i] < aTimes[i - 1])
+                throw new IllegalArgumentException("Times must be sorted in ascending order!");
+            for (int a = 0; a < next.length; ++a) {
+                double[] row = reached.get(a);
+                while (next[a] < row.length && a * jamCycle + next[a] * cd <= aTimes[i]) {
+                    sum += row[next[a]];
+                    next[a]++;
+                }
+            }
+            aOut[i] = sum * shots * weapon.getDamagePerShot() * factor;
+        }
     }
 
     private double probableDamage(double aTime) {
@@ -0,0 +1,562 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import lisong_mechlab.model.environment.Environment;
+import lisong_mechlab.model.item.AmmoWeapon;
+import lisong_mechlab.model.item.Ammunition;
+import lisong_mechlab.model.item.EnergyWeapon;
+import lisong_mechlab.model.item.Engine;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.WeaponGroups;
+import lisong_mechlab.model.loadout.WeaponGroups.FiringMode;
+import lisong_mechlab.model.metrics.GhostHeat;
+import lisong_mechlab.model.metrics.HeatCapacity;
+import lisong_mechlab.model.metrics.HeatDissipation;
+import lisong_mechlab.model.modifiers.Modifier;
+
+/**
+ * This class simulates a loadout firing its weapons for a fixed amount of time and records the damage dealt and the
+ * heat generated as time series. Contrary to the closed form metrics, the simulation takes the interactions between
+ * the weapons into account so that all time based metrics can be derived from a single run.
+ * <p>
+ * The simulation is driven by a queue of events where each event is a trigger (weapon group) that should be checked
+ * for weapons that are ready to fire. All triggers are held down for the whole simulation.
+ * <p>
+ * Assumptions:
+ * <ul>
+ * <li>If no weapon is in any group, every weapon is fired on its own as soon as it is ready.</li>
+ * <li>Optimal groups fire each weapon as soon as it is ready, alpha strike groups wait until all weapons in the group
+ * are ready and chain fire groups fire one weapon at a time, {@value #CHAIN_FIRE_DELAY} seconds apart.</li>
+ * <li>Weapons in the same ghost heat group that are fired within {@value #GHOST_HEAT_WINDOW} seconds of each other
+ * incur ghost heat as described in {@link GhostHeat}.</li>
+ * <li>A weapon is never fired if it would take the heat over the heat capacity, it is held until enough heat has been
+ * dissipated instead.</li>
+ * <li>The heat of a shot is applied to the heat level when the weapon is fired. The damage and heat time series spread
+ * the damage and heat of beam weapons over the beam duration.</li>
+ * <li>Double fire of ultra auto cannons is accounted for statistically by their rate of fire.</li>
+ * <li>The engine generates heat at a constant rate as in {@link lisong_mechlab.model.metrics.HeatOverTime}.</li>
+ * </ul>
+ *
+ * @author Emily Björk
+ */
+public class FiringSimulator {
+    /**
+     * The time between two shots of a chain fire group.
+     */
+    public static final double   CHAIN_FIRE_DELAY  = 0.5;
+    /**
+     * The time window within which weapons are considered to be fired together for ghost heat.
+     */
+    public static final double   GHOST_HEAT_WINDOW = 0.5;
+    private static final double  EPSILON           = 1E-9;
+
+    private final LoadoutBase<?> loadout;
+    private final double         heatCapacity;
+    private final double         heatDissipation;
+    private double               step;
+    private double[]             damage;
+    private double[]             heatGenerated;
+    private double[]             heatLevel;
+
+    private static class Trigger {
+        final FiringMode mode;
+        final int[]      weapons;
+        final int        order;
+        double           time;
+        int              cursor;
+        double           chainReady;
+
+        Trigger(FiringMode aMode, int[] aWeapons, int aOrder) {
+            mode = aMode;
+            weapons = aWeapons;
+            order = aOrder;
+        }
+    }
+
+    private static final Comparator<Trigger> EVENT_ORDER = new Comparator<Trigger>() {
+                                                             @Override
+                                                             public int compare(Trigger aLhs, Trigger aRhs) {
+                                                                 int ans = Double.compare(aLhs.time, aRhs.time);
+                                                                 if (ans == 0)
+                                                                     return Integer.compare(aLhs.order, aRhs.order);
+                                                                 return ans;
+                                                             }
+                                                         };
+
+    /**
+     * Tracks when the weapons of one ghost heat group were fired.
+     */
+    private static class GhostHeatGroup {
+        final ArrayDeque<Double> fired = new ArrayDeque<>();
+        Weapon                   reference;
+        double                   referenceHeat;
+
+        double penalty(double aTime, int aExtra) {
+            while (!fired.isEmpty() && fired.peekFirst() <= aTime - GHOST_HEAT_WINDOW) {
+                fired.pollFirst();
+            }
+            int count = fired.size() + aExtra + 1;
+            if (count <= reference.getGhostHeatMaxFreeAlpha())
+                return 0;
+            return GhostHeat.getHeatScale(count) * reference.getGhostHeatMultiplier() * referenceHeat;
+        }
+    }
+
+    /**
+     * Accumulates a quantity that is added in impulses or pulses into samples of its integral.
+     */
+    private static class Series {
+        final double[] values;
+        final double[] settled;
+        final double   step;
+
+        Series(int aSamples, double aStep) {
+            values = new double[aSamples];
+            settled = new double[aSamples];
+            step = aStep;
+        }
+
+        void add(double aTime, double aDuration, double aAmount) {
+            int k = (int) Math.ceil(aTime / step - EPSILON);
+            if (aDuration > 0) {
+                while (k < values.length && k * step < aTime + aDuration) {
+                    values[k] += aAmount * Math.max(0, k * step - aTime) / aDuration;
+                    k++;
+                }
+            }
+            if (k < values.length)
+                settled[k] += aAmount;
+        }
+
+        double[] finish() {
+            double sum = 0;
+            for (int k = 0; k < values.length; ++k) {
+                sum += settled[k];
+                values[k] += sum;
+            }
+            return values;
+        }
+    }
+
+    /**
+     * The state of a single simulation run.
+     */
+    private class Run {
+        final Weapon[]         weapons;
+        final double[]         shotDamage;
+        final double[]         shotHeat;
+        final double[]         period;
+        final double[]         duration;
+        final double[]         readyAt;
+        final int[]            ammoPool;
+        final int[]            ammoPerShot;
+        final int[]            rounds;
+        final GhostHeatGroup[] ghostHeat;
+        final double           netDissipation;
+        final Series           damageSeries;
+        final Series           heatSeries;
+        double                 heat;
+        double                 heatTime;
+        int                    nextSample;
+
+        Run(List<Weapon> aWeapons, double aRange, int aSamples) {
+            Collection<Modifier> modifiers = loadout.getModifiers();
+            int n = aWeapons.size();
+            weapons = aWeapons.toArray(new Weapon[n]);
+            shotDamage = new double[n];
+            shotHeat = new double[n];
+            period = new double[n];
+            duration = new double[n];
+            readyAt = new double[n];
+            ammoPool = new int[n];
+            ammoPerShot = new int[n];
+            ghostHeat = new GhostHeatGroup[n];
+
+            Map<String, Integer> pools = new HashMap<>();
+            Map<Object, GhostHeatGroup> ghostGroups = new HashMap<>();
+            for (int i = 0; i < n; ++i) {
+                Weapon weapon = weapons[i];
+                double factor = (aRange < 0) ? 1.0 : weapon.getRangeEffectivity(aRange, modifiers);
+                shotDamage[i] = factor * weapon.getDamagePerShot();
+                shotHeat[i] = weapon.getHeat(modifiers);
+                period[i] = weapon.getSecondsPerShot(modifiers);
+                if (weapon instanceof EnergyWeapon) {
+                    duration[i] = ((EnergyWeapon) weapon).getDuration(modifiers);
+                }
+
+                ammoPool[i] = -1;
+                if (weapon instanceof AmmoWeapon) {
+                    String ammoType = ((AmmoWeapon) weapon).getAmmoType();
+                    Integer pool = pools.get(ammoType);
+                    if (pool == null) {
+                        pool = pools.size();
+                        pools.put(ammoType, pool);
+                    }
+                    ammoPool[i] = pool;
+                    ammoPerShot[i] = weapon.getAmmoPerPerShot();
+                }
+
+                // Linked weapons count as the weapon with the highest heat, see GhostHeat.
+                int group = weapon.getGhostHeatGroup();
+                if (group >= 0) {
+                    Object key = (group == 0) ? weapon : Integer.valueOf(group);
+                    GhostHeatGroup ghostGroup = ghostGroups.get(key);
+                    if (ghostGroup == null) {
+                        ghostGroup = new GhostHeatGroup();
+                        ghostGroups.put(key, ghostGroup);
+                    }
+                    if (ghostGroup.reference == null || shotHeat[i] > ghostGroup.referenceHeat) {
+                        ghostGroup.reference = weapon;
+                        ghostGroup.referenceHeat = shotHeat[i];
+                    }
+                    ghostHeat[i] = ghostGroup;
+                }
+            }
+
+            rounds = new int[pools.size()];
+            for (Ammunition ammunition : loadout.items(Ammunition.class)) {
+                Integer pool = pools.get(ammunition.getAmmoType());
+                if (pool != null) {
+                    rounds[pool] += ammunition.getNumShots();
+                }
+            }
+
+            Engine engine = loadout.getEngine();
+            double engineHeat = (engine != null) ? engine.getHeat(modifiers) : 0;
+            netDissipation = heatDissipation - engineHeat;
+            damageSeries = new Series(aSamples, step);
+            heatSeries = new Series(aSamples, step);
+            for (int k = 0; k < aSamples; ++k) {
+                heatSeries.values[k] = engineHeat * k * step;
+            }
+        }
+
+        boolean hasAmmo(int aWeapon) {
+            return ammoPool[aWeapon] < 0 || rounds[ammoPool[aWeapon]] >= ammoPerShot[aWeapon];
+        }
+
+        boolean isReady(int aWeapon, double aTime) {
+            return readyAt[aWeapon] <= aTime + EPSILON;
+        }
+
+        double heatAt(double aTime) {
+            return Math.max(0, heat - netDissipation * (aTime - heatTime));
+        }
+
+        double shotHeat(int aWeapon, double aTime, int aExtra) {
+            if (ghostHeat[aWeapon] == null)
+                return shotHeat[aWeapon];
+            return shotHeat[aWeapon] + ghostHeat[aWeapon].penalty(aTime, aExtra);
+        }
+
+        /**
+         * @return The earliest time at which aHeat can be added without exceeding the heat capacity.
+         */
+        double coolTime(double aTime, double aHeat) {
+            double excess = heatAt(aTime) + aHeat - heatCapacity;
+            if (excess <= EPSILON)
+                return aTime;
+            if (aHeat > heatCapacity || netDissipation <= 0)
+                return Double.POSITIVE_INFINITY;
+            return aTime + excess / netDissipation;
+        }
+
+        void fire(int aWeapon, double aTime, double aHeat) {
+            heat = heatAt(aTime) + aHeat;
+            heatTime = aTime;
+            readyAt[aWeapon] = aTime + period[aWeapon];
+            if (ammoPool[aWeapon] >= 0) {
+                rounds[ammoPool[aWeapon]] -= ammoPerShot[aWeapon];
+            }
+            if (ghostHeat[aWeapon] != null) {
+                ghostHeat[aWeapon].fired.addLast(aTime);
+            }
+            damageSeries.add(aTime, duration[aWeapon], shotDamage[aWeapon]);
+            heatSeries.add(aTime, duration[aWeapon], aHeat);
+        }
+
+        /**
+         * Fires the weapons of the trigger that can be fired.
+         *
+         * @return The next time the trigger needs to be checked.
+         */
+        double process(Trigger aTrigger, double aTime) {
+            switch (aTrigger.mode) {
+                case AlphaStrike:
+                    return processAlpha(aTrigger, aTime);
+                case ChainFire:
+                    return processChain(aTrigger, aTime);
+                default:
+                    return processOptimal(aTrigger, aTime);
+            }
+        }
+
+        private double processOptimal(Trigger aTrigger, double aTime) {
+            double next = Double.POSITIVE_INFINITY;
+            for (int weapon : aTrigger.weapons) {
+                if (!hasAmmo(weapon))
+                    continue;
+                if (isReady(weapon, aTime)) {
+                    double shotHeat = shotHeat(weapon, aTime, 0);
+                    double time = coolTime(aTime, shotHeat);
+                    if (time > aTime) {
+                        next = Math.min(next, time);
+                        continue;
+                    }
+                    fire(weapon, aTime, shotHeat);
+                }
+                next = Math.min(next, readyAt[weapon]);
+            }
+            return next;
+        }
+
+        private double processAlpha(Trigger aTrigger, double aTime) {
+            List<Integer> volley = new ArrayList<>(aTrigger.weapons.length);
+            double latest = aTime;
+            for (int weapon : aTrigger.weapons) {
+                if (hasAmmo(weapon)) {
+                    volley.add(weapon);
+                    latest = Math.max(latest, readyAt[weapon]);
+                }
+            }
+            if (volley.isEmpty())
+                return Double.POSITIVE_INFINITY;
+            if (latest > aTime + EPSILON)
+                return latest;
+
+            double[] heats = new double[volley.size()];
+            double volleyHeat = 0;
+            for (int i = 0; i < heats.length; ++i) {
+                int extra = 0;
+                for (int j = 0; j < i; ++j) {
+                    if (ghostHeat[volley.get(j)] == ghostHeat[volley.get(i)])
+                        extra++;
+                }
+                heats[i] = shotHeat(volley.get(i), aTime, extra);
+                volleyHeat += heats[i];
+            }
+            double time = coolTime(aTime, volleyHeat);
+            if (time > aTime)
+                return time;
+
+            double next = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < heats.length; ++i) {
+                fire(volley.get(i), aTime, heats[i]);
+                next = Math.min(next, readyAt[volley.get(i)]);
+            }
+            return next;
+        }
+
+        private double processChain(Trigger aTrigger, double aTime) {
+            if (aTrigger.chainReady > aTime + EPSILON)
+                return aTrigger.chainReady;
+
+            int[] group = aTrigger.weapons;
+            int weapon = -1;
+            for (int i = 0; i < group.length; ++i) {
+                int candidate = (aTrigger.cursor + i) % group.length;
+                if (hasAmmo(group[candidate])) {
+                    aTrigger.cursor = candidate;
+                    weapon = group[candidate];
+                    break;
+                }
+            }
+            if (weapon < 0)
+                return Double.POSITIVE_INFINITY;
+            if (!isReady(weapon, aTime))
+                return readyAt[weapon];
+
+            double shotHeat = shotHeat(weapon, aTime, 0);
+            double time = coolTime(aTime, shotHeat);
+            if (time > aTime)
+                return time;
+
+            fire(weapon, aTime, shotHeat);
+            aTrigger.cursor = (aTrigger.cursor + 1) % group.length;
+            aTrigger.chainReady = aTime + CHAIN_FIRE_DELAY;
+            return aTrigger.chainReady;
+        }
+
+        void sampleHeat(double aTime) {
+            while (nextSample < heatLevel.length && nextSample * step < aTime) {
+                heatLevel[nextSample] = heatAt(nextSample * step);
+                nextSample++;
+            }
+        }
+    }
+
+    /**
+     * Creates a new simulator that uses the heat capacity and dissipation of the loadout.
+     *
+     * @param aLoadout
+     *            The loadout to simulate.
+     * @param aEnvironment
+     *            The {@link Environment} to dissipate heat in, may be <code>null</code>.
+     */
+    public FiringSimulator(LoadoutBase<?> aLoadout, Environment aEnvironment) {
+        this(aLoadout, new HeatCapacity(aLoadout).calculate(), new HeatDissipation(aLoadout, aEnvironment).calculate());
+    }
+
+    /**
+     * Creates a new simulator.
+     *
+     * @param aLoadout
+     *            The loadout to simulate.
+     * @param aHeatCapacity
+     *            The heat capacity to keep the heat under.
+     * @param aHeatDissipation
+     *            The heat dissipated per second.
+     */
+    public FiringSimulator(LoadoutBase<?> aLoadout, double aHeatCapacity, double aHeatDissipation) {
+        loadout = aLoadout;
+        heatCapacity = aHeatCapacity;
+        heatDissipation = aHeatDissipation;
+    }
+
+    /**
+     * Runs the simulation. The results are available through the getters until the next call.
+     *
+     * @param aRange
+     *            The range to calculate damage at, or negative to ignore range.
+     * @param aHorizon
+     *            The number of seconds to simulate.
+     * @param aStep
+     *            The time between two samples in the resulting time series.
+     */
+    public void simulate(double aRange, double aHorizon, double aStep) {
+        if (aStep <= 0 || aHorizon < 0)
+            throw new IllegalArgumentException("Invalid horizon or step: " + aHorizon + ", " + aStep);
+
+        WeaponGroups weaponGroups = loadout.getWeaponGroups();
+        List<Weapon> weapons = weaponGroups.getWeaponOrder();
+        List<Trigger> triggers = new ArrayList<>();
+        for (int group = 0; group < WeaponGroups.MAX_GROUPS; ++group) {
+            List<Integer> members = new ArrayList<>();
+            for (int i = 0; i < Math.min(weapons.size(), WeaponGroups.MAX_WEAPONS); ++i) {
+                if (weaponGroups.isInGroup(group, i)) {
+                    members.add(i);
+                }
+            }
+            if (!members.isEmpty()) {
+                triggers.add(new Trigger(weaponGroups.getFiringMode(group), toArray(members), triggers.size()));
+            }
+        }
+        if (triggers.isEmpty()) {
+            for (int i = 0; i < weapons.size(); ++i) {
+                triggers.add(new Trigger(FiringMode.Optimal, new int[] { i }, i));
+            }
+        }
+
+        step = aStep;
+        int samples = (int) Math.floor(aHorizon / aStep + EPSILON) + 1;
+        heatLevel = new double[samples];
+        Run run = new Run(weapons, aRange, samples);
+
+        PriorityQueue<Trigger> events = new PriorityQueue<>(triggers.size() + 1, EVENT_ORDER);
+        events.addAll(triggers);
+        while (!events.isEmpty() && events.peek().time <= aHorizon) {
+            Trigger trigger = events.poll();
+            run.sampleHeat(trigger.time);
+            double next = run.process(trigger, trigger.time);
+            if (next < Double.POSITIVE_INFINITY) {
+                trigger.time = Math.max(next, trigger.time + EPSILON);
+                events.add(trigger);
+            }
+        }
+        run.sampleHeat(Double.POSITIVE_INFINITY);
+
+        damage = run.damageSeries.finish();
+        heatGenerated = run.heatSeries.finish();
+    }
+
+    /**
+     * @return The time between two samples of the time series.
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * @return The total damage dealt up to each sample time.
+     */
+    public double[] getDamage() {
+        return damage;
+    }
+
+    /**
+     * @return The total heat generated up to each sample time, including ghost heat and engine heat.
+     */
+    public double[] getHeatGenerated() {
+        return heatGenerated;
+    }
+
+    /**
+     * @return The heat level at each sample time.
+     */
+    public double[] getHeatLevel() {
+        return heatLevel;
+    }
+
+    /**
+     * @param aTime
+     *            The time to get the damage at.
+     * @return The total damage dealt up to the given time, interpolated between samples.
+     */
+    public double getDamage(double aTime) {
+        return interpolate(damage, aTime);
+    }
+
+    /**
+     * @param aTime
+     *            The time to get the heat level at.
+     * @return The heat level at the given time, interpolated between samples.
+     */
+    public double getHeatLevel(double aTime) {
+        return interpolate(heatLevel, aTime);
+    }
+
+    private double interpolate(double[] aSeries, double aTime) {
+        double x = Math.max(0, aTime / step);
+        int k = (int) x;
+        if (k >= aSeries.length - 1)
+            return aSeries[aSeries.length - 1];
+        double f = x - k;
+        return aSeries[k] * (1 - f) + aSeries[k + 1] * f;
+    }
+
+    private static int[] toArray(List<Integer> aList) {
+        int[] ans = new int[aList.size()];
+        for (int i = 0; i < ans.length; ++i) {
+            ans[i] = aList.get(i);
+        }
+        return ans;
+    }
+}
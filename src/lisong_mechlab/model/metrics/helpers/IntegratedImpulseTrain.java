@@ -26,7 +26,7 @@ package lisong_mechlab.model.metrics.helpers;
  * 
  * @author Emily Björk
  */
-public class IntegratedImpulseTrain implements IntegratedSignal {
+public class IntegratedImpulseTrain implements IntegratedPeriodicSignal {
     private final double period;
     private final double amplitude;
 
@@ -39,4 +39,33 @@ public class IntegratedImpulseTrain implements IntegratedSignal {
     public double integrateFromZeroTo(double aTime) {
         return (int) (aTime / period + 1) * amplitude;
     }
+
+    @Override
+    public void evaluate(double[] aTimes, double[] aOut) {
+        for (int i = 0; i < aTimes.length; ++i) {
+            if (i > 0 && aTimes[i] < aTimes[i - 1])
+                throw new IllegalArgumentException("Times must be sorted in ascending order!");
+            aOut[i] = integrateFromZeroTo(aTimes[i]);
+        }
+    }
+
+    @Override
+    public double getPeriod() {
+        return period;
+    }
+
+    @Override
+    public double getImpulse() {
+        return amplitude;
+    }
+
+    @Override
+    public double getPulseWidth() {
+        return 0;
+    }
+
+    @Override
+    public double getPulseAmplitude() {
+        return 0;
+    }
 }
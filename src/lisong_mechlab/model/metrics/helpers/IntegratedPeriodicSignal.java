@@ -0,0 +1,50 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+/**
+ * An {@link IntegratedSignal} that repeats with a fixed period, starting at t=0. Each period starts with an impulse
+ * which is followed by a pulse of constant amplitude. Either part may be zero.
+ * <p>
+ * Knowing the shape of the signal allows it to be stepped from event to event instead of being sampled.
+ * 
+ * @author Emily Björk
+ */
+public interface IntegratedPeriodicSignal extends IntegratedSignal {
+    /**
+     * @return The time between the starts of two consecutive periods.
+     */
+    public double getPeriod();
+
+    /**
+     * @return The integral of the impulse at the start of each period.
+     */
+    public double getImpulse();
+
+    /**
+     * @return The length of the pulse at the start of each period. Pulses longer than the period overlap.
+     */
+    public double getPulseWidth();
+
+    /**
+     * @return The amplitude of the pulse.
+     */
+    public double getPulseAmplitude();
+}
@@ -24,7 +24,7 @@ package lisong_mechlab.model.metrics.helpers;
  * 
  * @author Emily Björk
  */
-public class IntegratedPulseTrain implements IntegratedSignal {
+public class IntegratedPulseTrain implements IntegratedPeriodicSignal {
     private final double period;
     private final double pulseWidth;
     private final double amplitude;
@@ -42,4 +42,33 @@ public class IntegratedPulseTrain implements IntegratedSignal {
         double partialTime = Math.min(aTime - periods * period, pulseWidth);
         return sum + partialTime * amplitude;
     }
+
+    @Override
+    public void evaluate(double[] aTimes, double[] aOut) {
+        for (int i = 0; i < aTimes.length; ++i) {
+            if (i > 0 && aTimes[i] < aTimes[i - 1])
+                throw new IllegalArgumentException("Times must be sorted in ascending order!");
+            aOut[i] = integrateFromZeroTo(aTimes[i]);
+        }
+    }
+
+    @Override
+    public double getPeriod() {
+        return period;
+    }
+
+    @Override
+    public double getImpulse() {
+        return 0;
+    }
+
+    @Override
+    public double getPulseWidth() {
+        return pulseWidth;
+    }
+
+    @Override
+    public double getPulseAmplitude() {
+        return amplitude;
+    }
 }
@@ -33,4 +33,19 @@ public interface IntegratedSignal {
      * @return The integral value.
      */
     public double integrateFromZeroTo(double aTime);
+
+    /**
+     * Calculates the integral from zero to each of the given times. This gives the same result as calling
+     * {@link #integrateFromZeroTo(double)} for each time but implementations may share work between the times. Signals
+     * whose integral has a closed form have nothing to share and simply evaluate it for each time.
+     * 
+     * @param aTimes
+     *            The times to integrate to, must be sorted in ascending order.
+     * @param aOut
+     *            An array of at least the same length as <code>aTimes</code> where the integral to
+     *            <code>aTimes[i]</code> is written to <code>aOut[i]</code>.
+     * @throws IllegalArgumentException
+     *             If the times are not sorted in ascending order.
+     */
+    public void evaluate(double[] aTimes, double[] aOut);
 }
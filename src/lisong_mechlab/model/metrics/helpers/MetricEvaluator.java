@@ -0,0 +1,240 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
+import lisong_mechlab.model.loadout.LoadoutMessage;
+import lisong_mechlab.model.metrics.Metric;
+import lisong_mechlab.util.message.Message;
+import lisong_mechlab.util.message.MessageXBar;
+
+/**
+ * This class evaluates a set of {@link Metric}s for a loadout in the background.
+ * <p>
+ * When the loadout changes, a snapshot of the loadout is taken with {@link LoadoutBase#copy()} on the calling thread
+ * and the registered {@link Factory}s create new metrics for the snapshot. The metrics are then calculated on the
+ * worker {@link Executor} and the results are handed to the {@link Listener}s on the publishing {@link Executor}. If
+ * the loadout changes again before the results are published, the older results are dropped.
+ * <p>
+ * As the worker only ever touches the snapshot, the loadout may be edited freely while the metrics are calculated.
+ * <p>
+ * Each metric declares which parts of the loadout it depends on. When the loadout changes, only the metrics that
+ * depend on the changed parts are created and calculated again, the others keep their last published result.
+ * 
+ * @author Emily Björk
+ */
+public class MetricEvaluator implements Message.Recipient {
+    /**
+     * Creates a {@link Metric} for a snapshot of a loadout.
+     * 
+     * @author Emily Björk
+     */
+    public static interface Factory {
+        /**
+         * Called on the thread that calls {@link MetricEvaluator#update()}. Any settings of the metric (range,
+         * environment etc) should be read here.
+         * 
+         * @param aSnapshot
+         *            The snapshot of the loadout to create a metric for.
+         * @param aXBar
+         *            A {@link MessageXBar} for metrics that need one. Nothing is posted on it.
+         * @return A new {@link Metric}.
+         */
+        Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar);
+    }
+
+    /**
+     * Receives the results of a {@link MetricEvaluator}.
+     * 
+     * @author Emily Björk
+     */
+    public static interface Listener {
+        /**
+         * Called on the publishing {@link Executor} when a new result is available.
+         * 
+         * @param aMetric
+         *            The metric that was calculated, it is bound to a snapshot of the loadout.
+         * @param aValue
+         *            The result of {@link Metric#calculate()}.
+         */
+        void evaluated(Metric aMetric, double aValue);
+    }
+
+    private final LoadoutBase<?> loadout;
+    private final Executor       worker;
+    private final Executor       publisher;
+    private final List<Factory>  factories        = new ArrayList<>();
+    private final List<Listener> listeners        = new ArrayList<>();
+    private final List<Integer>  inputs           = new ArrayList<>();
+    private final AtomicInteger  generation       = new AtomicInteger();
+    private final AtomicInteger  pendingDirty     = new AtomicInteger();
+    private long                 evaluatedVersion = -1;
+
+    /**
+     * Creates a new {@link MetricEvaluator} that updates automatically when the loadout changes.
+     * 
+     * @param aLoadout
+     *            The loadout to evaluate metrics for.
+     * @param aXBar
+     *            The {@link MessageXBar} to listen for changes to the loadout on.
+     * @param aWorker
+     *            The {@link Executor} to calculate the metrics on.
+     * @param aPublisher
+     *            The {@link Executor} to deliver the results on, typically the EDT.
+     */
+    public MetricEvaluator(LoadoutBase<?> aLoadout, MessageXBar aXBar, Executor aWorker, Executor aPublisher) {
+        loadout = aLoadout;
+        worker = aWorker;
+        publisher = aPublisher;
+        aXBar.attachCoalesced(this, aLoadout);
+    }
+
+    /**
+     * Adds a metric to evaluate. The metric is not evaluated until the next call to {@link #update()}.
+     * 
+     * @param aFactory
+     *            The {@link Factory} that creates the metric for each snapshot.
+     * @param aListener
+     *            The {@link Listener} that receives the results.
+     */
+    public void register(Factory aFactory, Listener aListener) {
+        register(aFactory, aListener, LoadoutChangedMessage.ALL);
+    }
+
+    /**
+     * Adds a metric to evaluate that only depends on some parts of the loadout. The metric is not evaluated until the
+     * next call to {@link #update()}.
+     * 
+     * @param aFactory
+     *            The {@link Factory} that creates the metric for each snapshot.
+     * @param aListener
+     *            The {@link Listener} that receives the results.
+     * @param aInputs
+     *            A bitwise or of the {@link LoadoutChangedMessage} dirty flags of the parts of the loadout that the
+     *            metric depends on.
+     */
+    public void register(Factory aFactory, Listener aListener, int aInputs) {
+        factories.add(aFactory);
+        listeners.add(aListener);
+        inputs.add(aInputs);
+    }
+
+    /**
+     * Takes a snapshot of the loadout and evaluates all metrics for it in the background. Must be called on the same
+     * thread that edits the loadout.
+     */
+    public void update() {
+        update(LoadoutChangedMessage.ALL);
+    }
+
+    /**
+     * Takes a snapshot of the loadout and evaluates the metrics that depend on the given parts of the loadout for it in
+     * the background. Must be called on the same thread that edits the loadout.
+     * <p>
+     * Parts that have changed since the last published result are evaluated too, even if they aren't given here.
+     * 
+     * @param aDirty
+     *            A bitwise or of the {@link LoadoutChangedMessage} dirty flags of the parts that have changed.
+     */
+    public void update(int aDirty) {
+        int previous;
+        int dirty;
+        do {
+            previous = pendingDirty.get();
+            dirty = previous | aDirty;
+        } while (!pendingDirty.compareAndSet(previous, dirty));
+        final int thisDirty = dirty;
+
+        evaluatedVersion = loadout.getVersion();
+        if (!dependsOn(thisDirty)) {
+            return; // No need to even take a snapshot
+        }
+
+        final LoadoutBase<?> snapshot = loadout.copy();
+        final MessageXBar snapshotXBar = new MessageXBar();
+        final List<Metric> metrics = new ArrayList<>(factories.size());
+        final List<Listener> recipients = new ArrayList<>(listeners.size());
+        for (int i = 0; i < factories.size(); ++i) {
+            if ((inputs.get(i) & thisDirty) != 0) {
+                metrics.add(factories.get(i).create(snapshot, snapshotXBar));
+                recipients.add(listeners.get(i));
+            }
+        }
+        final int thisGeneration = generation.incrementAndGet();
+
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                final double[] values = new double[metrics.size()];
+                for (int i = 0; i < values.length; ++i) {
+                    if (thisGeneration != generation.get())
+                        return; // Already outdated
+                    values[i] = metrics.get(i).calculate();
+                }
+
+                publisher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (thisGeneration != generation.get())
+                            return; // A newer snapshot is being evaluated
+                        for (int i = 0; i < values.length; ++i) {
+                            recipients.get(i).evaluated(metrics.get(i), values[i]);
+                        }
+                        // Unless something changed since, all metrics are up to date.
+                        pendingDirty.compareAndSet(thisDirty, 0);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void receive(Message aMsg) {
+        if (aMsg.isForMe(loadout) && aMsg.affectsHeatOrDamage()) {
+            // An update message is sent when settings outside of the loadout change and always needs evaluating.
+            if (isUpdate(aMsg)) {
+                update();
+            }
+            else if (loadout.getVersion() != evaluatedVersion) {
+                update(LoadoutChangedMessage.dirtyMask(aMsg));
+            }
+        }
+    }
+
+    private boolean dependsOn(int aDirty) {
+        for (int metricInputs : inputs) {
+            if ((metricInputs & aDirty) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isUpdate(Message aMsg) {
+        if (aMsg instanceof LoadoutChangedMessage)
+            return ((LoadoutChangedMessage) aMsg).isDirty(LoadoutChangedMessage.OTHER);
+        return aMsg instanceof LoadoutMessage && ((LoadoutMessage) aMsg).type == LoadoutMessage.Type.UPDATE;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.modifiers.Modifier;
+
+/**
+ * This class represents a weighted sum of the range effectivities of a set of weapons as a piecewise function of range
+ * and finds the range where a function of range is maximal.
+ * <p>
+ * The breakpoints of the profile are the zero, min, long and max ranges of all weapons. Between two breakpoints the
+ * effectivity of a weapon is either constant or linear unless the weapon has a non-linear fall off or spread. Any
+ * function that is convex in the effectivities of the weapons, such as a weighted sum or the fractional heat knapsack
+ * of {@link lisong_mechlab.model.metrics.MaxSustainedDPS}, is then convex between two breakpoints and attains its
+ * maximum at one of them. Only segments where a weapon is non-linear are searched, first by a coarse scan and then by
+ * a golden section search around the best point of the scan.
+ *
+ * @author Emily Björk
+ */
+public class RangeProfile {
+    /**
+     * A function of range to maximize.
+     */
+    public interface RangeFunction {
+        double calculate(double aRange);
+    }
+
+    private static final int           SCAN_POINTS = 8;
+    private static final double        TOLERANCE   = 0.1;                       // [m]
+    private static final double        GOLDEN      = (Math.sqrt(5.0) - 1.0) / 2;
+
+    private final Collection<Modifier> modifiers;
+    private final List<Entry>          entries     = new ArrayList<>();
+    private final Map<Weapon, Entry>   entryMap    = new HashMap<>();
+    private double[]                   breakpoints;
+
+    private static class Entry {
+        final Weapon  weapon;
+        final double  zero;
+        final double  min;
+        final double  lng;
+        final double  max;
+        final boolean curved;
+        final boolean spread;
+        double        weight;
+
+        Entry(Weapon aWeapon, Collection<Modifier> aModifiers) {
+            weapon = aWeapon;
+            zero = aWeapon.getRangeZero(aModifiers);
+            min = aWeapon.getRangeMin(aModifiers);
+            lng = aWeapon.getRangeLong(aModifiers);
+            max = aWeapon.getRangeMax(aModifiers);
+            curved = aWeapon.hasNonLinearFalloff();
+            spread = aWeapon.hasSpread();
+        }
+
+        boolean isCurvedBetween(double aStart, double aEnd) {
+            if (spread)
+                return aStart < max && aEnd > zero;
+            return curved && aStart < min && aEnd > zero;
+        }
+    }
+
+    /**
+     * Creates a new, empty profile.
+     *
+     * @param aModifiers
+     *            The modifiers to apply to the ranges of the weapons.
+     */
+    public RangeProfile(Collection<Modifier> aModifiers) {
+        modifiers = aModifiers;
+    }
+
+    /**
+     * Adds a weapon to the profile. Adding the same weapon several times adds the weights.
+     *
+     * @param aWeapon
+     *            The weapon to add.
+     * @param aWeight
+     *            The value of the weapon at full effectivity.
+     */
+    public void add(Weapon aWeapon, double aWeight) {
+        Entry entry = entryMap.get(aWeapon);
+        if (entry == null) {
+            entry = new Entry(aWeapon, modifiers);
+            entryMap.put(aWeapon, entry);
+            entries.add(entry);
+            breakpoints = null;
+        }
+        entry.weight += aWeight;
+    }
+
+    /**
+     * @return The sorted, distinct ranges at which the effectivity of any weapon changes behaviour, starting at 0.
+     */
+    public double[] getBreakpoints() {
+        if (breakpoints == null) {
+            double[] ans = new double[entries.size() * 4 + 1];
+            int n = 0;
+            ans[n++] = 0.0;
+            for (Entry entry : entries) {
+                for (double range : new double[] { entry.zero, entry.min, entry.lng, entry.max }) {
+                    if (range > 0) {
+                        ans[n++] = range;
+                    }
+                }
+            }
+            Arrays.sort(ans, 0, n);
+            int unique = 0;
+            for (int i = 0; i < n; ++i) {
+                if (unique == 0 || ans[i] != ans[unique - 1]) {
+                    ans[unique++] = ans[i];
+                }
+            }
+            breakpoints = Arrays.copyOf(ans, unique);
+        }
+        return breakpoints;
+    }
+
+    /**
+     * @param aRange
+     *            The range to evaluate the profile at.
+     * @return The sum of the weights of all weapons times their effectivity at the given range.
+     */
+    public double calculate(double aRange) {
+        double ans = 0;
+        for (Entry entry : entries) {
+            ans += entry.weight * effectivity(entry, aRange);
+        }
+        return ans;
+    }
+
+    /**
+     * Finds the range where this profile is maximal.
+     *
+     * @return The range with the maximal value. Ties are broken towards longer ranges.
+     */
+    public double argmax() {
+        return argmax(new RangeFunction() {
+            @Override
+            public double calculate(double aRange) {
+                return RangeProfile.this.calculate(aRange);
+            }
+        });
+    }
+
+    /**
+     * Finds the range where the given function is maximal. The function must be convex in the effectivities of the
+     * weapons in this profile for the result to be exact.
+     *
+     * @param aFunction
+     *            The function to maximize.
+     * @return The range with the maximal value. Ties are broken towards longer ranges.
+     */
+    public double argmax(RangeFunction aFunction) {
+        double[] ranges = getBreakpoints();
+        double bestRange = ranges[0];
+        double best = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < ranges.length; ++i) {
+            double value = aFunction.calculate(ranges[i]);
+            if (value >= best) {
+                best = value;
+                bestRange = ranges[i];
+            }
+
+            if (i + 1 < ranges.length && isCurvedBetween(ranges[i], ranges[i + 1])) {
+                double range = searchSegment(aFunction, ranges[i], ranges[i + 1]);
+                value = aFunction.calculate(range);
+                if (value >= best) {
+                    best = value;
+                    bestRange = range;
+                }
+            }
+        }
+        return bestRange;
+    }
+
+    private boolean isCurvedBetween(double aStart, double aEnd) {
+        for (Entry entry : entries) {
+            if (entry.isCurvedBetween(aStart, aEnd))
+                return true;
+        }
+        return false;
+    }
+
+    private static double searchSegment(RangeFunction aFunction, double aStart, double aEnd) {
+        double step = (aEnd - aStart) / (SCAN_POINTS + 1);
+        int bestPoint = 1;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int i = 1; i <= SCAN_POINTS; ++i) {
+            double value = aFunction.calculate(aStart + step * i);
+            if (value >= best) {
+                best = value;
+                bestPoint = i;
+            }
+        }
+
+        double a = aStart + step * (bestPoint - 1);
+        double b = aStart + step * (bestPoint + 1);
+        double c = b - GOLDEN * (b - a);
+        double d = a + GOLDEN * (b - a);
+        double fc = aFunction.calculate(c);
+        double fd = aFunction.calculate(d);
+        while (b - a > TOLERANCE) {
+            if (fc > fd) {
+                b = d;
+                d = c;
+                fd = fc;
+                c = b - GOLDEN * (b - a);
+                fc = aFunction.calculate(c);
+            }
+            else {
+                a = c;
+                c = d;
+                fc = fd;
+                d = a + GOLDEN * (b - a);
+                fd = aFunction.calculate(d);
+            }
+        }
+        return (a + b) / 2;
+    }
+
+    /**
+     * Same as {@link Weapon#getRangeEffectivity(double, Collection)} but with the ranges of the weapon cached.
+     */
+    private double effectivity(Entry aEntry, double aRange) {
+        if (aEntry.curved || aEntry.spread)
+            return aEntry.weapon.getRangeEffectivity(aRange, modifiers);
+
+        if (aRange < aEntry.zero)
+            return 0;
+        else if (aRange < aEntry.min)
+            return (aRange - aEntry.zero) / (aEntry.min - aEntry.zero);
+        else if (aRange <= aEntry.lng)
+            return 1.0;
+        else if (aRange < aEntry.max)
+            return 1.0 - (aRange - aEntry.lng) / (aEntry.max - aEntry.lng);
+        return 0;
+    }
+}
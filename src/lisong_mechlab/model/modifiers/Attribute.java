@@ -40,6 +40,7 @@ public class Attribute {
     @XStreamAsAttribute
     private final double             baseValue;
     private final Collection<String> selectors;
+    private transient String         key;
 
     /**
      * Creates a new attribute.
@@ -110,6 +111,49 @@ public class Attribute {
      *         from the given list.
      */
     public double value(Collection<Modifier> aModifiers) {
+        final double[] totals;
+        if (aModifiers instanceof ModifierSet) {
+            totals = ((ModifierSet) aModifiers).getTotals(this);
+        }
+        else {
+            totals = totals(aModifiers);
+        }
+        return (baseValue + totals[0]) * totals[1];
+    }
+
+    /**
+     * Two attributes with the same key are affected by exactly the same {@link Modifier}s, the key is used by
+     * {@link ModifierSet} to share the summed modifiers between attributes.
+     * 
+     * @return A canonical identifier built from the name and the selectors of this attribute.
+     */
+    public String getKey() {
+        if (key == null) {
+            List<String> sortedSelectors = new ArrayList<>();
+            for (String selector : selectors) {
+                sortedSelectors.add(String.valueOf(selector));
+            }
+            Collections.sort(sortedSelectors);
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(name).append(':');
+            for (String selector : sortedSelectors) {
+                sb.append(selector).append(',');
+            }
+            key = sb.toString().intern();
+        }
+        return key;
+    }
+
+    /**
+     * Sums up the modifiers that affect the given attribute.
+     * 
+     * @param aModifiers
+     *            A {@link Collection} of {@link Modifier} that should be applied (if applicable) to this attribute.
+     * @return An array where the first element is the sum of all additive modifiers and the second element is the sum
+     *         of all multiplicative modifiers (plus one).
+     */
+    double[] totals(Collection<Modifier> aModifiers) {
         double additive = 0.0;
         double multiplicative = 1.0;
         if (aModifiers != null) {
@@ -129,6 +173,6 @@ public class Attribute {
                 }
             }
         }
-        return (baseValue + additive) * multiplicative;
+        return new double[] { additive, multiplicative };
     }
 }
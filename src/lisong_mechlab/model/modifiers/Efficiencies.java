@@ -92,6 +92,8 @@ public class Efficiencies {
 
     private boolean fastfire;
 
+    private transient int version;
+
     /**
      * Creates a new efficiencies object.
      */
@@ -189,6 +191,7 @@ public class Efficiencies {
     public void setSpeedTweak(boolean aSpeedTweak, MessageXBar xBar) {
         if (aSpeedTweak != speedTweak) {
             speedTweak = aSpeedTweak;
+            version++;
             if (xBar != null)
                 xBar.post(new EfficienciesMessage(this, EfficienciesMessage.Type.Changed));
         }
@@ -205,6 +208,7 @@ public class Efficiencies {
     public void setAnchorTurn(boolean aAnchorTurn, MessageXBar xBar) {
         if (aAnchorTurn != anchorTurn) {
             anchorTurn = aAnchorTurn;
+            version++;
             if (xBar != null)
                 xBar.post(new EfficienciesMessage(this, EfficienciesMessage.Type.Changed));
         }
@@ -221,6 +225,7 @@ public class Efficiencies {
     public void setCoolRun(boolean aCoolRun, MessageXBar xBar) {
         if (aCoolRun != coolRun) {
             coolRun = aCoolRun;
+            version++;
             if (xBar != null)
                 xBar.post(new EfficienciesMessage(this, EfficienciesMessage.Type.Changed));
         }
@@ -237,6 +242,7 @@ public class Efficiencies {
     public void setHeatContainment(boolean aHeatContainment, MessageXBar xBar) {
         if (aHeatContainment != heatContainment) {
             heatContainment = aHeatContainment;
+            version++;
             if (xBar != null)
                 xBar.post(new EfficienciesMessage(this, EfficienciesMessage.Type.Changed));
         }
@@ -253,11 +259,19 @@ public class Efficiencies {
     public void setDoubleBasics(boolean aDoubleBasics, MessageXBar xBar) {
         if (aDoubleBasics != doubleBasics) {
             doubleBasics = aDoubleBasics;
+            version++;
             if (xBar != null)
                 xBar.post(new EfficienciesMessage(this, EfficienciesMessage.Type.Changed));
         }
     }
 
+    /**
+     * @return A number that changes every time any of the efficiencies is changed.
+     */
+    public int getVersion() {
+        return version;
+    }
+
     /**
      * @return A {@link List} of all the modifiers that should be applied for these efficiencies.
      */
@@ -313,6 +327,7 @@ public class Efficiencies {
     public void setFastFire(boolean aFastFire, MessageXBar xBar) {
         if (aFastFire != fastfire) {
             fastfire = aFastFire;
+            version++;
             if (xBar != null)
                 xBar.post(new EfficienciesMessage(this, EfficienciesMessage.Type.Changed));
         }
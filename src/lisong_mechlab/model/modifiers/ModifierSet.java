@@ -0,0 +1,84 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.modifiers;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable collection of {@link Modifier}s that is compiled for fast lookup. The first time an {@link Attribute}
+ * is evaluated against this set the affecting modifiers are summed up and stored by the attribute's key, any later
+ * evaluation of an attribute with the same key is a single hash lookup.
+ * <p>
+ * The sums are computed in the same order as {@link Attribute#value(Collection)} does for any other collection so the
+ * results are identical to evaluating against a plain list of the same modifiers.
+ * <p>
+ * As this is a {@link Collection} of {@link Modifier} it can be passed to all methods that take modifiers, for
+ * example on {@link lisong_mechlab.model.item.Weapon}, {@link lisong_mechlab.model.item.HeatSource} and
+ * {@link lisong_mechlab.model.chassi.MovementProfile}.
+ * 
+ * @author Emily Björk
+ */
+public class ModifierSet extends AbstractCollection<Modifier> {
+    private final List<Modifier>                  modifiers;
+    private final ConcurrentMap<String, double[]> totals = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@link ModifierSet} from the given modifiers.
+     * 
+     * @param aModifiers
+     *            The {@link Modifier}s to include in the set. The collection is copied.
+     */
+    public ModifierSet(Collection<Modifier> aModifiers) {
+        modifiers = Collections.unmodifiableList(new ArrayList<>(aModifiers));
+    }
+
+    @Override
+    public Iterator<Modifier> iterator() {
+        return modifiers.iterator();
+    }
+
+    @Override
+    public int size() {
+        return modifiers.size();
+    }
+
+    /**
+     * @param aAttribute
+     *            The {@link Attribute} to get the modifier totals for.
+     * @return An array where the first element is the sum of all additive modifiers and the second element is the sum
+     *         of all multiplicative modifiers (plus one). Must not be modified.
+     */
+    double[] getTotals(Attribute aAttribute) {
+        String key = aAttribute.getKey();
+        double[] ans = totals.get(key);
+        if (ans == null) {
+            ans = aAttribute.totals(modifiers);
+            totals.put(key, ans);
+        }
+        return ans;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.optimizer;
+
+import java.util.Collection;
+
+import lisong_mechlab.model.item.BallisticWeapon;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.metrics.BurstDamageOverTime;
+import lisong_mechlab.model.modifiers.Modifier;
+import lisong_mechlab.util.message.MessageXBar;
+
+/**
+ * This {@link Objective} maximises the {@link BurstDamageOverTime} at a given range and time.
+ * 
+ * @author Emily Björk
+ */
+public class BurstDamageObjective implements Objective {
+    private final double range;
+    private final double time;
+
+    /**
+     * @param aRange
+     *            The range to optimise for [m].
+     * @param aTime
+     *            The length of the burst [s].
+     */
+    public BurstDamageObjective(double aRange, double aTime) {
+        range = aRange;
+        time = aTime;
+    }
+
+    @Override
+    public double evaluate(LoadoutBase<?> aLoadout) {
+        return new BurstDamageOverTime(aLoadout, new MessageXBar()).calculate(range, time);
+    }
+
+    @Override
+    public double getWeaponBound(Weapon aWeapon, Collection<Modifier> aModifiers) {
+        // All damage signals fire their first shot at time zero. A weapon that can double fire shoots at most two
+        // rounds per cool down.
+        final double shots;
+        if (aWeapon instanceof BallisticWeapon && ((BallisticWeapon) aWeapon).canDoubleFire()) {
+            shots = 2 * (Math.floor(time / ((BallisticWeapon) aWeapon).getRawSecondsPerShot(aModifiers)) + 1);
+        }
+        else {
+            shots = Math.floor(time / aWeapon.getSecondsPerShot(aModifiers)) + 1;
+        }
+        return shots * aWeapon.getDamagePerShot() * aWeapon.getRangeEffectivity(range, aModifiers);
+    }
+}
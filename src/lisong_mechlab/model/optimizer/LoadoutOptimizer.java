@@ -0,0 +1,470 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.item.AmmoWeapon;
+import lisong_mechlab.model.item.Ammunition;
+import lisong_mechlab.model.item.Engine;
+import lisong_mechlab.model.item.HeatSink;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.EquipResult;
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.OpDistributeArmor;
+import lisong_mechlab.model.loadout.component.ConfiguredComponentBase;
+import lisong_mechlab.model.loadout.component.OpAddItem;
+import lisong_mechlab.model.modifiers.Modifier;
+import lisong_mechlab.model.optimizer.OptimizedLoadout.Step;
+import lisong_mechlab.util.OperationStack;
+
+/**
+ * Searches for the loadouts that maximise an {@link Objective} by adding weapons, ammunition, heat sinks and optionally
+ * an engine to a given (partial) loadout.
+ * <p>
+ * The search is a depth first branch-and-bound over the multi sets of candidate weapons. The bound of a node is the
+ * sum of {@link Objective#getWeaponBound(Weapon, Collection)} of its weapons plus the free tonnage times the best bound
+ * per ton of the weapons that may still be added. Each node is also completed into a loadout by adding ammunition for
+ * the new weapons and filling the remaining space with heat sinks, which never lowers the value of the objectives. The
+ * upper levels of the search tree are split over the cores with fork/join.
+ * <p>
+ * Weapons are put in the first location where they fit. If a weapon doesn't fit anywhere because of where the earlier
+ * weapons were put, all the weapons of the node are placed again trying every location for every weapon. Ammunition
+ * and heat sinks don't need hard points and are always put in the first location with room for them.
+ * <p>
+ * Armor is not searched, as more armor never improves a damage objective. Instead the wanted amount of armor is set
+ * with {@link #setArmor(int, double)} before the search and takes tonnage from the weapons.
+ * <p>
+ * The loadout given to the optimizer is never changed, use {@link OptimizedLoadout#makeOperation} to apply a result.
+ * 
+ * @author Emily Björk
+ */
+public class LoadoutOptimizer {
+    /**
+     * A weapon together with the ammunition that is added for it.
+     */
+    private static class Candidate {
+        final Weapon weapon;
+        final double mass;
+        final double bound;
+
+        Candidate(Weapon aWeapon, Ammunition aAmmo, int aAmmoTons, double aBound) {
+            weapon = aWeapon;
+            mass = aWeapon.getMass() + (null != aAmmo ? aAmmoTons * aAmmo.getMass() : 0);
+            bound = aBound;
+        }
+    }
+
+    /**
+     * Keeps the best results found so far by all threads.
+     */
+    private static class Results {
+        private final List<OptimizedLoadout> best = new ArrayList<>();
+        private final int                    size;
+        private volatile double              threshold = Double.NEGATIVE_INFINITY;
+
+        Results(int aSize) {
+            size = aSize;
+        }
+
+        synchronized void offer(OptimizedLoadout aLoadout) {
+            if (aLoadout.getValue() <= threshold)
+                return;
+            best.add(aLoadout);
+            Collections.sort(best);
+            if (best.size() > size) {
+                best.remove(best.size() - 1);
+            }
+            if (best.size() == size) {
+                threshold = best.get(size - 1).getValue();
+            }
+        }
+
+        /**
+         * @return The value a loadout must exceed to be among the results, nodes that can't beat it are pruned.
+         */
+        double getThreshold() {
+            return threshold;
+        }
+
+        synchronized List<OptimizedLoadout> get() {
+            return new ArrayList<>(best);
+        }
+    }
+
+    /**
+     * A node in the search tree. Each task works on its own copy of the loadout, copies are cheap as they share the
+     * unchanged components.
+     */
+    private class SearchTask extends RecursiveAction {
+        private static final long    serialVersionUID = 1L;
+        private final OperationStack stack            = new OperationStack(0);
+        private final LoadoutBase<?> base;
+        private final LoadoutBase<?> data;
+        private final Step           lastStep;
+        private final int            firstCandidate;
+        private final double         ammoMass;
+        private final double         weaponBound;
+        private final int            depth;
+
+        SearchTask(LoadoutBase<?> aBase, LoadoutBase<?> aData, Step aLastStep, int aFirstCandidate, double aAmmoMass,
+                double aWeaponBound, int aDepth) {
+            base = aBase;
+            data = aData;
+            lastStep = aLastStep;
+            firstCandidate = aFirstCandidate;
+            ammoMass = aAmmoMass;
+            weaponBound = aWeaponBound;
+            depth = aDepth;
+        }
+
+        @Override
+        protected void compute() {
+            final double freeMass = data.getFreeMass() - ammoMass;
+            if (weaponBound + freeMass * bestDensity[firstCandidate] <= results.getThreshold())
+                return;
+
+            if (weaponBound > results.getThreshold()) {
+                complete();
+            }
+
+            List<SearchTask> children = new ArrayList<>();
+            for (int i = firstCandidate; i < candidates.size(); ++i) {
+                Candidate candidate = candidates.get(i);
+                if (candidate.mass > freeMass)
+                    continue;
+                Location location = findLocation(data, candidate.weapon);
+                LoadoutBase<?> child;
+                Step step;
+                if (null != location) {
+                    child = data.copy();
+                    stack.pushAndApply(new OpAddItem(null, child, child.getComponent(location), candidate.weapon));
+                    step = new Step(lastStep, location, candidate.weapon);
+                }
+                else if (!data.getCandidateLocationsForItem(candidate.weapon).isEmpty()) {
+                    // The weapon fits the loadout but not where the other weapons were put, try to move them.
+                    step = rearrange(candidate.weapon);
+                    if (null == step)
+                        continue;
+                    child = base.copy();
+                    replay(child, step);
+                }
+                else {
+                    continue;
+                }
+
+                SearchTask task = new SearchTask(base, child, step, i, ammoMass + candidate.mass
+                        - candidate.weapon.getMass(), weaponBound + candidate.bound, depth + 1);
+                if (depth < FORK_DEPTH) {
+                    children.add(task);
+                }
+                else {
+                    task.compute();
+                }
+            }
+            invokeAll(children);
+        }
+
+        /**
+         * Adds the ammunition for the weapons on this node and fills the loadout with heat sinks, then offers the
+         * result.
+         */
+        private void complete() {
+            LoadoutBase<?> loadout = data.copy();
+            Step step = lastStep;
+            for (Step weapon = lastStep; weapon != null && weapon.item instanceof Weapon; weapon = weapon.previous) {
+                Ammunition ammo = ammoTypes.get(weapon.item);
+                for (int i = 0; null != ammo && i < ammoTons; ++i) {
+                    step = add(loadout, step, ammo);
+                    if (null == step)
+                        return; // The ammunition doesn't fit
+                }
+            }
+
+            HeatSink heatSink = loadout.getUpgrades().getHeatSink().getHeatSinkType();
+            while (true) {
+                Step next = add(loadout, step, heatSink);
+                if (null == next)
+                    break;
+                step = next;
+            }
+            results.offer(new OptimizedLoadout(objective.evaluate(loadout), armor, frontRearArmorRatio, step));
+        }
+
+        private Step add(LoadoutBase<?> aLoadout, Step aStep, Item aItem) {
+            Location location = findLocation(aLoadout, aItem);
+            if (null == location)
+                return null;
+            stack.pushAndApply(new OpAddItem(null, aLoadout, aLoadout.getComponent(location), aItem));
+            return new Step(aStep, location, aItem);
+        }
+
+        /**
+         * Places the weapons of this node and the given weapon on the base loadout, trying every location for every
+         * weapon until all of them fit.
+         * 
+         * @return The last step of a placement of all the weapons or <code>null</code> if there is none.
+         */
+        private Step rearrange(Weapon aWeapon) {
+            List<Weapon> toPlace = new ArrayList<>();
+            Step baseStep = lastStep;
+            for (; baseStep != null && baseStep.item instanceof Weapon; baseStep = baseStep.previous) {
+                toPlace.add((Weapon) baseStep.item);
+            }
+            Collections.reverse(toPlace);
+            toPlace.add(aWeapon);
+            return place(base.copy(), baseStep, toPlace, 0);
+        }
+
+        private Step place(LoadoutBase<?> aLoadout, Step aStep, List<Weapon> aWeapons, int aNext) {
+            if (aNext == aWeapons.size())
+                return aStep;
+
+            // Equal weapons are adjacent, placing them in the order of the locations avoids trying every permutation.
+            Weapon weapon = aWeapons.get(aNext);
+            int firstLocation = 0;
+            if (aNext > 0 && aWeapons.get(aNext - 1) == weapon) {
+                firstLocation = aStep.location.ordinal();
+            }
+
+            for (ConfiguredComponentBase component : aLoadout.getCandidateLocationsForItem(weapon)) {
+                Location location = component.getInternalComponent().getLocation();
+                if (location.ordinal() < firstLocation || EquipResult.SUCCESS != component.canEquip(weapon))
+                    continue;
+                LoadoutBase<?> child = aLoadout.copy();
+                stack.pushAndApply(new OpAddItem(null, child, child.getComponent(location), weapon));
+                Step ans = place(child, new Step(aStep, location, weapon), aWeapons, aNext + 1);
+                if (null != ans)
+                    return ans;
+            }
+            return null;
+        }
+
+        /**
+         * Adds the items of the steps after the base loadout to the given copy of the base loadout.
+         */
+        private void replay(LoadoutBase<?> aLoadout, Step aLastStep) {
+            if (null == aLastStep || !(aLastStep.item instanceof Weapon))
+                return;
+            replay(aLoadout, aLastStep.previous);
+            stack.pushAndApply(new OpAddItem(null, aLoadout, aLoadout.getComponent(aLastStep.location),
+                    aLastStep.item));
+        }
+    }
+
+    /**
+     * The number of levels of the search tree that are split into separate fork/join tasks.
+     */
+    private static final int            FORK_DEPTH          = 2;
+
+    private final LoadoutBase<?>        loadout;
+    private final Objective             objective;
+    private final List<Engine>          engines             = new ArrayList<>();
+    private final List<Weapon>          weapons             = new ArrayList<>();
+    private final List<Candidate>       candidates          = new ArrayList<>();
+    private final Map<Item, Ammunition> ammoTypes           = new HashMap<>();
+    private double[]                    bestDensity;
+    private Results                     results;
+    private int                         ammoTons            = 2;
+    private int                         armor               = -1;
+    private double                      frontRearArmorRatio = 1.0;
+
+    /**
+     * @param aLoadout
+     *            The (partial) loadout to start from. It is not changed by the optimizer.
+     * @param aObjective
+     *            The {@link Objective} to maximise.
+     */
+    public LoadoutOptimizer(LoadoutBase<?> aLoadout, Objective aObjective) {
+        loadout = aLoadout;
+        objective = aObjective;
+    }
+
+    /**
+     * Limits the weapons that the optimizer may add. By default all weapons that can be equipped are considered.
+     * 
+     * @param aWeapons
+     *            The weapons to consider.
+     */
+    public void setWeapons(Collection<? extends Weapon> aWeapons) {
+        weapons.clear();
+        weapons.addAll(aWeapons);
+    }
+
+    /**
+     * Makes the optimizer choose an engine from the given list. Only used if the loadout has no engine.
+     * 
+     * @param aEngines
+     *            The engines to choose from.
+     */
+    public void setEngines(Collection<Engine> aEngines) {
+        engines.clear();
+        engines.addAll(aEngines);
+    }
+
+    /**
+     * @param aTons
+     *            The number of tons of ammunition to add for every weapon that uses ammunition.
+     */
+    public void setAmmoTons(int aTons) {
+        ammoTons = aTons;
+    }
+
+    /**
+     * Distributes the given amount of armor on the loadout before searching, see {@link OpDistributeArmor}. By default
+     * the armor of the loadout is kept.
+     * 
+     * @param aPointsOfArmor
+     *            The total amount of armor.
+     * @param aFrontRearRatio
+     *            The ratio of front/back armor.
+     */
+    public void setArmor(int aPointsOfArmor, double aFrontRearRatio) {
+        armor = aPointsOfArmor;
+        frontRearArmorRatio = aFrontRearRatio;
+    }
+
+    /**
+     * Runs the search.
+     * 
+     * @param aPool
+     *            The {@link ForkJoinPool} to run the search in.
+     * @param aNumResults
+     *            The number of loadouts to return.
+     * @return The best loadouts found, the best first. May be fewer than asked for.
+     */
+    public List<OptimizedLoadout> optimize(ForkJoinPool aPool, int aNumResults) {
+        results = new Results(aNumResults);
+
+        OperationStack stack = new OperationStack(0);
+        LoadoutBase<?> root = loadout.copy();
+        if (armor >= 0) {
+            stack.pushAndApply(new OpDistributeArmor(root, armor, frontRearArmorRatio, null));
+        }
+        prepareCandidates(root.getModifiers());
+
+        double weaponBound = 0;
+        for (Weapon weapon : root.items(Weapon.class)) {
+            if (weapon.isOffensive())
+                weaponBound += objective.getWeaponBound(weapon, root.getModifiers());
+        }
+
+        List<SearchTask> tasks = new ArrayList<>();
+        if (root.getEngine() != null || engines.isEmpty()) {
+            tasks.add(new SearchTask(root, root, null, 0, 0, weaponBound, 0));
+        }
+        else {
+            for (Engine engine : engines) {
+                if (EquipResult.SUCCESS != root.canEquip(engine))
+                    continue;
+                LoadoutBase<?> withEngine = root.copy();
+                ConfiguredComponentBase ct = withEngine.getComponent(Location.CenterTorso);
+                stack.pushAndApply(new OpAddItem(null, withEngine, ct, engine));
+                tasks.add(new SearchTask(withEngine, withEngine, new Step(null, Location.CenterTorso, engine), 0, 0,
+                        weaponBound, 0));
+            }
+        }
+
+        for (SearchTask task : tasks) {
+            aPool.invoke(task);
+        }
+        return results.get();
+    }
+
+    private void prepareCandidates(Collection<Modifier> aModifiers) {
+        List<Weapon> allowed = new ArrayList<>(weapons.isEmpty() ? ItemDB.lookup(Weapon.class) : weapons);
+        candidates.clear();
+        ammoTypes.clear();
+        for (Weapon weapon : allowed) {
+            if (!weapon.isOffensive() || !loadout.getChassis().isAllowed(weapon)
+                    || !weapon.isCompatible(loadout.getUpgrades())
+                    || loadout.getHardpointsCount(weapon.getHardpointType()) < 1)
+                continue;
+            Ammunition ammo = ammoFor(weapon);
+            if (weapon instanceof AmmoWeapon && null == ammo)
+                continue;
+            double bound = objective.getWeaponBound(weapon, aModifiers);
+            if (bound > 0) {
+                candidates.add(new Candidate(weapon, ammo, ammoTons, bound));
+                ammoTypes.put(weapon, ammo);
+            }
+        }
+
+        // Visit the most promising weapons first to find good solutions, and tight bounds, early.
+        Collections.sort(candidates, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate aO1, Candidate aO2) {
+                return Double.compare(aO2.bound / aO2.mass, aO1.bound / aO1.mass);
+            }
+        });
+
+        bestDensity = new double[candidates.size() + 1];
+        for (int i = candidates.size() - 1; i >= 0; --i) {
+            Candidate candidate = candidates.get(i);
+            bestDensity[i] = Math.max(bestDensity[i + 1], candidate.bound / candidate.mass);
+        }
+    }
+
+    /**
+     * @return A full ton of ammunition that can be used by the given weapon on the loadout, or <code>null</code>.
+     */
+    private Ammunition ammoFor(Weapon aWeapon) {
+        if (!(aWeapon instanceof AmmoWeapon))
+            return null;
+        for (Ammunition ammo : ItemDB.lookup(Ammunition.class)) {
+            if (((AmmoWeapon) aWeapon).isCompatibleAmmo(ammo) && ammo.getMass() == 1.0
+                    && loadout.getChassis().isAllowed(ammo) && ammo.isCompatible(loadout.getUpgrades()))
+                return ammo;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first location where the item fits without moving other items. The search falls back to
+     * {@link SearchTask#rearrange(Weapon)} when a weapon doesn't fit, ammunition and heat sinks are only placed here.
+     * 
+     * @return The location to add the item to, heat sinks go into the engine first, or <code>null</code> if the item
+     *         can't be added.
+     */
+    private static Location findLocation(LoadoutBase<?> aLoadout, Item aItem) {
+        if (EquipResult.SUCCESS != aLoadout.canEquip(aItem))
+            return null;
+        ConfiguredComponentBase ct = aLoadout.getComponent(Location.CenterTorso);
+        if (aItem instanceof HeatSink && ct.getEngineHeatsinks() < ct.getEngineHeatsinksMax()
+                && EquipResult.SUCCESS == ct.canEquip(aItem))
+            return Location.CenterTorso;
+        for (ConfiguredComponentBase component : aLoadout.getCandidateLocationsForItem(aItem)) {
+            if (EquipResult.SUCCESS == component.canEquip(aItem))
+                return component.getInternalComponent().getLocation();
+        }
+        return null;
+    }
+}
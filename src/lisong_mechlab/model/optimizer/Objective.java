@@ -0,0 +1,53 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.optimizer;
+
+import java.util.Collection;
+
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.modifiers.Modifier;
+
+/**
+ * An objective for the {@link LoadoutOptimizer} to maximise.
+ * 
+ * @author Emily Björk
+ */
+public interface Objective {
+    /**
+     * @param aLoadout
+     *            The loadout to evaluate.
+     * @return The value of the given loadout, higher is better.
+     */
+    double evaluate(LoadoutBase<?> aLoadout);
+
+    /**
+     * Gives an upper bound on how much a single weapon can contribute to {@link #evaluate(LoadoutBase)}. The sum of the
+     * bounds of all weapons on a loadout must never be less than the value of the loadout, regardless of heat sinks,
+     * otherwise the optimizer will miss solutions.
+     * 
+     * @param aWeapon
+     *            The weapon to get the bound for.
+     * @param aModifiers
+     *            The modifiers on the loadout.
+     * @return An upper bound on the contribution of the weapon.
+     */
+    double getWeaponBound(Weapon aWeapon, Collection<Modifier> aModifiers);
+}
@@ -0,0 +1,120 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.OpDistributeArmor;
+import lisong_mechlab.model.loadout.OpLoadoutBase;
+import lisong_mechlab.model.loadout.component.OpAddItem;
+import lisong_mechlab.util.OperationStack;
+import lisong_mechlab.util.message.MessageDelivery;
+
+/**
+ * One of the loadouts found by the {@link LoadoutOptimizer}. It is stored as the items that were added to the original
+ * loadout, in order, so that it can be applied to the original loadout as an undoable {@link OperationStack.Operation}.
+ * 
+ * @author Emily Björk
+ */
+public class OptimizedLoadout implements Comparable<OptimizedLoadout> {
+    /**
+     * An item that was added to a component, the steps of a search path form a linked list back to the root.
+     */
+    static class Step {
+        final Step     previous;
+        final Location location;
+        final Item     item;
+
+        Step(Step aPrevious, Location aLocation, Item aItem) {
+            previous = aPrevious;
+            location = aLocation;
+            item = aItem;
+        }
+    }
+
+    private final double     value;
+    private final int        armor;
+    private final double     frontRearArmorRatio;
+    private final List<Step> steps;
+
+    OptimizedLoadout(double aValue, int aArmor, double aFrontRearArmorRatio, Step aLastStep) {
+        value = aValue;
+        armor = aArmor;
+        frontRearArmorRatio = aFrontRearArmorRatio;
+        List<Step> ans = new ArrayList<>();
+        for (Step step = aLastStep; step != null; step = step.previous) {
+            ans.add(step);
+        }
+        Collections.reverse(ans);
+        steps = ans;
+    }
+
+    /**
+     * @return The value of the {@link Objective} for this loadout.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return The items, in the order they are added to the original loadout.
+     */
+    public List<Item> getItems() {
+        List<Item> ans = new ArrayList<>(steps.size());
+        for (Step step : steps) {
+            ans.add(step.item);
+        }
+        return ans;
+    }
+
+    /**
+     * Creates an operation that turns the loadout that was optimised into this loadout. The loadout must not have
+     * been changed since the optimizer was started.
+     * 
+     * @param aLoadout
+     *            The loadout that was given to the {@link LoadoutOptimizer}.
+     * @param aMessageDelivery
+     *            The {@link MessageDelivery} to announce changes on.
+     * @return An {@link OpLoadoutBase} to apply to an {@link OperationStack}.
+     */
+    public OpLoadoutBase makeOperation(LoadoutBase<?> aLoadout, MessageDelivery aMessageDelivery) {
+        return new OpLoadoutBase(aLoadout, aMessageDelivery, "apply optimized loadout") {
+            @Override
+            protected void buildOperation() {
+                if (armor >= 0) {
+                    addOp(new OpDistributeArmor(loadout, armor, frontRearArmorRatio, messageBuffer));
+                }
+                for (Step step : steps) {
+                    addOp(new OpAddItem(messageBuffer, loadout, loadout.getComponent(step.location), step.item));
+                }
+            }
+        };
+    }
+
+    @Override
+    public int compareTo(OptimizedLoadout aOther) {
+        return Double.compare(aOther.value, value);
+    }
+}
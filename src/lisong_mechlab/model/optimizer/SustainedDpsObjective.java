@@ -0,0 +1,57 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.optimizer;
+
+import java.util.Collection;
+
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.item.WeaponStat;
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.metrics.HeatDissipation;
+import lisong_mechlab.model.metrics.MaxSustainedDPS;
+import lisong_mechlab.model.modifiers.Modifier;
+
+/**
+ * This {@link Objective} maximises the {@link MaxSustainedDPS} at a given range.
+ * 
+ * @author Emily Björk
+ */
+public class SustainedDpsObjective implements Objective {
+    private final double range;
+
+    /**
+     * @param aRange
+     *            The range to optimise for [m].
+     */
+    public SustainedDpsObjective(double aRange) {
+        range = aRange;
+    }
+
+    @Override
+    public double evaluate(LoadoutBase<?> aLoadout) {
+        return new MaxSustainedDPS(aLoadout, new HeatDissipation(aLoadout, null)).calculate(range);
+    }
+
+    @Override
+    public double getWeaponBound(Weapon aWeapon, Collection<Modifier> aModifiers) {
+        // Each weapon is fired at most every time it's available.
+        return aWeapon.getRangeEffectivity(range, aModifiers) * WeaponStat.DAMAGE_PER_SECOND.evaluate(aWeapon, aModifiers);
+    }
+}
@@ -32,6 +32,7 @@ public class Upgrades {
     protected StructureUpgrade structureType = UpgradeDB.STANDARD_STRUCTURE;
     protected GuidanceUpgrade  guidanceType  = UpgradeDB.STANDARD_GUIDANCE;
     protected HeatSinkUpgrade  heatSinkType  = UpgradeDB.STANDARD_HEATSINKS;
+    private transient int      version;
 
     public static class UpgradesMessage implements Message {
         public final ChangeMsg msg;
@@ -133,6 +134,21 @@ public class Upgrades {
      */
     void setGuidance(GuidanceUpgrade aGuidanceUpgrade) {
         guidanceType = aGuidanceUpgrade;
+        changed();
+    }
+
+    /**
+     * @return A number that changes every time any of the upgrades is changed.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Must be called by all methods that change the upgrades.
+     */
+    void changed() {
+        version++;
     }
 
 }
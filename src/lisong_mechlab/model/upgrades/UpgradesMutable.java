@@ -68,6 +68,7 @@ public class UpgradesMutable extends Upgrades {
      */
     void setHeatSink(HeatSinkUpgrade aHeatsinkUpgrade) {
         heatSinkType = aHeatsinkUpgrade;
+        changed();
     }
 
     /**
@@ -80,6 +81,7 @@ public class UpgradesMutable extends Upgrades {
      */
     void setStructure(StructureUpgrade aStructureUpgrade) {
         structureType = aStructureUpgrade;
+        changed();
     }
 
     /**
@@ -92,5 +94,6 @@ public class UpgradesMutable extends Upgrades {
      */
     void setArmor(ArmorUpgrade anArmorUpgrade) {
         armorType = anArmorUpgrade;
+        changed();
     }
 }
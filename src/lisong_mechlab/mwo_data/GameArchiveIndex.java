@@ -0,0 +1,342 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.mwo_data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An index of all the entries in all the archives of a game install. The index maps game relative paths (case
+ * insensitively) to the archive and archive entry that contains the file.
+ * <p>
+ * The index can be persisted to disk and is considered valid for as long as the set of archives and their
+ * modification times and sizes are unchanged. This means that the archives only have to be scanned once per game
+ * version.
+ *
+ * @author Emily Björk
+ */
+class GameArchiveIndex {
+    private static final int MAGIC          = 0x4C534149; // "LSAI"
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Describes one archive in the index.
+     */
+    static class Archive {
+        final File   file;
+        final String relativePath;
+        final long   lastModified;
+        final long   size;
+
+        Archive(File aFile, String aRelativePath, long aLastModified, long aSize) {
+            file = aFile;
+            relativePath = aRelativePath;
+            lastModified = aLastModified;
+            size = aSize;
+        }
+    }
+
+    /**
+     * Describes one file inside of an archive.
+     */
+    static class Entry {
+        /** The archive that contains this entry. */
+        final Archive archive;
+        /** The name of the entry in the archive, exactly as written in the archive. */
+        final String  entryName;
+        /** The path relative to the game root, with '/' as separator and in the original case. */
+        final String  gamePath;
+        final long    crc32;
+        final long    size;
+
+        Entry(Archive aArchive, String aEntryName, String aGamePath, long aCrc32, long aSize) {
+            archive = aArchive;
+            entryName = aEntryName;
+            gamePath = aGamePath;
+            crc32 = aCrc32;
+            size = aSize;
+        }
+    }
+
+    private final Path                             gameRoot;
+    private final List<Archive>                    archives;
+    private final Map<String, Entry>               entries     = new HashMap<>();
+    private final Map<String, Map<String, String>> directories = new HashMap<>();
+
+    private GameArchiveIndex(Path aGameRoot, List<Archive> aArchives) {
+        gameRoot = aGameRoot;
+        archives = aArchives;
+    }
+
+    /**
+     * Loads the index from the given file if it is up to date with the archives in the game install. Otherwise the
+     * archives are scanned and the new index is written to the given file.
+     *
+     * @param aGameRoot
+     *            The root of the game install.
+     * @param aIndexFile
+     *            The file to store the index in, may be <code>null</code> in which case the index isn't persisted.
+     * @param aLog
+     *            A {@link Writer} to report a failure to store the index to. Can be <code>null</code>.
+     * @return A {@link GameArchiveIndex} that is up to date with the game install.
+     * @throws IOException
+     *             If the archives couldn't be scanned.
+     */
+    static GameArchiveIndex load(Path aGameRoot, File aIndexFile, Writer aLog) throws IOException {
+        List<Archive> archives = findArchives(aGameRoot);
+        if (null != aIndexFile && aIndexFile.isFile()) {
+            try {
+                GameArchiveIndex index = read(aGameRoot, archives, aIndexFile);
+                if (null != index) {
+                    return index;
+                }
+            }
+            catch (IOException e) {
+                // Corrupt or from an old version of LSML, rebuild it.
+            }
+        }
+
+        GameArchiveIndex index = scan(aGameRoot, archives);
+        if (null != aIndexFile) {
+            try {
+                index.write(aIndexFile);
+            }
+            catch (IOException e) {
+                // The index is only a cache, the game files can still be read.
+                if (null != aLog) {
+                    aLog.append("Unable to write game archive index: ").append(e.toString())
+                            .append(System.lineSeparator());
+                    aLog.flush();
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @param aGamePath
+     *            A path relative to the game root.
+     * @return The {@link Entry} for the given path or <code>null</code> if no archive contains the path.
+     */
+    Entry find(File aGamePath) {
+        return entries.get(key(aGamePath.getPath()));
+    }
+
+    /**
+     * @param aGamePath
+     *            A path relative to the game root.
+     * @return The names (in original case) of all files and directories immediately under the given path that are
+     *         contained inside of archives.
+     */
+    Collection<String> list(File aGamePath) {
+        Map<String, String> children = directories.get(key(aGamePath.getPath()));
+        if (null == children) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(children.values());
+    }
+
+    /**
+     * @return The number of entries in the index.
+     */
+    int size() {
+        return entries.size();
+    }
+
+    private void add(Entry aEntry) {
+        String lowerPath = key(aEntry.gamePath);
+        if (entries.containsKey(lowerPath)) {
+            return; // Archives are scanned in path order, the first one wins.
+        }
+        entries.put(lowerPath, aEntry);
+
+        // Register the entry and all its parent directories in the directory listing.
+        String path = aEntry.gamePath;
+        int separator = path.lastIndexOf('/');
+        while (separator > 0) {
+            String parent = path.substring(0, separator);
+            String child = path.substring(separator + 1);
+            Map<String, String> children = directories.get(key(parent));
+            if (null == children) {
+                children = new TreeMap<>();
+                directories.put(key(parent), children);
+            }
+            boolean known = children.containsKey(child.toLowerCase());
+            if (!known && !child.isEmpty()) {
+                children.put(child.toLowerCase(), child);
+            }
+            if (known) {
+                break; // The parents have already been registered.
+            }
+            path = parent;
+            separator = path.lastIndexOf('/');
+        }
+    }
+
+    private static String key(String aPath) {
+        return aPath.replace('\\', '/').toLowerCase();
+    }
+
+    private static List<Archive> findArchives(Path aGameRoot) throws IOException {
+        List<Archive> ans = new ArrayList<>();
+        findArchives(aGameRoot, new File(aGameRoot.toFile(), "Game"), ans);
+        return ans;
+    }
+
+    private static void findArchives(Path aGameRoot, File aDirectory, List<Archive> aOutput) throws IOException {
+        File[] files = aDirectory.listFiles();
+        if (null == files) {
+            return;
+        }
+        // Directory listings are not ordered, sort them so that the index is deterministic.
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                findArchives(aGameRoot, file, aOutput);
+            }
+            else {
+                String name = file.getName().toLowerCase();
+                if (name.endsWith(".pak") && !name.contains("french")) {
+                    String relativePath = aGameRoot.relativize(file.toPath()).toString().replace('\\', '/');
+                    aOutput.add(new Archive(file, relativePath, file.lastModified(), file.length()));
+                }
+            }
+        }
+    }
+
+    private static GameArchiveIndex scan(Path aGameRoot, List<Archive> aArchives) {
+        GameArchiveIndex index = new GameArchiveIndex(aGameRoot, aArchives);
+        for (Archive archive : aArchives) {
+            String prefix = parentOf(archive.relativePath);
+            try (ZipFile zipFile = new ZipFile(archive.file)) {
+                Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+                while (zipEntries.hasMoreElements()) {
+                    ZipEntry zipEntry = zipEntries.nextElement();
+                    if (zipEntry.isDirectory()) {
+                        continue;
+                    }
+                    String name = zipEntry.getName();
+                    index.add(new Entry(archive, name, prefix + name.replace('\\', '/'), zipEntry.getCrc(), zipEntry
+                            .getSize()));
+                }
+            }
+            catch (IOException exception) {
+                System.err.println(exception);
+            }
+        }
+        return index;
+    }
+
+    private static String parentOf(String aRelativePath) {
+        int separator = aRelativePath.lastIndexOf('/');
+        return separator < 0 ? "" : aRelativePath.substring(0, separator + 1);
+    }
+
+    private static GameArchiveIndex read(Path aGameRoot, List<Archive> aArchives, File aIndexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(aIndexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!in.readUTF().equals(aGameRoot.toAbsolutePath().toString())) {
+                return null;
+            }
+
+            int numArchives = in.readInt();
+            if (numArchives != aArchives.size()) {
+                return null;
+            }
+            for (Archive archive : aArchives) {
+                if (!in.readUTF().equals(archive.relativePath) || in.readLong() != archive.lastModified
+                        || in.readLong() != archive.size) {
+                    return null;
+                }
+            }
+
+            GameArchiveIndex index = new GameArchiveIndex(aGameRoot, aArchives);
+            int numEntries = in.readInt();
+            for (int i = 0; i < numEntries; ++i) {
+                int archiveIndex = in.readInt();
+                if (archiveIndex < 0 || archiveIndex >= numArchives) {
+                    throw new IOException("Corrupt game archive index!");
+                }
+                Archive archive = aArchives.get(archiveIndex);
+                String name = in.readUTF();
+                long crc32 = in.readLong();
+                long size = in.readLong();
+                index.add(new Entry(archive, name, parentOf(archive.relativePath) + name.replace('\\', '/'), crc32,
+                        size));
+            }
+            return index;
+        }
+    }
+
+    private void write(File aIndexFile) throws IOException {
+        Map<Archive, Integer> archiveIds = new HashMap<>();
+        for (Archive archive : archives) {
+            archiveIds.put(archive, archiveIds.size());
+        }
+
+        File tmp = new File(aIndexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(gameRoot.toAbsolutePath().toString());
+            out.writeInt(archives.size());
+            for (Archive archive : archives) {
+                out.writeUTF(archive.relativePath);
+                out.writeLong(archive.lastModified);
+                out.writeLong(archive.size);
+            }
+
+            Set<Map.Entry<String, Entry>> all = entries.entrySet();
+            out.writeInt(all.size());
+            for (Map.Entry<String, Entry> e : all) {
+                Entry entry = e.getValue();
+                out.writeInt(archiveIds.get(entry.archive));
+                out.writeUTF(entry.entryName);
+                out.writeLong(entry.crc32);
+                out.writeLong(entry.size);
+            }
+        }
+        Files.move(tmp.toPath(), aIndexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
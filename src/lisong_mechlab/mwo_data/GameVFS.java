@@ -24,10 +24,13 @@ import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
 import static java.nio.file.FileVisitResult.TERMINATE;
 
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -35,13 +38,13 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -58,15 +61,22 @@ import lisong_mechlab.view.preferences.PreferenceStore;
  * 
  * @author Emily Björk
  */
-public class GameVFS {
-    public static final File      ITEM_STATS_XML  = new File("Game/Libs/Items/ItemStats.xml");
-    public static final File      MECH_ID_MAP_XML = new File("Game/Libs/Items/MechIDMap.xml");
-    public static final File      MDF_ROOT        = new File("Game/Objects/mechs/");
-
-    private final Map<File, File> entryCache      = new HashMap<File, File>();
-    private static Path           gamePath;
-
-    public static class GameFile {
+public class GameVFS implements Closeable {
+    public static final File        ITEM_STATS_XML    = new File("Game/Libs/Items/ItemStats.xml");
+    public static final File        MECH_ID_MAP_XML   = new File("Game/Libs/Items/MechIDMap.xml");
+    public static final File        MDF_ROOT          = new File("Game/Objects/mechs/");
+
+    private static final int        MAX_OPEN_ARCHIVES = 8;
+
+    private final GameVFS           root;
+    private final ZipFilePool       archivePool;
+    private final File              indexFile;
+    private final Writer            log;
+    private final Map<String, Long> readLog;
+    private GameArchiveIndex        index;
+    private static Path             gamePath;
+
+    public static class GameFile implements Closeable {
         public final InputStream stream;
         public final long        crc32;
         public final String      path;
@@ -76,37 +86,244 @@ public class GameVFS {
             crc32 = aCrc32;
             path = aPath;
         }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
     }
 
+    /**
+     * Streams an archive entry while computing its CRC32. The CRC is verified against the archive index when the end
+     * of the entry is reached or, at the latest, when the stream is closed. Closing the stream returns the archive to
+     * the pool.
+     */
+    private static class EntryInputStream extends CheckedInputStream {
+        private final ZipFilePool.Lease lease;
+        private final long              expectedCrc32;
+        private final File              path;
+        private boolean                 closed = false;
+
+        EntryInputStream(InputStream aInflater, ZipFilePool.Lease aLease, long aCrc32, File aPath) {
+            super(aInflater, new CRC32());
+            lease = aLease;
+            expectedCrc32 = aCrc32;
+            path = aPath;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int ans = super.read();
+            if (ans < 0) {
+                verify();
+            }
+            return ans;
+        }
+
+        @Override
+        public int read(byte[] aBuffer, int aOffset, int aLength) throws IOException {
+            int ans = super.read(aBuffer, aOffset, aLength);
+            if (ans < 0) {
+                verify();
+            }
+            return ans;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                // XML parsers stop at the end of the root element, read the rest so that the CRC covers all of it.
+                byte[] buffer = new byte[8 * 1024];
+                while (super.read(buffer, 0, buffer.length) >= 0) {
+                    // Drain
+                }
+                verify();
+            }
+            finally {
+                try {
+                    super.close();
+                }
+                finally {
+                    lease.close();
+                }
+            }
+        }
+
+        private void verify() throws IOException {
+            if (getChecksum().getValue() != expectedCrc32) {
+                throw new IOException("CRC mismatch while reading (" + path + "), the game files have changed!");
+            }
+        }
+    }
+
+    /**
+     * Creates a {@link GameVFS} that doesn't persist the archive index.
+     * 
+     * @param gameDir
+     *            The root directory of the game install.
+     * @throws IOException
+     *             If <code>gameDir</code> is not a valid game directory.
+     */
     public GameVFS(File gameDir) throws IOException {
+        this(gameDir, null);
+    }
+
+    /**
+     * @param gameDir
+     *            The root directory of the game install.
+     * @param aIndexFile
+     *            The file to persist the archive index to, or <code>null</code> to not persist the index.
+     * @throws IOException
+     *             If <code>gameDir</code> is not a valid game directory.
+     */
+    public GameVFS(File gameDir, File aIndexFile) throws IOException {
+        this(gameDir, aIndexFile, null);
+    }
+
+    /**
+     * @param gameDir
+     *            The root directory of the game install.
+     * @param aIndexFile
+     *            The file to persist the archive index to, or <code>null</code> to not persist the index.
+     * @param aLog
+     *            A {@link Writer} to report problems with the archive index to. Can be <code>null</code>.
+     * @throws IOException
+     *             If <code>gameDir</code> is not a valid game directory.
+     */
+    public GameVFS(File gameDir, File aIndexFile, Writer aLog) throws IOException {
         if (isValidGameDirectory(gameDir.toPath())) {
             gamePath = gameDir.toPath();
         }
         else {
             throw new FileNotFoundException("Not a valid game directory!");
         }
+        indexFile = aIndexFile;
+        log = aLog;
+        archivePool = new ZipFilePool(MAX_OPEN_ARCHIVES);
+        root = this;
+        readLog = null;
+    }
+
+    private GameVFS(GameVFS aRoot, Map<String, Long> aReadLog) {
+        root = aRoot;
+        archivePool = aRoot.archivePool;
+        indexFile = aRoot.indexFile;
+        log = aRoot.log;
+        readLog = aReadLog;
     }
 
     /**
-     * Will list the files in the given path under the game root.
+     * Creates a view of this {@link GameVFS} that records the checksum of every file that is opened and every
+     * directory that is listed through it. The recorded paths can be passed to {@link #getChecksum(String)} to detect
+     * if the file has changed.
      * <p>
-     * NOTE: This currently only works with paths that are not inside of archives
-     * </p>
+     * The view shares the archive index and the open archives with this {@link GameVFS} and doesn't need to be
+     * closed.
+     * 
+     * @param aReadLog
+     *            A {@link Map} to record path and checksum pairs into. Must be thread safe if the view is used from
+     *            multiple threads.
+     * @return A new {@link GameVFS} view.
+     */
+    public GameVFS recordReads(Map<String, Long> aReadLog) {
+        return new GameVFS(root, aReadLog);
+    }
+
+    /**
+     * Determines the current checksum of a path that has been recorded by {@link #recordReads(Map)}.
+     * 
+     * @param aPath
+     *            The recorded path.
+     * @return The CRC32 of the file, or of the directory listing for directories, or -1 if the file doesn't exist.
+     * @throws IOException
+     *             If the archive index couldn't be loaded.
+     */
+    public long getChecksum(String aPath) throws IOException {
+        if (aPath.endsWith("/")) {
+            return listingChecksum(listing(new File(aPath)));
+        }
+        GameArchiveIndex.Entry entry = getIndex().find(new File(aPath));
+        return null == entry ? -1 : entry.crc32;
+    }
+
+    /**
+     * Will list the files in the given path under the game root. Both plain files and files inside of archives are
+     * listed.
      * 
      * @param aPath
      *            The path to list in.
      * @return An array of {@link File} objects or null if no files were found.
+     * @throws IOException
+     *             If the archive index couldn't be loaded.
      */
-    public File[] listGameDir(File aPath) {
-        File target = gamePath.resolve(aPath.toPath()).toFile();
+    public File[] listGameDir(File aPath) throws IOException {
+        Map<String, File> ans = listing(aPath);
+        if (null != readLog) {
+            readLog.put(aPath.getPath().replace('\\', '/') + "/", listingChecksum(ans));
+        }
 
+        if (ans.isEmpty()) {
+            return null;
+        }
+        return ans.values().toArray(new File[ans.size()]);
+    }
+
+    private Map<String, File> listing(File aPath) throws IOException {
+        Map<String, File> ans = new TreeMap<>();
+
+        File target = gamePath.resolve(aPath.toPath()).toFile();
         File files[] = target.listFiles();
         if (files != null) {
-            for (int i = 0; i < files.length; ++i) {
-                files[i] = gamePath.relativize(files[i].toPath()).toFile();
+            for (File file : files) {
+                ans.put(file.getName().toLowerCase(), gamePath.relativize(file.toPath()).toFile());
             }
         }
-        return files;
+
+        for (String child : getIndex().list(aPath)) {
+            if (!ans.containsKey(child.toLowerCase())) {
+                ans.put(child.toLowerCase(), new File(aPath, child));
+            }
+        }
+        return ans;
+    }
+
+    private static long listingChecksum(Map<String, File> aListing) {
+        CRC32 crc = new CRC32();
+        for (String name : aListing.keySet()) {
+            crc.update(name.getBytes(StandardCharsets.UTF_8));
+            crc.update('/');
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Checks if the given game data file exists inside of any archive.
+     * 
+     * @param aPath
+     *            The path to the file to check, with archive file names expanded.
+     * @return <code>true</code> if the file exists.
+     * @throws IOException
+     *             If the archive index couldn't be loaded.
+     */
+    public boolean exists(File aPath) throws IOException {
+        return null != getIndex().find(aPath);
+    }
+
+    /**
+     * Closes all archives that are held open by this {@link GameVFS}.
+     * 
+     * @throws IOException
+     *             If an archive couldn't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (root == this) {
+            archivePool.closeAll();
+        }
     }
 
     /**
@@ -129,107 +346,86 @@ public class GameVFS {
         // }
         // }
 
-        // Try looking in archive cache
-        File sourceArchive = null;
-        synchronized (entryCache) {
-            sourceArchive = entryCache.get(aPath);
-
-            if (null == sourceArchive) {
-                // Cache miss! Update cache
-                search(aPath, new File(gamePath.toFile(), "Game"));
-
-                // Try again
-                sourceArchive = entryCache.get(aPath);
-                if (sourceArchive == null) {
-                    throw new IOException("Failed to find sought for file (" + aPath
-                            + ") in the game files, this is most likely a bug!");
+        GameArchiveIndex.Entry entry = findEntry(aPath);
+        int size = (int) entry.size;
+        byte[] buffer = new byte[size];
+        try (InputStream is = openEntry(entry, aPath)) {
+            int bytesRead = 0;
+            while (bytesRead < size) {
+                int res = is.read(buffer, bytesRead, size - bytesRead);
+                if (-1 == res) {
+                    throw new IOException("Couldn't read entire file!");
                 }
+                bytesRead += res;
             }
-        }
-
-        byte[] buffer = null;
-        long crc32 = -1;
-        try (ZipFile zipFile = new ZipFile(sourceArchive)) {
-
-            String archivePath = gamePath.relativize(sourceArchive.getParentFile().toPath()).relativize(aPath.toPath())
-                    .toString();
-            // Fix windows...
-            archivePath = archivePath.replaceAll("\\\\", "/");
-
-            ZipEntry entry = zipFile.getEntry(archivePath);
-            if (null == entry) {
-                Enumeration<? extends ZipEntry> entries = zipFile.entries();
-                // Apparently PGI is still as lousy as ever at being consistent with case so, manually check if we can
-                // find a case-insensitive match before giving up
-                while (entries.hasMoreElements()) {
-                    ZipEntry nextEntry = entries.nextElement();
-                    String next = nextEntry.getName();
-                    if (archivePath.equalsIgnoreCase(next)) {
-                        entry = nextEntry;
-                        break;
-                    }
-                }
-                if (null == entry){
-                    throw new IOException("Failed to find sought for file (" + aPath
-                            + ") in the game files, this is most likely a bug!");
-                }
-            }
-            int size = (int) entry.getSize();
-            buffer = new byte[size];
-            crc32 = entry.getCrc();
-
-            try (InputStream is = zipFile.getInputStream(entry);) {
-                int bytesRead = 0;
-                while (bytesRead < size) {
-                    int res = is.read(buffer, bytesRead, size - bytesRead);
-                    if (-1 == res) {
-                        throw new IOException("Couldn't read entire file!");
-                    }
-                    bytesRead += res;
-                }
+            if (-1 != is.read()) { // Also verifies the CRC
+                throw new IOException("File (" + aPath + ") is larger than expected!");
             }
         }
-        return new GameFile(new ByteArrayInputStream(buffer), crc32, aPath.toString());
+        return new GameFile(new ByteArrayInputStream(buffer), entry.crc32, aPath.toString());
     }
 
-    private void search(File aLocalPath, File aSearchRoot) throws IOException {
-        synchronized (entryCache) {
+    /**
+     * Will open a streaming input stream to the given game data file. Unlike {@link #openGameFile(File)} the file is
+     * not buffered in memory but decompressed as it is being read, this is preferable for large files.
+     * <p>
+     * The returned {@link GameFile} must be closed after use.
+     * 
+     * @param aPath
+     *            The path to the file to open, with archive file names expanded. For example
+     *            "Game/Localized/Languages/TheRealLoc.xml"
+     * @return A {@link GameFile} with a streaming {@link InputStream} to the requested file.
+     * @throws IOException
+     *             If the file couldn't be found or opened. The stream will throw if the CRC of the read data doesn't
+     *             match.
+     */
+    public GameFile streamGameFile(File aPath) throws IOException {
+        GameArchiveIndex.Entry entry = findEntry(aPath);
+        return new GameFile(openEntry(entry, aPath), entry.crc32, aPath.toString());
+    }
 
-            Collection<File> visitedArchives = entryCache.values();
-            Path relativePath = gamePath.relativize(aSearchRoot.toPath());
+    private GameArchiveIndex.Entry findEntry(File aPath) throws IOException {
+        GameArchiveIndex.Entry entry = getIndex().find(aPath);
+        if (null == entry) {
+            throw new IOException("Failed to find sought for file (" + aPath
+                    + ") in the game files, this is most likely a bug!");
+        }
+        if (null != readLog) {
+            readLog.put(aPath.getPath().replace('\\', '/'), entry.crc32);
+        }
+        return entry;
+    }
 
-            for (File file : aSearchRoot.listFiles()) {
-                if (file.isDirectory()) {
-                    search(aLocalPath, file);
-                }
-                else {
-                    if (visitedArchives.contains(file)) {
-                        continue;
-                    }
-                    if (file.getName().toLowerCase().endsWith(".pak")
-                            && !file.getName().toLowerCase().contains("french")) {
-                        ZipFile zipFile = null;
-                        try {
-                            zipFile = new ZipFile(file);
-                            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-                            while (entries.hasMoreElements()) {
-                                File key = new File(relativePath.toFile(), entries.nextElement().toString());
-                                entryCache.put(key, file);
-                            }
-                        }
-                        catch (IOException exception) {
-                            System.err.println(exception);
-                        }
-                        finally {
-                            if (null != zipFile)
-                                zipFile.close();
-                        }
-                        if (entryCache.containsKey(aLocalPath)) {
-                            break; // We have put the sought for key into the cache.
-                        }
-                    }
-                }
+    private InputStream openEntry(GameArchiveIndex.Entry aEntry, File aPath) throws IOException {
+        ZipFilePool.Lease lease = archivePool.acquire(aEntry.archive.file);
+        try {
+            ZipFile zipFile = lease.getZipFile();
+            ZipEntry zipEntry = zipFile.getEntry(aEntry.entryName);
+            if (null == zipEntry) {
+                throw new IOException("Archive " + aEntry.archive.file + " changed while reading (" + aPath + ")!");
+            }
+            return new EntryInputStream(zipFile.getInputStream(zipEntry), lease, aEntry.crc32, aPath);
+        }
+        catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The archive index, loading or building it on first use.
+     * @throws IOException
+     *             If the index couldn't be built.
+     */
+    private GameArchiveIndex getIndex() throws IOException {
+        if (root != this) {
+            return root.getIndex();
+        }
+        synchronized (this) {
+            if (null == index) {
+                index = GameArchiveIndex.load(gamePath, indexFile, log);
             }
+            return index;
         }
     }
 
@@ -21,14 +21,17 @@ package lisong_mechlab.mwo_data;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
-import lisong_mechlab.model.DataCache;
-import lisong_mechlab.mwo_data.helpers.Workbook;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.mapper.MapperWrapper;
+import lisong_mechlab.model.DataCache;
+import lisong_mechlab.mwo_data.GameVFS.GameFile;
 
 /**
  * This class will provide localization (and implicitly all naming) of items through the MWO data files.
@@ -38,7 +41,8 @@ import com.thoughtworks.xstream.mapper.MapperWrapper;
  * @author Emily
  */
 public class Localization {
-    private static Map<String, String> key2string = null;
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static Map<String, String>   key2string        = null;
 
     public static String key2string(String aKey) {
         String canon = canonize(aKey);
@@ -84,76 +88,97 @@ public class Localization {
     }
 
     public static void initialize(GameVFS aGameVFS) throws IOException {
-        key2string = new HashMap<String, String>();
+        Map<String, String> ans = new HashMap<String, String>();
 
         File[] files = new File[] { new File("Game/Localized/Languages/TheRealLoc.xml") };
         /*
          * , new File("Game/Localized/Languages/ui_Mech_Loc.xml"), new File("Game/Localized/Languages/General.xml"), new
          * File("Game/Localized/Languages/Mechlab.xml"), new File("Game/Localized/Languages/text_ui_menus.xml")};
          */
-        /*
-         * for(File file : files){ try{ XmlReader reader = new XmlReader(dataFile.openGameFile(file)); for(Element row :
-         * reader.getElementsByTagName("Row")){ List<Element> cells = reader.getElementsByTagName("Cell", row); if(
-         * cells.size() < 3 || !cells.get(0).getAttribute("ss:Index").equals("2") ){ continue; } List<Element> data0 =
-         * reader.getElementsByTagName("Data", cells.get(0)); List<Element> data2 = reader.getElementsByTagName("Data",
-         * cells.get(2)); if( data0.size() != 1 || data2.size() != 1 ){ continue; } String tag0 =
-         * canonize(reader.getTagValue("Data", cells.get(0))); String tag2 = reader.getTagValue("Data", cells.get(2));
-         * key2string.put(tag0, tag2); System.out.println(file + " ## " + tag0 + " = " + tag2); } } catch( Exception e
-         * ){ throw new RuntimeException(e); } }
-         */
-
-        XStream xstream = new XStream() {
-            @Override
-            protected MapperWrapper wrapMapper(MapperWrapper next) {
-                return new MapperWrapper(next) {
-                    @Override
-                    public boolean shouldSerializeMember(Class definedIn, String fieldName) {
-                        if (definedIn == Object.class) {
-                            return false;
-                        }
-                        return super.shouldSerializeMember(definedIn, fieldName);
-                    }
-                };
-            }
-        };
-        xstream.alias("Workbook", Workbook.class);
-        xstream.autodetectAnnotations(true);
         for (File file : files) {
-            Workbook workbook = (Workbook) xstream.fromXML(aGameVFS.openGameFile(file).stream);
-            for (Workbook.Worksheet.Table.Row row : workbook.Worksheet.Table.rows) { // Skip past junk
-                if (row.cells == null || row.cells.size() < 1) {
-                    // debugprintrow(row);
-                    continue;
-                }
-                if (row.cells.get(0).Data == null) {
-                    // debugprintrow(row);
-                    continue;
-                }
-                if (row.cells.size() >= 2) {
-                    String key = row.cells.get(0).Data;
-                    String data = row.cells.get(1).Data;
-                    if (data == null || data.length() < 2) {
-                        debugprintrow(row);
-                    }
-                    String canonname = canonize(key);
-                    key2string.put(canonname, data);
-                }
-                else {
-                    debugprintrow(row); // Debug Breakpoint
-                }
+            try (GameFile gameFile = aGameVFS.streamGameFile(file)) {
+                parseWorkbook(gameFile.stream, ans);
+            }
+            catch (XMLStreamException e) {
+                throw new IOException("Unable to parse localization file: " + file, e);
             }
         }
-
+        key2string = ans;
     }
 
-    @SuppressWarnings("unused")
-    static private void debugprintrow(Workbook.Worksheet.Table.Row row) {
-        // if( row.cells != null ){
-        // System.out.print("{");
-        // for(Workbook.Worksheet.Table.Row.Cell cell : row.cells){
-        // System.out.print(cell.Data + "##");
-        // }
-        // System.out.println("}");
-        // }
+    /**
+     * Pull-parses a SpreadsheetML work book and adds the first two columns of every row as key and value. Only the
+     * text of the first two cells of each row is kept in memory.
+     * 
+     * @param aInputStream
+     *            The stream to parse.
+     * @param aOutput
+     *            The {@link Map} to put the canonized keys and values into.
+     * @throws XMLStreamException
+     *             If the XML is malformed.
+     */
+    static void parseWorkbook(InputStream aInputStream, Map<String, String> aOutput) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(aInputStream);
+        try {
+            int cell = -1; // Index of current cell in the row, -1 outside of rows.
+            int depth = 0; // Nesting depth inside of a Data element, 0 outside.
+            String key = null;
+            String value = null;
+            StringBuilder data = new StringBuilder();
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (depth > 0) {
+                            depth++;
+                        }
+                        else if ("Row".equals(reader.getLocalName())) {
+                            cell = 0;
+                            key = null;
+                            value = null;
+                        }
+                        else if (cell >= 0 && "Cell".equals(reader.getLocalName())) {
+                            cell++;
+                        }
+                        else if (cell >= 1 && cell <= 2 && "Data".equals(reader.getLocalName())) {
+                            depth = 1;
+                            data.setLength(0);
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (depth > 0) {
+                            data.append(reader.getText());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (depth > 0) {
+                            depth--;
+                            if (depth == 0) {
+                                if (cell == 1) {
+                                    key = data.toString();
+                                }
+                                else {
+                                    value = data.toString();
+                                }
+                            }
+                        }
+                        else if (cell >= 0 && "Row".equals(reader.getLocalName())) {
+                            // Rows without a key in the first cell or with only one cell are junk.
+                            if (null != key && cell >= 2) {
+                                aOutput.put(canonize(key), value);
+                            }
+                            cell = -1;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
     }
 }
@@ -74,7 +74,6 @@ public class XMLPilotTalents {
     public List<XMLTalent> talents;
 
     public static XMLPilotTalents read(GameVFS aGameVfs) throws IOException {
-        GameFile gameFile = aGameVfs.openGameFile(new File("Game/Libs/MechPilotTalents/PilotTalents.xml"));
         XStream xstream = new XStream(new StaxDriver(new NoNameCoder())) {
             @Override
             protected MapperWrapper wrapMapper(MapperWrapper next) {
@@ -94,7 +93,9 @@ public class XMLPilotTalents {
         xstream.alias("Talent", XMLTalent.class);
         xstream.alias("Rank", XMLRank.class);
 
-        return (XMLPilotTalents) xstream.fromXML(gameFile.stream);
+        try (GameFile gameFile = aGameVfs.streamGameFile(new File("Game/Libs/MechPilotTalents/PilotTalents.xml"))) {
+            return (XMLPilotTalents) xstream.fromXML(gameFile.stream);
+        }
     }
 
     public XMLTalent getTalent(int aTalentId) {
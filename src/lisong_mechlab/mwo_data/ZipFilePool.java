@@ -0,0 +1,151 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.mwo_data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+/**
+ * A bounded pool of open {@link ZipFile}s. Opening a {@link ZipFile} reads the entire central directory of the
+ * archive so keeping the handles open makes repeated reads from the same archive much cheaper.
+ * <p>
+ * Handles are leased with {@link #acquire(File)} and must be returned by calling {@link Lease#close()}. When the pool
+ * is full, the least recently used handle is closed as soon as it is no longer leased.
+ *
+ * @author Emily Björk
+ */
+class ZipFilePool {
+    /**
+     * A lease of an open {@link ZipFile}, closing the lease returns the handle to the pool.
+     */
+    class Lease implements Closeable {
+        private final Handle handle;
+        private boolean      released = false;
+
+        Lease(Handle aHandle) {
+            handle = aHandle;
+        }
+
+        ZipFile getZipFile() {
+            return handle.zipFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (ZipFilePool.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                handle.leases--;
+                if (handle.evicted && handle.leases == 0) {
+                    handle.zipFile.close();
+                }
+            }
+        }
+    }
+
+    private static class Handle {
+        final ZipFile zipFile;
+        int           leases  = 0;
+        boolean       evicted = false;
+
+        Handle(ZipFile aZipFile) {
+            zipFile = aZipFile;
+        }
+    }
+
+    private final int               capacity;
+    private final Map<File, Handle> handles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param aCapacity
+     *            The maximal number of {@link ZipFile}s to keep open when they are not leased.
+     */
+    ZipFilePool(int aCapacity) {
+        if (aCapacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1!");
+        capacity = aCapacity;
+    }
+
+    /**
+     * Leases an open {@link ZipFile} for the given archive, opening it if necessary.
+     *
+     * @param aArchive
+     *            The archive to open.
+     * @return A {@link Lease} of the {@link ZipFile}. Must be closed after use.
+     * @throws IOException
+     *             If the archive couldn't be opened.
+     */
+    synchronized Lease acquire(File aArchive) throws IOException {
+        Handle handle = handles.get(aArchive);
+        if (null == handle) {
+            handle = new Handle(new ZipFile(aArchive));
+            handles.put(aArchive, handle);
+            evict();
+        }
+        handle.leases++;
+        return new Lease(handle);
+    }
+
+    /**
+     * @return The number of currently open archives in the pool.
+     */
+    synchronized int size() {
+        return handles.size();
+    }
+
+    /**
+     * Closes all archives that are not leased and marks the remaining to be closed when their leases are returned.
+     *
+     * @throws IOException
+     *             If closing an archive failed.
+     */
+    synchronized void closeAll() throws IOException {
+        List<Handle> all = new ArrayList<>(handles.values());
+        handles.clear();
+        for (Handle handle : all) {
+            release(handle);
+        }
+    }
+
+    private void evict() throws IOException {
+        Iterator<Handle> it = handles.values().iterator();
+        while (handles.size() > capacity && it.hasNext()) {
+            Handle handle = it.next();
+            it.remove();
+            release(handle);
+        }
+    }
+
+    private static void release(Handle aHandle) throws IOException {
+        aHandle.evicted = true;
+        if (aHandle.leases == 0) {
+            aHandle.zipFile.close();
+        }
+    }
+}
@@ -21,6 +21,8 @@ package lisong_mechlab.util.message;
 
 import java.lang.ref.WeakReference;
 
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
 import lisong_mechlab.util.message.Message.Recipient;
 
 /**
@@ -50,6 +52,33 @@ public interface MessageReception {
      */
     public void attach(WeakReference<Message.Recipient> aWeakReference);
 
+    /**
+     * Attaches a new {@link Message.Recipient} that only receives messages of the given class (or sub classes) that are
+     * for the given loadout as determined by {@link Message#isForMe(LoadoutBase)}. Like {@link #attach(Recipient)} only
+     * a weak reference is kept.
+     * 
+     * @param aReader
+     *            The {@link Message.Recipient} to add.
+     * @param aMessageClass
+     *            The class of messages to receive, {@link Message} for all messages.
+     * @param aLoadout
+     *            The loadout to receive messages for or <code>null</code> to receive messages for all loadouts.
+     */
+    public void attach(Message.Recipient aReader, Class<? extends Message> aMessageClass, LoadoutBase<?> aLoadout);
+
+    /**
+     * Attaches a new {@link Message.Recipient} that doesn't receive the individual messages for the given loadout.
+     * Instead all messages for the loadout that are posted during one event are merged into one
+     * {@link LoadoutChangedMessage} which is delivered after the event. Like {@link #attach(Recipient)} only a weak
+     * reference is kept.
+     * 
+     * @param aReader
+     *            The {@link Message.Recipient} to add.
+     * @param aLoadout
+     *            The loadout to receive messages for, must not be <code>null</code>.
+     */
+    public void attachCoalesced(Message.Recipient aReader, LoadoutBase<?> aLoadout);
+
     /**
      * Detaches a {@link Message.Recipient} from the {@link MessageXBar}.
      * 
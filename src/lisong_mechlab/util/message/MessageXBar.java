@@ -23,14 +23,33 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
 
 /**
  * Implements a message passing framework for an UI where the components don't have to know about each other, only about
  * the crossbar.
+ * <p>
+ * Recipients attached with {@link #attach(Message.Recipient)} receive every message. Recipients attached with
+ * {@link #attach(Message.Recipient, Class, LoadoutBase)} are indexed by message class and loadout and only receive the
+ * messages they subscribed to, this way a message for one loadout doesn't have to be offered to the recipients of all
+ * other loadouts. Messages are delivered to broadcast recipients first and then to the subscribed recipients.
+ * <p>
+ * Recipients attached with {@link #attachCoalesced(Message.Recipient, LoadoutBase)} don't receive the individual
+ * messages. Instead all messages for their loadout are merged into one {@link LoadoutChangedMessage} which is delivered
+ * when the current event has been processed. This way a composite operation that posts tens of messages only causes
+ * one update.
  * 
  * @author Emily Björk
  */
@@ -43,6 +62,76 @@ public class MessageXBar implements MessageReception, MessageDelivery {
     private transient final List<WeakReference<Message.Recipient>>           readers       = new ArrayList<WeakReference<Message.Recipient>>();
     private boolean                                                          dispatching   = false;
     private transient final Queue<Message>                                   messages      = new ArrayDeque<>();
+    private transient final Map<Class<? extends Message>, Topic>             topics        = new LinkedHashMap<>();
+    private transient final Topic                                            coalesced     = new Topic();
+    private transient Map<LoadoutBase<?>, LoadoutChangedMessage>             pending       = new IdentityHashMap<>();
+    private transient final Executor                                         flushExecutor;
+    private transient final Runnable                                         flushTask;
+
+    /**
+     * The recipients that subscribed to one message class, by loadout. Recipients that subscribed to all loadouts are
+     * stored under the <code>null</code> loadout. Loadouts are compared by identity as they are mutable.
+     */
+    private static class Topic {
+        final Map<LoadoutBase<?>, List<WeakReference<Message.Recipient>>> subscriptions = new IdentityHashMap<>();
+
+        void add(LoadoutBase<?> aLoadout, Message.Recipient aReader) {
+            List<WeakReference<Message.Recipient>> subscription = subscriptions.get(aLoadout);
+            if (null == subscription) {
+                subscription = new ArrayList<>();
+                subscriptions.put(aLoadout, subscription);
+            }
+            subscription.add(new WeakReference<>(aReader));
+        }
+
+        /**
+         * Removes the given and all collected recipients. Loadouts that no one listens to any more are dropped so that
+         * they can be collected.
+         */
+        void remove(Message.Recipient aReader) {
+            Iterator<List<WeakReference<Message.Recipient>>> it = subscriptions.values().iterator();
+            while (it.hasNext()) {
+                List<WeakReference<Message.Recipient>> subscription = it.next();
+                Iterator<WeakReference<Message.Recipient>> refs = subscription.iterator();
+                while (refs.hasNext()) {
+                    Message.Recipient reader = refs.next().get();
+                    if (reader == null || reader == aReader)
+                        refs.remove();
+                }
+                if (subscription.isEmpty())
+                    it.remove();
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@link MessageXBar} that delivers coalesced messages at the end of the current event on the EDT.
+     */
+    public MessageXBar() {
+        this(new Executor() {
+            @Override
+            public void execute(Runnable aCommand) {
+                SwingUtilities.invokeLater(aCommand);
+            }
+        });
+    }
+
+    /**
+     * Creates a new {@link MessageXBar}.
+     * 
+     * @param aFlushExecutor
+     *            The {@link Executor} that is used to schedule the delivery of coalesced messages. It must run the
+     *            task on the same thread that posts messages after the current event.
+     */
+    public MessageXBar(Executor aFlushExecutor) {
+        flushExecutor = aFlushExecutor;
+        flushTask = new Runnable() {
+            @Override
+            public void run() {
+                flushCoalesced();
+            }
+        };
+    }
 
     @Override
     public void post(Message aMessage) {
@@ -62,31 +151,65 @@ public class MessageXBar implements MessageReception, MessageDelivery {
             throw new IllegalStateException("Recursive dispatch!");
         dispatching = true;
         try {
-            Iterator<WeakReference<Message.Recipient>> it = readers.iterator();
-            while (it.hasNext()) {
-                WeakReference<Message.Recipient> ref = it.next();
-                Message.Recipient reader = ref.get();
-                if (reader == null) {
-                    it.remove();
+            deliver(readers, aMessage);
+            for (Entry<Class<? extends Message>, Topic> topic : topics.entrySet()) {
+                if (!topic.getKey().isInstance(aMessage))
                     continue;
-                }
-                if (debug) {
-                    long startNs = System.nanoTime();
-                    reader.receive(aMessage);
-                    long endNs = System.nanoTime();
-                    Double v = perf_walltime.get(reader.getClass());
-                    Integer u = perf_calls.get(reader.getClass());
-                    if (v == null) {
-                        v = 0.0;
-                        u = 0;
+                for (Entry<LoadoutBase<?>, List<WeakReference<Message.Recipient>>> subscription : topic.getValue()
+                        .subscriptions.entrySet()) {
+                    if (subscription.getKey() == null || aMessage.isForMe(subscription.getKey())) {
+                        deliver(subscription.getValue(), aMessage);
                     }
-                    v += (endNs - startNs) / 1E9;
-                    u += 1;
-                    perf_walltime.put(reader.getClass(), v);
-                    perf_calls.put(reader.getClass(), u);
                 }
-                else {
-                    reader.receive(aMessage);
+            }
+            coalesce(aMessage);
+        }
+        catch (Throwable t) {
+            t.printStackTrace();
+        }
+        finally {
+            dispatching = false;
+        }
+    }
+
+    private void coalesce(Message aMessage) {
+        if (aMessage instanceof LoadoutChangedMessage)
+            return; // Already coalesced, don't loop.
+        for (LoadoutBase<?> loadout : coalesced.subscriptions.keySet()) {
+            if (!aMessage.isForMe(loadout))
+                continue;
+            LoadoutChangedMessage previous = pending.get(loadout);
+            if (null == previous) {
+                if (pending.isEmpty()) {
+                    flushExecutor.execute(flushTask);
+                }
+                pending.put(loadout, new LoadoutChangedMessage(loadout, aMessage));
+            }
+            else {
+                pending.put(loadout, previous.merge(aMessage));
+            }
+        }
+    }
+
+    /**
+     * Delivers all pending {@link LoadoutChangedMessage}s to the recipients attached with
+     * {@link #attachCoalesced(Message.Recipient, LoadoutBase)}. This is scheduled automatically when the first message
+     * is coalesced but may be called directly to deliver earlier.
+     */
+    public void flushCoalesced() {
+        if (dispatching)
+            throw new IllegalStateException("Flush from call to post!");
+        if (pending.isEmpty())
+            return;
+
+        Map<LoadoutBase<?>, LoadoutChangedMessage> toDeliver = pending;
+        pending = new IdentityHashMap<>();
+        dispatching = true;
+        try {
+            for (Entry<LoadoutBase<?>, LoadoutChangedMessage> entry : toDeliver.entrySet()) {
+                List<WeakReference<Message.Recipient>> subscription = coalesced.subscriptions.get(entry.getKey());
+                if (null != subscription) {
+                    deliver(subscription, entry.getValue());
                 }
             }
         }
@@ -96,6 +219,41 @@ public class MessageXBar implements MessageReception, MessageDelivery {
         finally {
             dispatching = false;
         }
+
+        // Recipients may have posted new messages while receiving
+        while (!messages.isEmpty()) {
+            dispatchMessage(messages.remove());
+        }
+    }
+
+    private void deliver(List<WeakReference<Message.Recipient>> aReaders, Message aMessage) {
+        Iterator<WeakReference<Message.Recipient>> it = aReaders.iterator();
+        while (it.hasNext()) {
+            WeakReference<Message.Recipient> ref = it.next();
+            Message.Recipient reader = ref.get();
+            if (reader == null) {
+                it.remove();
+                continue;
+            }
+            if (debug) {
+                long startNs = System.nanoTime();
+                reader.receive(aMessage);
+                long endNs = System.nanoTime();
+                Double v = perf_walltime.get(reader.getClass());
+                Integer u = perf_calls.get(reader.getClass());
+                if (v == null) {
+                    v = 0.0;
+                    u = 0;
+                }
+                v += (endNs - startNs) / 1E9;
+                u += 1;
+                perf_walltime.put(reader.getClass(), v);
+                perf_calls.put(reader.getClass(), u);
+            }
+            else {
+                reader.receive(aMessage);
+            }
+        }
     }
 
     @Override
@@ -119,6 +277,33 @@ public class MessageXBar implements MessageReception, MessageDelivery {
         readers.add(aWeakReference);
     }
 
+    @Override
+    public void attach(Message.Recipient aReader, Class<? extends Message> aMessageClass, LoadoutBase<?> aLoadout) {
+        if (dispatching)
+            throw new IllegalStateException("Attach from call to post!");
+
+        Topic topic = topics.get(aMessageClass);
+        if (null == topic) {
+            topic = new Topic();
+            topics.put(aMessageClass, topic);
+        }
+        else {
+            topic.remove(null); // Clean up collected recipients
+        }
+        topic.add(aLoadout, aReader);
+    }
+
+    @Override
+    public void attachCoalesced(Message.Recipient aReader, LoadoutBase<?> aLoadout) {
+        if (dispatching)
+            throw new IllegalStateException("Attach from call to post!");
+        if (null == aLoadout)
+            throw new NullPointerException("Coalesced messages are per loadout!");
+
+        coalesced.remove(null); // Clean up collected recipients
+        coalesced.add(aLoadout, aReader);
+    }
+
     @Override
     public void detach(Message.Recipient aReader) {
         if (dispatching)
@@ -131,6 +316,10 @@ public class MessageXBar implements MessageReception, MessageDelivery {
                 it.remove();
             }
         }
+        for (Topic topic : topics.values()) {
+            topic.remove(aReader);
+        }
+        coalesced.remove(aReader);
         dispatching = false;
     }
 }
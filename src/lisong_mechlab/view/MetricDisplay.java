@@ -25,14 +25,20 @@ import javax.swing.JLabel;
 import javax.swing.SwingUtilities;
 
 import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
+import lisong_mechlab.model.loadout.LoadoutMessage;
 import lisong_mechlab.model.metrics.Metric;
 import lisong_mechlab.model.metrics.RangeMetric;
 import lisong_mechlab.model.metrics.RangeTimeMetric;
+import lisong_mechlab.model.metrics.helpers.MetricEvaluator;
 import lisong_mechlab.util.message.Message;
 import lisong_mechlab.util.message.MessageXBar;
 
 /**
  * This class is a convenience for showing the results of a metric in a JLabel.
+ * <p>
+ * The metric is either calculated on the EDT every time the loadout changes or, if the display is created with a
+ * {@link MetricEvaluator}, in the background from which the results are published to this display.
  * 
  * @author Emily Björk
  */
@@ -43,6 +49,7 @@ public class MetricDisplay extends JLabel implements Message.Recipient {
     private final StringBuilder  sb               = new StringBuilder();
     private final String         format;
     private final boolean        percent;
+    private long                 loadoutVersion   = -1;
     protected final Metric       metric;
 
     public MetricDisplay(Metric aMetric, String aFormat, String aTooltip, MessageXBar anXBar, LoadoutBase<?> aLoadout) {
@@ -52,7 +59,7 @@ public class MetricDisplay extends JLabel implements Message.Recipient {
     public MetricDisplay(Metric aMetric, String aFormat, String aTooltip, MessageXBar anXBar, LoadoutBase<?> aLoadout,
             boolean aPercent) {
         loadout = aLoadout;
-        anXBar.attach(this);
+        anXBar.attachCoalesced(this, loadout);
         setToolTipText("<html><p width=\"300\">" +aTooltip+"</p></html>");
         formatter = new Formatter(sb);
         format = aFormat;
@@ -62,25 +69,99 @@ public class MetricDisplay extends JLabel implements Message.Recipient {
         updateText();
     }
 
+    /**
+     * Creates a new {@link MetricDisplay} that shows the results of a metric that is calculated in the background.
+     * The text is set when the first result has been published.
+     * 
+     * @param aEvaluator
+     *            The {@link MetricEvaluator} that calculates the metric.
+     * @param aFactory
+     *            The {@link MetricEvaluator.Factory} that creates the metric for each snapshot of the loadout.
+     * @param aFormat
+     *            The format string to show the value with.
+     * @param aTooltip
+     *            The tool tip of the display.
+     * @param aPercent
+     *            <code>true</code> if the value should be shown as percent.
+     */
+    public MetricDisplay(MetricEvaluator aEvaluator, MetricEvaluator.Factory aFactory, String aFormat,
+            String aTooltip, boolean aPercent) {
+        this(aEvaluator, aFactory, LoadoutChangedMessage.ALL, aFormat, aTooltip, aPercent);
+    }
+
+    /**
+     * Creates a new {@link MetricDisplay} that shows the results of a metric that is calculated in the background and
+     * only depends on some parts of the loadout. The text is set when the first result has been published.
+     * 
+     * @param aEvaluator
+     *            The {@link MetricEvaluator} that calculates the metric.
+     * @param aFactory
+     *            The {@link MetricEvaluator.Factory} that creates the metric for each snapshot of the loadout.
+     * @param aInputs
+     *            A bitwise or of the {@link LoadoutChangedMessage} dirty flags of the parts of the loadout that the
+     *            metric depends on.
+     * @param aFormat
+     *            The format string to show the value with.
+     * @param aTooltip
+     *            The tool tip of the display.
+     * @param aPercent
+     *            <code>true</code> if the value should be shown as percent.
+     */
+    public MetricDisplay(MetricEvaluator aEvaluator, MetricEvaluator.Factory aFactory, int aInputs, String aFormat,
+            String aTooltip, boolean aPercent) {
+        loadout = null;
+        setToolTipText("<html><p width=\"300\">" + aTooltip + "</p></html>");
+        setText(" ");
+        formatter = new Formatter(sb);
+        format = aFormat;
+        metric = null;
+        percent = aPercent;
+
+        aEvaluator.register(aFactory, new MetricEvaluator.Listener() {
+            @Override
+            public void evaluated(Metric aMetric, double aValue) {
+                showValue(aMetric, aValue);
+            }
+        }, aInputs);
+    }
+
     @Override
     public void receive(Message aMsg) {
         if (aMsg.isForMe(loadout) && aMsg.affectsHeatOrDamage()) {
-            updateText();
+            // The messages of one user action are coalesced, only recompute if the loadout actually changed. An
+            // update message is sent when settings outside of the loadout change and always needs recomputing.
+            if (isUpdate(aMsg) || loadout.getVersion() != loadoutVersion) {
+                updateText();
+            }
         }
     }
 
     protected void updateText() {
+        assert (SwingUtilities.isEventDispatchThread());
+        loadoutVersion = loadout.getVersion();
+        showValue(metric, metric.calculate());
+    }
+
+    /**
+     * Shows the given value on the EDT.
+     * 
+     * @param aMetric
+     *            The metric that was calculated, used for range and time.
+     * @param aValue
+     *            The value of the metric.
+     */
+    protected void showValue(Metric aMetric, double aValue) {
         assert (SwingUtilities.isEventDispatchThread());
         sb.setLength(0);
-        double value = metric.calculate();
+        double value = aValue;
         if (percent)
             value *= 100.0;
-        if (metric instanceof RangeTimeMetric) {
-            formatter
-                    .format(format, ((RangeTimeMetric) metric).getTime(), value, ((RangeTimeMetric) metric).getRange());
+        if (aMetric instanceof RangeTimeMetric) {
+            formatter.format(format, ((RangeTimeMetric) aMetric).getTime(), value,
+                    ((RangeTimeMetric) aMetric).getRange());
         }
-        else if (metric instanceof RangeMetric) {
-            formatter.format(format, value, ((RangeMetric) metric).getRange());
+        else if (aMetric instanceof RangeMetric) {
+            formatter.format(format, value, ((RangeMetric) aMetric).getRange());
         }
         else {
             formatter.format(format, value);
@@ -91,4 +172,16 @@ public class MetricDisplay extends JLabel implements Message.Recipient {
         }
         setText(sb.toString());
     }
+
+    /**
+     * @param aMsg
+     *            The message to check.
+     * @return <code>true</code> if the message is an explicit request to update everything that depends on the
+     *         loadout.
+     */
+    public static boolean isUpdate(Message aMsg) {
+        if (aMsg instanceof LoadoutChangedMessage)
+            return ((LoadoutChangedMessage) aMsg).isDirty(LoadoutChangedMessage.OTHER);
+        return aMsg instanceof LoadoutMessage && ((LoadoutMessage) aMsg).type == LoadoutMessage.Type.UPDATE;
+    }
 }
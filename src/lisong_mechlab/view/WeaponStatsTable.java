@@ -36,6 +36,7 @@ import javax.swing.table.TableColumnModel;
 import lisong_mechlab.model.chassi.HardPointType;
 import lisong_mechlab.model.item.ItemDB;
 import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.item.WeaponStat;
 
 /**
  * This class is a JTable which shows statistics for weapons.
@@ -73,16 +74,16 @@ public class WeaponStatsTable extends JTable {
         }
 
         class StatColumn extends Column {
-            private final String stat;
+            private final WeaponStat stat;
 
             public StatColumn(String aHeader, String aTooltip, String aStat) {
                 super(aHeader, aTooltip);
-                stat = aStat;
+                stat = WeaponStat.parse(aStat);
             }
 
             @Override
             public Object valueAt(int aRow) {
-                return weapons.get(aRow).getStat(stat, null);
+                return stat.evaluate(weapons.get(aRow), null);
             }
 
             @Override
@@ -333,7 +333,7 @@ public class WeaponSummaryTable extends JTable implements Message.Recipient {
         decimalFormat.setGroupingUsed(true);
         decimalFormat.setGroupingSize(3);
         ((WeaponModel) getModel()).update(loadout);
-        aXBar.attach(this);
+        aXBar.attachCoalesced(this, loadout);
         setFillsViewportHeight(true);
         ((DefaultTableCellRenderer) getTableHeader().getDefaultRenderer())
                 .setHorizontalAlignment(SwingConstants.CENTER);
@@ -26,16 +26,17 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 
 import javax.swing.JFrame;
-import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
 import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.item.WeaponStat;
 import lisong_mechlab.model.loadout.LoadoutBase;
-import lisong_mechlab.model.loadout.LoadoutMessage;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
 import lisong_mechlab.model.modifiers.Modifier;
 import lisong_mechlab.util.WeaponRanges;
 import lisong_mechlab.util.message.Message;
 import lisong_mechlab.util.message.MessageXBar;
+import lisong_mechlab.view.MetricDisplay;
 import lisong_mechlab.view.ProgramInit;
 
 import org.jfree.chart.ChartFactory;
@@ -64,8 +65,10 @@ public class DpsGraph extends JFrame implements Message.Recipient {
     private static final long    serialVersionUID = -8812749194029184861L;
     private final LoadoutBase<?> loadout;
     private final ChartPanel     chartPanel;
+    private long                 chartVersion;
 
     JFreeChart makechart() {
+        chartVersion = loadout.getVersion();
         return ChartFactory.createStackedXYAreaChart("Max DPS over range for " + loadout, "range [m]",
                 "damage / second", getSeries(), PlotOrientation.VERTICAL, true, true, false);
     }
@@ -82,7 +85,7 @@ public class DpsGraph extends JFrame implements Message.Recipient {
         super("Max DPS over range for " + aLoadout);
         setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
 
-        aXbar.attach(this);
+        aXbar.attachCoalesced(this, aLoadout);
 
         loadout = aLoadout;
         chartPanel = new ChartPanel(makechart());
@@ -131,8 +134,8 @@ public class DpsGraph extends JFrame implements Message.Recipient {
             int mult = e.getValue();
             
             XYSeries series = new XYSeries(weapon.getName(), true, false);
-            for (double range : ranges) {               
-                final double dps = weapon.getStat("d/s", modifiers);
+            final double dps = WeaponStat.DAMAGE_PER_SECOND.evaluate(weapon, modifiers);
+            for (double range : ranges) {
                 final double rangeEff = weapon.getRangeEffectivity(range, modifiers);
                 series.add(range, dps * rangeEff*mult);
             }
@@ -148,18 +151,13 @@ public class DpsGraph extends JFrame implements Message.Recipient {
 
         boolean needsUpdate = aMsg.affectsHeatOrDamage();
 
-        if (aMsg instanceof LoadoutMessage) {
-            LoadoutMessage msg = (LoadoutMessage) aMsg;
-            needsUpdate |= msg.affectsRange();
+        if (aMsg instanceof LoadoutChangedMessage) {
+            needsUpdate |= ((LoadoutChangedMessage) aMsg).affectsRange();
         }
 
-        if (needsUpdate) {
-            SwingUtilities.invokeLater(new Runnable() {
-                @Override
-                public void run() {
-                    chartPanel.setChart(makechart());
-                }
-            });
+        // All messages of one change arrive coalesced at the end of the event.
+        if (needsUpdate && (MetricDisplay.isUpdate(aMsg) || loadout.getVersion() != chartVersion)) {
+            chartPanel.setChart(makechart());
         }
     }
 }
@@ -26,8 +26,6 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -35,18 +33,19 @@ import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.KeyStroke;
 import javax.swing.OverlayLayout;
-import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
 import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.item.WeaponStat;
 import lisong_mechlab.model.loadout.LoadoutBase;
-import lisong_mechlab.model.loadout.LoadoutMessage;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
 import lisong_mechlab.model.metrics.MaxSustainedDPS;
 import lisong_mechlab.model.modifiers.Modifier;
 import lisong_mechlab.util.Pair;
 import lisong_mechlab.util.WeaponRanges;
 import lisong_mechlab.util.message.Message;
 import lisong_mechlab.util.message.MessageXBar;
+import lisong_mechlab.view.MetricDisplay;
 import lisong_mechlab.view.ProgramInit;
 import lisong_mechlab.view.action.OpenHelp;
 
@@ -77,8 +76,10 @@ public class SustainedDpsGraph extends JFrame implements Message.Recipient {
     private final LoadoutBase<?>  loadout;
     private final MaxSustainedDPS maxSustainedDPS;
     private final ChartPanel      chartPanel;
+    private long                  chartVersion;
 
     JFreeChart makechart() {
+        chartVersion = loadout.getVersion();
         return ChartFactory.createStackedXYAreaChart("Max Sustained DPS over range for " + loadout, "range [m]",
                 "damage / second", getSeries(), PlotOrientation.VERTICAL, true, true, false);
     }
@@ -97,7 +98,7 @@ public class SustainedDpsGraph extends JFrame implements Message.Recipient {
         super("Max Sustained DPS over range for " + aLoadout);
         setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
 
-        aXbar.attach(this);
+        aXbar.attachCoalesced(this, aLoadout);
 
         loadout = aLoadout;
         maxSustainedDPS = aMaxSustainedDpsMetric;
@@ -139,20 +140,24 @@ public class SustainedDpsGraph extends JFrame implements Message.Recipient {
                     }
                 });
 
-        Double[] ranges = WeaponRanges.getRanges(loadout);
-        for (double range : ranges) {
-            Set<Entry<Weapon, Double>> damageDistributio = maxSustainedDPS.getWeaponRatios(range).entrySet();
-            for (Map.Entry<Weapon, Double> entry : damageDistributio) {
-                final Weapon weapon = entry.getKey();
-                final double ratio = entry.getValue();
-                final double dps = weapon.getStat("d/s", modifiers);
-                final double rangeEff = weapon.getRangeEffectivity(range, modifiers);
-
-                if (!data.containsKey(weapon)) {
-                    data.put(weapon, new ArrayList<Pair<Double, Double>>());
-                }
-                data.get(weapon).add(new Pair<Double, Double>(range, dps * ratio * rangeEff));
+        Double[] boxedRanges = WeaponRanges.getRanges(loadout);
+        double[] ranges = new double[boxedRanges.length];
+        for (int i = 0; i < ranges.length; ++i) {
+            ranges[i] = boxedRanges[i];
+        }
+
+        MaxSustainedDPS.WeaponRatios weaponRatios = maxSustainedDPS.getWeaponRatios(ranges);
+        List<Weapon> weapons = weaponRatios.getWeapons();
+        for (int i = 0; i < weapons.size(); ++i) {
+            final Weapon weapon = weapons.get(i);
+            final double dps = WeaponStat.DAMAGE_PER_SECOND.evaluate(weapon, modifiers);
+            final double[] ratios = weaponRatios.getRatios(i);
+            List<Pair<Double, Double>> points = new ArrayList<>(ranges.length);
+            for (int r = 0; r < ranges.length; ++r) {
+                final double rangeEff = weapon.getRangeEffectivity(ranges[r], modifiers);
+                points.add(new Pair<Double, Double>(ranges[r], dps * ratios[r] * rangeEff));
             }
+            data.put(weapon, points);
         }
 
         DefaultTableXYDataset dataset = new DefaultTableXYDataset();
@@ -173,18 +178,13 @@ public class SustainedDpsGraph extends JFrame implements Message.Recipient {
 
         boolean needsUpdate = aMsg.affectsHeatOrDamage();
 
-        if (aMsg instanceof LoadoutMessage) {
-            LoadoutMessage msg = (LoadoutMessage) aMsg;
-            needsUpdate |= msg.affectsRange();
+        if (aMsg instanceof LoadoutChangedMessage) {
+            needsUpdate |= ((LoadoutChangedMessage) aMsg).affectsRange();
         }
 
-        if (needsUpdate) {
-            SwingUtilities.invokeLater(new Runnable() {
-                @Override
-                public void run() {
-                    chartPanel.setChart(makechart());
-                }
-            });
+        // All messages of one change arrive coalesced at the end of the event.
+        if (needsUpdate && (MetricDisplay.isUpdate(aMsg) || loadout.getVersion() != chartVersion)) {
+            chartPanel.setChart(makechart());
         }
     }
 }
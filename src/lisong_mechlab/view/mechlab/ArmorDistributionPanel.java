@@ -161,7 +161,7 @@ public class ArmorDistributionPanel extends JPanel implements Message.Recipient,
         xBar = aXBar;
         loadout = aLoadout;
 
-        xBar.attach(this);
+        xBar.attach(this, ConfiguredComponentBase.ComponentMessage.class, loadout);
 
         final JButton resetAll = new JButton(new AbstractAction("Reset manually set armor") {
             private static final long serialVersionUID = -2645636713484404605L;
@@ -51,7 +51,7 @@ public class ArmorSpinner extends SpinnerNumberModel implements Message.Recipien
         side = anArmorSide;
         symmetric = aSymmetric;
         xBar = anXBar;
-        xBar.attach(this);
+        xBar.attach(this, ConfiguredComponentBase.ComponentMessage.class, loadout);
         opStack = anOperationStack;
     }
 
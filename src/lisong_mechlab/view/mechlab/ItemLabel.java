@@ -48,12 +48,12 @@ import javax.swing.SwingWorker;
 import javax.swing.TransferHandler;
 import javax.swing.WindowConstants;
 
-import lisong_mechlab.model.item.AmmoWeapon;
 import lisong_mechlab.model.item.Ammunition;
 import lisong_mechlab.model.item.Engine;
 import lisong_mechlab.model.item.Item;
 import lisong_mechlab.model.loadout.EquipResult;
 import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutCapacity;
 import lisong_mechlab.model.loadout.OpAutoAddItem;
 import lisong_mechlab.model.metrics.TopSpeed;
 import lisong_mechlab.util.message.MessageXBar;
@@ -68,12 +68,20 @@ import lisong_mechlab.view.render.StyleManager;
  * @author Emily Björk
  */
 public class ItemLabel extends JLabel {
-    private static final long serialVersionUID = 1237952620487557121L;
-    private final Item        item;
+    private static final long          serialVersionUID = 1237952620487557121L;
+    private static final DecimalFormat SPEED_FORMAT     = new DecimalFormat("###");
+    private final Item                 item;
+    private State                      state;
+    private boolean                    textValid        = false;
+    private String                     shownSpeed;
+
+    private static enum State {
+        NO_LOADOUT, HIDDEN, INVALID, SMART_PLACE, EQUIPPABLE
+    }
 
     private static class ProgressDialog extends JDialog {
         private static final long serialVersionUID = -6084430266229568009L;
-        SwingWorker<Void, Void>   task;
+        AutoPlaceTask             task;
 
         public ProgressDialog() {
             super(ProgramInit.lsml(), "SmartPlace in progress...", ModalityType.APPLICATION_MODAL);
@@ -91,7 +99,7 @@ public class ItemLabel extends JLabel {
                 @Override
                 public void actionPerformed(ActionEvent aE) {
                     if (task != null)
-                        task.cancel(true);
+                        task.abort();
                 }
             }));
             setContentPane(panel);
@@ -99,33 +107,38 @@ public class ItemLabel extends JLabel {
             pack();
         }
 
-        void setTask(SwingWorker<Void, Void> aTask) {
+        void setTask(AutoPlaceTask aTask) {
             task = aTask;
         }
     }
 
     private static class AutoPlaceTask extends SwingWorker<Void, Void> {
-        private OpAutoAddItem operation;
-        private JDialog       dialog;
-        private LoadoutFrame  loadoutFrame;
-        private MessageXBar   xBar;
-        private Item          itemToPlace;
+        private final OpAutoAddItem operation;
+        private JDialog             dialog;
+        private LoadoutFrame        loadoutFrame;
+        private volatile boolean    failed = false;
 
         public AutoPlaceTask(JDialog aDialog, LoadoutFrame aLoadoutFrame, MessageXBar anXBar, Item aItem) {
             dialog = aDialog;
             loadoutFrame = aLoadoutFrame;
-            xBar = anXBar;
-            itemToPlace = aItem;
+            operation = new OpAutoAddItem(loadoutFrame.getLoadout(), anXBar, aItem);
+        }
+
+        /**
+         * Stops the search for a place for the item as soon as possible.
+         */
+        public void abort() {
+            operation.cancel();
+            cancel(true);
         }
 
         @Override
         public Void doInBackground() {
             try {
-                operation = new OpAutoAddItem(loadoutFrame.getLoadout(), xBar, itemToPlace);
                 operation.prepareOperationAheadOfTime();
             }
             catch (Throwable e) { // Yeah anything thrown is a failure.
-                operation = null;
+                failed = true;
             }
             return null;
         }
@@ -134,7 +147,7 @@ public class ItemLabel extends JLabel {
         public void done() {
             // In EDT
             if (!isCancelled()) {
-                if (operation == null) {
+                if (failed) {
                     JOptionPane.showMessageDialog(dialog, "No can do cap'n!", "Not possible", JOptionPane.OK_OPTION);
                 }
                 else {
@@ -205,7 +218,7 @@ public class ItemLabel extends JLabel {
                             dialog.addWindowListener(new WindowAdapter() {
                                 @Override
                                 public void windowClosed(WindowEvent e) {
-                                    task.cancel(true);
+                                    task.abort();
                                 }
                             });
 
@@ -234,18 +247,27 @@ public class ItemLabel extends JLabel {
     }
 
     private void updateText(LoadoutBase<?> aLoadout) {
+        String speedText = null;
+        if (item instanceof Engine && aLoadout != null) {
+            Engine engine = (Engine) item;
+            double speed = TopSpeed.calculate(engine.getRating(), aLoadout.getMovementProfile(), aLoadout.getChassis()
+                    .getMassMax(), aLoadout.getModifiers());
+            speedText = SPEED_FORMAT.format(speed);
+        }
+
+        // Only engines depend on the loadout, don't rebuild the text if nothing changed.
+        if (textValid && (speedText == null ? shownSpeed == null : speedText.equals(shownSpeed)))
+            return;
+        textValid = true;
+        shownSpeed = speedText;
+
         StringBuilder builder = new StringBuilder();
         builder.append("<html>");
         builder.append(item.getShortName());
         builder.append("<br/><span style=\"font-size:x-small;\">");
         builder.append("Tons: ").append(item.getMass()).append("<br/>Slots: ").append(item.getNumCriticalSlots());
-
-        if (item instanceof Engine && aLoadout != null) {
-            Engine engine = (Engine) item;
-            double speed = TopSpeed.calculate(engine.getRating(), aLoadout.getMovementProfile(), aLoadout.getChassis()
-                    .getMassMax(), aLoadout.getModifiers());
-            DecimalFormat decimalFormat = new DecimalFormat("###");
-            builder.append("<br/>" + decimalFormat.format(speed) + "kph");
+        if (speedText != null) {
+            builder.append("<br/>" + speedText + "kph");
         }
         builder.append("</span></html>");
 
@@ -277,55 +299,70 @@ public class ItemLabel extends JLabel {
         setOpaque(true);
     }
 
+    /**
+     * Updates the visibility and style of this label for the given loadout.
+     * 
+     * @param aLoadout
+     *            The loadout to update for, or <code>null</code> if there is no loadout.
+     */
     public void updateVisibility(LoadoutBase<?> aLoadout) {
-        boolean prevSmartPlace = smartPlace;
-        smartPlace = false;
-        if (aLoadout != null) {
-            updateText(aLoadout);
-            if (!aLoadout.getChassis().isAllowed(item) || !item.isCompatible(aLoadout.getUpgrades())) {
-                setVisible(false);
-            }
-            else {
-                if (EquipResult.SUCCESS != aLoadout.canEquip(item)) {
-                    if (!aLoadout.getCandidateLocationsForItem(item).isEmpty()) {
-                        StyleManager.styleItem(this, item);
-                        smartPlace = true;
-                    }
-                    else {
-                        StyleManager.colourInvalid(this);
-                    }
-                }
-                else {
-                    StyleManager.styleItem(this, item);
-                }
+        updateVisibility(aLoadout, aLoadout == null ? null : new LoadoutCapacity(aLoadout));
+    }
 
-                if (item instanceof Ammunition) {
-                    Ammunition ammunition = (Ammunition) item;
-                    if (aLoadout.getHardpointsCount(ammunition.getWeaponHardpointType()) < 1) {
-                        setVisible(false);
-                    }
-                    else {
-                        boolean isUsable = false;
-                        for (AmmoWeapon ammoWeapon : aLoadout.items(AmmoWeapon.class)) {
-                            if (ammoWeapon.isCompatibleAmmo(ammunition)) {
-                                isUsable = true;
-                                break;
-                            }
-                        }
-                        setVisible(isUsable);
-                    }
-                }
-                else
-                    setVisible(true);
-            }
-        }
-        else {
-            updateText(null);
-            StyleManager.styleItem(this, item);
-            setVisible(true);
+    /**
+     * Updates the visibility and style of this label for the given loadout. The label is only restyled if its state
+     * changed.
+     * 
+     * @param aLoadout
+     *            The loadout to update for, or <code>null</code> if there is no loadout.
+     * @param aCapacity
+     *            The {@link LoadoutCapacity} of the loadout, computed once for all labels.
+     */
+    public void updateVisibility(LoadoutBase<?> aLoadout, LoadoutCapacity aCapacity) {
+        updateText(aLoadout);
+
+        State newState = classify(aLoadout, aCapacity);
+        if (newState == state)
+            return;
+
+        switch (newState) {
+            case HIDDEN:
+                break;
+            case INVALID:
+                StyleManager.colourInvalid(this);
+                break;
+            default:
+                StyleManager.styleItem(this, item);
+                break;
         }
+        setVisible(newState != State.HIDDEN);
+
+        boolean prevSmartPlace = smartPlace;
+        smartPlace = newState == State.SMART_PLACE;
+        state = newState;
 
         if (prevSmartPlace != smartPlace)
             repaint();
     }
+
+    private State classify(LoadoutBase<?> aLoadout, LoadoutCapacity aCapacity) {
+        if (aLoadout == null)
+            return State.NO_LOADOUT;
+        if (!aLoadout.getChassis().isAllowed(item) || !item.isCompatible(aLoadout.getUpgrades()))
+            return State.HIDDEN;
+
+        if (item instanceof Ammunition) {
+            Ammunition ammunition = (Ammunition) item;
+            if (aCapacity.getHardpointsCount(ammunition.getWeaponHardpointType()) < 1
+                    || !aCapacity.hasWeaponFor(ammunition))
+                return State.HIDDEN;
+        }
+
+        if (EquipResult.SUCCESS != aCapacity.canEquip(item)) {
+            if (aCapacity.hasCandidateLocations(item))
+                return State.SMART_PLACE;
+            return State.INVALID;
+        }
+        return State.EQUIPPABLE;
+    }
 }
@@ -36,6 +36,10 @@ import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.AbstractAction;
 import javax.swing.Box;
@@ -56,6 +60,7 @@ import lisong_mechlab.model.environment.Environment;
 import lisong_mechlab.model.environment.EnvironmentDB;
 import lisong_mechlab.model.item.Faction;
 import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
 import lisong_mechlab.model.loadout.LoadoutMessage;
 import lisong_mechlab.model.loadout.LoadoutOmniMech;
 import lisong_mechlab.model.loadout.LoadoutStandard;
@@ -71,12 +76,15 @@ import lisong_mechlab.model.metrics.HeatOverTime;
 import lisong_mechlab.model.metrics.JumpDistance;
 import lisong_mechlab.model.metrics.MaxDPS;
 import lisong_mechlab.model.metrics.MaxSustainedDPS;
+import lisong_mechlab.model.metrics.Metric;
+import lisong_mechlab.model.metrics.MetricGraph;
 import lisong_mechlab.model.metrics.RangeMetric;
 import lisong_mechlab.model.metrics.RangeTimeMetric;
 import lisong_mechlab.model.metrics.TimeToCool;
 import lisong_mechlab.model.metrics.TopSpeed;
 import lisong_mechlab.model.metrics.TurningSpeed;
 import lisong_mechlab.model.metrics.TwistSpeed;
+import lisong_mechlab.model.metrics.helpers.MetricEvaluator;
 import lisong_mechlab.model.upgrades.ArmorUpgrade;
 import lisong_mechlab.model.upgrades.HeatSinkUpgrade;
 import lisong_mechlab.model.upgrades.OpSetArmorType;
@@ -103,7 +111,23 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
     public final static DecimalFormat   df1              = new DecimalFormat("###.#");
     public final static DecimalFormat   df0              = new DecimalFormat("###");
 
+    private static final ExecutorService EVALUATION_EXECUTOR;
+    private static final int             MOBILITY_INPUTS  = LoadoutChangedMessage.ITEMS
+                                                                  | LoadoutChangedMessage.EFFICIENCIES
+                                                                  | LoadoutChangedMessage.MODULES
+                                                                  | LoadoutChangedMessage.OMNIPODS
+                                                                  | LoadoutChangedMessage.OTHER;
+
     static {
+        EVALUATION_EXECUTOR = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable aRunnable) {
+                        Thread thread = new Thread(aRunnable, "Metric evaluator");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
         df2_floor.setMinimumFractionDigits(2);
         df2_floor.setRoundingMode(RoundingMode.FLOOR);
         df2.setMinimumFractionDigits(2);
@@ -156,6 +180,11 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
     private final JTable                 weaponTable;
 
     private final JumpDistance           metricJumpDistance;
+    private final MetricEvaluator        metricEvaluator;
+    private int                          engagementRange  = -1;
+    private double                       engagementTime   = 5.0;
+    private Environment                  environment;
+    private transient HeatNodes          heatNodes;
     private transient Boolean            inhibitChanges   = false;
     private final MaxSustainedDPS        metricSustainedDps;
     private final OperationStack         opStack;
@@ -166,10 +195,16 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
         opStack = aOperationStack;
 
         metricJumpDistance = new JumpDistance(loadout);
+        metricEvaluator = new MetricEvaluator(loadout, anXBar, EVALUATION_EXECUTOR, new Executor() {
+            @Override
+            public void execute(Runnable aCommand) {
+                SwingUtilities.invokeLater(aCommand);
+            }
+        });
 
         setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
         xBar = anXBar;
-        xBar.attach(this);
+        xBar.attach(this, Message.class, loadout);
 
         // General
         // ----------------------------------------------------------------------
@@ -265,8 +300,12 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
                 jumpJets.setAlignmentX(Component.CENTER_ALIGNMENT);
                 mobility.add(jumpJets);
 
-                topSpeed = new MetricDisplay(new TopSpeed(loadout), "Top Speed: %.1f km/h",
-                        "The maximum speed the mech can move at.", anXBar, loadout);
+                topSpeed = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        return new TopSpeed(aSnapshot);
+                    }
+                }, MOBILITY_INPUTS, "Top Speed: %.1f km/h", "The maximum speed the mech can move at.", false);
                 topSpeed.setAlignmentX(Component.CENTER_ALIGNMENT);
                 mobility.add(topSpeed);
 
@@ -277,13 +316,22 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             }
 
             {
-                turnSpeed = new MetricDisplay(new TurningSpeed(loadout), "Turn Speed: %.1f °/s",
-                        "The rate at which your mech can turn its legs.", anXBar, loadout);
+                turnSpeed = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        return new TurningSpeed(aSnapshot);
+                    }
+                }, MOBILITY_INPUTS, "Turn Speed: %.1f °/s", "The rate at which your mech can turn its legs.", false);
                 turnSpeed.setAlignmentX(CENTER_ALIGNMENT);
                 mobility.add(turnSpeed);
 
-                twistSpeed = new MetricDisplay(new TwistSpeed(loadout), "Twist Speed: %.1f °/s",
-                        "The rate at which your mech can turn its tors in relation to the legs.", anXBar, loadout);
+                twistSpeed = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        return new TwistSpeed(aSnapshot);
+                    }
+                }, MOBILITY_INPUTS, "Twist Speed: %.1f °/s",
+                        "The rate at which your mech can turn its tors in relation to the legs.", false);
                 twistSpeed.setAlignmentX(CENTER_ALIGNMENT);
                 mobility.add(twistSpeed);
 
@@ -305,9 +353,7 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             anchorTurn.addItemListener(this);
         }
 
-        final HeatCapacity heatCapacity = new HeatCapacity(loadout);
         final HeatDissipation heatDissipation = new HeatDissipation(loadout, null);
-        final HeatGeneration heatGeneration = new HeatGeneration(loadout);
 
         // Heat
         // ----------------------------------------------------------------------
@@ -325,7 +371,7 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             environemnts.addActionListener(new ActionListener() {
                 @Override
                 public void actionPerformed(ActionEvent aArg0) {
-                    Environment environment = (Environment) environemnts.getSelectedItem();
+                    environment = (Environment) environemnts.getSelectedItem();
                     heatDissipation.changeEnvironment(environment);
                     xBar.post(new LoadoutMessage(loadout, LoadoutMessage.Type.UPDATE));
                 }
@@ -337,8 +383,13 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             heat.add(envPanel);
 
             {
-                effectiveHS = new MetricDisplay(heatCapacity, "Heat capacity: %.1f",
-                        "The amount of heat your mech can hold without overheating.", anXBar, loadout);
+                effectiveHS = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        return heatNodes(aSnapshot).capacity;
+                    }
+                }, HeatCapacity.INPUTS, "Heat capacity: %.1f",
+                        "The amount of heat your mech can hold without overheating.", false);
 
                 JPanel panel = new JPanel(new BorderLayout());
                 panel.add(heatsinks, BorderLayout.WEST);
@@ -347,16 +398,26 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             }
 
             {
-                coolingRatio = new MetricDisplay(new CoolingRatio(heatDissipation, heatGeneration),
-                        "Cooling ratio: %.0f %%", "How much of your maximal heat generation that can be dissipated. "
-                                + "A value of 100% means that you will never overheat.", anXBar, loadout, true);
-
-                HeatOverTime heatOverTime = new HeatOverTime(loadout, xBar);
-                timeToOverheat = new MetricDisplay(
-                        new AlphaTimeToOverHeat(heatCapacity, heatOverTime, heatDissipation),
-                        "Seconds to Overheat: %.1f",
+                coolingRatio = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        HeatNodes nodes = heatNodes(aSnapshot);
+                        return new CoolingRatio(nodes.dissipation, nodes.generation);
+                    }
+                }, HeatDissipation.INPUTS | HeatGeneration.INPUTS, "Cooling ratio: %.0f %%",
+                        "How much of your maximal heat generation that can be dissipated. "
+                                + "A value of 100% means that you will never overheat.", true);
+
+                timeToOverheat = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        HeatNodes nodes = heatNodes(aSnapshot);
+                        return new AlphaTimeToOverHeat(nodes.capacity, new HeatOverTime(aSnapshot, aXBar),
+                                nodes.dissipation);
+                    }
+                }, HeatCapacity.INPUTS | HeatOverTime.INPUTS | HeatDissipation.INPUTS, "Seconds to Overheat: %.1f",
                         "The amount of seconds you can go \"All guns a'blazing\" before overheating, assuming no ghost heat.",
-                        anXBar, loadout);
+                        false);
 
                 JPanel panel = new JPanel(new BorderLayout());
                 panel.add(coolingRatio, BorderLayout.WEST);
@@ -366,22 +427,32 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
 
             {
 
-                timeToCool = new MetricDisplay(new TimeToCool(heatCapacity, heatDissipation), "Time to cool: %.1f",
-                        "The time the loadout needs to cool from overheat to 0, while moving at full speed.", anXBar,
-                        loadout);
+                timeToCool = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        HeatNodes nodes = heatNodes(aSnapshot);
+                        return new TimeToCool(nodes.capacity, nodes.dissipation);
+                    }
+                }, HeatCapacity.INPUTS | HeatDissipation.INPUTS, "Time to cool: %.1f",
+                        "The time the loadout needs to cool from overheat to 0, while moving at full speed.", false);
 
-                ghostHeat = new MetricDisplay(new GhostHeat(loadout), "Ghost heat: %.1f",
+                ghostHeat = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        return new GhostHeat(aSnapshot);
+                    }
+                }, "Ghost heat: %.1f",
                         "The amount of extra heat you receive on an alpha strike due to the ghost heat mechanic.",
-                        anXBar, loadout) {
+                        false) {
                     private static final long serialVersionUID = 1L;
 
                     @Override
-                    protected void updateText() {
-                        if (metric.calculate() > 0)
+                    protected void showValue(Metric aMetric, double aValue) {
+                        if (aValue > 0)
                             setForeground(Color.RED);
                         else
                             setForeground(effectiveHS.getForeground());
-                        super.updateText();
+                        super.showValue(aMetric, aValue);
                     }
                 };
 
@@ -416,9 +487,6 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             JPanel offenceTop = new JPanel();
             offenceTop.setLayout(new BoxLayout(offenceTop, BoxLayout.PAGE_AXIS));
 
-            final RangeTimeMetric metricBurstDamage = new BurstDamageOverTime(loadout, anXBar);
-            final RangeMetric metricAlphaStrike = new AlphaStrike(loadout);
-            final RangeMetric metricMaxDPS = new MaxDPS(loadout);
             metricSustainedDps = new MaxSustainedDPS(loadout, heatDissipation);
 
             {
@@ -454,10 +522,8 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
                                 return;
                             }
                         }
-                        metricAlphaStrike.changeRange(r);
-                        metricMaxDPS.changeRange(r);
+                        engagementRange = r;
                         metricSustainedDps.changeRange(r);
-                        metricBurstDamage.changeRange(r);
                         SwingUtilities.invokeLater(new Runnable() {
                             @Override
                             public void run() {
@@ -483,7 +549,7 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
                         @Override
                         public void actionPerformed(ActionEvent aArg0) {
                             double time = (Double) timeOfEngagement.getSelectedItem();
-                            metricBurstDamage.changeTime(time);
+                            engagementTime = time;
                             SwingUtilities.invokeLater(new Runnable() {
                                 @Override
                                 public void run() {
@@ -492,7 +558,6 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
                             });
                         }
                     });
-                    metricBurstDamage.changeTime(5.0);
                     pane.add(timeOfEngagement);
                     panel.add(pane);
                 }
@@ -505,15 +570,30 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             }
 
             {
-                alphaStrike = new MetricDisplay(metricAlphaStrike, "Alpha: %.1f @ %.0f m",
-                        "The maximum damage you can deal at the displayed range in one volley.", anXBar, loadout);
+                alphaStrike = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        RangeMetric metric = new AlphaStrike(aSnapshot);
+                        metric.changeRange(engagementRange);
+                        return metric;
+                    }
+                }, "Alpha: %.1f @ %.0f m", "The maximum damage you can deal at the displayed range in one volley.",
+                        false);
                 alphaStrike.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-                burstDamage = new MetricDisplay(metricBurstDamage, "Burst  %.1f s: %.1f @ %.0f m",
+                burstDamage = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        RangeTimeMetric metric = new BurstDamageOverTime(aSnapshot, aXBar);
+                        metric.changeRange(engagementRange);
+                        metric.changeTime(engagementTime);
+                        return metric;
+                    }
+                }, "Burst  %.1f s: %.1f @ %.0f m",
                         "The amount of damage you can deal in a limited time window, under the assumption that heat "
                                 + "can be ignored (see time to overheat above). "
                                 + "For double fire weapons (U-AC) includes the statistically expected damage. "
-                                + "For LB-X type weapons it includes the spread of the weapon.", anXBar, loadout);
+                                + "For LB-X type weapons it includes the spread of the weapon.", false);
                 burstDamage.setAlignmentX(Component.CENTER_ALIGNMENT);
 
                 JPanel panel = new JPanel(new BorderLayout());
@@ -523,18 +603,31 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             }
 
             {
-                dpsMax = new MetricDisplay(metricMaxDPS, "DPS: %.1f @ %.0f m",
+                dpsMax = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        RangeMetric metric = new MaxDPS(aSnapshot);
+                        metric.changeRange(engagementRange);
+                        return metric;
+                    }
+                }, "DPS: %.1f @ %.0f m",
                         "The maximum damage you can deal per second at the displayed range. "
                                 + "For Ultra-AC type weapons, this caculates the statistically expected DPS. "
-                                + "Also takes spread of LB-X and similar weapons into account.", anXBar, loadout);
+                                + "Also takes spread of LB-X and similar weapons into account.", false);
                 dpsMax.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-                dpsSustained = new MetricDisplay(metricSustainedDps, "Sust. DPS: %.1f @ %.0f m",
+                dpsSustained = new MetricDisplay(metricEvaluator, new MetricEvaluator.Factory() {
+                    @Override
+                    public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                        RangeMetric metric = new MaxSustainedDPS(aSnapshot, heatNodes(aSnapshot).dissipation);
+                        metric.changeRange(engagementRange);
+                        return metric;
+                    }
+                }, HeatDissipation.INPUTS | HeatGeneration.INPUTS, "Sust. DPS: %.1f @ %.0f m",
                         "The DPS you can sustain over a prolonged encounter with your current heat dissipation under "
                                 + "assumption that the player will not trigger ghost heat. "
                                 + "For Ultra-AC type weapons, this caculates the statistically expected DPS. "
-                                + "Takes environmental heat and spread of LB-X type weapons into account.", anXBar,
-                        loadout);
+                                + "Takes environmental heat and spread of LB-X type weapons into account.", false);
                 dpsSustained.setAlignmentX(Component.CENTER_ALIGNMENT);
 
                 JPanel panel = new JPanel(new BorderLayout());
@@ -554,6 +647,36 @@ public class LoadoutInfoPanel extends JPanel implements ItemListener, Message.Re
             add(offence);
         }
         updateDisplay();
+        metricEvaluator.update();
+    }
+
+    /**
+     * The heat metrics that several displays read. They are shared between all metrics of one snapshot so that each of
+     * them is calculated once per snapshot no matter how many displays read it.
+     */
+    private static class HeatNodes {
+        final LoadoutBase<?>   snapshot;
+        final MetricGraph.Node capacity;
+        final MetricGraph.Node dissipation;
+        final MetricGraph.Node generation;
+
+        HeatNodes(LoadoutBase<?> aSnapshot, Environment aEnvironment) {
+            snapshot = aSnapshot;
+            MetricGraph graph = new MetricGraph(aSnapshot);
+            capacity = graph.add(new HeatCapacity(aSnapshot), HeatCapacity.INPUTS);
+            dissipation = graph.add(new HeatDissipation(aSnapshot, aEnvironment), HeatDissipation.INPUTS);
+            generation = graph.add(new HeatGeneration(aSnapshot), HeatGeneration.INPUTS);
+        }
+    }
+
+    /**
+     * Must only be called from {@link MetricEvaluator.Factory#create(LoadoutBase, MessageXBar)}.
+     */
+    private HeatNodes heatNodes(LoadoutBase<?> aSnapshot) {
+        if (null == heatNodes || heatNodes.snapshot != aSnapshot) {
+            heatNodes = new HeatNodes(aSnapshot, environment);
+        }
+        return heatNodes;
     }
 
     public void updateDisplay() {
@@ -77,7 +77,7 @@ public class MobilityPane extends JPanel implements Message.Recipient {
     private ChartPanel           turnSpeedChartPanel;
 
     public MobilityPane(LoadoutBase<?> aLoadout, MessageXBar aXBar) {
-        aXBar.attach(this);
+        aXBar.attach(this, Message.class, aLoadout);
         loadout = aLoadout;
 
         add(makeTorsoPanel());
@@ -28,6 +28,9 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.text.DecimalFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.AbstractListModel;
 import javax.swing.BorderFactory;
@@ -45,6 +48,7 @@ import lisong_mechlab.model.item.Internal;
 import lisong_mechlab.model.item.Item;
 import lisong_mechlab.model.loadout.EquipResult;
 import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
 import lisong_mechlab.model.loadout.LoadoutStandard;
 import lisong_mechlab.model.loadout.component.ConfiguredComponentBase;
 import lisong_mechlab.model.loadout.component.OpAddItem;
@@ -52,7 +56,6 @@ import lisong_mechlab.model.loadout.component.OpRemoveItem;
 import lisong_mechlab.model.metrics.CriticalStrikeProbability;
 import lisong_mechlab.model.metrics.ItemEffectiveHP;
 import lisong_mechlab.model.metrics.helpers.ComponentDestructionSimulator;
-import lisong_mechlab.model.upgrades.Upgrades;
 import lisong_mechlab.util.OperationStack;
 import lisong_mechlab.util.message.Message;
 import lisong_mechlab.util.message.MessageXBar;
@@ -64,6 +67,7 @@ import lisong_mechlab.view.render.StyleManager;
 
 public class PartList extends JList<Item> {
     private static final long                   serialVersionUID = 5995694414450060827L;
+    private static final ExecutorService        SIMULATION_EXECUTOR;
     private final ConfiguredComponentBase       component;
     private final DynamicSlotDistributor        slotDistributor;
     private OperationStack                      opStack;
@@ -80,6 +84,17 @@ public class PartList extends JList<Item> {
     private final boolean                       isCompact        = ProgramInit.lsml().preferences.uiPreferences
                                                                          .getCompactMode();
 
+    static {
+        SIMULATION_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable aRunnable) {
+                Thread thread = new Thread(aRunnable, "Component destruction simulator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     private class Renderer extends JLabel implements ListCellRenderer<Object> {
         private static final long serialVersionUID = -8157859670319431469L;
 
@@ -236,8 +251,8 @@ public class PartList extends JList<Item> {
         private static final String FIX_STRUCT               = "FIXED STRUCTURE";
         private static final long   serialVersionUID         = 2438473891359444131L;
 
-        Model(MessageXBar aXBar) {
-            aXBar.attach(this);
+        Model(MessageXBar aXBar, LoadoutBase<?> aLoadout) {
+            aXBar.attachCoalesced(this, aLoadout);
         }
 
         @Override
@@ -252,12 +267,14 @@ public class PartList extends JList<Item> {
 
         @Override
         public void receive(Message aMsg) {
-            if (!aMsg.isForMe(loadout)) {
+            if (!aMsg.isForMe(loadout) || !(aMsg instanceof LoadoutChangedMessage)) {
                 return;
             }
 
             // Only update on item changes or upgrades
-            if (aMsg instanceof ConfiguredComponentBase.ComponentMessage || aMsg instanceof Upgrades.UpgradesMessage) {
+            LoadoutChangedMessage msg = (LoadoutChangedMessage) aMsg;
+            if (msg.isDirty(LoadoutChangedMessage.ARMOR | LoadoutChangedMessage.ITEMS | LoadoutChangedMessage.OMNIPODS
+                    | LoadoutChangedMessage.UPGRADES)) {
                 fireContentsChanged(this, 0, component.getInternalComponent().getSlots());
             }
         }
@@ -272,10 +289,20 @@ public class PartList extends JList<Item> {
         xBar = aXBar;
         componentRenderer = new ComponentRenderer(aXBar, component, isCompact);
         effectiveHP = new ItemEffectiveHP(component);
-        cds = new ComponentDestructionSimulator(component, aXBar);
-        cds.simulate();
+        cds = new ComponentDestructionSimulator(component, aXBar, SIMULATION_EXECUTOR, new Runnable() {
+            @Override
+            public void run() {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        repaint();
+                    }
+                });
+            }
+        });
+        cds.update();
         criticalStrikeProbability = new CriticalStrikeProbability(component);
-        setModel(new Model(aXBar));
+        setModel(new Model(aXBar, aLoadout));
         setDragEnabled(true);
         setDropMode(DropMode.ON);
         setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -141,7 +141,7 @@ public class PartPanel extends JPanel implements Message.Recipient {
             boolean aCanHaveHardpoints, DynamicSlotDistributor aSlotDistributor, JCheckBox aSymmetric,
             final OperationStack aStack) {
         setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
-        aXBar.attach(this);
+        aXBar.attach(this, Message.class, aLoadout);
         loadout = aLoadout;
         component = aLoadoutPart;
         canHaveHardpoints = aCanHaveHardpoints;
@@ -42,6 +42,7 @@ import lisong_mechlab.model.item.Item;
 import lisong_mechlab.model.item.ItemDB;
 import lisong_mechlab.model.item.MissileWeapon;
 import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutCapacity;
 import lisong_mechlab.util.message.Message;
 import lisong_mechlab.util.message.MessageXBar;
 import lisong_mechlab.view.mechlab.ItemInfoPanel;
@@ -186,13 +187,15 @@ public class EquipmentPanel extends JPanel implements Message.Recipient, Interna
 
     private void changeLoadout(LoadoutBase<?> aLoadout) {
         currentLoadout = aLoadout;
+        // Summarise the loadout once instead of scanning it for every item.
+        LoadoutCapacity capacity = aLoadout == null ? null : new LoadoutCapacity(aLoadout);
         for (ItemLabel itemLabel : itemLabels) {
-            itemLabel.updateVisibility(aLoadout);
+            itemLabel.updateVisibility(aLoadout, capacity);
         }
         if (aLoadout != null) {
-            energyItems.setVisible(aLoadout.getHardpointsCount(HardPointType.ENERGY) > 0);
-            missileItems.setVisible(aLoadout.getHardpointsCount(HardPointType.MISSILE) > 0);
-            ballisticItems.setVisible(aLoadout.getHardpointsCount(HardPointType.BALLISTIC) > 0);
+            energyItems.setVisible(capacity.getHardpointsCount(HardPointType.ENERGY) > 0);
+            missileItems.setVisible(capacity.getHardpointsCount(HardPointType.MISSILE) > 0);
+            ballisticItems.setVisible(capacity.getHardpointsCount(HardPointType.BALLISTIC) > 0);
         }
         else {
             energyItems.setVisible(true);
@@ -65,7 +65,7 @@ public class ComponentRenderer implements Message.Recipient {
     private int                           engineHsLeft = 0;
 
     public ComponentRenderer(MessageXBar aXBar, ConfiguredComponentBase aComponent, boolean aCompact) {
-        aXBar.attach(this);
+        aXBar.attach(this, ConfiguredComponentBase.ComponentMessage.class, null);
         component = aComponent;
         isCompact = aCompact;
 
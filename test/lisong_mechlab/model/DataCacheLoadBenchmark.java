@@ -0,0 +1,71 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+
+/**
+ * Compares the time it takes to load the data cache from the XML file and from the binary snapshot. This is not a unit
+ * test, run it manually with the main method.
+ * 
+ * @author Emily Björk
+ */
+public class DataCacheLoadBenchmark {
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] aArgs) throws Exception {
+        DataCache dataCache = DataCache.getInstance();
+
+        File xmlFile = File.createTempFile("lsml_benchmark", ".xml");
+        File binFile = DataCache.getSnapshotLocation(xmlFile);
+        xmlFile.deleteOnExit();
+        binFile.deleteOnExit();
+
+        try (OutputStreamWriter ow = new OutputStreamWriter(new FileOutputStream(xmlFile), "UTF-8")) {
+            DataCache.stream().toXML(dataCache, ow);
+        }
+        DataCacheSnapshot.write(dataCache, binFile);
+
+        System.out.println("XML size:    " + xmlFile.length() + " bytes");
+        System.out.println("Binary size: " + binFile.length() + " bytes");
+
+        // Warm up both paths so that we measure steady state and not class loading.
+        DataCache.stream().fromXML(xmlFile);
+        DataCacheSnapshot.read(binFile);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            DataCache.stream().fromXML(xmlFile);
+        }
+        long xmlTime = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            DataCacheSnapshot.read(binFile);
+        }
+        long binTime = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.println("XML load:    " + xmlTime / 1000000.0 + " ms");
+        System.out.println("Binary load: " + binTime / 1000000.0 + " ms");
+        System.out.println("Speed up:    " + (double) xmlTime / binTime + "x");
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lisong_mechlab.mwo_data.GameVFS;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+/**
+ * Test suite for {@link DataCacheRefresh}.
+ *
+ * @author Emily Björk
+ */
+public class DataCacheRefreshTest {
+    private static final String            WEAPONS      = "Game/Libs/Items/Weapons/Weapons.xml";
+    private static final String            PILOTMODULES = "Game/Libs/Items/Modules/PilotModules.xml";
+    private static final String            MECHS        = "Game/Libs/Items/Mechs/Mechs.xml";
+    private static final String            SPIDER_MDF   = "Game/Objects/mechs/spider/sdr-5k.mdf";
+    private static final String            ATLAS_MDF    = "Game/Objects/mechs/atlas/as7-d.mdf";
+    private static final String            LEVELS       = "Game/Levels/";
+
+    private GameVFS                        gameVfs      = mock(GameVFS.class);
+    private Map<String, Long>              itemStats    = new HashMap<>();
+    private Map<String, Map<String, Long>> dependencies = new HashMap<>();
+
+    @Before
+    public void setup() throws IOException {
+        itemStats.put(WEAPONS, 1L);
+        itemStats.put(PILOTMODULES, 2L);
+        itemStats.put(MECHS, 3L);
+        addDependency(DataCacheRefresh.LOCALIZATION, "Game/Localization/English.xml", 4L);
+        addDependency(DataCacheRefresh.ENVIRONMENTS, LEVELS, 5L);
+        addDependency(DataCacheRefresh.chassisUnit("sdr-5k"), SPIDER_MDF, 6L);
+        addDependency(DataCacheRefresh.chassisUnit("as7-d"), ATLAS_MDF, 7L);
+
+        for (Entry<String, Long> file : itemStats.entrySet()) {
+            when(gameVfs.getChecksum(file.getKey())).thenReturn(file.getValue());
+        }
+        for (Map<String, Long> files : dependencies.values()) {
+            for (Entry<String, Long> file : files.entrySet()) {
+                when(gameVfs.getChecksum(file.getKey())).thenReturn(file.getValue());
+            }
+        }
+    }
+
+    private void addDependency(String aUnit, String aPath, long aCrc) {
+        Map<String, Long> files = dependencies.get(aUnit);
+        if (null == files) {
+            files = new HashMap<>();
+            dependencies.put(aUnit, files);
+        }
+        files.put(aPath, aCrc);
+    }
+
+    private DataCacheRefresh compute() throws IOException {
+        return DataCacheRefresh.compute(itemStats, dependencies, gameVfs);
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        assertFalse(compute().isNeeded());
+    }
+
+    /**
+     * Caches from before dependency tracking must be fully re-parsed.
+     */
+    @Test
+    public void testNoDependencies() throws IOException {
+        DataCacheRefresh cut = DataCacheRefresh.compute(itemStats, null, gameVfs);
+        assertTrue(cut.isNeeded());
+        assertTrue(cut.isFull());
+    }
+
+    @Test
+    public void testSingleChassis() throws IOException {
+        when(gameVfs.getChecksum(SPIDER_MDF)).thenReturn(16L);
+
+        DataCacheRefresh cut = compute();
+
+        assertTrue(cut.isNeeded());
+        assertFalse(cut.isFull());
+        assertTrue(cut.isDirty(DataCacheRefresh.chassisUnit("SDR-5K")));
+        assertFalse(cut.isDirty(DataCacheRefresh.chassisUnit("as7-d")));
+        assertFalse(cut.isDirty(DataCacheRefresh.stockLoadoutUnit("sdr-5k")));
+        assertFalse(cut.isDirty(DataCacheRefresh.ITEMS));
+        assertFalse(cut.isDirty(DataCacheRefresh.ENVIRONMENTS));
+    }
+
+    /**
+     * Weapons are items, everything that refers to items must be re-parsed, but nothing else.
+     */
+    @Test
+    public void testWeapons() throws IOException {
+        when(gameVfs.getChecksum(WEAPONS)).thenReturn(11L);
+
+        DataCacheRefresh cut = compute();
+
+        assertTrue(cut.isDirty(DataCacheRefresh.ITEMS));
+        assertTrue(cut.isDirty(DataCacheRefresh.UPGRADES));
+        assertTrue(cut.isDirty(DataCacheRefresh.omniPodUnit("timber wolf")));
+        assertTrue(cut.isDirty(DataCacheRefresh.chassisUnit("as7-d")));
+        assertTrue(cut.isDirty(DataCacheRefresh.stockLoadoutUnit("as7-d")));
+        assertFalse(cut.isDirty(DataCacheRefresh.MODULES));
+        assertFalse(cut.isDirty(DataCacheRefresh.ENVIRONMENTS));
+        assertFalse(cut.isFull());
+    }
+
+    @Test
+    public void testPilotModules() throws IOException {
+        when(gameVfs.getChecksum(PILOTMODULES)).thenReturn(12L);
+
+        DataCacheRefresh cut = compute();
+
+        assertTrue(cut.isDirty(DataCacheRefresh.MODULES));
+        assertFalse(cut.isDirty(DataCacheRefresh.ITEMS));
+        assertFalse(cut.isDirty(DataCacheRefresh.chassisUnit("as7-d")));
+    }
+
+    @Test
+    public void testLevelAdded() throws IOException {
+        when(gameVfs.getChecksum(LEVELS)).thenReturn(15L);
+
+        DataCacheRefresh cut = compute();
+
+        assertTrue(cut.isDirty(DataCacheRefresh.ENVIRONMENTS));
+        assertFalse(cut.isDirty(DataCacheRefresh.ITEMS));
+    }
+
+    @Test
+    public void testLocalization() throws IOException {
+        when(gameVfs.getChecksum("Game/Localization/English.xml")).thenReturn(14L);
+
+        DataCacheRefresh cut = compute();
+
+        assertTrue(cut.isFull());
+        assertTrue(cut.isDirty(DataCacheRefresh.MODULES));
+    }
+
+    /**
+     * Units that are kept must keep their dependencies, re-parsed units get new dependencies.
+     */
+    @Test
+    public void testDependencies() throws IOException {
+        when(gameVfs.getChecksum(SPIDER_MDF)).thenReturn(16L);
+        when(gameVfs.recordReads(Matchers.<Map<String, Long>> any())).thenReturn(gameVfs);
+        DataCacheRefresh cut = compute();
+
+        cut.keep(DataCacheRefresh.chassisUnit("as7-d"));
+        cut.track(gameVfs, DataCacheRefresh.chassisUnit("sdr-5k"));
+
+        Map<String, Map<String, Long>> ans = cut.getDependencies();
+        assertEquals(2, ans.size());
+        assertEquals(Long.valueOf(7L), ans.get(DataCacheRefresh.chassisUnit("as7-d")).get(ATLAS_MDF));
+        assertTrue(ans.get(DataCacheRefresh.chassisUnit("sdr-5k")).isEmpty());
+    }
+}
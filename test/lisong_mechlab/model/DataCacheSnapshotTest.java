@@ -0,0 +1,158 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lisong_mechlab.model.chassi.Location;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test suite for {@link DataCacheSnapshot}.
+ * 
+ * @author Emily Björk
+ */
+public class DataCacheSnapshotTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    static class Node {
+        String         name;
+        int            value;
+        double[]       values;
+        Location       location;
+        Node           next;
+        List<Node>     children = new ArrayList<>();
+        List<String>   fixed;
+        Map<String, Long> map   = new HashMap<>();
+        transient int  notSaved;
+    }
+
+    /**
+     * Decoding an encoded {@link DataCache} must give a cache that is identical to the original when written as XML.
+     */
+    @Test
+    public void testRoundTrip_DataCache() throws Exception {
+        DataCache original = DataCache.getInstance();
+
+        DataCache copy = (DataCache) DataCacheSnapshot.decode(ByteBuffer.wrap(DataCacheSnapshot.encode(original)));
+
+        assertEquals(DataCache.stream().toXML(original), DataCache.stream().toXML(copy));
+    }
+
+    @Test
+    public void testRoundTrip_File() throws Exception {
+        File file = tempFolder.newFile("cache.bin");
+        DataCache original = DataCache.getInstance();
+
+        DataCacheSnapshot.write(original, file);
+        DataCache copy = (DataCache) DataCacheSnapshot.read(file);
+
+        assertEquals(DataCache.stream().toXML(original), DataCache.stream().toXML(copy));
+    }
+
+    /**
+     * Shared references and cycles must be preserved.
+     */
+    @Test
+    public void testRoundTrip_Graph() throws Exception {
+        Node root = new Node();
+        Node child = new Node();
+        root.name = "root";
+        root.value = 42;
+        root.values = new double[] { 1.0, Math.PI };
+        root.location = Location.CenterTorso;
+        root.next = child;
+        root.children.add(child);
+        root.children.add(child);
+        root.fixed = Collections.unmodifiableList(Arrays.asList("a", "b"));
+        root.map.put("crc", 1234L);
+        root.notSaved = 7;
+        child.next = root;
+
+        Node copy = (Node) DataCacheSnapshot.decode(ByteBuffer.wrap(DataCacheSnapshot.encode(root)));
+
+        assertEquals("root", copy.name);
+        assertEquals(42, copy.value);
+        assertEquals(Math.PI, copy.values[1], 0.0);
+        assertEquals(Location.CenterTorso, copy.location);
+        assertEquals(copy, copy.next.next);
+        assertEquals(copy.next, copy.children.get(0));
+        assertEquals(copy.next, copy.children.get(1));
+        assertEquals(Arrays.asList("a", "b"), copy.fixed);
+        assertEquals(root.fixed.getClass(), copy.fixed.getClass());
+        assertEquals(Long.valueOf(1234L), copy.map.get("crc"));
+        assertEquals(0, copy.notSaved);
+        assertNull(copy.next.name);
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecode_Corrupt() throws Exception {
+        byte[] data = DataCacheSnapshot.encode(DataCache.getInstance());
+        data[data.length / 2] ^= 0x10;
+        DataCacheSnapshot.decode(ByteBuffer.wrap(data));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecode_Truncated() throws Exception {
+        byte[] data = DataCacheSnapshot.encode(DataCache.getInstance());
+        DataCacheSnapshot.decode(ByteBuffer.wrap(Arrays.copyOf(data, data.length - 1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecode_WrongVersion() throws Exception {
+        byte[] data = DataCacheSnapshot.encode(DataCache.getInstance());
+        data[7]++; // Last byte of the format version
+        DataCacheSnapshot.decode(ByteBuffer.wrap(data));
+    }
+
+    @Test(expected = IOException.class)
+    public void testEncode_UnsupportedType() throws Exception {
+        Node root = new Node();
+        root.children = new java.util.concurrent.CopyOnWriteArrayList<>();
+        DataCacheSnapshot.encode(root);
+    }
+
+    @Test
+    public void testReadSnapshot_Stale() throws Exception {
+        File xml = tempFolder.newFile("cache.xml");
+        File bin = DataCache.getSnapshotLocation(xml);
+        assertEquals(new File(tempFolder.getRoot(), "cache.bin"), bin);
+
+        DataCacheSnapshot.write(DataCache.getInstance(), bin);
+        bin.setLastModified(xml.lastModified() - 10000);
+
+        assertNull(DataCache.readSnapshot(bin, xml));
+    }
+}
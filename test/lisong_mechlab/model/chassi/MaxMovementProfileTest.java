@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.List;
 
 import lisong_mechlab.model.modifiers.Modifier;
+import lisong_mechlab.model.modifiers.ModifierSet;
 import lisong_mechlab.model.modifiers.ModifiersDB;
 
 import org.junit.Test;
@@ -100,4 +101,65 @@ public class MaxMovementProfileTest {
         // Arm 2 + Leg 2 will give max of 0.1 + 0.6
         assertEquals(3.7, cut.getTorsoPitchSpeed(null), Math.ulp(4.0));
     }
+
+    /**
+     * Repeated queries with the same modifiers must not re-evaluate the base profile.
+     */
+    @Test
+    public void testMemoized() {
+        MovementProfile base = Mockito.mock(MovementProfile.class);
+        Collection<Modifier> arm_omnipod1 = new ArrayList<>();
+        Collection<Modifier> arm_omnipod2 = new ArrayList<>();
+        arm_omnipod1.add(new Modifier(ModifiersDB.FAST_FIRE_DESC, 1.0));
+        arm_omnipod2.add(new Modifier(ModifiersDB.FAST_FIRE_DESC, 2.0));
+
+        List<Collection<Modifier>> arm = new ArrayList<>();
+        List<List<Collection<Modifier>>> groups = new ArrayList<>();
+        groups.add(arm);
+        arm.add(arm_omnipod1);
+        arm.add(arm_omnipod2);
+
+        MaxMovementProfile cut = new MaxMovementProfile(base, groups);
+
+        Mockito.when(base.getArmYawSpeed(null)).thenReturn(3.0);
+        Mockito.when(base.getArmYawSpeed(arm_omnipod1)).thenReturn(2.8);
+        Mockito.when(base.getArmYawSpeed(arm_omnipod2)).thenReturn(3.1);
+
+        assertEquals(3.1, cut.getArmYawSpeed(null), Math.ulp(4.0));
+        assertEquals(3.1, cut.getArmYawSpeed(null), Math.ulp(4.0));
+
+        Mockito.verify(base, Mockito.times(1)).getArmYawSpeed(null);
+        Mockito.verify(base, Mockito.times(1)).getArmYawSpeed(arm_omnipod1);
+        Mockito.verify(base, Mockito.times(1)).getArmYawSpeed(arm_omnipod2);
+    }
+
+    /**
+     * A {@link ModifierSet} is immutable and memoized by its identity, other collections may change between queries
+     * and must be evaluated every time.
+     */
+    @Test
+    public void testMemoized_ModifierSet() {
+        MovementProfile base = Mockito.mock(MovementProfile.class);
+        Collection<Modifier> arm_omnipod1 = new ArrayList<>();
+        arm_omnipod1.add(new Modifier(ModifiersDB.FAST_FIRE_DESC, 1.0));
+        List<Collection<Modifier>> arm = new ArrayList<>();
+        List<List<Collection<Modifier>>> groups = new ArrayList<>();
+        groups.add(arm);
+        arm.add(arm_omnipod1);
+
+        MaxMovementProfile cut = new MaxMovementProfile(base, groups);
+
+        List<Modifier> extra = new ArrayList<>();
+        ModifierSet set = new ModifierSet(extra);
+        Mockito.when(base.getArmYawSpeed(Mockito.anyCollectionOf(Modifier.class))).thenReturn(3.0);
+
+        assertEquals(3.0, cut.getArmYawSpeed(set), 0.0);
+        assertEquals(3.0, cut.getArmYawSpeed(set), 0.0);
+        Mockito.verify(base, Mockito.times(1)).getArmYawSpeed(set);
+
+        assertEquals(3.0, cut.getArmYawSpeed(extra), 0.0);
+        Mockito.when(base.getArmYawSpeed(Mockito.anyCollectionOf(Modifier.class))).thenReturn(4.0);
+        assertEquals(4.0, cut.getArmYawSpeed(extra), 0.0);
+        assertEquals(3.0, cut.getArmYawSpeed(set), 0.0);
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.item;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test suite for {@link WeaponStat}.
+ *
+ * @author Emily Björk
+ */
+public class WeaponStatTest {
+    private final Weapon gauss = (Weapon) ItemDB.lookup("GAUSS RIFLE");
+    private final Weapon llas  = (Weapon) ItemDB.lookup("LARGE LASER");
+
+    @Test
+    public void testParse() {
+        assertEquals(WeaponStat.DAMAGE_PER_SECOND, WeaponStat.parse("d/s"));
+        assertEquals(WeaponStat.DAMAGE_PER_HEAT, WeaponStat.parse("d/h"));
+        assertEquals(WeaponStat.HEAT.times(WeaponStat.TONS).per(WeaponStat.SLOTS), WeaponStat.parse("ht/c"));
+        assertEquals("d/shh", WeaponStat.parse("d/hsh").toString());
+        assertSame(WeaponStat.parse("dd/t"), WeaponStat.parse("dd/t"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_Unknown() {
+        WeaponStat.parse("d/x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_TwoDivisions() {
+        WeaponStat.parse("d/s/h");
+    }
+
+    @Test
+    public void testEvaluate() {
+        assertEquals(gauss.getDamagePerShot() / gauss.getHeat(null), WeaponStat.DAMAGE_PER_HEAT.evaluate(gauss, null),
+                0.0);
+        double expected = llas.getDamagePerShot() * llas.getDamagePerShot()
+                / (llas.getHeat(null) * llas.getHeat(null) * llas.getSecondsPerShot(null));
+        assertEquals(expected, WeaponStat.parse("dd/hhs").evaluate(llas, null), 1E-12);
+        assertEquals(llas.getMass() * llas.getNumCriticalSlots(), WeaponStat.parse("tc").evaluate(llas, null), 0.0);
+    }
+
+    /**
+     * Evaluating against precomputed {@link WeaponStat.Values} shall give the same result as evaluating directly.
+     */
+    @Test
+    public void testEvaluate_Values() {
+        WeaponStat.Values values = new WeaponStat.Values(llas, null);
+        for (String stat : new String[] { "d", "d/s", "h/s", "d/h", "dd/hhs", "t/c" }) {
+            WeaponStat weaponStat = WeaponStat.parse(stat);
+            assertEquals(weaponStat.evaluate(llas, null), weaponStat.evaluate(values), 0.0);
+        }
+        assertEquals(llas.getHeat(null), values.get(WeaponStat.Quantity.HEAT), 0.0);
+    }
+
+    /**
+     * 0/0 is 0.
+     */
+    @Test
+    public void testEvaluate_ZeroPerZero() {
+        Weapon weapon = Mockito.mock(Weapon.class);
+        assertEquals(0.0, WeaponStat.DAMAGE_PER_HEAT.evaluate(weapon, null), 0.0);
+    }
+}
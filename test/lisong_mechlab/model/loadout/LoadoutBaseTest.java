@@ -732,6 +732,36 @@ public abstract class LoadoutBaseTest {
         assertTrue(ListArrayUtils.equalsUnordered(expected, ans));
     }
 
+    @Test
+    public final void testGetVersion() throws Exception {
+        LoadoutBase<?> cut = makeDefaultCUT();
+        long version = cut.getVersion();
+        assertEquals(version, cut.getVersion());
+
+        cut.rename("foo");
+        assertNotEquals(version, cut.getVersion());
+        version = cut.getVersion();
+
+        cut.getEfficiencies().setCoolRun(true, null);
+        assertNotEquals(version, cut.getVersion());
+    }
+
+    /**
+     * The modifiers shall be cached until the loadout changes.
+     */
+    @Test
+    public final void testGetModifiers_Cached() throws Exception {
+        LoadoutBase<?> cut = makeDefaultCUT();
+        Collection<?> modifiers = cut.getModifiers();
+        assertSame(modifiers, cut.getModifiers());
+
+        cut.getEfficiencies().setCoolRun(true, null);
+
+        Collection<?> ans = cut.getModifiers();
+        assertNotSame(modifiers, ans);
+        assertEquals(modifiers.size() + 1, ans.size());
+    }
+
     @Test
     public final void testToString() throws Exception {
         LoadoutBase<?> cut = makeDefaultCUT();
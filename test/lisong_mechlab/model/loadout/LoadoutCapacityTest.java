@@ -0,0 +1,108 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.loadout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import lisong_mechlab.model.chassi.ChassisBase;
+import lisong_mechlab.model.chassi.ChassisClass;
+import lisong_mechlab.model.chassi.ChassisDB;
+import lisong_mechlab.model.chassi.ChassisOmniMech;
+import lisong_mechlab.model.chassi.ChassisStandard;
+import lisong_mechlab.model.chassi.HardPointType;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.loadout.component.ComponentBuilder;
+import lisong_mechlab.util.OperationStack;
+import lisong_mechlab.util.message.MessageXBar;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+/**
+ * Test suite for {@link LoadoutCapacity}.
+ * 
+ * @author Emily Björk
+ */
+@RunWith(JUnitParamsRunner.class)
+public class LoadoutCapacityTest {
+    private final MessageXBar xBar = Mockito.mock(MessageXBar.class);
+
+    public Object[] allChassis() {
+        List<ChassisBase> chassii = new ArrayList<>();
+        chassii.addAll(ChassisDB.lookup(ChassisClass.LIGHT));
+        chassii.addAll(ChassisDB.lookup(ChassisClass.MEDIUM));
+        chassii.addAll(ChassisDB.lookup(ChassisClass.HEAVY));
+        chassii.addAll(ChassisDB.lookup(ChassisClass.ASSAULT));
+        return chassii.toArray();
+    }
+
+    private LoadoutBase<?> makeLoadout(ChassisBase aChassis) {
+        if (aChassis instanceof ChassisStandard)
+            return new LoadoutStandard((ChassisStandard) aChassis);
+        return new LoadoutOmniMech(ComponentBuilder.getOmniComponentFactory(), (ChassisOmniMech) aChassis);
+    }
+
+    private void verifySameAsLoadout(LoadoutBase<?> aLoadout) {
+        LoadoutCapacity cut = new LoadoutCapacity(aLoadout);
+        for (Item item : ItemDB.lookup(Item.class)) {
+            assertSame(item.toString(), aLoadout.canEquip(item), cut.canEquip(item));
+            assertEquals(item.toString(), !aLoadout.getCandidateLocationsForItem(item).isEmpty(),
+                    cut.hasCandidateLocations(item));
+        }
+        for (HardPointType hardPointType : HardPointType.values()) {
+            assertEquals(aLoadout.getHardpointsCount(hardPointType), cut.getHardpointsCount(hardPointType));
+        }
+    }
+
+    /**
+     * The summary must give the same answers as the loadout for all items on stock loadouts.
+     * 
+     * @param aChassis
+     *            The chassis to test on.
+     * @throws Exception
+     */
+    @Test
+    @Parameters(method = "allChassis")
+    public void testCanEquip_Stock(ChassisBase aChassis) throws Exception {
+        LoadoutBase<?> loadout = makeLoadout(aChassis);
+        new OperationStack(0).pushAndApply(new OpLoadStock(aChassis, loadout, xBar));
+        verifySameAsLoadout(loadout);
+    }
+
+    /**
+     * The summary must give the same answers as the loadout for all items on empty loadouts.
+     * 
+     * @param aChassis
+     *            The chassis to test on.
+     */
+    @Test
+    @Parameters(method = "allChassis")
+    public void testCanEquip_Empty(ChassisBase aChassis) {
+        verifySameAsLoadout(makeLoadout(aChassis));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.loadout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import lisong_mechlab.model.chassi.ChassisDB;
+import lisong_mechlab.model.chassi.ChassisStandard;
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.item.HeatSink;
+import lisong_mechlab.model.item.HeatSource;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.item.JumpJet;
+import lisong_mechlab.model.item.ModifierEquipment;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.component.ConfiguredComponentBase;
+import lisong_mechlab.model.loadout.component.OpAddItem;
+import lisong_mechlab.model.loadout.component.OpRemoveItem;
+import lisong_mechlab.model.loadout.export.Base64LoadoutCoder;
+import lisong_mechlab.util.OperationStack;
+import lisong_mechlab.util.message.MessageXBar;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Test suite for {@link LoadoutItemIndex} through {@link LoadoutBase#items(Class)}.
+ * 
+ * @author Emily Björk
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LoadoutItemIndexTest {
+    @Mock
+    private MessageXBar     xBar;
+
+    private OperationStack  stack   = new OperationStack(0);
+    private LoadoutStandard loadout = new LoadoutStandard((ChassisStandard) ChassisDB.lookup("AS7-D"));
+
+    @Test
+    public void testItems_Cached() {
+        assertSame(loadout.items(Weapon.class), loadout.items(Weapon.class));
+        assertSame(loadout.items(null), loadout.items());
+    }
+
+    @Test
+    public void testItems_SameAsIterator() {
+        List<Item> expected = new ArrayList<>();
+        LoadoutIterator<Item> it = new LoadoutIterator<>(loadout);
+        while (it.hasNext()) {
+            expected.add(it.next());
+        }
+        assertEquals(expected, loadout.items());
+    }
+
+    /**
+     * The cached view of every type must hold the same items, in the same order, as filtering all items.
+     */
+    @Test
+    public void testItems_SameAsIteratorPerType() throws Exception {
+        LoadoutBase<?> stock = new Base64LoadoutCoder().parse("lsml://rQAAKCwqCDISSg4qCDEDvqmbFj6wWK9evXsLLAEYCg==");
+        Class<?>[] types = { Weapon.class, HeatSink.class, JumpJet.class, ModifierEquipment.class, HeatSource.class };
+        for (Class<?> type : types) {
+            List<Object> expected = new ArrayList<>();
+            Iterator<?> it = new LoadoutIterator<>(stock, type);
+            while (it.hasNext()) {
+                expected.add(it.next());
+            }
+            assertEquals(expected, stock.items(type));
+            assertSame(stock.items(type), stock.items(type));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testItems_Unmodifiable() {
+        ((List<Item>) loadout.items()).clear();
+    }
+
+    @Test
+    public void testItems_InvalidatedByAddRemove() {
+        ConfiguredComponentBase rightArm = loadout.getComponent(Location.RightArm);
+        Item laser = ItemDB.lookup("MEDIUM LASER");
+        Iterable<Weapon> before = loadout.items(Weapon.class);
+        int heatSinks = loadout.getHeatsinksCount();
+
+        stack.pushAndApply(new OpAddItem(xBar, loadout, rightArm, laser));
+        stack.pushAndApply(new OpAddItem(xBar, loadout, rightArm, ItemDB.SHS));
+
+        List<Weapon> weapons = (List<Weapon>) loadout.items(Weapon.class);
+        assertEquals(1, weapons.size());
+        assertSame(laser, weapons.get(0));
+        assertTrue(((List<Weapon>) before).isEmpty());
+        assertEquals(heatSinks + 1, loadout.getHeatsinksCount());
+        assertEquals(1, ((List<HeatSink>) loadout.items(HeatSink.class)).size());
+
+        stack.pushAndApply(new OpRemoveItem(xBar, loadout, rightArm, laser));
+
+        assertTrue(((List<Weapon>) loadout.items(Weapon.class)).isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.loadout;
+
+import java.util.Iterator;
+
+import lisong_mechlab.model.item.HeatSink;
+import lisong_mechlab.model.item.HeatSource;
+import lisong_mechlab.model.item.JumpJet;
+import lisong_mechlab.model.item.ModifierEquipment;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.export.Base64LoadoutCoder;
+import lisong_mechlab.model.metrics.AlphaStrike;
+import lisong_mechlab.model.metrics.AlphaTimeToOverHeat;
+import lisong_mechlab.model.metrics.BurstDamageOverTime;
+import lisong_mechlab.model.metrics.CoolingRatio;
+import lisong_mechlab.model.metrics.GhostHeat;
+import lisong_mechlab.model.metrics.HeatCapacity;
+import lisong_mechlab.model.metrics.HeatDissipation;
+import lisong_mechlab.model.metrics.HeatGeneration;
+import lisong_mechlab.model.metrics.HeatOverTime;
+import lisong_mechlab.model.metrics.JumpDistance;
+import lisong_mechlab.model.metrics.MaxDPS;
+import lisong_mechlab.model.metrics.MaxSustainedDPS;
+import lisong_mechlab.model.metrics.TimeToCool;
+import lisong_mechlab.model.metrics.TopSpeed;
+import lisong_mechlab.util.message.MessageXBar;
+
+/**
+ * Measures the cost of typed item iteration on a loadout, both through a fresh {@link LoadoutIterator} (which filters
+ * all items on every call) and through the cached views of {@link LoadoutBase#items(Class)}, and the time it takes to
+ * calculate the metric suite shown in the loadout window. This is not a unit test, run it manually with the main
+ * method.
+ * 
+ * @author Emily Björk
+ */
+public class LoadoutItemsBenchmark {
+    private static final int        ITERATIONS = 100000;
+    private static final Class<?>[] TYPES      = { Weapon.class, HeatSink.class, JumpJet.class,
+            ModifierEquipment.class, HeatSource.class };
+
+    public static void main(String[] aArgs) throws Exception {
+        LoadoutBase<?> loadout = new Base64LoadoutCoder().parse("lsml://rQAAKCwqCDISSg4qCDEDvqmbFj6wWK9evXsLLAEYCg==");
+
+        // Warm up all paths so that we measure steady state and not class loading or compilation.
+        long sink = iterateUncached(loadout, ITERATIONS) + iterateCached(loadout, ITERATIONS)
+                + calculateMetrics(loadout, ITERATIONS / 10);
+
+        long start = System.nanoTime();
+        sink += iterateUncached(loadout, ITERATIONS);
+        long uncachedTime = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        sink += iterateCached(loadout, ITERATIONS);
+        long cachedTime = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        sink += calculateMetrics(loadout, ITERATIONS / 10);
+        long metricsTime = (System.nanoTime() - start) / (ITERATIONS / 10);
+
+        System.out.println("Filtered iteration: " + uncachedTime + " ns");
+        System.out.println("Cached iteration:   " + cachedTime + " ns");
+        System.out.println("Speed up:           " + (double) uncachedTime / cachedTime + "x");
+        System.out.println("Metric suite:       " + metricsTime + " ns");
+        System.out.println("(" + sink + ")");
+    }
+
+    private static long iterateUncached(LoadoutBase<?> aLoadout, int aIterations) {
+        long ans = 0;
+        for (int i = 0; i < aIterations; ++i) {
+            for (Class<?> type : TYPES) {
+                Iterator<?> it = new LoadoutIterator<>(aLoadout, type);
+                while (it.hasNext()) {
+                    ans += it.next().hashCode();
+                }
+            }
+        }
+        return ans;
+    }
+
+    private static long iterateCached(LoadoutBase<?> aLoadout, int aIterations) {
+        long ans = 0;
+        for (int i = 0; i < aIterations; ++i) {
+            for (Class<?> type : TYPES) {
+                for (Object item : aLoadout.items(type)) {
+                    ans += item.hashCode();
+                }
+            }
+        }
+        return ans;
+    }
+
+    private static long calculateMetrics(LoadoutBase<?> aLoadout, int aIterations) {
+        MessageXBar xBar = new MessageXBar();
+        HeatDissipation heatDissipation = new HeatDissipation(aLoadout, null);
+        HeatCapacity heatCapacity = new HeatCapacity(aLoadout);
+        HeatGeneration heatGeneration = new HeatGeneration(aLoadout);
+        HeatOverTime heatOverTime = new HeatOverTime(aLoadout, xBar);
+        AlphaStrike alphaStrike = new AlphaStrike(aLoadout);
+        MaxDPS maxDps = new MaxDPS(aLoadout);
+        MaxSustainedDPS maxSustainedDps = new MaxSustainedDPS(aLoadout, heatDissipation);
+        BurstDamageOverTime burstDamage = new BurstDamageOverTime(aLoadout, xBar);
+        GhostHeat ghostHeat = new GhostHeat(aLoadout);
+        JumpDistance jumpDistance = new JumpDistance(aLoadout);
+        TopSpeed topSpeed = new TopSpeed(aLoadout);
+        CoolingRatio coolingRatio = new CoolingRatio(heatDissipation, heatGeneration);
+        TimeToCool timeToCool = new TimeToCool(heatCapacity, heatDissipation);
+        AlphaTimeToOverHeat timeToOverHeat = new AlphaTimeToOverHeat(heatCapacity, heatOverTime, heatDissipation);
+
+        double ans = 0;
+        for (int i = 0; i < aIterations; ++i) {
+            ans += heatDissipation.calculate() + heatCapacity.calculate() + heatGeneration.calculate();
+            ans += alphaStrike.calculate(300) + maxDps.calculate(300) + maxSustainedDps.calculate(300);
+            ans += burstDamage.calculate(300, 5) + ghostHeat.calculate() + jumpDistance.calculate();
+            ans += topSpeed.calculate() + coolingRatio.calculate() + timeToCool.calculate();
+            ans += timeToOverHeat.calculate();
+        }
+        return (long) ans;
+    }
+}
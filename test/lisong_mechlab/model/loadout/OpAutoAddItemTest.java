@@ -27,6 +27,7 @@ import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import lisong_mechlab.model.chassi.ChassisDB;
 import lisong_mechlab.model.chassi.ChassisStandard;
@@ -221,7 +222,7 @@ public class OpAutoAddItemTest {
      * {@link OpAutoAddItem} shall throw an {@link IllegalArgumentException} if the item cannot be auto added on any
      * permutation of the loadout.
      */
-    @Test(expected = IllegalArgumentException.class)
+    @Test(expected = IllegalArgumentException.class, timeout = 5000)
     public void testMoveItem_NotPossible() {
         LoadoutStandard loadout = null;
         Item gaussRifle = null;
@@ -261,6 +262,41 @@ public class OpAutoAddItemTest {
         stack.pushAndApply(new OpAutoAddItem(loadout, xBar, gaussRifle));
     }
 
+    /**
+     * A search that has been cancelled shall throw instead of finding a solution.
+     */
+    @Test(expected = CancellationException.class)
+    public void testMoveItem_Cancelled() {
+        LoadoutStandard loadout = new LoadoutStandard((ChassisStandard) ChassisDB.lookup("AS7-D-DC"));
+        stack.pushAndApply(new OpSetHeatSinkType(xBar, loadout, UpgradeDB.DOUBLE_HEATSINKS));
+        stack.pushAndApply(new OpAddItem(xBar, loadout, loadout.getComponent(Location.RightTorso), ItemDB.DHS));
+        stack.pushAndApply(new OpAddItem(xBar, loadout, loadout.getComponent(Location.RightTorso), ItemDB.DHS));
+        OpAutoAddItem cut = new OpAutoAddItem(loadout, xBar, ItemDB.lookup("GAUSS RIFLE"));
+
+        cut.cancel();
+        cut.prepareOperationAheadOfTime();
+    }
+
+    /**
+     * Interrupting the thread that is searching shall abort the search.
+     */
+    @Test(expected = CancellationException.class)
+    public void testMoveItem_Interrupted() {
+        LoadoutStandard loadout = new LoadoutStandard((ChassisStandard) ChassisDB.lookup("AS7-D-DC"));
+        stack.pushAndApply(new OpSetHeatSinkType(xBar, loadout, UpgradeDB.DOUBLE_HEATSINKS));
+        stack.pushAndApply(new OpAddItem(xBar, loadout, loadout.getComponent(Location.RightTorso), ItemDB.DHS));
+        stack.pushAndApply(new OpAddItem(xBar, loadout, loadout.getComponent(Location.RightTorso), ItemDB.DHS));
+        OpAutoAddItem cut = new OpAutoAddItem(loadout, xBar, ItemDB.lookup("GAUSS RIFLE"));
+
+        Thread.currentThread().interrupt();
+        try {
+            cut.prepareOperationAheadOfTime();
+        }
+        finally {
+            Thread.interrupted(); // Clear the flag
+        }
+    }
+
     /**
      * {@link OpAutoAddItem} shall try to move items in order to make room for the added item if there is no room in any
      * component with a hard point but there are items that could be moved to make room.
@@ -0,0 +1,105 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.loadout;
+
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.loadout.export.Base64LoadoutCoder;
+import lisong_mechlab.util.OperationStack;
+
+/**
+ * Measures the cost of {@link LoadoutBase#copy()}, both in time and in retained memory, and the throughput of the
+ * SmartPlace search in {@link OpAutoAddItem}, which copies the loadout for every node it visits. This is not a unit
+ * test, run it manually with the main method.
+ * 
+ * @author Emily Björk
+ */
+public class SmartPlaceBenchmark {
+    private static final int      ITERATIONS = 200;
+    private static final int      COPIES     = 20000;
+    private static final String[] LOADOUTS   = { "lsml://rQAAKCwqCDISSg4qCDEDvqmbFj6wWK9evXsLLAEYCg==",
+            "lsml://rRsAkEBHCFASSAhHCFBAuihsWsWrVrYLS3G21q0UFBQUFrWg2tWi",
+            "lsml://rgCkLzsFLw9VBzsFLy4A6zGmJKTKlSq1vEEXyq1atPuJWk4kqVKrVa1DExJUqVY=" };
+    private static final Item[]   ITEMS      = { ItemDB.lookup("XL ENGINE 200"), ItemDB.AMS,
+            ItemDB.lookup("CLAN DOUBLE HEAT SINK") };
+
+    public static void main(String[] aArgs) throws Exception {
+        Base64LoadoutCoder coder = new Base64LoadoutCoder();
+        LoadoutBase<?>[] loadouts = new LoadoutBase<?>[LOADOUTS.length];
+        for (int i = 0; i < LOADOUTS.length; ++i) {
+            loadouts[i] = coder.parse(LOADOUTS[i]);
+        }
+
+        // Warm up all paths so that we measure steady state and not class loading or compilation.
+        long sink = copy(loadouts[0], COPIES) + smartPlace(loadouts, ITERATIONS);
+
+        long start = System.nanoTime();
+        sink += copy(loadouts[0], COPIES);
+        long copyTime = (System.nanoTime() - start) / COPIES;
+
+        start = System.nanoTime();
+        sink += smartPlace(loadouts, ITERATIONS);
+        long smartPlaceTime = (System.nanoTime() - start) / (ITERATIONS * loadouts.length);
+
+        System.out.println("Copy:          " + copyTime + " ns");
+        System.out.println("Copy retains:  " + retainedPerCopy(loadouts[0]) + " bytes");
+        System.out.println("SmartPlace:    " + smartPlaceTime / 1000 + " us");
+        System.out.println("(" + sink + ")");
+    }
+
+    private static long copy(LoadoutBase<?> aLoadout, int aIterations) {
+        long ans = 0;
+        for (int i = 0; i < aIterations; ++i) {
+            ans += aLoadout.copy().getNumCriticalSlotsUsed();
+        }
+        return ans;
+    }
+
+    private static long smartPlace(LoadoutBase<?>[] aLoadouts, int aIterations) {
+        long ans = 0;
+        OperationStack stack = new OperationStack(0);
+        for (int i = 0; i < aIterations; ++i) {
+            for (int j = 0; j < aLoadouts.length; ++j) {
+                LoadoutBase<?> loadout = aLoadouts[j].copy();
+                stack.pushAndApply(new OpAutoAddItem(loadout, null, ITEMS[j]));
+                ans += loadout.getNumCriticalSlotsUsed();
+            }
+        }
+        return ans;
+    }
+
+    private static long retainedPerCopy(LoadoutBase<?> aLoadout) {
+        LoadoutBase<?>[] copies = new LoadoutBase<?>[COPIES];
+        long before = usedMemory();
+        for (int i = 0; i < COPIES; ++i) {
+            copies[i] = aLoadout.copy();
+        }
+        long after = usedMemory();
+        return (after - before) / copies.length;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
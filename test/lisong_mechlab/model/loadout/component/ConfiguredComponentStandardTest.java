@@ -166,6 +166,24 @@ public class ConfiguredComponentStandardTest extends ConfiguredComponentBaseTest
         assertEquals(cut, new ConfiguredComponentStandard(cut));
     }
 
+    /**
+     * The copy shares the items with the original until either changes, changes must not be visible in the other.
+     */
+    @Test
+    public void testCopyCtor_ItemsNotLinked() {
+        ConfiguredComponentStandard cut = makeDefaultCUT();
+        cut.addItem(ItemDB.BAP);
+        ConfiguredComponentStandard copy = new ConfiguredComponentStandard(cut);
+
+        copy.addItem(ItemDB.AMS);
+        cut.removeItem(ItemDB.BAP);
+
+        assertEquals(0, cut.getItemsEquipped().size());
+        assertEquals(2, copy.getItemsEquipped().size());
+        assertEquals(0.0, cut.getItemMass(), 0.0);
+        assertEquals(ItemDB.BAP.getMass() + ItemDB.AMS.getMass(), copy.getItemMass(), 0.0);
+    }
+
     @Test
     public void testGetHardPointCount() {
         Mockito.when(stdInternal.getHardPointCount(HardPointType.ENERGY)).thenReturn(7);
@@ -0,0 +1,137 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.loadout.component;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import lisong_mechlab.model.chassi.ChassisBase;
+import lisong_mechlab.model.chassi.ChassisClass;
+import lisong_mechlab.model.chassi.ChassisDB;
+import lisong_mechlab.model.chassi.ChassisOmniMech;
+import lisong_mechlab.model.chassi.ChassisStandard;
+import lisong_mechlab.model.chassi.ComponentStandard;
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.item.HeatSink;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutOmniMech;
+import lisong_mechlab.model.loadout.LoadoutStandard;
+import lisong_mechlab.model.loadout.OpLoadStock;
+import lisong_mechlab.model.loadout.OpStripLoadout;
+import lisong_mechlab.util.OperationStack;
+import lisong_mechlab.util.message.MessageXBar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+/**
+ * Test suite that runs operations on real loadouts with {@link ConfiguredComponentBase#checkSums} enabled so that the
+ * cached item and armor sums are verified against a full recount after every change.
+ * 
+ * @author Emily Björk
+ */
+@RunWith(JUnitParamsRunner.class)
+public class ConfiguredComponentSumsTest {
+    private final MessageXBar xBar = Mockito.mock(MessageXBar.class);
+    private boolean           oldCheckSums;
+
+    @Before
+    public void setup() {
+        oldCheckSums = ConfiguredComponentBase.checkSums;
+        ConfiguredComponentBase.checkSums = true;
+    }
+
+    @After
+    public void tearDown() {
+        ConfiguredComponentBase.checkSums = oldCheckSums;
+    }
+
+    public Object[] allChassis() {
+        List<ChassisBase> chassii = new ArrayList<>();
+        chassii.addAll(ChassisDB.lookup(ChassisClass.LIGHT));
+        chassii.addAll(ChassisDB.lookup(ChassisClass.MEDIUM));
+        chassii.addAll(ChassisDB.lookup(ChassisClass.HEAVY));
+        chassii.addAll(ChassisDB.lookup(ChassisClass.ASSAULT));
+        return chassii.toArray();
+    }
+
+    private LoadoutBase<?> makeLoadout(ChassisBase aChassis) {
+        if (aChassis instanceof ChassisStandard)
+            return new LoadoutStandard((ChassisStandard) aChassis);
+        return new LoadoutOmniMech(ComponentBuilder.getOmniComponentFactory(), (ChassisOmniMech) aChassis);
+    }
+
+    /**
+     * Loading, stripping and undoing both on every chassis must keep the sums consistent. The loaded stock loadout is
+     * also compared to a fresh copy which has its sums copied rather than incrementally built.
+     * 
+     * @param aChassis
+     *            The chassis to test on.
+     * @throws Exception
+     */
+    @Test
+    @Parameters(method = "allChassis")
+    public void testStockStripUndo(ChassisBase aChassis) throws Exception {
+        LoadoutBase<?> loadout = makeLoadout(aChassis);
+        OperationStack stack = new OperationStack(2);
+
+        stack.pushAndApply(new OpLoadStock(aChassis, loadout, xBar));
+        LoadoutBase<?> copy = loadout.copy();
+        assertEquals(copy.getNumCriticalSlotsUsed(), loadout.getNumCriticalSlotsUsed());
+        assertEquals(copy.getMass(), loadout.getMass(), 0.0);
+
+        stack.pushAndApply(new OpStripLoadout(loadout, xBar));
+        stack.undo();
+        assertEquals(copy.getNumCriticalSlotsUsed(), loadout.getNumCriticalSlotsUsed());
+        assertEquals(copy.getMass(), loadout.getMass(), 0.0);
+        for (Location location : Location.values()) {
+            ConfiguredComponentBase component = loadout.getComponent(location);
+            assertEquals(copy.getComponent(location).getCrittableSlots(), component.getCrittableSlots());
+            assertEquals(copy.getComponent(location).getEngineHeatsinks(), component.getEngineHeatsinks());
+        }
+        stack.undo();
+    }
+
+    /**
+     * The check mode must detect sums that no longer match the items, here simulated by an item that changes size
+     * after it has been added.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testCheckSums_Detects() {
+        ComponentStandard internal = Mockito.mock(ComponentStandard.class);
+        Mockito.when(internal.getLocation()).thenReturn(Location.LeftArm);
+        Mockito.when(internal.getFixedItems()).thenReturn(new ArrayList<Item>());
+        HeatSink heatSink = Mockito.mock(HeatSink.class);
+        Mockito.when(heatSink.getNumCriticalSlots()).thenReturn(1);
+
+        ConfiguredComponentStandard cut = new ConfiguredComponentStandard(internal, false);
+        cut.addItem(heatSink);
+        Mockito.when(heatSink.getNumCriticalSlots()).thenReturn(2);
+        cut.addItem(heatSink);
+    }
+}
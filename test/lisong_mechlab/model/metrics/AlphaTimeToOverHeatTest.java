@@ -22,11 +22,17 @@ package lisong_mechlab.model.metrics;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lisong_mechlab.model.metrics.helpers.IntegratedImpulseTrain;
+import lisong_mechlab.model.metrics.helpers.IntegratedPeriodicSignal;
+import lisong_mechlab.model.metrics.helpers.IntegratedPulseTrain;
+import lisong_mechlab.model.metrics.helpers.IntegratedSignal;
+
 import org.junit.Test;
-import org.mockito.Matchers;
 import org.mockito.Mockito;
-import org.mockito.invocation.InvocationOnMock;
-import org.mockito.stubbing.Answer;
 
 /**
  * This is a test suite for {@link AlphaTimeToOverHeat}.
@@ -34,25 +40,42 @@ import org.mockito.stubbing.Answer;
  * @author Emily Björk
  */
 public class AlphaTimeToOverHeatTest {
+    private final HeatCapacity                   capacity    = Mockito.mock(HeatCapacity.class);
+    private final HeatOverTime                   generation  = Mockito.mock(HeatOverTime.class);
+    private final HeatDissipation                dissipation = Mockito.mock(HeatDissipation.class);
+    private final List<IntegratedPeriodicSignal> signals     = new ArrayList<>();
 
-    @Test
-    public void testCalculate() {
-        HeatCapacity capacity = Mockito.mock(HeatCapacity.class);
-        HeatOverTime generation = Mockito.mock(HeatOverTime.class);
-        HeatDissipation dissipation = Mockito.mock(HeatDissipation.class);
+    private double calculate(double aCapacity, double aDissipation) {
+        Mockito.when(capacity.calculate()).thenReturn(aCapacity);
+        Mockito.when(dissipation.calculate()).thenReturn(aDissipation);
+        Mockito.when(generation.getHeatSignals()).thenReturn(signals);
+        return new AlphaTimeToOverHeat(capacity, generation, dissipation).calculate();
+    }
 
-        Mockito.when(capacity.calculate()).thenReturn(60.0);
-        Mockito.when(dissipation.calculate()).thenReturn(4.0);
-        Mockito.when(generation.calculate(Matchers.anyDouble())).then(new Answer<Double>() {
-            @Override
-            public Double answer(InvocationOnMock aInvocation) throws Throwable {
-                double time = (Double) aInvocation.getArguments()[0];
-                return 5 * time; // 5 heat per second generated
+    /**
+     * The heat integrated with a small fixed time step, the way this metric used to be calculated.
+     */
+    private double calculateSampled(double aCapacity, double aDissipation, double aTimeStep) {
+        double heat = 0;
+        double lastHeat = 0;
+        for (int step = 0; step * aTimeStep < 15 * 60; ++step) {
+            double currentHeat = 0;
+            for (IntegratedSignal signal : signals) {
+                currentHeat += signal.integrateFromZeroTo(step * aTimeStep);
+            }
+            heat = Math.max(0, heat + currentHeat - lastHeat - aDissipation * aTimeStep);
+            lastHeat = currentHeat;
+            if (heat >= aCapacity) {
+                return step * aTimeStep;
             }
-        });
+        }
+        return Double.POSITIVE_INFINITY;
+    }
 
-        AlphaTimeToOverHeat cut = new AlphaTimeToOverHeat(capacity, generation, dissipation);
-        assertEquals(60.0, cut.calculate(), 0.6); // 1% tolerance
+    @Test
+    public void testCalculate() {
+        signals.add(new IntegratedPulseTrain(1, 1, 5)); // 5 heat per second generated
+        assertEquals(60.0, calculate(60.0, 4.0), 1E-9);
     }
 
     /**
@@ -60,53 +83,75 @@ public class AlphaTimeToOverHeatTest {
      */
     @Test
     public void testCalculate_longerThan15min() {
-        HeatCapacity capacity = Mockito.mock(HeatCapacity.class);
-        HeatOverTime generation = Mockito.mock(HeatOverTime.class);
-        HeatDissipation dissipation = Mockito.mock(HeatDissipation.class);
+        signals.add(new IntegratedPulseTrain(1, 1, 4.05)); // 4.05 heat per second generated -> 20min to overheat
+        assertTrue(Double.isInfinite(calculate(60.0, 4.0)));
+    }
 
-        Mockito.when(capacity.calculate()).thenReturn(60.0);
-        Mockito.when(dissipation.calculate()).thenReturn(4.0);
-        Mockito.when(generation.calculate(Matchers.anyDouble())).then(new Answer<Double>() {
-            @Override
-            public Double answer(InvocationOnMock aInvocation) throws Throwable {
-                double time = (Double) aInvocation.getArguments()[0];
-                return 4.05 * time; // 4.05 heat per second generated -> 20min to overheat
-            }
-        });
+    /**
+     * The time of over heat shall be exact within a pulse.
+     */
+    @Test
+    public void testCalculate_Pulses() {
+        signals.add(new IntegratedImpulseTrain(10, 30));
+        signals.add(new IntegratedPulseTrain(10, 2, 20));
+        // 30 heat at t=0 then 12 heat per second during the pulse.
+        assertEquals(20.0 / 12.0, calculate(50.0, 8.0), 1E-9);
+    }
 
-        AlphaTimeToOverHeat cut = new AlphaTimeToOverHeat(capacity, generation, dissipation);
-        assertTrue(Double.isInfinite(cut.calculate()));
+    /**
+     * When heat is given as impulses the mech can cool down between impulses.
+     */
+    @Test
+    public void testCalculate_Impulses() {
+        signals.add(new IntegratedImpulseTrain(10, 40));
+        // 40 heat, cool to 20 then 40 heat more.
+        assertEquals(10.0, calculate(60.0, 2.0), 0.0);
     }
 
     /**
-     * When heat is given as pulses the mech can cool down between pulses. But not to negative heat.
+     * The mech can cool down between impulses. But not to negative heat.
      */
     @Test
-    public void testCalculate_Pulses() {
-        HeatCapacity capacity = Mockito.mock(HeatCapacity.class);
-        HeatOverTime generation = Mockito.mock(HeatOverTime.class);
-        HeatDissipation dissipation = Mockito.mock(HeatDissipation.class);
+    public void testCalculate_NoNegativeHeat() {
+        signals.add(new IntegratedImpulseTrain(10, 30));
+        signals.add(new IntegratedPulseTrain(10, 2, 20));
+        // The heat peaks at 54 at t=2 and is zero before the next period starts
+        assertTrue(Double.isInfinite(calculate(55.0, 8.0)));
+    }
 
-        Mockito.when(capacity.calculate()).thenReturn(60.0);
-        Mockito.when(dissipation.calculate()).thenReturn(4.0);
-        Mockito.when(generation.calculate(Matchers.anyDouble())).then(new Answer<Double>() {
-            @Override
-            public Double answer(InvocationOnMock aInvocation) throws Throwable {
-                double time = (Double) aInvocation.getArguments()[0];
-                int integerTime = (int) time;
-                if (time <= 100) {
-                    return (integerTime / 5) * 5.0; // 5 heat pulse every 5 seconds.
-                    // The cooling capacity is 20 in the same period which would cool the mech to negative temperature
-                    // acting as a cooling buffer which is not allowed. If this happens, the impulse after 100s will not
-                    // be enough to cause an over heat as expected.
-                }
-                return 100 + 61.0; // The above will have generated 100 heat in total, add an impulse of 61 to trigger
-                                   // over
-                                   // heat.
-            }
-        });
+    /**
+     * Signals without any heat must not stall the calculation.
+     */
+    @Test(timeout = 1000)
+    public void testCalculate_NoHeat() {
+        signals.add(new IntegratedImpulseTrain(0, 0));
+        signals.add(new IntegratedPulseTrain(0, 0, 5));
+        assertTrue(Double.isInfinite(calculate(60.0, 4.0)));
+    }
+
+    /**
+     * The result shall match integrating the heat with a small time step for loadout like heat signals.
+     */
+    @Test
+    public void testCalculate_SameAsSampled() {
+        List<List<IntegratedPeriodicSignal>> loadouts = new ArrayList<>();
+        loadouts.add(Arrays.<IntegratedPeriodicSignal> asList(new IntegratedImpulseTrain(3.25, 4),
+                new IntegratedImpulseTrain(3.25, 4), new IntegratedPulseTrain(4.0, 1.0, 6.0),
+                new IntegratedPulseTrain(10, 10, 0.2)));
+        loadouts.add(Arrays.<IntegratedPeriodicSignal> asList(new IntegratedImpulseTrain(1.66, 1),
+                new IntegratedImpulseTrain(2.5, 6), new IntegratedImpulseTrain(4.25, 4.5),
+                new IntegratedPulseTrain(3.75, 0.75, 8.0 / 0.75), new IntegratedPulseTrain(10, 10, 0.2)));
+        loadouts.add(Arrays.<IntegratedPeriodicSignal> asList(new IntegratedPulseTrain(2.25, 1.0, 7.0),
+                new IntegratedPulseTrain(2.25, 1.0, 7.0), new IntegratedPulseTrain(2.25, 1.0, 7.0),
+                new IntegratedImpulseTrain(4, 10)));
 
-        AlphaTimeToOverHeat cut = new AlphaTimeToOverHeat(capacity, generation, dissipation);
-        assertEquals(100.0, cut.calculate(), 1.0); // 1% tolerance
+        for (List<IntegratedPeriodicSignal> loadout : loadouts) {
+            for (double heatDissipation : new double[] { 2.0, 4.0, 5.0 }) {
+                signals.clear();
+                signals.addAll(loadout);
+                double expected = calculateSampled(50.0, heatDissipation, 0.001);
+                assertEquals(expected, calculate(50.0, heatDissipation), 0.01);
+            }
+        }
     }
 }
@@ -22,9 +22,9 @@ package lisong_mechlab.model.metrics;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -41,10 +41,16 @@ public class AsymptoticTimeToOverHeatTest {
     private HeatDissipation          dissipation;
     @Mock
     private HeatGeneration           generation;
-
-    @InjectMocks
     private AsymptoticTimeToOverHeat cut;
 
+    /**
+     * All inputs are {@link Metric}s, construct explicitly so that they can't be swapped.
+     */
+    @Before
+    public void setup() {
+        cut = new AsymptoticTimeToOverHeat(capacity, dissipation, generation);
+    }
+
     /**
      * 15 minutes and above is rounded up to infinity. Matches are only 15 minutes :)
      */
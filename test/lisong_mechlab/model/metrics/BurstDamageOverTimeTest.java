@@ -146,4 +146,28 @@ public class BurstDamageOverTimeTest {
         double expected = erllas.getDamagePerShot() * 3.5;
         assertEquals(expected, burst, 0.0);
     }
+
+    /**
+     * {@link BurstDamageOverTime#evaluate(double, double[], double[])} shall give the same result as
+     * {@link BurstDamageOverTime#calculate(double, double)} for every range and time.
+     */
+    @Test
+    public final void testEvaluate() {
+        items.add((Weapon) ItemDB.lookup("AC/20"));
+        items.add((Weapon) ItemDB.lookup("ER LARGE LASER"));
+        items.add((Weapon) ItemDB.lookup("ER PPC"));
+        double[] times = new double[50];
+        for (int i = 0; i < times.length; ++i) {
+            times[i] = i * 0.37;
+        }
+        double[] ans = new double[times.length];
+
+        BurstDamageOverTime cut = new BurstDamageOverTime(loadout, aXBar);
+        for (double range : new double[] { -1, 0, 300, 650, 900, 300 }) {
+            cut.evaluate(range, times, ans);
+            for (int i = 0; i < times.length; ++i) {
+                assertEquals(cut.calculate(range, times[i]), ans[i], 0.0);
+            }
+        }
+    }
 }
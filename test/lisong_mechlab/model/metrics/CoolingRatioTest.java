@@ -22,9 +22,9 @@ package lisong_mechlab.model.metrics;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -39,9 +39,16 @@ public class CoolingRatioTest {
     private HeatDissipation dissipation;
     @Mock
     private HeatGeneration  heatGeneration;
-    @InjectMocks
     private CoolingRatio    cut;
 
+    /**
+     * Both inputs are {@link Metric}s, construct explicitly so that they can't be swapped.
+     */
+    @Before
+    public void setup() {
+        cut = new CoolingRatio(dissipation, heatGeneration);
+    }
+
     @Test
     public void testCalculate() throws Exception {
         double heat = 10;
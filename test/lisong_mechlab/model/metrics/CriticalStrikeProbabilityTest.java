@@ -36,7 +36,9 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 /**
  * A test suite for {@link CriticalStrikeProbability}.
@@ -58,6 +60,17 @@ public class CriticalStrikeProbabilityTest {
     @Before
     public void setup() {
         Mockito.when(loadoutPart.getItemsEquipped()).thenReturn(items);
+        Mockito.when(loadoutPart.getCrittableSlots()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock aInvocation) {
+                int slots = 0;
+                for (Item item : items) {
+                    if (item.isCrittable())
+                        slots += item.getNumCriticalSlots();
+                }
+                return slots;
+            }
+        });
         Mockito.when(loadout.getUpgrades()).thenReturn(upgrades);
     }
 
@@ -137,4 +137,27 @@ public class HeatOverTimeTest {
                 ConfiguredComponentBase.ComponentMessage.Type.ItemAdded));
         assertTrue(old != cut.calculate(20));
     }
+
+    /**
+     * {@link HeatOverTime#evaluate(double[], double[])} shall give the same result as
+     * {@link HeatOverTime#calculate(double)}.
+     */
+    @Test
+    public void testEvaluate() {
+        items.add((EnergyWeapon) ItemDB.lookup("ER LARGE LASER"));
+        items.add((EnergyWeapon) ItemDB.lookup("ER PPC"));
+        items.add((HeatSource) ItemDB.lookup("AC/20"));
+        double[] times = new double[50];
+        for (int i = 0; i < times.length; ++i) {
+            times[i] = i * 0.37;
+        }
+        double[] ans = new double[times.length];
+
+        HeatOverTime cut = new HeatOverTime(loadout, xBar);
+        cut.evaluate(times, ans);
+
+        for (int i = 0; i < times.length; ++i) {
+            assertEquals(cut.calculate(times[i]), ans[i], 0.0);
+        }
+    }
 }
@@ -172,4 +172,31 @@ public class MaxSustainedDPSTest {
 
         assertEquals(gauss.getStat("d/s", null), result, 0.0);
     }
+
+    /**
+     * The batch calculation shall give the same ratios as calculating one range at a time.
+     */
+    @Test
+    public void testGetWeaponRatios_Batch() {
+        items.add((Weapon) ItemDB.lookup("MACHINE GUN"));
+        items.add((Weapon) ItemDB.lookup("GAUSS RIFLE"));
+        items.add((Weapon) ItemDB.lookup("LRM 20"));
+        items.add((Weapon) ItemDB.lookup("ER PPC"));
+        items.add((Weapon) ItemDB.lookup("MEDIUM LASER"));
+        items.add((Weapon) ItemDB.lookup("ER PPC"));
+        items.add(ItemDB.AMS);
+        when(heatDissipation.calculate()).thenReturn(2.0);
+
+        double[] ranges = new double[] { -1, 0, 100, 300, 450, 600, 750, 900, 1200, 50 };
+        MaxSustainedDPS.WeaponRatios batch = cut.getWeaponRatios(ranges);
+
+        assertEquals(5, batch.getWeapons().size());
+        for (int r = 0; r < ranges.length; ++r) {
+            Map<Weapon, Double> single = cut.getWeaponRatios(ranges[r]);
+            for (int i = 0; i < batch.getWeapons().size(); ++i) {
+                Weapon weapon = batch.getWeapons().get(i);
+                assertEquals(single.get(weapon).doubleValue(), batch.getRatios(i)[r], 0.0);
+            }
+        }
+    }
 }
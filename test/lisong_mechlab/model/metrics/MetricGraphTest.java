@@ -0,0 +1,118 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suite for {@link MetricGraph}.
+ *
+ * @author Emily Björk
+ */
+public class MetricGraphTest {
+    private final LoadoutBase<?> loadout = mock(LoadoutBase.class);
+    private final Metric         armor   = mock(Metric.class);
+    private final Metric         items   = mock(Metric.class);
+    private MetricGraph          cut;
+    private MetricGraph.Node     armorNode;
+    private MetricGraph.Node     itemsNode;
+
+    @Before
+    public void setup() {
+        when(loadout.getVersion()).thenReturn(1L);
+        when(armor.calculate()).thenReturn(2.0);
+        when(items.calculate()).thenReturn(3.0);
+
+        cut = new MetricGraph(loadout);
+        armorNode = cut.add(armor, LoadoutChangedMessage.ARMOR);
+        itemsNode = cut.add(items, LoadoutChangedMessage.ITEMS, armorNode);
+    }
+
+    /**
+     * A node is calculated once no matter how many times it is read.
+     */
+    @Test
+    public void testCalculate() {
+        assertEquals(2.0, armorNode.calculate(), 0.0);
+        assertEquals(2.0, armorNode.calculate(), 0.0);
+        assertEquals(3.0, itemsNode.calculate(), 0.0);
+        assertEquals(3.0, itemsNode.calculate(), 0.0);
+
+        verify(armor).calculate();
+        verify(items).calculate();
+        assertSame(armor, armorNode.getMetric());
+    }
+
+    /**
+     * A node depends on the inputs of the nodes it reads.
+     */
+    @Test
+    public void testGetInputs() {
+        assertEquals(LoadoutChangedMessage.ARMOR, armorNode.getInputs());
+        assertEquals(LoadoutChangedMessage.ARMOR | LoadoutChangedMessage.ITEMS, itemsNode.getInputs());
+    }
+
+    /**
+     * Only nodes that depend on the changed parts are calculated again, also when they depend on them indirectly.
+     */
+    @Test
+    public void testInvalidate() {
+        armorNode.calculate();
+        itemsNode.calculate();
+
+        cut.invalidate(LoadoutChangedMessage.ITEMS);
+        armorNode.calculate();
+        itemsNode.calculate();
+        verify(armor, times(1)).calculate();
+        verify(items, times(2)).calculate();
+
+        cut.invalidate(LoadoutChangedMessage.ARMOR);
+        armorNode.calculate();
+        itemsNode.calculate();
+        verify(armor, times(2)).calculate();
+        verify(items, times(3)).calculate();
+    }
+
+    /**
+     * If the loadout has changed without the graph being told what changed, everything is calculated again.
+     */
+    @Test
+    public void testCalculate_VersionChanged() {
+        armorNode.calculate();
+        itemsNode.calculate();
+
+        when(loadout.getVersion()).thenReturn(2L);
+        armorNode.calculate();
+        itemsNode.calculate();
+        verify(armor, times(2)).calculate();
+        verify(items, times(2)).calculate();
+    }
+}
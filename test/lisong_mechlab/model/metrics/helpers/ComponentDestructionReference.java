@@ -0,0 +1,161 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lisong_mechlab.model.item.Engine;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.metrics.CriticalStrikeProbability;
+
+/**
+ * The original, exhaustive recursion of {@link ComponentDestructionSimulator} which enumerates every sequence of
+ * critical hits. Used as reference for tests and benchmarks. Branches with a probability below the cutoff are pruned,
+ * a cutoff of 0.0005 gives the values that were shown before the simulator was made exact.
+ * 
+ * @author Emily Björk
+ */
+class ComponentDestructionReference {
+    private final double         P_miss;
+    private final double         weaponAlpha;
+    private final double         cutoff;
+    private Map<Item, ItemState> state;
+    private double               P_pruned;
+
+    class ItemState {
+        int    multiplicity;
+        double hpLeft;
+        double P_destroyed;
+
+        ItemState(int aMulti, Item aItem) {
+            multiplicity = aMulti;
+            hpLeft = aItem instanceof Engine ? Double.POSITIVE_INFINITY : aItem.getHealth() * multiplicity;
+            P_destroyed = 0.0;
+        }
+
+        ItemState(ItemState aState) {
+            multiplicity = aState.multiplicity;
+            hpLeft = aState.hpLeft;
+            P_destroyed = aState.P_destroyed;
+        }
+    }
+
+    ComponentDestructionReference(double aWeaponAlpha, double aCutoff) {
+        double p_miss = 1.0;
+        for (int i = 0; i < CriticalStrikeProbability.CRIT_CHANCE.length; ++i) {
+            p_miss -= CriticalStrikeProbability.CRIT_CHANCE[i];
+        }
+        P_miss = p_miss;
+        weaponAlpha = aWeaponAlpha;
+        cutoff = aCutoff;
+    }
+
+    Map<Item, Double> simulate(List<Item> aItems, int aShots) {
+        state = new HashMap<>();
+        P_pruned = 0.0;
+        int slots = 0;
+        for (Item item : aItems) {
+            slots += item.getNumCriticalSlots();
+
+            ItemState pair = state.get(item);
+            if (pair == null)
+                state.put(item, new ItemState(1, item));
+            else {
+                pair.multiplicity++;
+                pair.hpLeft += item.getHealth();
+            }
+        }
+
+        simulateShot(state, slots, 1.0, aShots);
+
+        Map<Item, Double> ans = new HashMap<>();
+        for (Entry<Item, ItemState> entry : state.entrySet()) {
+            ans.put(entry.getKey(), entry.getValue().P_destroyed / entry.getValue().multiplicity);
+        }
+        return ans;
+    }
+
+    /**
+     * @return The total probability of the branches that were pruned by the last simulation. No item can be destroyed
+     *         more often than this in the pruned branches.
+     */
+    double getPrunedProbability() {
+        return P_pruned;
+    }
+
+    private Map<Item, ItemState> cloneState(Map<Item, ItemState> aMap) {
+        Map<Item, ItemState> ans = new HashMap<>(aMap.size());
+        for (Entry<Item, ItemState> entry : aMap.entrySet()) {
+            ans.put(entry.getKey(), new ItemState(entry.getValue()));
+        }
+        return ans;
+    }
+
+    private void simulateShot(Map<Item, ItemState> aState, int aTotalSlots, double aP_this, int aShotsLeft) {
+        simulateRound(aState, P_miss * aP_this, aTotalSlots, 0, aShotsLeft); // No critical hits
+        for (int i = 0; i < CriticalStrikeProbability.CRIT_CHANCE.length; ++i) {
+            simulateRound(aState, CriticalStrikeProbability.CRIT_CHANCE[i] * aP_this, aTotalSlots, i + 1, aShotsLeft);
+        }
+    }
+
+    private void simulateRound(Map<Item, ItemState> aState, double aP_this, int aTotalSlots, int aCritRollsLeft,
+            int aShotsLeft) {
+        if (aShotsLeft <= 0)
+            return;
+        if (aP_this < cutoff) {
+            P_pruned += aP_this;
+            return;
+        }
+
+        if (aCritRollsLeft > 0) {
+            for (Entry<Item, ItemState> entry : aState.entrySet()) {
+                Item item = entry.getKey();
+                int itemSlots = item.getNumCriticalSlots();
+                int multi = entry.getValue().multiplicity;
+
+                double P_hit = ((double) itemSlots) / aTotalSlots;
+                P_hit *= multi;
+
+                Map<Item, ItemState> newState = cloneState(aState);
+                ItemState pair = newState.get(item);
+                if (pair.hpLeft <= weaponAlpha + Math.ulp(weaponAlpha) * 10) {
+                    if (pair.multiplicity == 1) {
+                        newState.remove(item);
+                    }
+                    else {
+                        pair.multiplicity--;
+                    }
+                    state.get(item).P_destroyed += P_hit * aP_this;
+                }
+                else {
+                    pair.hpLeft -= weaponAlpha;
+                    itemSlots = 0;
+                }
+                simulateRound(newState, aP_this * P_hit, aTotalSlots - itemSlots, aCritRollsLeft - 1, aShotsLeft);
+            }
+        }
+        else {
+            simulateShot(aState, aTotalSlots, aP_this, aShotsLeft - 1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.item.Item;
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.loadout.LoadoutStandard;
+
+/**
+ * Measures the time it takes to simulate the destruction of crowded side torsos with
+ * {@link ComponentDestructionSimulator} compared to the previous recursion which pruned sequences of critical hits less
+ * likely than 0.0005. This is not a unit test, run it manually with the main method.
+ * 
+ * @author Emily Björk
+ */
+public class ComponentDestructionSimulatorBenchmark {
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] aArgs) throws Exception {
+        double weaponAlpha = ItemDB.lookup("AC/20 AMMO").getHealth();
+        Item ammo = ItemDB.lookup("LRM AMMO");
+        Item laser = ItemDB.lookup("MEDIUM LASER");
+        Item hs = ItemDB.SHS;
+
+        // Every slot of the side torsos filled with small crittable items.
+        List<List<Item>> torsos = Arrays.asList(
+                Arrays.asList(ItemDB.lookup("LRM 10"), ammo, ammo, ammo, hs, hs, laser, laser,
+                        ItemDB.lookup("STREAK SRM 2")),
+                Arrays.asList(ammo, ammo, hs, hs, hs, laser, laser, laser, ItemDB.lookup("SMALL LASER"),
+                        ItemDB.lookup("AC/20 AMMO"), ItemDB.lookup("SRM AMMO"), ItemDB.lookup("MACHINE GUN")));
+
+        for (String chassis : new String[] { "AS7-D", "HBK-4J", "SDR-5V" }) {
+            double partHp = new LoadoutStandard(chassis).getComponent(Location.RightTorso).getInternalComponent()
+                    .getHitPoints();
+            int shots = (int) Math.ceil(partHp / weaponAlpha);
+
+            for (List<Item> items : torsos) {
+                // Warm up
+                simulate(items, weaponAlpha, shots);
+                prunedSimulate(items, weaponAlpha, shots);
+
+                long start = System.nanoTime();
+                Map<Item, Double> exact = null;
+                for (int i = 0; i < ITERATIONS; ++i) {
+                    exact = simulate(items, weaponAlpha, shots);
+                }
+                long exactTime = (System.nanoTime() - start) / ITERATIONS;
+
+                start = System.nanoTime();
+                Map<Item, Double> pruned = null;
+                for (int i = 0; i < ITERATIONS; ++i) {
+                    pruned = prunedSimulate(items, weaponAlpha, shots);
+                }
+                long prunedTime = (System.nanoTime() - start) / ITERATIONS;
+
+                double maxError = 0;
+                for (Item item : items) {
+                    maxError = Math.max(maxError, exact.get(item) - pruned.get(item));
+                }
+
+                System.out.println(chassis + " (" + shots + " shots, " + items.size() + " items):");
+                System.out.println("  Exact:  " + exactTime / 1000 + " us");
+                System.out.println("  Pruned: " + prunedTime / 1000 + " us, max error: " + maxError);
+            }
+        }
+    }
+
+    private static Map<Item, Double> simulate(List<Item> aItems, double aWeaponAlpha, int aShots) {
+        return ComponentDestructionSimulator.simulate(aItems, aWeaponAlpha, aShots);
+    }
+
+    private static Map<Item, Double> prunedSimulate(List<Item> aItems, double aWeaponAlpha, int aShots) {
+        return new ComponentDestructionReference(aWeaponAlpha, 0.0005).simulate(aItems, aShots);
+    }
+}
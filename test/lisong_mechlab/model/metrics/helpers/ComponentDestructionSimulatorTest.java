@@ -20,14 +20,19 @@
 package lisong_mechlab.model.metrics.helpers;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import lisong_mechlab.model.chassi.ComponentStandard;
 import lisong_mechlab.model.item.Item;
 import lisong_mechlab.model.item.ItemDB;
 import lisong_mechlab.model.loadout.component.ConfiguredComponentBase;
+import lisong_mechlab.model.loadout.component.ConfiguredComponentBase.ComponentMessage;
 import lisong_mechlab.model.metrics.CriticalStrikeProbability;
 import lisong_mechlab.util.message.MessageXBar;
 
@@ -40,6 +45,135 @@ import org.mockito.Mockito;
  * @author Emily Björk
  */
 public class ComponentDestructionSimulatorTest {
+    private final double weaponAlpha = ItemDB.lookup("AC/20 AMMO").getHealth();
+
+    private ConfiguredComponentBase makePart(double aPartHp, List<Item> aItems) {
+        ComponentStandard internalPart = Mockito.mock(ComponentStandard.class);
+        Mockito.when(internalPart.getHitPoints()).thenReturn(aPartHp);
+
+        ConfiguredComponentBase part = Mockito.mock(ConfiguredComponentBase.class);
+        Mockito.when(part.getItemsEquipped()).thenReturn(aItems);
+        Mockito.when(part.getInternalComponent()).thenReturn(internalPart);
+        return part;
+    }
+
+    private List<Item> crowdedTorso() {
+        Item ammo = ItemDB.lookup("LRM AMMO");
+        Item laser = ItemDB.lookup("MEDIUM LASER");
+        return Arrays.asList(ItemDB.lookup("LRM 10"), ammo, ammo, ItemDB.SHS, ItemDB.SHS, laser, laser,
+                ItemDB.lookup("AC/20 AMMO"));
+    }
+
+    /**
+     * The simulation must give the same results as enumerating every sequence of critical hits.
+     */
+    @Test
+    public void testSimulate_SameAsExhaustive() {
+        List<Item> items = crowdedTorso();
+        for (int shots = 1; shots <= 3; ++shots) {
+            Map<Item, Double> expected = new ComponentDestructionReference(weaponAlpha, 0.0).simulate(items, shots);
+            Map<Item, Double> ans = ComponentDestructionSimulator.simulate(items, weaponAlpha, shots);
+
+            assertEquals(expected.keySet(), ans.keySet());
+            for (Item item : items) {
+                assertEquals(expected.get(item), ans.get(item), 1E-9);
+            }
+        }
+    }
+
+    /**
+     * The previous implementation pruned unlikely sequences of critical hits which can only under estimate the
+     * probability of destruction.
+     */
+    @Test
+    public void testSimulate_NotBelowPruned() {
+        List<Item> items = new ArrayList<>(crowdedTorso());
+        items.add(ItemDB.lookup("STD ENGINE 300"));
+        int shots = 8;
+
+        Map<Item, Double> pruned = new ComponentDestructionReference(weaponAlpha, 0.0005).simulate(items, shots);
+        Map<Item, Double> ans = ComponentDestructionSimulator.simulate(items, weaponAlpha, shots);
+
+        for (Item item : items) {
+            assertTrue(ans.get(item) >= pruned.get(item) - 1E-9);
+            assertTrue(ans.get(item) <= 1.0);
+        }
+        assertEquals(0.0, ans.get(ItemDB.lookup("STD ENGINE 300")), 0.0);
+    }
+
+    /**
+     * On a side torso where every slot holds a small item the pruned recursion misses some destructions, but never more
+     * than the probability of the branches it pruned.
+     */
+    @Test
+    public void testSimulate_PrunedError() {
+        Item ammo = ItemDB.lookup("LRM AMMO");
+        Item laser = ItemDB.lookup("MEDIUM LASER");
+        List<Item> items = Arrays.asList(ammo, ammo, ItemDB.SHS, ItemDB.SHS, ItemDB.SHS, laser, laser, laser,
+                ItemDB.lookup("SMALL LASER"), ItemDB.lookup("AC/20 AMMO"), ItemDB.lookup("SRM AMMO"),
+                ItemDB.lookup("MACHINE GUN"));
+        int shots = 8;
+
+        ComponentDestructionReference reference = new ComponentDestructionReference(weaponAlpha, 0.0005);
+        Map<Item, Double> pruned = reference.simulate(items, shots);
+        Map<Item, Double> ans = ComponentDestructionSimulator.simulate(items, weaponAlpha, shots);
+
+        double maxError = 0.0;
+        for (Item item : items) {
+            maxError = Math.max(maxError, ans.get(item) - pruned.get(item));
+        }
+        assertTrue(maxError > 0.0);
+        assertTrue(maxError <= reference.getPrunedProbability() + 1E-9);
+    }
+
+    /**
+     * Results are published when the background simulation finishes and results of outdated simulations are not.
+     */
+    @Test
+    public void testUpdate_Background() {
+        List<Item> partItems = new ArrayList<>();
+        partItems.add(ItemDB.BAP);
+        ConfiguredComponentBase part = makePart(42, partItems);
+        final List<Runnable> queue = new ArrayList<>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable aCommand) {
+                queue.add(aCommand);
+            }
+        };
+        Runnable onUpdate = Mockito.mock(Runnable.class);
+
+        ComponentDestructionSimulator cut = new ComponentDestructionSimulator(part, Mockito.mock(MessageXBar.class),
+                executor, onUpdate);
+        cut.update();
+        cut.receive(new ComponentMessage(part, ComponentMessage.Type.ItemAdded));
+        assertEquals(0.0, cut.getProbabilityOfDestruction(ItemDB.BAP), 0.0);
+        assertEquals(2, queue.size());
+
+        for (Runnable runnable : queue) {
+            runnable.run();
+        }
+
+        Mockito.verify(onUpdate).run();
+        assertEquals(1 - Math.pow(0.58, 5), cut.getProbabilityOfDestruction(ItemDB.BAP), 0.0001);
+    }
+
+    /**
+     * Armor changes don't affect the result.
+     */
+    @Test
+    public void testReceive_Armor() {
+        List<Item> partItems = new ArrayList<>();
+        partItems.add(ItemDB.BAP);
+        ConfiguredComponentBase part = makePart(42, partItems);
+        Executor executor = Mockito.mock(Executor.class);
+
+        ComponentDestructionSimulator cut = new ComponentDestructionSimulator(part, Mockito.mock(MessageXBar.class),
+                executor, null);
+        cut.receive(new ComponentMessage(part, ComponentMessage.Type.ArmorChanged));
+
+        Mockito.verifyZeroInteractions(executor);
+    }
 
     @Test
     public void testSoloComponent() {
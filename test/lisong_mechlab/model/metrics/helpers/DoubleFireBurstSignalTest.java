@@ -71,4 +71,44 @@ public class DoubleFireBurstSignalTest {
         double expected = (p_jam + (1 - p_jam) * 2) * damage * range_eff;
         assertEquals(expected, cut.integrateFromZeroTo(t_cycle / 2), 0.0);
     }
+
+    /**
+     * {@link DoubleFireBurstSignal#evaluate(double[], double[])} shall give the same result as
+     * {@link DoubleFireBurstSignal#integrateFromZeroTo(double)}.
+     */
+    @Test
+    public void testEvaluate() {
+        final double range = 400;
+        Collection<Modifier> modifiers = Mockito.mock(Collection.class);
+        BallisticWeapon weapon = Mockito.mock(BallisticWeapon.class);
+        Mockito.when(weapon.canDoubleFire()).thenReturn(true);
+        Mockito.when(weapon.getJamProbability()).thenReturn(0.2);
+        Mockito.when(weapon.getJamTime()).thenReturn(5.0);
+        Mockito.when(weapon.getRawSecondsPerShot(modifiers)).thenReturn(1.7);
+        Mockito.when(weapon.getRangeEffectivity(range, modifiers)).thenReturn(0.9);
+        Mockito.when(weapon.getDamagePerShot()).thenReturn(5.0);
+
+        DoubleFireBurstSignal cut = new DoubleFireBurstSignal(weapon, modifiers, range);
+        double[] times = new double[40];
+        for (int i = 0; i < times.length; ++i) {
+            times[i] = i * 0.5 - 0.75; // Never on a multiple of 0.1 s where shots happen
+        }
+        double[] ans = new double[times.length];
+        cut.evaluate(times, ans);
+
+        for (int i = 0; i < times.length; ++i) {
+            assertEquals(cut.integrateFromZeroTo(times[i]), ans[i], 1E-9);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEvaluate_Unsorted() {
+        BallisticWeapon weapon = Mockito.mock(BallisticWeapon.class);
+        Mockito.when(weapon.canDoubleFire()).thenReturn(true);
+        Mockito.when(weapon.getRawSecondsPerShot(null)).thenReturn(1.0);
+        Mockito.when(weapon.getJamTime()).thenReturn(5.0);
+
+        DoubleFireBurstSignal cut = new DoubleFireBurstSignal(weapon, null, -1);
+        cut.evaluate(new double[] { 2.0, 1.0 }, new double[2]);
+    }
 }
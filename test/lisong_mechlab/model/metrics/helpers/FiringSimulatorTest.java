@@ -0,0 +1,139 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lisong_mechlab.model.item.Ammunition;
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.LoadoutStandard;
+import lisong_mechlab.model.loadout.WeaponGroups;
+import lisong_mechlab.model.loadout.WeaponGroups.FiringMode;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test suite for {@link FiringSimulator}.
+ *
+ * @author Emily Björk
+ */
+public class FiringSimulatorTest {
+    private final static Weapon    ac20    = (Weapon) ItemDB.lookup("AC/20");
+    private final static Weapon    ppc     = (Weapon) ItemDB.lookup("PPC");
+    private final List<Weapon>     weapons = new ArrayList<>();
+    private final List<Ammunition> ammo    = new ArrayList<>();
+    private final LoadoutStandard  loadout = Mockito.mock(LoadoutStandard.class);
+    private final WeaponGroups     groups  = new WeaponGroups(loadout);
+
+    @Before
+    public void setup() {
+        Mockito.when(loadout.items(Weapon.class)).thenReturn(weapons);
+        Mockito.when(loadout.items(Ammunition.class)).thenReturn(ammo);
+        Mockito.when(loadout.getWeaponGroups()).thenReturn(groups);
+    }
+
+    /**
+     * Without weapon groups every weapon is fired as soon as it is ready, until the ammo runs out.
+     */
+    @Test
+    public void testSimulate_NoGroupsAmmo() {
+        Ammunition ac20ammo = (Ammunition) ItemDB.lookup("AC/20 AMMO");
+        weapons.add(ac20);
+        ammo.add(ac20ammo);
+        double period = ac20.getSecondsPerShot(null);
+        int shots = ac20ammo.getNumShots();
+
+        FiringSimulator cut = new FiringSimulator(loadout, 1000, 10);
+        cut.simulate(-1, period * (shots + 2), 0.05);
+
+        assertEquals(ac20.getDamagePerShot(), cut.getDamage(0), 0.0);
+        assertEquals(ac20.getDamagePerShot() * 2, cut.getDamage(period * 1.5), 1E-9);
+        double[] damage = cut.getDamage();
+        assertEquals(ac20.getDamagePerShot() * shots, damage[damage.length - 1], 1E-9);
+    }
+
+    /**
+     * An alpha strike group shall generate the same ghost heat as {@link lisong_mechlab.model.metrics.GhostHeat}.
+     */
+    @Test
+    public void testSimulate_AlphaGhostHeat() {
+        for (int i = 0; i < 3; ++i) {
+            weapons.add(ppc);
+            groups.setGroup(0, i, true);
+        }
+        groups.setFiringMode(0, FiringMode.AlphaStrike);
+
+        FiringSimulator cut = new FiringSimulator(loadout, 100, 0);
+        cut.simulate(-1, 1, 0.1);
+
+        assertEquals(3 * ppc.getHeat(null) + 12.60, cut.getHeatGenerated()[0], 1E-9);
+        assertEquals(3 * ppc.getDamagePerShot(), cut.getDamage()[0], 0.0);
+    }
+
+    /**
+     * Chain fire shall fire one weapon at a time and weapons outside of any group shall not fire.
+     */
+    @Test
+    public void testSimulate_ChainFire() {
+        weapons.add(ac20);
+        weapons.add(ac20);
+        weapons.add(ppc);
+        ammo.add((Ammunition) ItemDB.lookup("AC/20 AMMO"));
+        groups.setGroup(1, 0, true);
+        groups.setGroup(1, 1, true);
+        groups.setFiringMode(1, FiringMode.ChainFire);
+
+        FiringSimulator cut = new FiringSimulator(loadout, 1000, 10);
+        cut.simulate(-1, 1, 0.1);
+
+        assertEquals(ac20.getDamagePerShot(), cut.getDamage(0.4), 1E-9);
+        assertEquals(ac20.getDamagePerShot() * 2, cut.getDamage(0.6), 1E-9);
+    }
+
+    /**
+     * The heat capacity shall never be exceeded, instead the weapons are held until enough heat has dissipated.
+     */
+    @Test
+    public void testSimulate_HeatCap() {
+        weapons.add(ppc);
+        weapons.add(ppc);
+        final double capacity = 30;
+        final double dissipation = 1;
+        final double horizon = 60;
+
+        FiringSimulator cut = new FiringSimulator(loadout, capacity, dissipation);
+        cut.simulate(-1, horizon, 0.1);
+
+        for (double heat : cut.getHeatLevel()) {
+            assertTrue(heat <= capacity + 1E-9);
+        }
+        double maxHeat = capacity + dissipation * horizon;
+        double[] heat = cut.getHeatGenerated();
+        assertTrue(heat[heat.length - 1] <= maxHeat + 1E-9);
+        assertTrue(heat[heat.length - 1] > maxHeat - 2 * ppc.getHeat(null));
+    }
+}
@@ -17,30 +17,32 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 //@formatter:on
-package lisong_mechlab.mwo_data.helpers;
+package lisong_mechlab.model.metrics.helpers;
 
-import java.util.List;
+import static org.junit.Assert.assertEquals;
 
-import com.thoughtworks.xstream.annotations.XStreamImplicit;
+import org.junit.Test;
 
-public class Workbook {
-    static public class Worksheet {
-        static public class Table {
-            static public class Row {
-                static public class Cell {
-                    public String Data;
-                }
-
-                @XStreamImplicit(itemFieldName = "Cell")
-                public List<Cell> cells;
-            }
+/**
+ * This class implements a test suite for {@link IntegratedImpulseTrain}.
+ * 
+ * @author Emily Björk
+ */
+public class IntegratedImpulseTrainTest {
+    private final IntegratedImpulseTrain cut = new IntegratedImpulseTrain(2.0, 3.0);
 
-            @XStreamImplicit(itemFieldName = "Row")
-            public List<Row> rows;
+    @Test
+    public void testEvaluate() {
+        double[] times = { 0.0, 0.25, 1.0, 2.25, 7.0 };
+        double[] ans = new double[times.length];
+        cut.evaluate(times, ans);
+        for (int i = 0; i < times.length; ++i) {
+            assertEquals(cut.integrateFromZeroTo(times[i]), ans[i], 0.0);
         }
-
-        public Table Table;
     }
 
-    public Worksheet Worksheet;
+    @Test(expected = IllegalArgumentException.class)
+    public void testEvaluate_Unsorted() {
+        cut.evaluate(new double[] { 2.0, 1.0 }, new double[2]);
+    }
 }
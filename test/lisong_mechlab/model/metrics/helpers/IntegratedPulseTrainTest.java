@@ -17,31 +17,32 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 //@formatter:on
-package lisong_mechlab.model.loadout;
+package lisong_mechlab.model.metrics.helpers;
 
-import java.util.Iterator;
+import static org.junit.Assert.assertEquals;
 
-import lisong_mechlab.model.item.Item;
+import org.junit.Test;
 
 /**
- * This is a glue class to get {@link Iterable}s for different types of {@link Item}s on a loadout.
+ * This class implements a test suite for {@link IntegratedPulseTrain}.
  * 
  * @author Emily Björk
- * @param <T>
- *            A type that any {@link Item} iterated over must implement.
- *
  */
-public class LoadoutIterable<T> implements Iterable<T> {
-    private final LoadoutBase<?> loadout;
-    private final Class<T>       filter;
+public class IntegratedPulseTrainTest {
+    private final IntegratedPulseTrain cut = new IntegratedPulseTrain(2.0, 0.5, 3.0);
 
-    public LoadoutIterable(LoadoutBase<?> aLoadout, Class<T> aFilter) {
-        loadout = aLoadout;
-        filter = aFilter;
+    @Test
+    public void testEvaluate() {
+        double[] times = { 0.0, 0.25, 1.0, 2.25, 7.0 };
+        double[] ans = new double[times.length];
+        cut.evaluate(times, ans);
+        for (int i = 0; i < times.length; ++i) {
+            assertEquals(cut.integrateFromZeroTo(times[i]), ans[i], 0.0);
+        }
     }
 
-    @Override
-    public Iterator<T> iterator() {
-        return new LoadoutIterator<T>(loadout, filter);
+    @Test(expected = IllegalArgumentException.class)
+    public void testEvaluate_Unsorted() {
+        cut.evaluate(new double[] { 2.0, 1.0 }, new double[2]);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,243 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
+import lisong_mechlab.model.loadout.LoadoutMessage;
+import lisong_mechlab.model.metrics.HeatCapacity;
+import lisong_mechlab.model.metrics.HeatDissipation;
+import lisong_mechlab.model.metrics.HeatGeneration;
+import lisong_mechlab.model.metrics.HeatOverTime;
+import lisong_mechlab.model.metrics.Metric;
+import lisong_mechlab.util.message.Message;
+import lisong_mechlab.util.message.MessageXBar;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+/**
+ * Test suite for {@link MetricEvaluator}.
+ * 
+ * @author Emily Björk
+ */
+public class MetricEvaluatorTest {
+    private final List<Runnable>           work      = new ArrayList<>();
+    private final List<Runnable>           published = new ArrayList<>();
+    private final List<LoadoutBase<?>>     created   = new ArrayList<>();
+    private final LoadoutBase<?>           loadout   = mock(LoadoutBase.class);
+    private final LoadoutBase<?>           snapshot  = mock(LoadoutBase.class);
+    private final Metric                   metric    = mock(Metric.class);
+    private final MetricEvaluator.Listener listener  = mock(MetricEvaluator.Listener.class);
+    private MetricEvaluator                cut;
+
+    @Before
+    public void setup() {
+        doReturn(snapshot).when(loadout).copy();
+        when(metric.calculate()).thenReturn(3.0);
+
+        cut = new MetricEvaluator(loadout, mock(MessageXBar.class), new Executor() {
+            @Override
+            public void execute(Runnable aCommand) {
+                work.add(aCommand);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable aCommand) {
+                published.add(aCommand);
+            }
+        });
+        cut.register(new MetricEvaluator.Factory() {
+            @Override
+            public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                created.add(aSnapshot);
+                return metric;
+            }
+        }, listener);
+    }
+
+    private static void runAll(List<Runnable> aTasks) {
+        List<Runnable> tasks = new ArrayList<>(aTasks);
+        aTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    /**
+     * The metric is created for a snapshot on the calling thread and calculated on the worker.
+     */
+    @Test
+    public void testUpdate() {
+        cut.update();
+
+        assertEquals(1, created.size());
+        assertTrue(created.get(0) == snapshot);
+        verify(metric, never()).calculate();
+
+        runAll(work);
+        verify(metric).calculate();
+        verify(listener, never()).evaluated(Matchers.<Metric> any(), Matchers.anyDouble());
+
+        runAll(published);
+        verify(listener).evaluated(metric, 3.0);
+    }
+
+    /**
+     * Only the results of the latest snapshot are published.
+     */
+    @Test
+    public void testUpdate_Stale() {
+        cut.update();
+        runAll(work);
+        cut.update();
+        runAll(work);
+        runAll(published);
+
+        verify(listener).evaluated(metric, 3.0);
+    }
+
+    /**
+     * Snapshots that are outdated before the worker gets to them aren't calculated.
+     */
+    @Test
+    public void testUpdate_SkipOutdated() {
+        cut.update();
+        cut.update();
+        assertEquals(2, work.size());
+
+        work.remove(0).run();
+        verify(metric, never()).calculate();
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    public void testReceive() {
+        Message msg = mock(Message.class);
+        when(msg.isForMe(loadout)).thenReturn(true);
+        when(msg.affectsHeatOrDamage()).thenReturn(true);
+        when(loadout.getVersion()).thenReturn(1L);
+
+        cut.receive(msg);
+        cut.receive(msg); // Loadout didn't change
+        assertEquals(1, created.size());
+
+        cut.receive(new LoadoutMessage(loadout, LoadoutMessage.Type.UPDATE));
+        assertEquals(2, created.size());
+
+        when(loadout.getVersion()).thenReturn(2L);
+        cut.receive(msg);
+        assertEquals(3, created.size());
+    }
+
+    /**
+     * Only metrics that depend on the changed parts of the loadout are evaluated. Changes that haven't been published
+     * yet are included in the next update.
+     */
+    @Test
+    public void testUpdate_Inputs() {
+        final List<LoadoutBase<?>> createdArmor = new ArrayList<>();
+        final Metric armorMetric = mock(Metric.class);
+        cut.register(new MetricEvaluator.Factory() {
+            @Override
+            public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                createdArmor.add(aSnapshot);
+                return armorMetric;
+            }
+        }, listener, LoadoutChangedMessage.ARMOR);
+
+        cut.update();
+        assertEquals(1, created.size());
+        assertEquals(1, createdArmor.size());
+
+        cut.update(LoadoutChangedMessage.ITEMS); // The first update hasn't been published yet
+        assertEquals(2, created.size());
+        assertEquals(2, createdArmor.size());
+
+        runAll(work);
+        runAll(published);
+        cut.update(LoadoutChangedMessage.ITEMS);
+        assertEquals(3, created.size());
+        assertEquals(2, createdArmor.size());
+
+        runAll(work);
+        runAll(published);
+        cut.update(LoadoutChangedMessage.ARMOR); // The metric from setup() depends on everything, armor included
+        assertEquals(4, created.size());
+        assertEquals(3, createdArmor.size());
+    }
+
+    /**
+     * The heat metrics don't depend on armor. A change to only the armor shall neither take a snapshot nor create any
+     * of them again.
+     */
+    @Test
+    public void testUpdate_ArmorOnly() {
+        final List<LoadoutBase<?>> createdHeat = new ArrayList<>();
+        MetricEvaluator heatOnly = new MetricEvaluator(loadout, mock(MessageXBar.class), new Executor() {
+            @Override
+            public void execute(Runnable aCommand) {
+                work.add(aCommand);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable aCommand) {
+                published.add(aCommand);
+            }
+        });
+        MetricEvaluator.Factory factory = new MetricEvaluator.Factory() {
+            @Override
+            public Metric create(LoadoutBase<?> aSnapshot, MessageXBar aXBar) {
+                createdHeat.add(aSnapshot);
+                return metric;
+            }
+        };
+        heatOnly.register(factory, listener, HeatCapacity.INPUTS);
+        heatOnly.register(factory, listener, HeatDissipation.INPUTS | HeatGeneration.INPUTS);
+        heatOnly.register(factory, listener, HeatCapacity.INPUTS | HeatOverTime.INPUTS | HeatDissipation.INPUTS);
+
+        heatOnly.update();
+        runAll(work);
+        runAll(published);
+        assertEquals(3, createdHeat.size());
+        verify(loadout).copy();
+
+        heatOnly.update(LoadoutChangedMessage.ARMOR);
+        assertEquals(3, createdHeat.size());
+        assertTrue(work.isEmpty());
+        verify(loadout).copy();
+
+        heatOnly.update(LoadoutChangedMessage.ITEMS);
+        assertEquals(6, createdHeat.size());
+    }
+}
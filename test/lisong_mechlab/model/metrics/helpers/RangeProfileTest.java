@@ -0,0 +1,119 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.metrics.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.LoadoutStandard;
+import lisong_mechlab.model.metrics.MaxDPS;
+import lisong_mechlab.util.WeaponRanges;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test suite for {@link RangeProfile}.
+ *
+ * @author Emily Björk
+ */
+public class RangeProfileTest {
+    private final static Weapon   mlas    = (Weapon) ItemDB.lookup("MEDIUM LASER");
+    private final static Weapon   llas    = (Weapon) ItemDB.lookup("LARGE LASER");
+    private final static Weapon   ac20    = (Weapon) ItemDB.lookup("AC/20");
+    private final static Weapon   lbx     = (Weapon) ItemDB.lookup("LB 10-X AC");
+    private final List<Weapon>    weapons = new ArrayList<>();
+    private final LoadoutStandard loadout = Mockito.mock(LoadoutStandard.class);
+    private final RangeProfile    cut     = new RangeProfile(null);
+
+    @Before
+    public void setup() {
+        Mockito.when(loadout.items(Weapon.class)).thenReturn(weapons);
+    }
+
+    /**
+     * The profile shall have the same value as the weighted sum of {@link Weapon#getRangeEffectivity(double,
+     * java.util.Collection)}.
+     */
+    @Test
+    public void testCalculate() {
+        cut.add(mlas, 5.0);
+        cut.add(llas, 9.0);
+        cut.add(mlas, 5.0);
+        cut.add(lbx, 10.0);
+
+        for (double range = 0; range < 2000; range += 7.3) {
+            double expected = 10.0 * mlas.getRangeEffectivity(range, null) + 9.0
+                    * llas.getRangeEffectivity(range, null) + 10.0 * lbx.getRangeEffectivity(range, null);
+            assertEquals(expected, cut.calculate(range), 1E-9);
+        }
+    }
+
+    @Test
+    public void testArgmax_Linear() {
+        cut.add(mlas, 5.0);
+        cut.add(llas, 9.0);
+
+        assertEquals(mlas.getRangeLong(null), cut.argmax(), 0.0);
+    }
+
+    /**
+     * Segments where a weapon isn't linear shall be searched for the maximum.
+     */
+    @Test
+    public void testArgmax_Curved() {
+        cut.add(lbx, 1.0);
+        final double peak = 333.3;
+
+        double ans = cut.argmax(new RangeProfile.RangeFunction() {
+            @Override
+            public double calculate(double aRange) {
+                return -(aRange - peak) * (aRange - peak);
+            }
+        });
+
+        assertEquals(peak, ans, 0.1);
+    }
+
+    /**
+     * The range found from the profile shall be as good as the best of the ranges from {@link WeaponRanges}.
+     */
+    @Test
+    public void testArgmax_MaxDPS() {
+        weapons.add(mlas);
+        weapons.add(mlas);
+        weapons.add(llas);
+        weapons.add(ac20);
+        MaxDPS metric = new MaxDPS(loadout);
+
+        double expected = Double.NEGATIVE_INFINITY;
+        for (Double range : WeaponRanges.getRanges(loadout)) {
+            expected = Math.max(expected, metric.calculate(range));
+        }
+
+        assertEquals(expected, metric.calculate(), 1E-9);
+        assertEquals(expected, metric.calculate(metric.getRange()), 0.0);
+    }
+}
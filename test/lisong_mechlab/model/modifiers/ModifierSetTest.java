@@ -0,0 +1,113 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.modifiers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lisong_mechlab.model.modifiers.ModifierDescription.Operation;
+import lisong_mechlab.model.modifiers.ModifierDescription.ValueType;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link ModifierSet}.
+ * 
+ * @author Emily Björk
+ */
+public class ModifierSetTest {
+    private final List<Modifier> modifiers = new ArrayList<>();
+
+    private void addModifier(Operation aOperation, List<String> aSelectors, String aAttribute, double aValue) {
+        modifiers.add(new Modifier(new ModifierDescription("name", "key", aOperation, aSelectors, aAttribute,
+                ValueType.POSITIVE_GOOD), aValue));
+    }
+
+    @Test
+    public void testContents() {
+        addModifier(Operation.ADDITIVE, Arrays.asList("a"), null, 1.0);
+        addModifier(Operation.MULTIPLICATIVE, Arrays.asList("b"), "x", 0.1);
+
+        ModifierSet cut = new ModifierSet(modifiers);
+
+        assertEquals(modifiers.size(), cut.size());
+        assertTrue(cut.containsAll(modifiers));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        addModifier(Operation.ADDITIVE, Arrays.asList("a"), null, 1.0);
+        new ModifierSet(modifiers).iterator().remove();
+    }
+
+    @Test
+    public void testNotAffectedByLaterChanges() {
+        addModifier(Operation.ADDITIVE, Arrays.asList("a"), null, 1.0);
+        ModifierSet cut = new ModifierSet(modifiers);
+        addModifier(Operation.ADDITIVE, Arrays.asList("a"), null, 1.0);
+
+        assertEquals(1, cut.size());
+        assertEquals(2.0, new Attribute(1.0, "a").value(cut), 0.0);
+    }
+
+    /**
+     * The values computed from a {@link ModifierSet} must be identical to the values computed from a plain list.
+     */
+    @Test
+    public void testValue_SameAsList() {
+        addModifier(Operation.ADDITIVE, Arrays.asList("a", "b"), null, 0.1);
+        addModifier(Operation.MULTIPLICATIVE, Arrays.asList("a"), null, 0.3);
+        addModifier(Operation.ADDITIVE, Arrays.asList("b"), "cooldown", 0.7);
+        addModifier(Operation.MULTIPLICATIVE, Arrays.asList("a", "c"), "cooldown", 0.05);
+        addModifier(Operation.ADDITIVE, Arrays.asList("c"), "range", 0.2);
+        addModifier(Operation.MULTIPLICATIVE, Arrays.asList("b", "c"), "range", 0.15);
+        addModifier(Operation.ADDITIVE, Arrays.asList("a"), null, 0.3);
+
+        List<Attribute> attributes = new ArrayList<>();
+        for (String name : new String[] { null, "cooldown", "range", "heat" }) {
+            attributes.add(new Attribute(3.3, Arrays.asList("a"), name));
+            attributes.add(new Attribute(3.3, Arrays.asList("b"), name));
+            attributes.add(new Attribute(3.3, Arrays.asList("a", "b"), name));
+            attributes.add(new Attribute(3.3, Arrays.asList("b", "a"), name));
+            attributes.add(new Attribute(7.1, Arrays.asList("c", "a"), name));
+            attributes.add(new Attribute(0.0, Arrays.asList("d"), name));
+        }
+
+        ModifierSet cut = new ModifierSet(modifiers);
+        for (int i = 0; i < 2; ++i) { // Twice to test both the cold and the cached path
+            for (Attribute attribute : attributes) {
+                assertEquals(attribute.value(modifiers), attribute.value(cut), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testGetKey() {
+        assertEquals(new Attribute(1.0, Arrays.asList("a", "b"), "x").getKey(),
+                new Attribute(2.0, Arrays.asList("b", "a"), "x").getKey());
+        assertNotEquals(new Attribute(1.0, "a", "x").getKey(), new Attribute(1.0, "a", null).getKey());
+        assertNotEquals(new Attribute(1.0, "a", "x").getKey(), new Attribute(1.0, "b", "x").getKey());
+    }
+}
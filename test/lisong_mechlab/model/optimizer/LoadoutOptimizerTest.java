@@ -0,0 +1,161 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.model.optimizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import lisong_mechlab.model.chassi.ChassisDB;
+import lisong_mechlab.model.chassi.ChassisStandard;
+import lisong_mechlab.model.chassi.HardPointType;
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.item.Engine;
+import lisong_mechlab.model.item.ItemDB;
+import lisong_mechlab.model.item.Weapon;
+import lisong_mechlab.model.loadout.LoadoutStandard;
+import lisong_mechlab.model.metrics.AlphaStrike;
+import lisong_mechlab.model.metrics.HeatDissipation;
+import lisong_mechlab.model.metrics.MaxSustainedDPS;
+import lisong_mechlab.util.OperationStack;
+import lisong_mechlab.util.message.MessageXBar;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test suite for {@link LoadoutOptimizer}.
+ * 
+ * @author Emily Björk
+ */
+public class LoadoutOptimizerTest {
+    private final MessageXBar     xBar        = Mockito.mock(MessageXBar.class);
+    private final LoadoutStandard loadout     = new LoadoutStandard((ChassisStandard) ChassisDB.lookup("HBK-4P"));
+    private final Weapon          mediumLaser = (Weapon) ItemDB.lookup("MEDIUM LASER");
+    private final Weapon          largeLaser  = (Weapon) ItemDB.lookup("LARGE LASER");
+    private final Weapon          ac20        = (Weapon) ItemDB.lookup("AC/20");
+    private final Engine          engine      = (Engine) ItemDB.lookup("STD ENGINE 200");
+
+    private LoadoutOptimizer makeCut(Objective aObjective) {
+        LoadoutOptimizer cut = new LoadoutOptimizer(loadout, aObjective);
+        cut.setEngines(Arrays.asList(engine));
+        cut.setArmor(192, 5.0); // Six tons, OpDistributeArmor rounds to half tons
+        return cut;
+    }
+
+    /**
+     * The results must be sorted and must turn the original loadout into a valid loadout with the given value when
+     * applied. Undo must restore the original loadout.
+     */
+    @Test
+    public void testOptimize_Applicable() {
+        LoadoutOptimizer cut = makeCut(new SustainedDpsObjective(200));
+        cut.setWeapons(Arrays.asList(mediumLaser, largeLaser, ac20));
+
+        List<OptimizedLoadout> ans = cut.optimize(new ForkJoinPool(2), 3);
+
+        assertEquals(3, ans.size());
+        for (int i = 1; i < ans.size(); ++i) {
+            assertTrue(ans.get(i - 1).getValue() >= ans.get(i).getValue());
+        }
+        for (OptimizedLoadout result : ans) {
+            OperationStack stack = new OperationStack(1);
+            stack.pushAndApply(result.makeOperation(loadout, xBar));
+
+            assertTrue(loadout.getFreeMass() >= 0);
+            assertTrue(loadout.getNumCriticalSlotsFree() >= 0);
+            assertEquals(192, loadout.getArmor());
+            assertEquals(result.getValue(),
+                    new MaxSustainedDPS(loadout, new HeatDissipation(loadout, null)).calculate(200), 0.0);
+
+            stack.undo();
+            assertFalse(loadout.items(Weapon.class).iterator().hasNext());
+            assertEquals(0, loadout.getArmor());
+        }
+    }
+
+    /**
+     * With only one weapon type and plenty of tonnage, the best alpha strike is to fill all hard points.
+     */
+    @Test
+    public void testOptimize_Alpha() {
+        LoadoutOptimizer cut = makeCut(new AlphaStrikeObjective(200));
+        cut.setWeapons(Arrays.asList(mediumLaser));
+
+        List<OptimizedLoadout> ans = cut.optimize(new ForkJoinPool(2), 1);
+
+        double expected = loadout.getHardpointsCount(HardPointType.ENERGY) * mediumLaser.getDamagePerShot();
+        assertEquals(1, ans.size());
+        assertEquals(expected, ans.get(0).getValue(), 1E-9);
+
+        OperationStack stack = new OperationStack(0);
+        stack.pushAndApply(ans.get(0).makeOperation(loadout, xBar));
+        assertEquals(expected, new AlphaStrike(loadout).calculate(200), 1E-9);
+    }
+
+    /**
+     * The TBT-3C has one energy hard point in the left arm, two in the right arm and one in the centre torso, which
+     * only has two free slots with a standard engine. The medium laser is visited first and put in the left arm, after
+     * which the third PPC only fits if the medium laser is moved to the centre torso.
+     */
+    @Test
+    public void testOptimize_PlacementOrder() {
+        LoadoutStandard trebuchet = new LoadoutStandard((ChassisStandard) ChassisDB.lookup("TBT-3C"));
+        Weapon ppc = (Weapon) ItemDB.lookup("PPC");
+        LoadoutOptimizer cut = new LoadoutOptimizer(trebuchet, new AlphaStrikeObjective(200));
+        cut.setEngines(Arrays.asList(engine));
+        cut.setArmor(192, 5.0);
+        cut.setWeapons(Arrays.asList(mediumLaser, ppc));
+
+        List<OptimizedLoadout> ans = cut.optimize(new ForkJoinPool(2), 1);
+
+        double expected = 3 * ppc.getDamagePerShot() + mediumLaser.getDamagePerShot();
+        assertEquals(1, ans.size());
+        assertEquals(expected, ans.get(0).getValue(), 1E-9);
+
+        OperationStack stack = new OperationStack(0);
+        stack.pushAndApply(ans.get(0).makeOperation(trebuchet, xBar));
+        assertEquals(expected, new AlphaStrike(trebuchet).calculate(200), 1E-9);
+        assertTrue(trebuchet.getComponent(Location.CenterTorso).getItemsEquipped().contains(mediumLaser));
+    }
+
+    /**
+     * The number of threads must not change the results.
+     */
+    @Test
+    public void testOptimize_Parallel() {
+        LoadoutOptimizer serialCut = makeCut(new BurstDamageObjective(300, 10));
+        serialCut.setWeapons(Arrays.asList(mediumLaser, largeLaser, ac20));
+        LoadoutOptimizer parallelCut = makeCut(new BurstDamageObjective(300, 10));
+        parallelCut.setWeapons(Arrays.asList(mediumLaser, largeLaser, ac20));
+
+        List<OptimizedLoadout> serial = serialCut.optimize(new ForkJoinPool(1), 5);
+        List<OptimizedLoadout> parallel = parallelCut.optimize(new ForkJoinPool(4), 5);
+
+        assertEquals(serial.size(), parallel.size());
+        for (int i = 0; i < serial.size(); ++i) {
+            assertEquals(serial.get(i).getValue(), parallel.get(i).getValue(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.mwo_data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import lisong_mechlab.mwo_data.GameVFS.GameFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test suite for {@link GameArchiveIndex} and the archive handling of {@link GameVFS}.
+ *
+ * @author Emily Björk
+ */
+public class GameArchiveIndexTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File           gameRoot;
+    private File           indexFile;
+
+    @Before
+    public void setup() throws IOException {
+        gameRoot = tempFolder.newFolder("MWO");
+        indexFile = new File(tempFolder.getRoot(), "index.bin");
+
+        new File(gameRoot, "Bin32").mkdirs();
+        new File(gameRoot, "Bin32/MechWarriorOnline.exe").createNewFile();
+        new File(gameRoot, "Game/Levels/Alpine").mkdirs();
+
+        writePak(new File(gameRoot, "Game/Objects.pak"), "Objects/mechs/spider/sdr-5k.mdf", "spider",
+                "Objects/mechs/spider/sdr-5d.mdf", "other spider");
+        writePak(new File(gameRoot, "Game/Levels/Alpine/level.pak"), "mission_mission0.xml", "alpine");
+        writePak(new File(gameRoot, "Game/Levels.pak"), "Levels/Frozen/mission_mission0.xml", "frozen");
+        writePak(new File(gameRoot, "Game/Localized/French.pak"), "Languages/strings.xml", "bonjour");
+    }
+
+    @Test
+    public void testFind_CaseInsensitive() throws IOException {
+        GameArchiveIndex cut = GameArchiveIndex.load(gameRoot.toPath(), null, null);
+
+        GameArchiveIndex.Entry entry = cut.find(new File("game/objects/MECHS/spider/SDR-5K.mdf"));
+
+        assertNotNull(entry);
+        assertEquals("Objects/mechs/spider/sdr-5k.mdf", entry.entryName);
+        assertEquals("Game/Objects.pak", entry.archive.relativePath);
+        assertNull(cut.find(new File("Game/Objects/mechs/spider/sdr-5x.mdf")));
+    }
+
+    @Test
+    public void testFind_SkipsFrench() throws IOException {
+        GameArchiveIndex cut = GameArchiveIndex.load(gameRoot.toPath(), null, null);
+        assertNull(cut.find(new File("Game/Localized/Languages/strings.xml")));
+        assertEquals(4, cut.size());
+    }
+
+    @Test
+    public void testLoad_Persisted() throws IOException {
+        GameArchiveIndex.load(gameRoot.toPath(), indexFile, null);
+        assertTrue(indexFile.isFile());
+
+        GameArchiveIndex cut = GameArchiveIndex.load(gameRoot.toPath(), indexFile, null);
+
+        assertEquals(4, cut.size());
+        assertNotNull(cut.find(new File("Game/Levels/Alpine/mission_mission0.xml")));
+    }
+
+    /**
+     * A changed archive must invalidate the persisted index.
+     */
+    @Test
+    public void testLoad_Stale() throws IOException {
+        GameArchiveIndex.load(gameRoot.toPath(), indexFile, null);
+        File pak = new File(gameRoot, "Game/Objects.pak");
+        writePak(pak, "Objects/mechs/atlas/as7-d.mdf", "atlas, now with more content");
+
+        GameArchiveIndex cut = GameArchiveIndex.load(gameRoot.toPath(), indexFile, null);
+
+        assertNotNull(cut.find(new File("Game/Objects/mechs/atlas/as7-d.mdf")));
+        assertNull(cut.find(new File("Game/Objects/mechs/spider/sdr-5k.mdf")));
+    }
+
+    /**
+     * The index is only a cache, failing to store it is reported to the log and doesn't fail the load.
+     */
+    @Test
+    public void testLoad_WriteFailureLogged() throws IOException {
+        File unwritable = new File(tempFolder.getRoot(), "missing/index.bin");
+        StringWriter log = new StringWriter();
+
+        GameArchiveIndex cut = GameArchiveIndex.load(gameRoot.toPath(), unwritable, log);
+
+        assertEquals(4, cut.size());
+        assertFalse(unwritable.exists());
+        assertTrue(log.toString().startsWith("Unable to write game archive index"));
+    }
+
+    @Test
+    public void testLoad_Corrupt() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(indexFile)) {
+            out.write(new byte[] { 1, 2, 3 });
+        }
+
+        GameArchiveIndex cut = GameArchiveIndex.load(gameRoot.toPath(), indexFile, null);
+
+        assertEquals(4, cut.size());
+    }
+
+    @Test
+    public void testListGameDir_InsideArchives() throws IOException {
+        try (GameVFS cut = new GameVFS(gameRoot, indexFile)) {
+            File[] levels = cut.listGameDir(new File("Game/Levels"));
+            assertArrayEquals(new File[] { new File("Game/Levels/Alpine"), new File("Game/Levels/Frozen") }, levels);
+
+            File[] spider = cut.listGameDir(new File("Game/Objects/mechs/spider"));
+            assertEquals(Arrays.asList(new File("Game/Objects/mechs/spider/sdr-5d.mdf"), new File(
+                    "Game/Objects/mechs/spider/sdr-5k.mdf")), Arrays.asList(spider));
+
+            assertNull(cut.listGameDir(new File("Game/Nothing")));
+        }
+    }
+
+    @Test
+    public void testOpenGameFile() throws IOException {
+        try (GameVFS cut = new GameVFS(gameRoot, indexFile)) {
+            assertEquals("spider", read(cut.openGameFile(new File("Game/Objects/mechs/spider/sdr-5k.mdf"))));
+            assertEquals("frozen", read(cut.openGameFile(new File("Game/Levels/Frozen/mission_mission0.xml"))));
+            assertEquals("alpine", read(cut.openGameFile(new File("Game/Levels/Alpine/mission_mission0.xml"))));
+            assertTrue(cut.exists(new File("Game/Levels/Alpine/mission_mission0.xml")));
+            assertFalse(cut.exists(new File("Game/Levels/Alpine/mission_mission1.xml")));
+        }
+    }
+
+    @Test
+    public void testStreamGameFile() throws IOException {
+        try (GameVFS cut = new GameVFS(gameRoot, indexFile)) {
+            try (GameFile gameFile = cut.streamGameFile(new File("Game/Objects/mechs/spider/sdr-5d.mdf"))) {
+                assertEquals("other spider", read(gameFile));
+            }
+        }
+    }
+
+    /**
+     * If an archive changes after it has been indexed, the CRC check of the streamed data must fail.
+     */
+    @Test(expected = IOException.class)
+    public void testStreamGameFile_CrcMismatch() throws IOException {
+        GameArchiveIndex.load(gameRoot.toPath(), indexFile, null);
+        File pak = new File(gameRoot, "Game/Objects.pak");
+        long lastModified = pak.lastModified();
+        writePak(pak, "Objects/mechs/spider/sdr-5k.mdf", "spidey", "Objects/mechs/spider/sdr-5d.mdf", "other spider");
+        pak.setLastModified(lastModified); // Same size and time, the index is reused.
+
+        try (GameVFS cut = new GameVFS(gameRoot, indexFile);
+                GameFile gameFile = cut.streamGameFile(new File("Game/Objects/mechs/spider/sdr-5k.mdf"))) {
+            while (gameFile.stream.read() >= 0) {
+                // Read to end
+            }
+        }
+    }
+
+    /**
+     * The XML parsers stop reading at the end of the root element. The CRC must still be checked when the stream is
+     * closed.
+     */
+    @Test(expected = IOException.class)
+    public void testStreamGameFile_CrcMismatchParsed() throws IOException {
+        final String talents = "Libs/MechPilotTalents/PilotTalents.xml";
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 64 * 1024; ++i) {
+            padding.append(' ');
+        }
+        File pak = new File(gameRoot, "Game/GameData.pak");
+        writeStoredPak(pak, talents, "<PilotTalents><Talent talentid=\"1\" name=\"a\"/></PilotTalents>" + padding);
+        GameArchiveIndex.load(gameRoot.toPath(), indexFile, null);
+        long lastModified = pak.lastModified();
+        long length = pak.length();
+        // Stored entries of equal length give an archive of the same size.
+        writeStoredPak(pak, talents, "<PilotTalents><Talent talentid=\"2\" name=\"a\"/></PilotTalents>" + padding);
+        pak.setLastModified(lastModified); // Same size and time, the index is reused.
+        assertEquals(length, pak.length());
+
+        try (GameVFS cut = new GameVFS(gameRoot, indexFile)) {
+            XMLPilotTalents.read(cut);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenGameFile_Missing() throws IOException {
+        try (GameVFS cut = new GameVFS(gameRoot, indexFile)) {
+            cut.openGameFile(new File("Game/Objects/mechs/spider/sdr-5x.mdf"));
+        }
+    }
+
+    @Test
+    public void testZipFilePool_Bounded() throws IOException {
+        ZipFilePool cut = new ZipFilePool(1);
+        File objects = new File(gameRoot, "Game/Objects.pak");
+        File levels = new File(gameRoot, "Game/Levels.pak");
+
+        try (ZipFilePool.Lease lease = cut.acquire(objects)) {
+            try (ZipFilePool.Lease other = cut.acquire(levels)) {
+                // The evicted archive must stay open while it is leased.
+                assertNotNull(lease.getZipFile().getEntry("Objects/mechs/spider/sdr-5k.mdf"));
+                assertNotNull(other.getZipFile().getEntry("Levels/Frozen/mission_mission0.xml"));
+            }
+        }
+        assertEquals(1, cut.size());
+        cut.closeAll();
+        assertEquals(0, cut.size());
+    }
+
+    private static String read(GameFile aGameFile) throws IOException {
+        try (InputStream is = aGameFile.stream) {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            int b;
+            while ((b = is.read()) >= 0) {
+                data.write(b);
+            }
+            return new String(data.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Writes the entries without compression, so that the size of the archive only depends on the length of the
+     * contents.
+     */
+    private static void writeStoredPak(File aFile, String aName, String aContents) throws IOException {
+        byte[] data = aContents.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ZipEntry entry = new ZipEntry(aName);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        entry.setTime(0);
+
+        aFile.getParentFile().mkdirs();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(aFile))) {
+            out.putNextEntry(entry);
+            out.write(data);
+            out.closeEntry();
+        }
+    }
+
+    private static void writePak(File aFile, String... aNamesAndContents) throws IOException {
+        aFile.getParentFile().mkdirs();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(aFile))) {
+            for (int i = 0; i < aNamesAndContents.length; i += 2) {
+                out.putNextEntry(new ZipEntry(aNamesAndContents[i]));
+                out.write(aNamesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+    }
+}
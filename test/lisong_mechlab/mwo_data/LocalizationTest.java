@@ -0,0 +1,85 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.mwo_data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link Localization}.
+ * 
+ * @author Emily Björk
+ */
+public class LocalizationTest {
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                                               + "<Workbook xmlns=\"urn:schemas-microsoft-com:office:spreadsheet\""
+                                               + " xmlns:ss=\"urn:schemas-microsoft-com:office:spreadsheet\">"
+                                               + "<Worksheet ss:Name=\"Sheet1\"><Table>";
+    private static final String FOOTER = "</Table></Worksheet></Workbook>";
+
+    private Map<String, String> parse(String aRows) throws Exception {
+        Map<String, String> ans = new HashMap<>();
+        Localization.parseWorkbook(new ByteArrayInputStream((HEADER + aRows + FOOTER).getBytes(StandardCharsets.UTF_8)),
+                ans);
+        return ans;
+    }
+
+    @Test
+    public void testParseWorkbook() throws Exception {
+        Map<String, String> ans = parse("<Row><Cell><Data ss:Type=\"String\">@AC20</Data></Cell>"
+                + "<Cell><Data ss:Type=\"String\">AC/20 &amp; more</Data></Cell>"
+                + "<Cell><Data ss:Type=\"String\">Ignored</Data></Cell></Row>");
+
+        assertEquals(1, ans.size());
+        assertEquals("AC/20 & more", ans.get("@ac20"));
+    }
+
+    @Test
+    public void testParseWorkbook_Junk() throws Exception {
+        Map<String, String> ans = parse("<Row/><Row><Cell><Data>@OnlyKey</Data></Cell></Row>"
+                + "<Row><Cell/><Cell><Data>NoKey</Data></Cell></Row>");
+        assertTrue(ans.isEmpty());
+    }
+
+    @Test
+    public void testParseWorkbook_NoValue() throws Exception {
+        Map<String, String> ans = parse("<Row><Cell><Data>@key</Data></Cell><Cell/></Row>");
+        assertTrue(ans.containsKey("@key"));
+        assertNull(ans.get("@key"));
+    }
+
+    /**
+     * Formatted text is stored as nested elements inside of the data element.
+     */
+    @Test
+    public void testParseWorkbook_FormattedText() throws Exception {
+        Map<String, String> ans = parse("<Row><Cell><Data>key</Data></Cell>"
+                + "<Cell><ss:Data><B>Bold</B> text</ss:Data></Cell></Row>");
+        assertEquals("Bold text", ans.get("@key"));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * @formatter:off
+ * Li Song Mechlab - A 'mech building tool for PGI's MechWarrior: Online.
+ * Copyright (C) 2013  Emily Björk
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+//@formatter:on
+package lisong_mechlab.util.message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lisong_mechlab.model.chassi.Location;
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutStandard;
+import lisong_mechlab.model.loadout.component.ConfiguredComponentBase;
+import lisong_mechlab.model.loadout.component.ConfiguredComponentBase.ComponentMessage;
+
+/**
+ * Measures the cost of dispatching a message for one loadout as a function of the number of open loadouts, both when
+ * all recipients are attached for broadcast and when they subscribe to their loadout. This is not a unit test, run it
+ * manually with the main method.
+ * 
+ * @author Emily Björk
+ */
+public class MessageXBarBenchmark {
+    private static final int RECIPIENTS_PER_LOADOUT = 100;
+    private static final int ITERATIONS             = 20000;
+
+    private static class Recipient implements Message.Recipient {
+        private final LoadoutBase<?> loadout;
+        int                          received;
+
+        Recipient(LoadoutBase<?> aLoadout) {
+            loadout = aLoadout;
+        }
+
+        @Override
+        public void receive(Message aMsg) {
+            if (aMsg.isForMe(loadout))
+                received++;
+        }
+    }
+
+    public static void main(String[] aArgs) throws Exception {
+        for (int loadouts : new int[] { 1, 2, 5, 10, 20 }) {
+            List<LoadoutBase<?>> open = new ArrayList<>();
+            for (int i = 0; i < loadouts; ++i) {
+                open.add(new LoadoutStandard("AS7-D"));
+            }
+            ConfiguredComponentBase component = open.get(0).getComponent(Location.LeftArm);
+            Message msg = new ComponentMessage(component, ComponentMessage.Type.ArmorChanged);
+
+            // Keep the recipients reachable, the crossbar only has weak references.
+            List<Recipient> recipients = new ArrayList<>();
+            MessageXBar broadcast = new MessageXBar();
+            MessageXBar indexed = new MessageXBar();
+            for (LoadoutBase<?> loadout : open) {
+                for (int i = 0; i < RECIPIENTS_PER_LOADOUT; ++i) {
+                    Recipient recipient = new Recipient(loadout);
+                    recipients.add(recipient);
+                    broadcast.attach(recipient);
+                    indexed.attach(recipient, ComponentMessage.class, loadout);
+                }
+            }
+
+            // Warm up
+            post(broadcast, msg, ITERATIONS);
+            post(indexed, msg, ITERATIONS);
+
+            long start = System.nanoTime();
+            post(broadcast, msg, ITERATIONS);
+            long broadcastTime = (System.nanoTime() - start) / ITERATIONS;
+
+            start = System.nanoTime();
+            post(indexed, msg, ITERATIONS);
+            long indexedTime = (System.nanoTime() - start) / ITERATIONS;
+
+            System.out.println(loadouts + " loadouts, " + recipients.size() + " recipients:");
+            System.out.println("  Broadcast: " + broadcastTime + " ns/message");
+            System.out.println("  Indexed:   " + indexedTime + " ns/message");
+        }
+    }
+
+    private static void post(MessageXBar aXBar, Message aMessage, int aIterations) {
+        for (int i = 0; i < aIterations; ++i) {
+            aXBar.post(aMessage);
+        }
+    }
+}
@@ -19,6 +19,11 @@
 //@formatter:on
 package lisong_mechlab.util.message;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -26,8 +31,20 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import lisong_mechlab.model.loadout.LoadoutBase;
+import lisong_mechlab.model.loadout.LoadoutChangedMessage;
+import lisong_mechlab.model.loadout.LoadoutMessage;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * A test suite for {@link MessageXBar}.
@@ -35,7 +52,13 @@ import org.junit.Test;
  * @author Emily Björk
  */
 public class MessageXBarTest {
-    MessageXBar cut = new MessageXBar();
+    List<Runnable> flushes = new ArrayList<>();
+    MessageXBar    cut     = new MessageXBar(new Executor() {
+                               @Override
+                               public void execute(Runnable aCommand) {
+                                   flushes.add(aCommand);
+                               }
+                           });
 
     @Test
     public void testPostMessage() {
@@ -99,4 +122,163 @@ public class MessageXBarTest {
         // Verify
         verify(ref, times(2)).get();
     }
+
+    /**
+     * Subscribed recipients shall only receive messages of the right class for the right loadout.
+     */
+    @Test
+    public void testAttach_Topic() {
+        LoadoutBase<?> loadout0 = mock(LoadoutBase.class);
+        LoadoutBase<?> loadout1 = mock(LoadoutBase.class);
+        Message.Recipient reader0 = mock(Message.Recipient.class);
+        Message.Recipient reader1 = mock(Message.Recipient.class);
+        Message.Recipient readerAll = mock(Message.Recipient.class);
+        Message.Recipient readerLoadoutMessages = mock(Message.Recipient.class);
+        Message msg = mock(Message.class);
+        LoadoutMessage loadoutMsg = mock(LoadoutMessage.class);
+        when(msg.isForMe(loadout0)).thenReturn(true);
+        when(loadoutMsg.isForMe(loadout1)).thenReturn(true);
+
+        cut.attach(reader0, Message.class, loadout0);
+        cut.attach(reader1, Message.class, loadout1);
+        cut.attach(readerAll, Message.class, null);
+        cut.attach(readerLoadoutMessages, LoadoutMessage.class, null);
+        cut.post(msg);
+        cut.post(loadoutMsg);
+
+        verify(reader0).receive(msg);
+        verify(reader0, never()).receive(loadoutMsg);
+        verify(reader1, never()).receive(msg);
+        verify(reader1).receive(loadoutMsg);
+        verify(readerAll).receive(msg);
+        verify(readerAll).receive(loadoutMsg);
+        verify(readerLoadoutMessages, never()).receive(msg);
+        verify(readerLoadoutMessages).receive(loadoutMsg);
+    }
+
+    /**
+     * Broadcast recipients receive messages before subscribed recipients.
+     */
+    @Test
+    public void testAttach_TopicOrder() {
+        Message.Recipient subscriber = mock(Message.Recipient.class);
+        Message.Recipient reader = mock(Message.Recipient.class);
+        Message msg = mock(Message.class);
+
+        cut.attach(subscriber, Message.class, null);
+        cut.attach(reader);
+        cut.post(msg);
+
+        InOrder inOrder = inOrder(reader, subscriber);
+        inOrder.verify(reader).receive(msg);
+        inOrder.verify(subscriber).receive(msg);
+    }
+
+    @Test
+    public void testDetach_Topic() {
+        LoadoutBase<?> loadout = mock(LoadoutBase.class);
+        Message.Recipient reader0 = mock(Message.Recipient.class);
+        Message.Recipient reader1 = mock(Message.Recipient.class);
+        Message msg = mock(Message.class);
+        when(msg.isForMe(loadout)).thenReturn(true);
+
+        cut.attach(reader0, Message.class, loadout);
+        cut.attach(reader1, Message.class, loadout);
+        cut.detach(reader0);
+        cut.post(msg);
+
+        verify(reader0, never()).receive(msg);
+        verify(reader1).receive(msg);
+    }
+
+    /**
+     * All messages for a loadout that are posted before the flush are delivered as one message.
+     */
+    @Test
+    public void testAttachCoalesced() {
+        LoadoutBase<?> loadout = mock(LoadoutBase.class);
+        Message.Recipient reader = mock(Message.Recipient.class);
+        Message msg = mock(Message.class);
+        when(msg.isForMe(loadout)).thenReturn(true);
+
+        cut.attachCoalesced(reader, loadout);
+        cut.post(new LoadoutMessage(loadout, LoadoutMessage.Type.MODULES_CHANGED));
+        cut.post(msg);
+        cut.post(msg);
+
+        verify(reader, never()).receive(Matchers.<Message> any());
+        assertEquals(1, flushes.size());
+
+        flushes.get(0).run();
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(reader).receive(captor.capture());
+        LoadoutChangedMessage changed = (LoadoutChangedMessage) captor.getValue();
+        assertTrue(changed.isForMe(loadout));
+        assertEquals(3, changed.getCount());
+        assertEquals(LoadoutChangedMessage.MODULES | LoadoutChangedMessage.OTHER, changed.getDirty());
+        assertFalse(changed.isDirty(LoadoutChangedMessage.ARMOR | LoadoutChangedMessage.ITEMS));
+        assertTrue(changed.affectsHeatOrDamage());
+        assertTrue(changed.affectsRange());
+    }
+
+    @Test
+    public void testAttachCoalesced_OtherLoadout() {
+        LoadoutBase<?> loadout = mock(LoadoutBase.class);
+        Message.Recipient reader = mock(Message.Recipient.class);
+        Message msg = mock(Message.class);
+
+        cut.attachCoalesced(reader, loadout);
+        cut.post(msg);
+        cut.flushCoalesced();
+
+        assertTrue(flushes.isEmpty());
+        verify(reader, never()).receive(Matchers.<Message> any());
+    }
+
+    /**
+     * Messages that are posted while coalesced messages are delivered are coalesced for the next flush.
+     */
+    @Test
+    public void testAttachCoalesced_PostDuringFlush() {
+        final LoadoutBase<?> loadout = mock(LoadoutBase.class);
+        Message.Recipient reader = mock(Message.Recipient.class);
+        Message.Recipient coalescedReader = mock(Message.Recipient.class);
+        final Message msg = mock(Message.class);
+        when(msg.isForMe(loadout)).thenReturn(true);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock aInvocation) throws Throwable {
+                cut.post(new LoadoutMessage(loadout, LoadoutMessage.Type.RENAME));
+                return null;
+            }
+        }).when(coalescedReader).receive(Matchers.<Message> any());
+
+        cut.attach(reader);
+        cut.attachCoalesced(coalescedReader, loadout);
+        cut.post(msg);
+        cut.flushCoalesced();
+
+        verify(reader).receive(new LoadoutMessage(loadout, LoadoutMessage.Type.RENAME));
+        verify(coalescedReader, times(1)).receive(Matchers.<Message> any());
+        assertEquals(2, flushes.size());
+    }
+
+    @Test
+    public void testDetach_Coalesced() {
+        LoadoutBase<?> loadout = mock(LoadoutBase.class);
+        Message.Recipient reader0 = mock(Message.Recipient.class);
+        Message.Recipient reader1 = mock(Message.Recipient.class);
+        Message msg = mock(Message.class);
+        when(msg.isForMe(loadout)).thenReturn(true);
+
+        cut.attachCoalesced(reader0, loadout);
+        cut.attachCoalesced(reader1, loadout);
+        cut.detach(reader0);
+        cut.post(msg);
+        cut.flushCoalesced();
+
+        verify(reader0, never()).receive(Matchers.<Message> any());
+        verify(reader1).receive(Matchers.<Message> any());
+    }
 }